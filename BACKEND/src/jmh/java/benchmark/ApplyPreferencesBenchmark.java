@@ -0,0 +1,76 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import controller.MatchingScoreController;
+import controller.PreferencesController;
+import controller.PreferencesController.PreferencesRequest;
+import controller.StudySpotsController;
+import model.StudySpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the /api/preferences/apply path end to end: binding the JSON request body,
+ * scoring, and writing the JSON response, using the application's ObjectMapper.
+ * Show-all requests return the pre-rendered catalog bytes as the endpoint does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ApplyPreferencesBenchmark {
+ 
+ @Param({"100", "1000", "10000", "100000", "1000000"})
+ public int catalogSize;
+ 
+ @Param({"false", "true"})
+ public boolean showAll;
+ 
+ private ObjectMapper objectMapper;
+ private PreferencesController preferencesController;
+ private byte[] requestBody;
+ 
+ @Setup
+ public void setup() throws IOException {
+  objectMapper = new JacksonConfig().objectMapper();
+  List<StudySpot> spots = SyntheticCatalog.generate(catalogSize, SyntheticCatalog.DEFAULT_SEED);
+  MatchingScoreController scoreCalculator = new MatchingScoreController(spots);
+  scoreCalculator.rebuildIndex();
+  preferencesController = new PreferencesController(scoreCalculator, new StudySpotsController(spots));
+  
+  PreferencesRequest request = new PreferencesRequest();
+  request.setShowAll(showAll);
+  request.setNoiseLevel("Silent");
+  request.setIndoorOutdoor("Indoor");
+  request.setSelectedAmenities(List.of("wifi", "washrooms"));
+  request.setSelectedSpaceTypes(List.of("library_classroom"));
+  request.setMaxDistance(1000);
+  request.setOpenTime("09:00");
+  request.setCloseTime("21:00");
+  request.setDistancesFromUser(SyntheticCatalog.distances(spots, SyntheticCatalog.DEFAULT_SEED));
+  requestBody = objectMapper.writeValueAsBytes(request);
+ }
+ 
+ @Benchmark
+ public byte[] applyPreferences() throws IOException {
+  PreferencesRequest request = objectMapper.readValue(requestBody, PreferencesRequest.class);
+  Object body = preferencesController.applyPreferences(request, null).getBody();
+  return body instanceof byte[] ? (byte[]) body : objectMapper.writeValueAsBytes(body);
+ }
+}
@@ -0,0 +1,44 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import controller.CatalogLoader;
+import controller.MatchingScoreController.ScoredSpot;
+import model.StudySpot;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the retained heap size per spot of a catalog and of a ranking over it, measured
+ * with JOL. The catalog is loaded through CatalogLoader from JSON so that, as in the
+ * application, no strings are shared by accident of being literals.
+ *
+ * <p>Run with {@code gradle footprint [-PcatalogSize=n]}.
+ */
+public final class CatalogFootprint {
+
+ private CatalogFootprint() {
+ }
+
+ public static void main(String[] args) throws IOException {
+  int size = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+  ObjectMapper mapper = new JacksonConfig().objectMapper();
+  byte[] json = mapper.writeValueAsBytes(SyntheticCatalog.generate(size, SyntheticCatalog.DEFAULT_SEED));
+  List<StudySpot> spots = new CatalogLoader(mapper).readJson(new ByteArrayInputStream(json));
+  List<ScoredSpot> ranking = new ArrayList<>(spots.size());
+  for (StudySpot spot : spots) {
+   ranking.add(new ScoredSpot(spot, 100.0));
+  }
+
+  GraphLayout catalog = GraphLayout.parseInstance(spots);
+  GraphLayout scored = GraphLayout.parseInstance(ranking).subtract(catalog);
+  System.out.println(catalog.toFootprint());
+  System.out.println(scored.toFootprint());
+  System.out.printf("catalog: %d spots, %.1f bytes/spot%n", size, (double) catalog.totalSize() / size);
+  System.out.printf("ranking: %.1f bytes/spot on top of the catalog%n", (double) scored.totalSize() / size);
+ }
+}
@@ -0,0 +1,72 @@
+package benchmark;
+
+import config.JacksonConfig;
+import controller.CatalogLoader;
+import controller.CatalogSnapshot;
+import controller.SpotIndex;
+import model.StudySpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time from a catalog file to a scoring-ready SpotIndex, comparing the JSON
+ * loader with a mapped binary snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CatalogLoadBenchmark {
+
+ @Param({"1000", "100000", "1000000"})
+ public int catalogSize;
+
+ private CatalogLoader loader;
+ private Path json;
+ private Path snapshot;
+
+ @Setup(Level.Trial)
+ public void setup() throws IOException {
+  loader = new CatalogLoader(new JacksonConfig().objectMapper());
+  List<StudySpot> spots = SyntheticCatalog.generate(catalogSize, SyntheticCatalog.DEFAULT_SEED);
+  json = Files.createTempFile("catalog", ".json");
+  new JacksonConfig().objectMapper().writeValue(json.toFile(), spots);
+  snapshot = Files.createTempFile("catalog", ".snap");
+  CatalogSnapshot.write(spots, snapshot);
+ }
+
+ @TearDown(Level.Trial)
+ public void teardown() throws IOException {
+  Files.deleteIfExists(json);
+  Files.deleteIfExists(snapshot);
+ }
+
+ @Benchmark
+ public SpotIndex loadJson() throws IOException {
+  return SpotIndex.build(loader.load(json));
+ }
+
+ @Benchmark
+ public SpotIndex openSnapshot() throws IOException {
+  return SpotIndex.build(CatalogSnapshot.open(snapshot));
+ }
+}
@@ -0,0 +1,132 @@
+package benchmark;
+
+import controller.MatchingScoreController;
+import controller.MatchingScoreController.ScoredSpot;
+import controller.OccupancyController;
+import controller.OccupancyTracker;
+import controller.StudySpotCatalog;
+import model.PreferencesModel;
+import model.StudySpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures /api/occupancy/events ingestion, from parsing a batch of
+ * {@value OccupancyLoad#DEFAULT_BATCH_SIZE} synthetic readings to recording them, and
+ * scoring latency while readings stream in. The tracker folds every 100 ms throughout, so
+ * scoring runs against factors that keep changing.
+ *
+ * <p>{@code ingest} reports batches per second on four threads; multiply by the batch size
+ * for readings per second. The {@code underLoad} group scores on one thread while three
+ * threads ingest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OccupancyBenchmark {
+
+ private static final int BATCHES = 64;
+ private static final String SENSOR_TOKEN = "benchmark";
+ private static final String SENSOR_AUTHORIZATION = "Bearer " + SENSOR_TOKEN;
+
+ @Param({"1000", "100000"})
+ public int catalogSize;
+
+ private OccupancyTracker tracker;
+ private OccupancyController occupancyController;
+ private MatchingScoreController scoreCalculator;
+ private List<byte[]> batches;
+ private PreferencesModel preferences;
+ private Map<String, Double> distances;
+
+ @Setup
+ public void setup() {
+  List<StudySpot> spots = SyntheticCatalog.generate(catalogSize, SyntheticCatalog.DEFAULT_SEED);
+  StudySpotCatalog catalog = new StudySpotCatalog(spots);
+  tracker = new OccupancyTracker(catalog, 600, 100);
+  tracker.start();
+  occupancyController = new OccupancyController(tracker, OccupancyLoad.DEFAULT_BATCH_SIZE, SENSOR_TOKEN);
+  scoreCalculator = new MatchingScoreController(catalog, MatchingScoreController.ScoringMode.INDEXED,
+   ForkJoinPool.commonPool(), MatchingScoreController.DEFAULT_PARALLEL_THRESHOLD, tracker);
+  scoreCalculator.rebuildIndex();
+
+  List<String> ids = new ArrayList<>(spots.size());
+  for (StudySpot spot : spots) {
+   ids.add(spot.getId());
+  }
+  batches = OccupancyLoad.batches(ids, BATCHES, OccupancyLoad.DEFAULT_BATCH_SIZE, SyntheticCatalog.DEFAULT_SEED);
+  distances = SyntheticCatalog.distances(spots, SyntheticCatalog.DEFAULT_SEED);
+
+  preferences = new PreferencesModel();
+  preferences.setNoiseLevel("Silent");
+  preferences.setIndoorOutdoor("Indoor");
+  preferences.setSpaceType("Library");
+  preferences.setMaxDistance(1000);
+  preferences.setOpenTime(LocalTime.of(9, 0));
+  preferences.setCloseTime(LocalTime.of(21, 0));
+  preferences.setAmenity("WiFi", 1);
+ }
+
+ @TearDown
+ public void tearDown() {
+  tracker.close();
+ }
+
+ /**
+  * Position of a benchmark thread in the pre-generated batches.
+  */
+ @State(Scope.Thread)
+ public static class Cursor {
+  private int next;
+
+  int advance() {
+   next = (next + 1) % BATCHES;
+   return next;
+  }
+ }
+
+ @Benchmark
+ @BenchmarkMode(Mode.Throughput)
+ @OutputTimeUnit(TimeUnit.SECONDS)
+ @Threads(4)
+ public Object ingest(Cursor cursor) {
+  return occupancyController.ingest(batches.get(cursor.advance()), SENSOR_AUTHORIZATION).getBody();
+ }
+
+ @Benchmark
+ @Group("underLoad")
+ @GroupThreads(3)
+ public Object ingestUnderLoad(Cursor cursor) {
+  return occupancyController.ingest(batches.get(cursor.advance()), SENSOR_AUTHORIZATION).getBody();
+ }
+
+ @Benchmark
+ @Group("underLoad")
+ @GroupThreads(1)
+ public List<ScoredSpot> scoreUnderLoad() {
+  return scoreCalculator.calculateScore(preferences, distances, 10);
+ }
+}
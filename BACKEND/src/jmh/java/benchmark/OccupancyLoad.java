@@ -0,0 +1,154 @@
+package benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Seeded generator of synthetic occupancy readings, and a load driver that posts them to a
+ * running server. Every spot has a base occupancy derived from its ID; readings scatter
+ * around it, and a few spots get most of the readings, as busy libraries do.
+ *
+ * <p>Run the driver with {@code gradle occupancyLoad [-PloadUrl=...] [-PloadRate=...]
+ * [-PloadSeconds=...] [-PloadToken=...]}; the token defaults to the OCCUPANCY_SENSOR_TOKEN
+ * environment variable and must match the server's occupancy.sensor-token. It prints the readings per second the server accepted and the
+ * latency of the batch posts.
+ */
+public final class OccupancyLoad {
+
+ public static final int DEFAULT_BATCH_SIZE = 1000;
+
+ private static final JsonFactory JSON = new JsonFactory();
+
+ private OccupancyLoad() {
+ }
+
+ /**
+  * Generates a JSON batch of readings for /api/occupancy/events.
+  *
+  * @param spotIds IDs to generate readings for
+  * @param size    number of readings
+  * @param random  source of randomness
+  * @return the batch as UTF-8 JSON
+  */
+ public static byte[] batch(List<String> spotIds, int size, SplittableRandom random) {
+  ByteArrayOutputStream out = new ByteArrayOutputStream(size * 40);
+  try (JsonGenerator gen = JSON.createGenerator(out)) {
+   gen.writeStartArray();
+   for (int k = 0; k < size; k++) {
+    // Squaring skews the picks toward the front of the catalog.
+    double pick = random.nextDouble();
+    String id = spotIds.get((int) (pick * pick * spotIds.size()));
+    double occupancy = baseOccupancy(id) + (random.nextDouble() - 0.5) * 0.2;
+    gen.writeStartObject();
+    gen.writeStringField("spotId", id);
+    gen.writeNumberField("occupancy", Math.min(1.0, Math.max(0.0, occupancy)));
+    gen.writeEndObject();
+   }
+   gen.writeEndArray();
+  } catch (IOException e) {
+   throw new UncheckedIOException(e);
+  }
+  return out.toByteArray();
+ }
+
+ /**
+  * Generates {@code count} batches from a seed; the same arguments always produce the
+  * same batches.
+  */
+ public static List<byte[]> batches(List<String> spotIds, int count, int size, long seed) {
+  SplittableRandom random = new SplittableRandom(seed);
+  List<byte[]> batches = new ArrayList<>(count);
+  for (int k = 0; k < count; k++) {
+   batches.add(batch(spotIds, size, random));
+  }
+  return batches;
+ }
+
+ private static double baseOccupancy(String id) {
+  return (id.hashCode() & 0xff) / 255.0;
+ }
+
+ /**
+  * Posts generated batches to a running server at a target rate.
+  *
+  * @param args base URL (default http://localhost:8080), readings per second (default
+  *             20000), duration in seconds (default 30) and sensor token (default none)
+  */
+ public static void main(String[] args) throws IOException, InterruptedException {
+  String baseUrl = args.length > 0 ? args[0] : "http://localhost:8080";
+  int rate = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+  int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+  String token = args.length > 3 ? args[3] : "";
+
+  HttpClient client = HttpClient.newHttpClient();
+  HttpResponse<byte[]> catalog = client.send(
+   HttpRequest.newBuilder(URI.create(baseUrl + "/api/studyspots/all?fields=id")).build(),
+   HttpResponse.BodyHandlers.ofByteArray());
+  List<String> spotIds = new ArrayList<>();
+  for (JsonNode spot : new ObjectMapper().readTree(catalog.body())) {
+   spotIds.add(spot.get("id").asText());
+  }
+  List<byte[]> batches = batches(spotIds, 64, DEFAULT_BATCH_SIZE, SyntheticCatalog.DEFAULT_SEED);
+  URI events = URI.create(baseUrl + "/api/occupancy/events");
+
+  long intervalNanos = TimeUnit.SECONDS.toNanos(1) * DEFAULT_BATCH_SIZE / rate;
+  long start = System.nanoTime();
+  long end = start + TimeUnit.SECONDS.toNanos(seconds);
+  LongAdder posted = new LongAdder();
+  LongAdder failed = new LongAdder();
+  LongAdder latencyNanos = new LongAdder();
+  AtomicLong maxLatencyNanos = new AtomicLong();
+  List<CompletableFuture<?>> inFlight = new ArrayList<>();
+  for (long next = start, k = 0; next < end; next += intervalNanos, k++) {
+   long wait = next - System.nanoTime();
+   if (wait > 0) {
+    TimeUnit.NANOSECONDS.sleep(wait);
+   }
+   HttpRequest.Builder builder = HttpRequest.newBuilder(events)
+    .header("Content-Type", "application/json")
+    .POST(HttpRequest.BodyPublishers.ofByteArray(batches.get((int) (k % batches.size()))));
+   if (!token.isEmpty()) {
+    builder.header("Authorization", "Bearer " + token);
+   }
+   HttpRequest request = builder.build();
+   long sent = System.nanoTime();
+   inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+    long latency = System.nanoTime() - sent;
+    latencyNanos.add(latency);
+    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+    if (error == null && response.statusCode() == 202) {
+     posted.increment();
+    } else {
+     failed.increment();
+    }
+   }));
+  }
+  for (CompletableFuture<?> future : inFlight) {
+   future.exceptionally(e -> null).join();
+  }
+
+  double elapsed = (System.nanoTime() - start) / 1e9;
+  long batchCount = posted.sum() + failed.sum();
+  System.out.printf("posted %d batches (%d failed) in %.1f s: %.0f readings/s accepted%n",
+   batchCount, failed.sum(), elapsed, posted.sum() * DEFAULT_BATCH_SIZE / elapsed);
+  System.out.printf("batch latency: mean %.2f ms, max %.2f ms%n",
+   latencyNanos.sum() / 1e6 / Math.max(1, batchCount), maxLatencyNanos.get() / 1e6);
+ }
+}
@@ -0,0 +1,93 @@
+package benchmark;
+
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+import api.RouteCache;
+import api.StraightLineRouter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a /api/walk route answered by the route cache, against a cache that is
+ * disabled and passes every request through. The upstream is the local straight-line
+ * router, so {@code uncached} shows the cache's overhead over the router rather than
+ * the OSRM round trip a hit saves.
+ *
+ * <p>Requests pick from {@value #PAIRS} origin-destination pairs on a campus-sized
+ * area, each jittered by a few meters so that they land in the same cells but not on
+ * the same coordinates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RouteCacheBenchmark {
+
+ private static final int PAIRS = 4096;
+ private static final double CENTER_LAT = 49.2606;
+ private static final double CENTER_LNG = -123.2460;
+
+ private final StraightLineRouter router = new StraightLineRouter();
+ private RouteCache cache;
+ private RouteCache disabled;
+ private double[][] pairs;
+
+ @Setup
+ public void setup() throws ApiException {
+  cache = new RouteCache(PAIRS * 2, RouteCache.DEFAULT_TTL_SECONDS, RouteCache.DEFAULT_BUCKET_METERS);
+  disabled = new RouteCache(0, RouteCache.DEFAULT_TTL_SECONDS, RouteCache.DEFAULT_BUCKET_METERS);
+  Random random = new Random(SyntheticCatalog.DEFAULT_SEED);
+  pairs = new double[PAIRS][];
+  for (int k = 0; k < PAIRS; k++) {
+   pairs[k] = new double[] {
+    CENTER_LAT + (random.nextDouble() - 0.5) * 0.02, CENTER_LNG + (random.nextDouble() - 0.5) * 0.03,
+    CENTER_LAT + (random.nextDouble() - 0.5) * 0.02, CENTER_LNG + (random.nextDouble() - 0.5) * 0.03};
+   cache.route(pairs[k][0], pairs[k][1], pairs[k][2], pairs[k][3], router);
+  }
+ }
+
+ /**
+  * Position of a benchmark thread in the pairs.
+  */
+ @State(Scope.Thread)
+ public static class Cursor {
+  private final Random random = new Random();
+  private int next;
+
+  double[] advance(double[][] pairs) {
+   next = (next + 1) % PAIRS;
+   double[] pair = pairs[next];
+   // Up to about a meter off, which stays in the same 10 m cells almost always.
+   double jitter = (random.nextDouble() - 0.5) * 1e-5;
+   return new double[] {pair[0] + jitter, pair[1] - jitter, pair[2] - jitter, pair[3] + jitter};
+  }
+ }
+
+ @Benchmark
+ @Threads(4)
+ public DistanceTime hit(Cursor cursor) throws ApiException {
+  double[] pair = cursor.advance(pairs);
+  return cache.route(pair[0], pair[1], pair[2], pair[3], router);
+ }
+
+ @Benchmark
+ @Threads(4)
+ public DistanceTime uncached(Cursor cursor) throws ApiException {
+  double[] pair = cursor.advance(pairs);
+  return disabled.route(pair[0], pair[1], pair[2], pair[3], router);
+ }
+}
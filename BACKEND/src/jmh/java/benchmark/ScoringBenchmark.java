@@ -0,0 +1,70 @@
+package benchmark;
+
+import controller.MatchingScoreController;
+import controller.MatchingScoreController.ScoredSpot;
+import model.PreferencesModel;
+import model.StudySpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures MatchingScoreController.calculateScore over synthetic catalogs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+ 
+ @Param({"100", "1000", "10000", "100000", "1000000"})
+ public int catalogSize;
+ 
+ @Param({"REFERENCE", "INDEXED", "PARALLEL"})
+ public MatchingScoreController.ScoringMode mode;
+ 
+ @Param({"0", "10"})
+ public int limit;
+ 
+ private MatchingScoreController controller;
+ private PreferencesModel preferences;
+ private Map<String, Double> distances;
+ 
+ @Setup
+ public void setup() {
+  List<StudySpot> spots = SyntheticCatalog.generate(catalogSize, SyntheticCatalog.DEFAULT_SEED);
+  controller = new MatchingScoreController(spots, mode);
+  controller.rebuildIndex();
+  distances = SyntheticCatalog.distances(spots, SyntheticCatalog.DEFAULT_SEED);
+  
+  preferences = new PreferencesModel();
+  preferences.setNoiseLevel("Silent");
+  preferences.setIndoorOutdoor("Indoor");
+  preferences.setSpaceType("Library");
+  preferences.setMaxDistance(1000);
+  preferences.setOpenTime(LocalTime.of(9, 0));
+  preferences.setCloseTime(LocalTime.of(21, 0));
+  preferences.setAmenity("WiFi", 1);
+  preferences.setAmenity("Washrooms", 1);
+ }
+ 
+ @Benchmark
+ public List<ScoredSpot> calculateScore() {
+  return controller.calculateScore(preferences, distances, limit);
+ }
+}
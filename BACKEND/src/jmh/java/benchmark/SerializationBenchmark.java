@@ -0,0 +1,55 @@
+package benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import controller.MatchingScoreController;
+import controller.MatchingScoreController.ScoredSpot;
+import model.PreferencesModel;
+import model.StudySpot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures JSON serialization of a ranked List of ScoredSpot with the application's
+ * ObjectMapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+ 
+ @Param({"100", "1000", "10000", "100000", "1000000"})
+ public int catalogSize;
+ 
+ private ObjectMapper objectMapper;
+ private List<ScoredSpot> ranked;
+ 
+ @Setup
+ public void setup() {
+  objectMapper = new JacksonConfig().objectMapper();
+  List<StudySpot> spots = SyntheticCatalog.generate(catalogSize, SyntheticCatalog.DEFAULT_SEED);
+  ranked = new MatchingScoreController(spots).calculateScore(new PreferencesModel(),
+   SyntheticCatalog.distances(spots, SyntheticCatalog.DEFAULT_SEED));
+ }
+ 
+ @Benchmark
+ public byte[] serializeRanking() throws IOException {
+  return objectMapper.writeValueAsBytes(ranked);
+ }
+}
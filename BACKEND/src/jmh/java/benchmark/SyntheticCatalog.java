@@ -0,0 +1,85 @@
+package benchmark;
+
+import model.StudySpot;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded generator for synthetic study spot catalogs used by the benchmarks.
+ * The same size and seed always produce the same catalog.
+ */
+public final class SyntheticCatalog {
+ 
+ public static final long DEFAULT_SEED = 221L;
+ 
+ private static final String[] NOISE_LEVELS = {"Silent", "Moderate", "Loud"};
+ private static final String[] INDOOR_OUTDOOR = {"Indoor", "Outdoor"};
+ private static final String[] SPACE_TYPES =
+  {"Open Area", "Quiet Room", "Group Study Room", "Outdoor Seating", "Library"};
+ private static final String[] AMENITIES =
+  {"WiFi", "Washrooms", "PrivateRoom", "Projector", "FoodOrDrinks"};
+ 
+ private static final double MIN_LAT = 49.2580;
+ private static final double MAX_LAT = 49.2720;
+ private static final double MIN_LNG = -123.2600;
+ private static final double MAX_LNG = -123.2450;
+ 
+ private SyntheticCatalog() {
+ }
+ 
+ /**
+  * Generates a catalog of study spots with IDs "1" to {@code size}.
+  *
+  * @param size number of spots to generate
+  * @param seed random seed
+  * @return list of generated spots
+  */
+ public static List<StudySpot> generate(int size, long seed) {
+  Random random = new Random(seed);
+  List<StudySpot> spots = new ArrayList<>(size);
+  for (int i = 1; i <= size; i++) {
+   StudySpot spot = new StudySpot();
+   spot.setId(Integer.toString(i));
+   spot.setName("Synthetic Spot " + i);
+   spot.setLatitude(MIN_LAT + random.nextDouble() * (MAX_LAT - MIN_LAT));
+   spot.setLongitude(MIN_LNG + random.nextDouble() * (MAX_LNG - MIN_LNG));
+   int open = 6 * 60 + random.nextInt(4 * 4) * 15;
+   int close = 17 * 60 + random.nextInt(7 * 4 + 1) * 15;
+   spot.setOpenTime(LocalTime.of(open / 60, open % 60));
+   spot.setCloseTime(close >= 24 * 60 ? LocalTime.MIDNIGHT : LocalTime.of(close / 60, close % 60));
+   spot.setNoiseLevel(NOISE_LEVELS[random.nextInt(NOISE_LEVELS.length)]);
+   spot.setIndoorOutdoor(INDOOR_OUTDOOR[random.nextInt(10) < 8 ? 0 : 1]);
+   spot.setSpaceType(SPACE_TYPES[random.nextInt(SPACE_TYPES.length)]);
+   spot.setAccessRequired(random.nextInt(4) == 0);
+   Map<String, Integer> amenities = new HashMap<>();
+   for (String amenity : AMENITIES) {
+    amenities.put(amenity, random.nextInt(2));
+   }
+   spot.setAmenities(amenities);
+   spots.add(spot);
+  }
+  return spots;
+ }
+ 
+ /**
+  * Generates a distance in meters from the user for every spot, the way the frontend
+  * currently sends them.
+  *
+  * @param spots spots to generate distances for
+  * @param seed  random seed
+  * @return map of spot ID to distance in meters
+  */
+ public static Map<String, Double> distances(List<StudySpot> spots, long seed) {
+  Random random = new Random(seed);
+  Map<String, Double> distances = new HashMap<>(spots.size() * 2);
+  for (StudySpot spot : spots) {
+   distances.put(spot.getId(), 50.0 + random.nextDouble() * 2500.0);
+  }
+  return distances;
+ }
+}
@@ -3,38 +3,124 @@ package api;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.HttpServerErrorException;
-import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service class for integrating with external APIs for geocoding and routing.
  * Uses Nominatim for address-to-coordinate geocoding and OSRM for walking route calculations.
+ *
+ * <p>Requests go through one shared JDK HttpClient, which negotiates HTTP/2 where the
+ * server offers it and otherwise keeps HTTP/1.1 connections alive for reuse. Every request
+ * has a connect and a response timeout. The asynchronous methods never block the calling
+ * thread, not even while waiting for a rate limiter; the blocking methods wait for them.
  */
 @Service
-public class ApiIntegration {
+public class ApiIntegration implements WalkingRouter {
  
  private static final Logger logger = LoggerFactory.getLogger(ApiIntegration.class);
  private static final String USER_AGENT = "YourAppName/1.0";
  
- private final RestTemplate restTemplate;
+ /**
+  * Nominatim's usage policy allows at most one request per second.
+  */
+ public static final double NOMINATIM_REQUESTS_PER_SECOND = 1;
+ 
+ /**
+  * Default rate of requests to the public OSRM server.
+  */
+ public static final double OSRM_REQUESTS_PER_SECOND = 5;
+ 
+ /**
+  * Largest number of destinations sent in one OSRM table request; the public server
+  * accepts at most 100 coordinates per request, one of them the origin.
+  */
+ public static final int TABLE_MAX_DESTINATIONS = 99;
+ 
+ /**
+  * Default longest time a request waits for its turn before failing.
+  */
+ public static final long DEFAULT_MAX_WAIT_MILLIS = 2000;
+ 
+ /**
+  * Default time allowed for opening a connection.
+  */
+ public static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+ 
+ /**
+  * Default time allowed for a response, once the request is sent.
+  */
+ public static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 5000;
+ 
+ private final HttpClient httpClient;
+ private final Duration requestTimeout;
  private final Gson gson;
+ private final GeocodeCache geocodeCache;
+ private final RouteCache routeCache;
+ private final RateLimiter nominatimLimiter;
+ private final RateLimiter osrmLimiter;
  
  /**
-  * Initializes the ApiIntegration service with a RestTemplate and Gson parser.
+  * Initializes the ApiIntegration service with an HttpClient using the default timeouts,
+  * Gson parser, an in-memory geocode cache, a route cache with default limits and rate
+  * limiters at the default rates.
   */
  public ApiIntegration() {
-  this.restTemplate = new RestTemplate();
+  this(GeocodeCache.inMemory(), RouteCache.withDefaults(),
+   new RateLimiter(NOMINATIM_REQUESTS_PER_SECOND, 1, DEFAULT_MAX_WAIT_MILLIS),
+   new RateLimiter(OSRM_REQUESTS_PER_SECOND, (int) OSRM_REQUESTS_PER_SECOND, DEFAULT_MAX_WAIT_MILLIS),
+   DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+ }
+ 
+ /**
+  * Initializes the ApiIntegration service with an HttpClient, Gson parser and the given
+  * caches, rate limiters and timeouts.
+  *
+  * @param geocodeCache         Cache of geocoded addresses
+  * @param routeCache           Cache of walking routes
+  * @param nominatimLimiter     Limiter shared by all requests to Nominatim
+  * @param osrmLimiter          Limiter shared by all requests to OSRM
+  * @param connectTimeoutMillis Time allowed for opening a connection
+  * @param requestTimeoutMillis Time allowed for a response, once the request is sent
+  */
+ @Autowired
+ public ApiIntegration(GeocodeCache geocodeCache, RouteCache routeCache,
+                       @Qualifier("nominatimRateLimiter") RateLimiter nominatimLimiter,
+                       @Qualifier("osrmRateLimiter") RateLimiter osrmLimiter,
+                       @Value("${upstream.connect-timeout-millis:" + DEFAULT_CONNECT_TIMEOUT_MILLIS + "}")
+                       long connectTimeoutMillis,
+                       @Value("${upstream.request-timeout-millis:" + DEFAULT_REQUEST_TIMEOUT_MILLIS + "}")
+                       long requestTimeoutMillis) {
+  this.httpClient = HttpClient.newBuilder()
+   .version(HttpClient.Version.HTTP_2)
+   .connectTimeout(Duration.ofMillis(connectTimeoutMillis))
+   .followRedirects(HttpClient.Redirect.NORMAL)
+   .build();
+  this.requestTimeout = Duration.ofMillis(requestTimeoutMillis);
   this.gson = new Gson();
+  this.geocodeCache = geocodeCache;
+  this.routeCache = routeCache;
+  this.nominatimLimiter = nominatimLimiter;
+  this.osrmLimiter = osrmLimiter;
  }
  
  /**
@@ -72,54 +158,84 @@ public class ApiIntegration {
  
  /**
   * Geocodes a given address into latitude and longitude coordinates using Nominatim.
+  * Results, including addresses without a result, are answered from the geocode cache
+  * while they are fresh.
   *
   * @param address Address to geocode (must be non-null and non-empty)
   * @return Array of doubles: [latitude, longitude]
   * @throws ApiException if the address cannot be geocoded or if the API request fails
   */
  public double[] geocodeAddress(String address) throws ApiException {
+  return await(geocodeAddressAsync(address));
+ }
+ 
+ /**
+  * Geocodes a given address like {@link #geocodeAddress(String)}, without blocking.
+  *
+  * @param address Address to geocode (must be non-null and non-empty)
+  * @return Future of [latitude, longitude], completed exceptionally with an ApiException
+  * if the address cannot be geocoded or if the API request fails
+  */
+ public CompletableFuture<double[]> geocodeAddressAsync(String address) {
   if (address == null || address.trim().isEmpty()) {
-   throw new ApiException("Address cannot be null or empty");
+   return CompletableFuture.failedFuture(new ApiException("Address cannot be null or empty"));
   }
   
-  try {
-   String encodedAddress = URLEncoder.encode(address.trim(), StandardCharsets.UTF_8);
-   String url = "https://nominatim.openstreetmap.org/search?q=" + encodedAddress
-    + "&format=json&limit=1";
-   
-   org.springframework.http.HttpEntity<String> entity =
-    new org.springframework.http.HttpEntity<>(createHeaders());
-   ResponseEntity<String> responseEntity =
-    restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, String.class);
-   
-   String response = responseEntity.getBody();
-   
+  return geocodeCache.geocodeAsync(address, this::requestGeocode).thenApply(coordinates -> {
+   if (coordinates == null) {
+    throw new CompletionException(new ApiException("No results found for address: " + address));
+   }
+   return coordinates;
+  });
+ }
+ 
+ /**
+  * Returns the geocode cache counters.
+  *
+  * @return current statistics
+  */
+ public GeocodeCache.Stats getGeocodeCacheStats() {
+  return geocodeCache.getStats();
+ }
+ 
+ /**
+  * Requests the coordinates of an address from Nominatim.
+  *
+  * @param address Address to geocode
+  * @return Future of [latitude, longitude], or of null if Nominatim has no result for the
+  * address; completed exceptionally with an ApiException if the API request fails
+  */
+ CompletableFuture<double[]> requestGeocode(String address) {
+  String encodedAddress = URLEncoder.encode(address.trim(), StandardCharsets.UTF_8);
+  String url = "https://nominatim.openstreetmap.org/search?q=" + encodedAddress
+   + "&format=json&limit=1";
+  
+  return send(url, nominatimLimiter, "Geocoding").thenApply(response -> {
    if (response == null || response.isEmpty() || response.equals("[]")) {
-    throw new ApiException("No results found for address: " + address);
+    return null;
    }
    
-   JsonArray results = gson.fromJson(response, JsonArray.class);
-   if (results.size() == 0) {
-    throw new ApiException("No results found for address: " + address);
+   try {
+    JsonArray results = gson.fromJson(response, JsonArray.class);
+    if (results.size() == 0) {
+     return null;
+    }
+    
+    JsonObject location = results.get(0).getAsJsonObject();
+    double lat = location.get("lat").getAsDouble();
+    double lon = location.get("lon").getAsDouble();
+    
+    return new double[] {lat, lon};
+   } catch (JsonParseException | IllegalStateException | NullPointerException e) {
+    throw new CompletionException(new ApiException("Invalid response from geocoding service", e));
    }
-   
-   JsonObject location = results.get(0).getAsJsonObject();
-   double lat = location.get("lat").getAsDouble();
-   double lon = location.get("lon").getAsDouble();
-   
-   return new double[] {lat, lon};
-   
-  } catch (JsonSyntaxException e) {
-   throw new ApiException("Invalid response from geocoding service", e);
-  } catch (HttpClientErrorException | HttpServerErrorException e) {
-   throw new ApiException("Geocoding service error: " + e.getStatusCode(), e);
-  } catch (Exception e) {
-   throw new ApiException("Failed to geocode address: " + address, e);
-  }
+  });
  }
  
  /**
   * Calculates walking distance and duration between two coordinates using OSRM.
+  * Both ends are snapped to the route cache's grid, and routes between cells routed
+  * recently are answered from the cache.
   *
   * @param originLat Origin latitude (valid range: -90 to 90)
   * @param originLng Origin longitude (valid range: -180 to 180)
@@ -131,34 +247,63 @@ public class ApiIntegration {
  public DistanceTime getDistanceTime(double originLat, double originLng, double destLat,
                                      double destLng)
   throws ApiException {
+  return await(getDistanceTimeAsync(originLat, originLng, destLat, destLng));
+ }
+ 
+ /**
+  * Calculates walking distance and duration like
+  * {@link #getDistanceTime(double, double, double, double)}, without blocking.
+  *
+  * @param originLat Origin latitude (valid range: -90 to 90)
+  * @param originLng Origin longitude (valid range: -180 to 180)
+  * @param destLat   Destination latitude (valid range: -90 to 90)
+  * @param destLng   Destination longitude (valid range: -180 to 180)
+  * @return Future of the distance in meters and duration in seconds, completed
+  * exceptionally with an ApiException if the routing service fails or no route is found
+  */
+ public CompletableFuture<DistanceTime> getDistanceTimeAsync(double originLat, double originLng, double destLat,
+                                                             double destLng) {
+  try {
+   validateCoordinates(originLat, originLng, "origin");
+   validateCoordinates(destLat, destLng, "destination");
+  } catch (ApiException e) {
+   return CompletableFuture.failedFuture(e);
+  }
   
-  validateCoordinates(originLat, originLng, "origin");
-  validateCoordinates(destLat, destLng, "destination");
+  return routeCache.routeAsync(originLat, originLng, destLat, destLng, this::requestRoute);
+ }
+ 
+ /**
+  * Returns the route cache counters.
+  *
+  * @return current statistics
+  */
+ public RouteCache.Stats getRouteCacheStats() {
+  return routeCache.getStats();
+ }
+ 
+ /**
+  * Requests a walking route between two coordinates from OSRM.
+  *
+  * @param originLat Origin latitude
+  * @param originLng Origin longitude
+  * @param destLat   Destination latitude
+  * @param destLng   Destination longitude
+  * @return Future of the distance in meters and duration in seconds, completed
+  * exceptionally with an ApiException if the routing service fails or no route is found
+  */
+ CompletableFuture<DistanceTime> requestRoute(double originLat, double originLng, double destLat, double destLng) {
+  String url = String.format(
+   "https://router.project-osrm.org/route/v1/foot/%f,%f;%f,%f?overview=false",
+   originLng, originLat, destLng, destLat
+  );
   
-  try {
-   String url = String.format(
-    "https://router.project-osrm.org/route/v1/foot/%f,%f;%f,%f?overview=false",
-    originLng, originLat, destLng, destLat
-   );
-   
-   String response = restTemplate.getForObject(url, String.class);
-   
-   if (response == null || response.isEmpty()) {
-    throw new ApiException("No response from routing service");
-   }
-   
-   JsonObject jsonObject = gson.fromJson(response, JsonObject.class);
-   
-   String code = jsonObject.has("code") ? jsonObject.get("code").getAsString() : null;
-   if (!"Ok".equals(code)) {
-    String message =
-     jsonObject.has("message") ? jsonObject.get("message").getAsString() : "Unknown error";
-    throw new ApiException("Routing error: " + message);
-   }
+  return send(url, osrmLimiter, "Routing").thenApply(response -> {
+   JsonObject jsonObject = parseRouting(response);
    
    JsonArray routes = jsonObject.getAsJsonArray("routes");
    if (routes == null || routes.size() == 0) {
-    throw new ApiException("No walking route found between these coordinates");
+    throw new CompletionException(new ApiException("No walking route found between these coordinates"));
    }
    
    JsonObject route = routes.get(0).getAsJsonObject();
@@ -166,21 +311,127 @@ public class ApiIntegration {
    int duration = (int) route.get("duration").getAsDouble();
    
    return new DistanceTime(distance, duration);
-   
-  } catch (JsonSyntaxException e) {
-   throw new ApiException("Invalid response from routing service", e);
-  } catch (HttpClientErrorException | HttpServerErrorException e) {
-   throw new ApiException("Routing service error: " + e.getStatusCode(), e);
+  });
+ }
+ 
+ /**
+  * Routes through OSRM; same as {@link #getDistanceTime(double, double, double, double)}.
+  */
+ @Override
+ public DistanceTime route(double originLat, double originLng, double destLat, double destLng)
+  throws ApiException {
+  return getDistanceTime(originLat, originLng, destLat, destLng);
+ }
+ 
+ /**
+  * Routes from one origin to several destinations with OSRM's table service; same as
+  * {@link #getDistanceMatrix(double, double, double[], double[])}, except that a failed
+  * request is logged and leaves every route null.
+  */
+ @Override
+ public DistanceTime[] routes(double originLat, double originLng, double[] destLats, double[] destLngs) {
+  try {
+   return getDistanceMatrix(originLat, originLng, destLats, destLngs);
+  } catch (ApiException e) {
+   logger.warn("Failed to route from {},{} to {} destinations", originLat, originLng, destLats.length, e);
+   return new DistanceTime[destLats.length];
+  }
+ }
+ 
+ /**
+  * Calculates walking distances and durations from one origin to many destinations using
+  * OSRM's table service. Destinations are sent {@value #TABLE_MAX_DESTINATIONS} at a time,
+  * one request per chunk.
+  *
+  * @param originLat Origin latitude (valid range: -90 to 90)
+  * @param originLng Origin longitude (valid range: -180 to 180)
+  * @param destLats  Destination latitudes
+  * @param destLngs  Destination longitudes, in the same order
+  * @return One DistanceTime per destination, in order; null where OSRM found no route
+  * @throws ApiException if a coordinate is invalid or the routing service fails
+  */
+ public DistanceTime[] getDistanceMatrix(double originLat, double originLng, double[] destLats,
+                                         double[] destLngs) throws ApiException {
+  return await(getDistanceMatrixAsync(originLat, originLng, destLats, destLngs));
+ }
+ 
+ /**
+  * Calculates walking distances and durations like
+  * {@link #getDistanceMatrix(double, double, double[], double[])}, without blocking. The
+  * chunks are requested concurrently, as far as the OSRM rate limit allows.
+  *
+  * @param originLat Origin latitude (valid range: -90 to 90)
+  * @param originLng Origin longitude (valid range: -180 to 180)
+  * @param destLats  Destination latitudes
+  * @param destLngs  Destination longitudes, in the same order
+  * @return Future of one DistanceTime per destination, null where OSRM found no route;
+  * completed exceptionally with an ApiException if a coordinate is invalid or the routing
+  * service fails
+  */
+ public CompletableFuture<DistanceTime[]> getDistanceMatrixAsync(double originLat, double originLng,
+                                                                 double[] destLats, double[] destLngs) {
+  try {
+   if (destLats.length != destLngs.length) {
+    throw new ApiException("Destination latitudes and longitudes differ in number");
+   }
+   validateCoordinates(originLat, originLng, "origin");
+   for (int j = 0; j < destLats.length; j++) {
+    validateCoordinates(destLats[j], destLngs[j], "destination");
+   }
   } catch (ApiException e) {
-   throw e;
-  } catch (Exception e) {
-   throw new ApiException("Failed to calculate route", e);
+   return CompletableFuture.failedFuture(e);
+  }
+  
+  DistanceTime[] routes = new DistanceTime[destLats.length];
+  CompletableFuture<?>[] chunks = new CompletableFuture<?>[(routes.length + TABLE_MAX_DESTINATIONS - 1)
+   / TABLE_MAX_DESTINATIONS];
+  for (int c = 0; c < chunks.length; c++) {
+   int from = c * TABLE_MAX_DESTINATIONS;
+   int to = Math.min(routes.length, from + TABLE_MAX_DESTINATIONS);
+   chunks[c] = requestTable(originLat, originLng, destLats, destLngs, from, to, routes);
   }
+  return CompletableFuture.allOf(chunks).thenApply(done -> routes);
+ }
+ 
+ /**
+  * Requests the routes from an origin to the destinations in {@code [from, to)} from
+  * OSRM's table service and stores them at the same positions of {@code routes}.
+  *
+  * @return Future completed once the routes are stored, or exceptionally with an
+  * ApiException if the routing service fails
+  */
+ CompletableFuture<Void> requestTable(double originLat, double originLng, double[] destLats, double[] destLngs,
+                                      int from, int to, DistanceTime[] routes) {
+  StringBuilder url = new StringBuilder("https://router.project-osrm.org/table/v1/foot/")
+   .append(String.format("%f,%f", originLng, originLat));
+  for (int j = from; j < to; j++) {
+   url.append(';').append(String.format("%f,%f", destLngs[j], destLats[j]));
+  }
+  url.append("?sources=0&annotations=distance,duration");
+  
+  return send(url.toString(), osrmLimiter, "Routing").thenAccept(response -> {
+   JsonObject jsonObject = parseRouting(response);
+   try {
+    JsonArray distances = jsonObject.getAsJsonArray("distances").get(0).getAsJsonArray();
+    JsonArray durations = jsonObject.getAsJsonArray("durations").get(0).getAsJsonArray();
+    // Column 0 is the origin itself.
+    for (int j = from; j < to; j++) {
+     int column = j - from + 1;
+     if (!distances.get(column).isJsonNull() && !durations.get(column).isJsonNull()) {
+      routes[j] = new DistanceTime(distances.get(column).getAsDouble(),
+       (int) durations.get(column).getAsDouble());
+     }
+    }
+   } catch (RuntimeException e) {
+    throw new CompletionException(new ApiException("Invalid response from routing service", e));
+   }
+  });
  }
  
  /**
   * Calculates walking distance and duration between two addresses.
-  * Geocodes the addresses first before routing.
+  * Geocodes both addresses first, concurrently, before routing. Geocodes that are not
+  * cached wait for Nominatim's rate limit.
   *
   * @param originAddress Origin address (non-null, non-empty)
   * @param destAddress   Destination address (non-null, non-empty)
@@ -189,17 +440,111 @@ public class ApiIntegration {
   */
  public DistanceTime getDistanceTimeByAddress(String originAddress, String destAddress)
   throws ApiException {
+  CompletableFuture<double[]> origin = geocodeAddressAsync(originAddress);
+  CompletableFuture<double[]> dest = geocodeAddressAsync(destAddress);
+  return await(origin.thenCombine(dest, (originCoords, destCoords) -> new double[][] {originCoords, destCoords})
+   .thenCompose(coords -> getDistanceTimeAsync(coords[0][0], coords[0][1], coords[1][0], coords[1][1])));
+ }
+ 
+ /**
+  * Sends a GET request once the service's rate limiter allows it. The wait for the
+  * limiter is scheduled rather than slept, so no thread is held while waiting.
+  *
+  * @return Future of the response body, completed exceptionally with an ApiException if
+  * the request would wait too long for the limiter, times out, fails, or is answered
+  * with an error status
+  */
+ private CompletableFuture<String> send(String url, RateLimiter limiter, String service) {
+  HttpRequest request;
   try {
-   double[] originCoords = geocodeAddress(originAddress);
-   Thread.sleep(1000);
-   double[] destCoords = geocodeAddress(destAddress);
-   return getDistanceTime(originCoords[0], originCoords[1], destCoords[0], destCoords[1]);
+   request = HttpRequest.newBuilder(URI.create(url))
+    .timeout(requestTimeout)
+    .header("User-Agent", USER_AGENT)
+    .GET()
+    .build();
+  } catch (IllegalArgumentException e) {
+   return CompletableFuture.failedFuture(new ApiException("Invalid " + service.toLowerCase() + " request", e));
+  }
+  
+  long wait = limiter.reserve();
+  if (wait < 0) {
+   return CompletableFuture.failedFuture(
+    new ApiException(service + " service rate limit exceeded; try again later"));
+  }
+  Executor executor = wait > 0 ? CompletableFuture.delayedExecutor(wait, TimeUnit.NANOSECONDS) : Runnable::run;
+  
+  return CompletableFuture.supplyAsync(() -> request, executor)
+   .thenCompose(r -> httpClient.sendAsync(r, HttpResponse.BodyHandlers.ofString()))
+   .handle((response, error) -> {
+    if (error != null) {
+     Throwable cause = unwrap(error);
+     if (cause instanceof HttpTimeoutException) {
+      throw new CompletionException(new ApiException(service + " service timed out", cause));
+     }
+     throw new CompletionException(new ApiException(service + " service unreachable", cause));
+    }
+    if (response.statusCode() >= 400) {
+     throw new CompletionException(new ApiException(service + " service error: " + response.statusCode()));
+    }
+    return response.body();
+   });
+ }
+ 
+ /**
+  * Parses an OSRM response and checks its status code.
+  *
+  * @throws CompletionException wrapping an ApiException if the response is empty, invalid,
+  *                             or reports an error
+  */
+ private JsonObject parseRouting(String response) {
+  if (response == null || response.isEmpty()) {
+   throw new CompletionException(new ApiException("No response from routing service"));
+  }
+  
+  JsonObject jsonObject;
+  try {
+   jsonObject = gson.fromJson(response, JsonObject.class);
+  } catch (JsonParseException e) {
+   throw new CompletionException(new ApiException("Invalid response from routing service", e));
+  }
+  
+  String code = jsonObject.has("code") ? jsonObject.get("code").getAsString() : null;
+  if (!"Ok".equals(code)) {
+   String message =
+    jsonObject.has("message") ? jsonObject.get("message").getAsString() : "Unknown error";
+   throw new CompletionException(new ApiException("Routing error: " + message));
+  }
+  return jsonObject;
+ }
+ 
+ /**
+  * Waits for a future and rethrows its failure as an ApiException.
+  */
+ private static <T> T await(CompletableFuture<T> future) throws ApiException {
+  try {
+   return future.get();
+  } catch (ExecutionException e) {
+   Throwable cause = unwrap(e);
+   if (cause instanceof ApiException) {
+    throw (ApiException) cause;
+   }
+   throw new ApiException("Upstream request failed", cause);
   } catch (InterruptedException e) {
    Thread.currentThread().interrupt();
    throw new ApiException("Operation interrupted", e);
   }
  }
  
+ /**
+  * Returns the exception a future failed with, without the wrappers added on the way.
+  */
+ public static Throwable unwrap(Throwable error) {
+  while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+   error = error.getCause();
+  }
+  return error;
+ }
+ 
  private void validateCoordinates(double lat, double lng, String label) throws ApiException {
   if (lat < -90 || lat > 90) {
    throw new ApiException(
@@ -211,12 +556,6 @@ public class ApiIntegration {
   }
  }
  
- private HttpHeaders createHeaders() {
-  HttpHeaders headers = new HttpHeaders();
-  headers.set("User-Agent", USER_AGENT);
-  return headers;
- }
- 
  /**
   * Custom exception for API-related errors.
   */
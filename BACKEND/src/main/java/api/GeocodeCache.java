@@ -0,0 +1,499 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Two-tier cache of geocoding results keyed on normalized addresses: a bounded in-memory
+ * LRU in front of an optional append-only file that is replayed at startup, so campus
+ * addresses geocoded before a restart are not requested from Nominatim again.
+ *
+ * <p>Addresses without a result are cached too, for a shorter time, since they are often
+ * retried. Failed requests are not cached. Each result is appended to the file as a line
+ * {@code expiresAtMillis TAB lat TAB lng TAB address}, with {@code -} for both coordinates
+ * of an address without a result; the last line for an address wins, and expired or
+ * unreadable lines are skipped on load. Once the file holds more than twice as many lines
+ * as the cache has room for, it is rewritten with the cached entries only.
+ *
+ * <p>Concurrent misses for the same address share one upstream request. The file is
+ * written by a single background thread, so lookups never wait on disk; {@link #close()}
+ * waits for the writes queued before it.
+ */
+public class GeocodeCache implements AutoCloseable {
+
+ private static final Logger logger = LoggerFactory.getLogger(GeocodeCache.class);
+
+ /**
+  * Default maximum number of addresses kept in memory.
+  */
+ public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+ /**
+  * Default time a geocoded address stays valid: 30 days.
+  */
+ public static final long DEFAULT_TTL_SECONDS = 30 * 24 * 3600;
+
+ /**
+  * Default time an address without a result stays cached: one hour.
+  */
+ public static final long DEFAULT_NEGATIVE_TTL_SECONDS = 3600;
+
+ private static final double[] NO_RESULT = new double[0];
+
+ /**
+  * Looks up an address upstream.
+  */
+ @FunctionalInterface
+ public interface Geocoder {
+
+  /**
+   * Geocodes an address.
+   *
+   * @param address normalized address
+   * @return [latitude, longitude], or null if the address has no result
+   * @throws ApiException if the request failed
+   */
+  double[] geocode(String address) throws ApiException;
+ }
+
+ private final Path file;
+ private final int maxEntries;
+ private final long ttlMillis;
+ private final long negativeTtlMillis;
+ private final LongSupplier clock;
+ private final Map<String, Entry> entries;
+ private final Map<String, CompletableFuture<double[]>> inFlight = new ConcurrentHashMap<>();
+ private final ExecutorService writes;
+ // Only touched by the writer thread once the constructor has returned.
+ private BufferedWriter writer;
+ private int fileLines;
+
+ private final LongAdder hits = new LongAdder();
+ private final LongAdder negativeHits = new LongAdder();
+ private final LongAdder misses = new LongAdder();
+ private final LongAdder evictions = new LongAdder();
+ private final LongAdder expirations = new LongAdder();
+
+ /**
+  * Constructs a GeocodeCache, loading the entries of {@code file} that have not expired.
+  *
+  * @param file               append-only store, created if missing; null keeps results in
+  *                           memory only
+  * @param maxEntries         maximum number of addresses kept in memory; 0 disables caching
+  * @param ttlSeconds         seconds a geocoded address stays valid
+  * @param negativeTtlSeconds seconds an address without a result stays cached
+  * @throws IOException if the file cannot be read or opened for appending
+  */
+ public GeocodeCache(Path file, int maxEntries, long ttlSeconds, long negativeTtlSeconds) throws IOException {
+  this(file, maxEntries, ttlSeconds, negativeTtlSeconds, System::currentTimeMillis);
+ }
+
+ GeocodeCache(Path file, int maxEntries, long ttlSeconds, long negativeTtlSeconds, LongSupplier clock)
+  throws IOException {
+  this.file = file;
+  this.maxEntries = maxEntries;
+  this.ttlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+  this.negativeTtlMillis = TimeUnit.SECONDS.toMillis(negativeTtlSeconds);
+  this.clock = clock;
+  this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+   @Override
+   protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+    if (size() > GeocodeCache.this.maxEntries) {
+     evictions.increment();
+     return true;
+    }
+    return false;
+   }
+  };
+  if (file != null && maxEntries > 0) {
+   load();
+   writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+    StandardOpenOption.APPEND);
+   if (fileLines > 2 * maxEntries) {
+    compact();
+   }
+   writes = Executors.newSingleThreadExecutor(task -> {
+    Thread thread = new Thread(task, "geocode-cache-writer");
+    thread.setDaemon(true);
+    return thread;
+   });
+  } else {
+   writes = null;
+  }
+ }
+
+ /**
+  * Returns a cache that keeps results in memory only, with the default limits.
+  */
+ public static GeocodeCache inMemory() {
+  try {
+   return new GeocodeCache(null, DEFAULT_MAX_ENTRIES, DEFAULT_TTL_SECONDS, DEFAULT_NEGATIVE_TTL_SECONDS);
+  } catch (IOException e) {
+   throw new IllegalStateException(e);
+  }
+ }
+
+ /**
+  * Normalizes an address into its cache key: lower-cased, with runs of whitespace
+  * collapsed to one space and no whitespace before commas.
+  *
+  * @param address address as entered
+  * @return the normalized address
+  */
+ public static String normalize(String address) {
+  return address.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ").replace(" ,", ",");
+ }
+
+ /**
+  * Returns the coordinates of an address, from the cache if it holds a live entry and
+  * from {@code upstream} otherwise. A miss for an address that is already being requested
+  * waits for that request instead of making another.
+  *
+  * @param address  address to geocode
+  * @param upstream geocoder to ask on a miss
+  * @return [latitude, longitude], or null if the address has no result
+  * @throws ApiException if the upstream request failed
+  */
+ public double[] geocode(String address, Geocoder upstream) throws ApiException {
+  String key = normalize(address);
+  long now = clock.getAsLong();
+  Entry entry = cached(key, now);
+  if (entry != null) {
+   return entry.result();
+  }
+  misses.increment();
+  CompletableFuture<double[]> request = new CompletableFuture<>();
+  CompletableFuture<double[]> shared = inFlight.putIfAbsent(key, request);
+  if (shared != null) {
+   return await(shared);
+  }
+  try {
+   double[] coordinates = store(key, upstream.geocode(key), now);
+   request.complete(coordinates);
+   return copy(coordinates);
+  } catch (ApiException | RuntimeException e) {
+   request.completeExceptionally(e);
+   throw e;
+  } finally {
+   inFlight.remove(key, request);
+  }
+ }
+
+ /**
+  * Returns the coordinates of an address without blocking, from the cache if it holds a
+  * live entry and from {@code upstream} otherwise. Concurrent misses for one address share
+  * a single upstream request.
+  *
+  * @param address  address to geocode
+  * @param upstream asynchronous geocoder to ask on a miss, called with the normalized
+  *                 address; it completes with null if the address has no result
+  * @return future of [latitude, longitude], or of null if the address has no result;
+  * completed exceptionally if the upstream request failed
+  */
+ public CompletableFuture<double[]> geocodeAsync(String address,
+                                                 Function<String, CompletableFuture<double[]>> upstream) {
+  String key = normalize(address);
+  long now = clock.getAsLong();
+  Entry entry = cached(key, now);
+  if (entry != null) {
+   return CompletableFuture.completedFuture(entry.result());
+  }
+  misses.increment();
+  CompletableFuture<double[]> request = new CompletableFuture<>();
+  CompletableFuture<double[]> shared = inFlight.putIfAbsent(key, request);
+  if (shared == null) {
+   shared = request;
+   CompletableFuture<double[]> response;
+   try {
+    response = upstream.apply(key);
+   } catch (RuntimeException e) {
+    response = CompletableFuture.failedFuture(e);
+   }
+   response.whenComplete((coordinates, failure) -> {
+    if (failure == null) {
+     request.complete(store(key, coordinates, now));
+    } else {
+     request.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+      ? failure.getCause() : failure);
+    }
+    inFlight.remove(key, request);
+   });
+  }
+  return shared.thenApply(GeocodeCache::copy);
+ }
+
+ /**
+  * Waits for a request made by another caller and returns a copy of its result.
+  */
+ private static double[] await(CompletableFuture<double[]> request) throws ApiException {
+  try {
+   return copy(request.join());
+  } catch (CompletionException e) {
+   Throwable cause = e.getCause();
+   if (cause instanceof ApiException) throw (ApiException) cause;
+   if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+   throw new ApiException("Geocoding failed", cause);
+  }
+ }
+
+ private static double[] copy(double[] coordinates) {
+  return coordinates == null ? null : coordinates.clone();
+ }
+
+ /**
+  * Returns the live entry for a key and counts the hit, or null after dropping any
+  * expired entry.
+  */
+ private synchronized Entry cached(String key, long now) {
+  Entry entry = entries.get(key);
+  if (entry != null) {
+   if (now < entry.expiresAtMillis) {
+    (entry.coordinates == NO_RESULT ? negativeHits : hits).increment();
+    return entry;
+   }
+   entries.remove(key);
+   expirations.increment();
+  }
+  return null;
+ }
+
+ /**
+  * Caches an upstream result, queues it to be appended to the file and returns it.
+  */
+ private double[] store(String key, double[] coordinates, long now) {
+  if (maxEntries > 0) {
+   Entry entry = coordinates != null
+    ? new Entry(new double[] {coordinates[0], coordinates[1]}, now + ttlMillis)
+    : new Entry(NO_RESULT, now + negativeTtlMillis);
+   synchronized (this) {
+    entries.put(key, entry);
+   }
+   if (writes != null) {
+    try {
+     writes.execute(() -> append(key, entry));
+    } catch (RejectedExecutionException e) {
+     // Closed; the result stays in memory only.
+    }
+   }
+  }
+  return coordinates;
+ }
+
+ /**
+  * Returns a snapshot of the cache counters.
+  *
+  * @return current statistics
+  */
+ public synchronized Stats getStats() {
+  return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size());
+ }
+
+ /**
+  * Writes the results queued so far and closes the file. Results are still cached in
+  * memory afterwards.
+  */
+ @Override
+ public void close() {
+  if (writes == null || writes.isShutdown()) return;
+  writes.execute(this::closeWriter);
+  writes.shutdown();
+  try {
+   if (!writes.awaitTermination(10, TimeUnit.SECONDS)) {
+    logger.warn("Timed out writing geocode cache {}", file);
+   }
+  } catch (InterruptedException e) {
+   Thread.currentThread().interrupt();
+  }
+ }
+
+ private void closeWriter() {
+  if (writer != null) {
+   try {
+    writer.close();
+   } catch (IOException e) {
+    logger.warn("Failed to close geocode cache {}", file, e);
+   }
+   writer = null;
+  }
+ }
+
+ private void load() throws IOException {
+  long now = clock.getAsLong();
+  try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+   String line;
+   while ((line = reader.readLine()) != null) {
+    fileLines++;
+    String[] fields = line.split("\t", 4);
+    if (fields.length < 4) continue;
+    try {
+     long expiresAt = Long.parseLong(fields[0]);
+     double[] coordinates = fields[1].equals("-") ? NO_RESULT
+      : new double[] {Double.parseDouble(fields[1]), Double.parseDouble(fields[2])};
+     if (expiresAt > now) {
+      entries.put(fields[3], new Entry(coordinates, expiresAt));
+     } else {
+      entries.remove(fields[3]);
+     }
+    } catch (NumberFormatException e) {
+     // A line cut short by a crash; skip it.
+    }
+   }
+  } catch (NoSuchFileException e) {
+   return;
+  }
+  // Replaying the file is not an eviction.
+  evictions.reset();
+ }
+
+ /**
+  * Appends an entry to the file, compacting it when it has grown too long. Runs on the
+  * writer thread. A file that cannot be written is logged and closed, and results are
+  * then cached in memory only.
+  */
+ private void append(String key, Entry entry) {
+  if (writer == null) return;
+  try {
+   writeLine(writer, key, entry);
+   writer.flush();
+   if (++fileLines > 2 * maxEntries) {
+    compact();
+   }
+  } catch (IOException e) {
+   logger.warn("Failed to write geocode cache {}; caching in memory only", file, e);
+   closeWriter();
+  }
+ }
+
+ /**
+  * Rewrites the file with the live cached entries. Runs on the writer thread, or in the
+  * constructor before it starts; the entries are copied under the lock and written
+  * without it.
+  */
+ private void compact() throws IOException {
+  writer.close();
+  writer = null;
+  long now = clock.getAsLong();
+  List<Map.Entry<String, Entry>> live;
+  synchronized (this) {
+   live = new ArrayList<>(entries.size());
+   for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+    live.add(Map.entry(entry.getKey(), entry.getValue()));
+   }
+  }
+  Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+  int lines = 0;
+  try {
+   try (BufferedWriter out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+    for (Map.Entry<String, Entry> entry : live) {
+     if (entry.getValue().expiresAtMillis > now) {
+      writeLine(out, entry.getKey(), entry.getValue());
+      lines++;
+     }
+    }
+   }
+   try {
+    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   } catch (AtomicMoveNotSupportedException e) {
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+   }
+  } finally {
+   Files.deleteIfExists(temp);
+  }
+  fileLines = lines;
+  writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+   StandardOpenOption.APPEND);
+ }
+
+ private static void writeLine(BufferedWriter out, String key, Entry entry) throws IOException {
+  out.write(Long.toString(entry.expiresAtMillis));
+  if (entry.coordinates == NO_RESULT) {
+   out.write("\t-\t-\t");
+  } else {
+   out.write("\t" + entry.coordinates[0] + "\t" + entry.coordinates[1] + "\t");
+  }
+  out.write(key);
+  out.newLine();
+ }
+
+ private static final class Entry {
+  private final double[] coordinates;
+  private final long expiresAtMillis;
+
+  Entry(double[] coordinates, long expiresAtMillis) {
+   this.coordinates = coordinates;
+   this.expiresAtMillis = expiresAtMillis;
+  }
+
+  /**
+   * Returns a copy of the coordinates, or null for an address without a result.
+   */
+  double[] result() {
+   return coordinates == NO_RESULT ? null : coordinates.clone();
+  }
+ }
+
+ /**
+  * Snapshot of the cache counters. Negative hits are lookups answered from a cached
+  * address without a result. Evictions are addresses dropped to make room, and
+  * expirations addresses dropped because their result outlived its TTL.
+  */
+ public static class Stats {
+  private final long hits;
+  private final long negativeHits;
+  private final long misses;
+  private final long evictions;
+  private final long expirations;
+  private final int size;
+
+  public Stats(long hits, long negativeHits, long misses, long evictions, long expirations, int size) {
+   this.hits = hits;
+   this.negativeHits = negativeHits;
+   this.misses = misses;
+   this.evictions = evictions;
+   this.expirations = expirations;
+   this.size = size;
+  }
+
+  public long getHits() { return hits; }
+  public long getNegativeHits() { return negativeHits; }
+  public long getMisses() { return misses; }
+  public long getEvictions() { return evictions; }
+  public long getExpirations() { return expirations; }
+  public int getSize() { return size; }
+
+  /**
+   * Returns the fraction of lookups answered without an upstream request.
+   */
+  public double getHitRatio() {
+   long total = hits + negativeHits + misses;
+   return total == 0 ? 0 : (double) (hits + negativeHits) / total;
+  }
+ }
+}
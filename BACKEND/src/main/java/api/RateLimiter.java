@@ -0,0 +1,131 @@
+package api;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket shared by every caller of one upstream provider. A permit is
+ * granted at once while the bucket holds tokens; otherwise the caller reserves the next
+ * free slot and waits until it comes, so concurrent callers are spread out exactly as
+ * far as the rate requires. A caller whose slot would come later than it is willing to
+ * wait is refused without reserving anything.
+ *
+ * <p>The bucket is kept as the single timestamp at which it will be full again, which
+ * callers advance with a compare-and-set.
+ *
+ * <p>Request paths use {@link #reserve()} and schedule their work for when the slot
+ * comes, so no thread is held while waiting. {@link #acquire()} sleeps on the calling
+ * thread and is meant for offline tools only.
+ */
+public class RateLimiter {
+
+ private final long intervalNanos;
+ private final long burstNanos;
+ private final long maxWaitNanos;
+ private final LongSupplier nanoClock;
+ private final AtomicLong fullAt;
+
+ private final LongAdder granted = new LongAdder();
+ private final LongAdder rejected = new LongAdder();
+
+ /**
+  * Constructs a RateLimiter with a full bucket.
+  *
+  * @param permitsPerSecond sustained rate
+  * @param burst            number of permits that can be granted at once after a quiet period
+  * @param maxWaitMillis    longest wait for a slot before refusing
+  */
+ public RateLimiter(double permitsPerSecond, int burst, long maxWaitMillis) {
+  this(permitsPerSecond, burst, maxWaitMillis, System::nanoTime);
+ }
+
+ RateLimiter(double permitsPerSecond, int burst, long maxWaitMillis, LongSupplier nanoClock) {
+  if (permitsPerSecond <= 0 || burst < 1) {
+   throw new IllegalArgumentException("Rate and burst must be positive");
+  }
+  this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+  this.burstNanos = intervalNanos * burst;
+  this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+  this.nanoClock = nanoClock;
+  this.fullAt = new AtomicLong(nanoClock.getAsLong());
+ }
+
+ /**
+  * Takes a permit, sleeping on the calling thread for at most the configured maximum
+  * wait. Not for request threads; see {@link #reserve()}.
+  *
+  * @return true if a permit was taken, false if none would be free in time
+  * @throws InterruptedException if interrupted while waiting
+  */
+ public boolean acquire() throws InterruptedException {
+  return acquire(maxWaitNanos);
+ }
+
+ /**
+  * Takes a permit, sleeping on the calling thread for at most {@code maxWaitNanos}.
+  *
+  * @param maxWaitNanos longest the caller is willing to wait
+  * @return true if a permit was taken, false if none would be free in time
+  * @throws InterruptedException if interrupted while waiting
+  */
+ public boolean acquire(long maxWaitNanos) throws InterruptedException {
+  long wait = reserve(maxWaitNanos);
+  if (wait < 0) return false;
+  if (wait > 0) {
+   TimeUnit.NANOSECONDS.sleep(wait);
+  }
+  return true;
+ }
+
+ /**
+  * Reserves the next free slot if it comes within the configured maximum wait, for
+  * callers that wait without blocking a thread. Never sleeps; the caller delays its
+  * request by the returned time, for example with
+  * {@link java.util.concurrent.CompletableFuture#delayedExecutor}.
+  *
+  * @return nanoseconds until the slot, or -1 if it would come too late and nothing was
+  * reserved
+  */
+ public long reserve() {
+  return reserve(maxWaitNanos);
+ }
+
+ /**
+  * Reserves the next free slot if it comes within {@code maxWaitNanos}.
+  *
+  * @return nanoseconds until the slot, or -1 if it would come too late and nothing was
+  * reserved
+  */
+ long reserve(long maxWaitNanos) {
+  while (true) {
+   long now = nanoClock.getAsLong();
+   long current = fullAt.get();
+   long next = Math.max(current, now) + intervalNanos;
+   long wait = Math.max(0, next - burstNanos - now);
+   if (wait > maxWaitNanos) {
+    rejected.increment();
+    return -1;
+   }
+   if (fullAt.compareAndSet(current, next)) {
+    granted.increment();
+    return wait;
+   }
+  }
+ }
+
+ /**
+  * Returns the number of permits granted so far.
+  */
+ public long getGranted() {
+  return granted.sum();
+ }
+
+ /**
+  * Returns the number of callers refused because no permit would be free in time.
+  */
+ public long getRejected() {
+  return rejected.sum();
+ }
+}
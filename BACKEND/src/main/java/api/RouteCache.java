@@ -0,0 +1,364 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded LRU cache of walking routes in front of a router. Origins and destinations are
+ * snapped to the centres of grid cells of a fixed size before routing, so requests from
+ * the same lecture hall to the same spot share one route, and every request that maps to
+ * the same pair of cells gets exactly the route that was cached for it. Routes expire
+ * after a fixed time; failed routes are not cached. Concurrent misses for the same pair
+ * of cells share one upstream request.
+ */
+public class RouteCache {
+
+ /**
+  * Default maximum number of cached routes.
+  */
+ public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+ /**
+  * Default time a cached route stays valid: one day.
+  */
+ public static final long DEFAULT_TTL_SECONDS = 24 * 3600;
+
+ /**
+  * Default size in meters of the cells coordinates are snapped to.
+  */
+ public static final double DEFAULT_BUCKET_METERS = 10;
+
+ private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+ private final int maxEntries;
+ private final long ttlNanos;
+ private final double latStep;
+ private final LongSupplier nanoClock;
+ private final Map<Key, Entry> entries;
+ private final Map<Key, CompletableFuture<DistanceTime>> inFlight = new ConcurrentHashMap<>();
+
+ private final LongAdder hits = new LongAdder();
+ private final LongAdder misses = new LongAdder();
+ private final LongAdder evictions = new LongAdder();
+ private final LongAdder expirations = new LongAdder();
+
+ /**
+  * Constructs a RouteCache.
+  *
+  * @param maxEntries   maximum number of cached routes; 0 disables caching
+  * @param ttlSeconds   seconds a cached route stays valid
+  * @param bucketMeters size in meters of the cells coordinates are snapped to; 0 routes
+  *                     between the exact coordinates
+  */
+ public RouteCache(int maxEntries, long ttlSeconds, double bucketMeters) {
+  this(maxEntries, ttlSeconds, bucketMeters, System::nanoTime);
+ }
+
+ RouteCache(int maxEntries, long ttlSeconds, double bucketMeters, LongSupplier nanoClock) {
+  this.maxEntries = maxEntries;
+  this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+  this.latStep = bucketMeters / METERS_PER_DEGREE_LAT;
+  this.nanoClock = nanoClock;
+  this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+   @Override
+   protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+    if (size() > RouteCache.this.maxEntries) {
+     evictions.increment();
+     return true;
+    }
+    return false;
+   }
+  };
+ }
+
+ /**
+  * Returns a cache with the default limits.
+  */
+ public static RouteCache withDefaults() {
+  return new RouteCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_SECONDS, DEFAULT_BUCKET_METERS);
+ }
+
+ /**
+  * Computes a route, completing the future it returns once the route is known.
+  */
+ @FunctionalInterface
+ public interface AsyncRouter {
+
+  /**
+   * Routes between two points.
+   *
+   * @return future of the distance in meters and duration in seconds, completed
+   * exceptionally if no route can be computed
+   */
+  CompletableFuture<DistanceTime> route(double originLat, double originLng, double destLat, double destLng);
+ }
+
+ /**
+  * Returns the route between the cells of two points, from the cache if it holds a live
+  * entry and from {@code upstream} otherwise.
+  *
+  * @param originLat origin latitude
+  * @param originLng origin longitude
+  * @param destLat   destination latitude
+  * @param destLng   destination longitude
+  * @param upstream  router to ask on a miss, with the snapped coordinates
+  * @return distance in meters and duration in seconds
+  * @throws ApiException if the upstream router fails
+  */
+ public DistanceTime route(double originLat, double originLng, double destLat, double destLng,
+                           WalkingRouter upstream) throws ApiException {
+  if (maxEntries <= 0 || latStep <= 0) {
+   misses.increment();
+   return upstream.route(originLat, originLng, destLat, destLng);
+  }
+  Snapped snapped = new Snapped(originLat, originLng, destLat, destLng);
+  long now = nanoClock.getAsLong();
+  DistanceTime cached = cached(snapped.key, now);
+  if (cached != null) {
+   return cached;
+  }
+  misses.increment();
+  CompletableFuture<DistanceTime> request = new CompletableFuture<>();
+  CompletableFuture<DistanceTime> shared = inFlight.putIfAbsent(snapped.key, request);
+  if (shared != null) {
+   return await(shared);
+  }
+  try {
+   DistanceTime route = upstream.route(snapped.originLat, snapped.originLng, snapped.destLat, snapped.destLng);
+   store(snapped.key, route, now);
+   request.complete(route);
+   return copy(route);
+  } catch (ApiException | RuntimeException e) {
+   request.completeExceptionally(e);
+   throw e;
+  } finally {
+   inFlight.remove(snapped.key, request);
+  }
+ }
+
+ /**
+  * Returns the route between the cells of two points without blocking, from the cache if
+  * it holds a live entry and from {@code upstream} otherwise.
+  *
+  * @param originLat origin latitude
+  * @param originLng origin longitude
+  * @param destLat   destination latitude
+  * @param destLng   destination longitude
+  * @param upstream  router to ask on a miss, with the snapped coordinates
+  * @return future of the distance in meters and duration in seconds, completed
+  * exceptionally if the upstream router fails
+  */
+ public CompletableFuture<DistanceTime> routeAsync(double originLat, double originLng, double destLat,
+                                                   double destLng, AsyncRouter upstream) {
+  if (maxEntries <= 0 || latStep <= 0) {
+   misses.increment();
+   return upstream.route(originLat, originLng, destLat, destLng);
+  }
+  Snapped snapped = new Snapped(originLat, originLng, destLat, destLng);
+  long now = nanoClock.getAsLong();
+  DistanceTime cached = cached(snapped.key, now);
+  if (cached != null) {
+   return CompletableFuture.completedFuture(cached);
+  }
+  misses.increment();
+  CompletableFuture<DistanceTime> request = new CompletableFuture<>();
+  CompletableFuture<DistanceTime> shared = inFlight.putIfAbsent(snapped.key, request);
+  if (shared == null) {
+   shared = request;
+   CompletableFuture<DistanceTime> response;
+   try {
+    response = upstream.route(snapped.originLat, snapped.originLng, snapped.destLat, snapped.destLng);
+   } catch (RuntimeException e) {
+    response = CompletableFuture.failedFuture(e);
+   }
+   response.whenComplete((route, failure) -> {
+    if (failure == null) {
+     store(snapped.key, route, now);
+     request.complete(route);
+    } else {
+     request.completeExceptionally(failure instanceof CompletionException && failure.getCause() != null
+      ? failure.getCause() : failure);
+    }
+    inFlight.remove(snapped.key, request);
+   });
+  }
+  return shared.thenApply(RouteCache::copy);
+ }
+
+ /**
+  * Waits for a request made by another caller and returns a copy of its route.
+  */
+ private static DistanceTime await(CompletableFuture<DistanceTime> request) throws ApiException {
+  try {
+   return copy(request.join());
+  } catch (CompletionException e) {
+   Throwable cause = e.getCause();
+   if (cause instanceof ApiException) throw (ApiException) cause;
+   if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+   throw new ApiException("Routing failed", cause);
+  }
+ }
+
+ private static DistanceTime copy(DistanceTime route) {
+  return new DistanceTime(route.distanceMeters, route.durationSeconds);
+ }
+
+ /**
+  * Returns a copy of the live cached route for a key and counts the hit, or null after
+  * dropping any expired entry.
+  */
+ private synchronized DistanceTime cached(Key key, long now) {
+  Entry entry = entries.get(key);
+  if (entry != null) {
+   if (now - entry.createdNanos < ttlNanos) {
+    hits.increment();
+    return new DistanceTime(entry.distanceMeters, entry.durationSeconds);
+   }
+   entries.remove(key);
+   expirations.increment();
+  }
+  return null;
+ }
+
+ /**
+  * Caches a route computed upstream.
+  */
+ private synchronized void store(Key key, DistanceTime route, long now) {
+  entries.put(key, new Entry(route.distanceMeters, route.durationSeconds, now));
+ }
+
+ /**
+  * Drops every cached route.
+  */
+ public synchronized void invalidate() {
+  entries.clear();
+ }
+
+ /**
+  * Returns a snapshot of the cache counters.
+  *
+  * @return current statistics
+  */
+ public synchronized Stats getStats() {
+  return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size());
+ }
+
+ /**
+  * Returns the width in degrees of the cells in a row, so that cells are about as wide
+  * as they are tall at the row's latitude.
+  */
+ private double lngStep(long row) {
+  return latStep / Math.max(Math.cos(Math.toRadians(row * latStep)), 1e-6);
+ }
+
+ /**
+  * A pair of points snapped to the centres of their cells, and the key naming the cells.
+  */
+ private final class Snapped {
+  private final Key key;
+  private final double originLat;
+  private final double originLng;
+  private final double destLat;
+  private final double destLng;
+
+  Snapped(double originLat, double originLng, double destLat, double destLng) {
+   long originRow = Math.round(originLat / latStep);
+   long destRow = Math.round(destLat / latStep);
+   double originLngStep = lngStep(originRow);
+   double destLngStep = lngStep(destRow);
+   long originCol = Math.round(originLng / originLngStep);
+   long destCol = Math.round(destLng / destLngStep);
+   this.key = new Key(originRow, originCol, destRow, destCol);
+   this.originLat = originRow * latStep;
+   this.originLng = originCol * originLngStep;
+   this.destLat = destRow * latStep;
+   this.destLng = destCol * destLngStep;
+  }
+ }
+
+ private static final class Key {
+  private final long originRow;
+  private final long originCol;
+  private final long destRow;
+  private final long destCol;
+
+  Key(long originRow, long originCol, long destRow, long destCol) {
+   this.originRow = originRow;
+   this.originCol = originCol;
+   this.destRow = destRow;
+   this.destCol = destCol;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+   if (!(o instanceof Key)) return false;
+   Key other = (Key) o;
+   return originRow == other.originRow && originCol == other.originCol
+    && destRow == other.destRow && destCol == other.destCol;
+  }
+
+  @Override
+  public int hashCode() {
+   long h = originRow;
+   h = h * 31 + originCol;
+   h = h * 31 + destRow;
+   h = h * 31 + destCol;
+   return Long.hashCode(h);
+  }
+ }
+
+ private static final class Entry {
+  private final double distanceMeters;
+  private final int durationSeconds;
+  private final long createdNanos;
+
+  Entry(double distanceMeters, int durationSeconds, long createdNanos) {
+   this.distanceMeters = distanceMeters;
+   this.durationSeconds = durationSeconds;
+   this.createdNanos = createdNanos;
+  }
+ }
+
+ /**
+  * Snapshot of the cache counters. Evictions are routes dropped to make room, and
+  * expirations routes dropped because they outlived the TTL.
+  */
+ public static class Stats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long expirations;
+  private final int size;
+
+  public Stats(long hits, long misses, long evictions, long expirations, int size) {
+   this.hits = hits;
+   this.misses = misses;
+   this.evictions = evictions;
+   this.expirations = expirations;
+   this.size = size;
+  }
+
+  public long getHits() { return hits; }
+  public long getMisses() { return misses; }
+  public long getEvictions() { return evictions; }
+  public long getExpirations() { return expirations; }
+  public int getSize() { return size; }
+
+  /**
+   * Returns the fraction of routes answered without an upstream request.
+   */
+  public double getHitRatio() {
+   long total = hits + misses;
+   return total == 0 ? 0 : (double) hits / total;
+  }
+ }
+}
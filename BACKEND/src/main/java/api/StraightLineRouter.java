@@ -0,0 +1,51 @@
+package api;
+
+import api.ApiIntegration.DistanceTime;
+
+/**
+ * Router that estimates walking routes from the great-circle distance, stretched by a
+ * detour factor for paths that do not run in a straight line. Needs no network access,
+ * so it stands in for OSRM when building a walk matrix locally or in tests.
+ */
+public class StraightLineRouter implements WalkingRouter {
+
+ /**
+  * Default ratio of walked to straight-line distance on campus paths.
+  */
+ public static final double DEFAULT_DETOUR = 1.3;
+
+ /**
+  * Default walking speed in meters per second, about what OSRM's foot profile assumes.
+  */
+ public static final double DEFAULT_SPEED = 1.4;
+
+ private static final double EARTH_RADIUS_METERS = 6_378_137.0;
+
+ private final double detour;
+ private final double speed;
+
+ public StraightLineRouter() {
+  this(DEFAULT_DETOUR, DEFAULT_SPEED);
+ }
+
+ /**
+  * Constructs a StraightLineRouter.
+  *
+  * @param detour ratio of walked to straight-line distance
+  * @param speed  walking speed in meters per second
+  */
+ public StraightLineRouter(double detour, double speed) {
+  this.detour = detour;
+  this.speed = speed;
+ }
+
+ @Override
+ public DistanceTime route(double originLat, double originLng, double destLat, double destLng) {
+  double dLat = Math.toRadians(destLat - originLat);
+  double dLng = Math.toRadians(destLng - originLng);
+  double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+   + Math.cos(Math.toRadians(originLat)) * Math.cos(Math.toRadians(destLat)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+  double meters = 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a))) * detour;
+  return new DistanceTime(meters, (int) Math.round(meters / speed));
+ }
+}
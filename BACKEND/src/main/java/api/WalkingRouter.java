@@ -0,0 +1,46 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+
+/**
+ * Computes walking routes between coordinates. ApiIntegration routes through OSRM, and
+ * StraightLineRouter estimates routes locally for builds and tests without network access.
+ */
+@FunctionalInterface
+public interface WalkingRouter {
+
+ /**
+  * Routes between two points.
+  *
+  * @param originLat origin latitude
+  * @param originLng origin longitude
+  * @param destLat   destination latitude
+  * @param destLng   destination longitude
+  * @return distance in meters and duration in seconds
+  * @throws ApiException if no route can be computed
+  */
+ DistanceTime route(double originLat, double originLng, double destLat, double destLng) throws ApiException;
+
+ /**
+  * Routes from one origin to several destinations. Routers that can answer a whole row in
+  * one request should override this; the default routes each pair separately.
+  *
+  * @param originLat origin latitude
+  * @param originLng origin longitude
+  * @param destLats  destination latitudes
+  * @param destLngs  destination longitudes, in the same order
+  * @return one route per destination, null where no route could be computed
+  */
+ default DistanceTime[] routes(double originLat, double originLng, double[] destLats, double[] destLngs) {
+  DistanceTime[] routes = new DistanceTime[destLats.length];
+  for (int j = 0; j < routes.length; j++) {
+   try {
+    routes[j] = route(originLat, originLng, destLats[j], destLngs[j]);
+   } catch (ApiException e) {
+    routes[j] = null;
+   }
+  }
+  return routes;
+ }
+}
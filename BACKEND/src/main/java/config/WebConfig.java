@@ -1,19 +1,40 @@
 package config;
 
+import controller.StudySpotsController;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Configuration class for CORS (Cross-Origin Resource Sharing) settings.
  * Allows the frontend at specific origins to access API endpoints.
+ * Also provides the bounded executor that runs streaming responses.
  */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
  
+ static final int DEFAULT_ASYNC_THREADS = 16;
+ static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 256;
+ static final String ASYNC_THREAD_PREFIX = "mvc-async-";
+
+ private final int asyncThreads;
+ private final int asyncQueueCapacity;
+
+ public WebConfig(@Value("${web.async.threads:" + DEFAULT_ASYNC_THREADS + "}") int asyncThreads,
+                  @Value("${web.async.queue-capacity:" + DEFAULT_ASYNC_QUEUE_CAPACITY + "}") int asyncQueueCapacity) {
+  this.asyncThreads = Math.max(1, asyncThreads);
+  this.asyncQueueCapacity = Math.max(0, asyncQueueCapacity);
+ }
+
  /**
   * Configures CORS mappings for API endpoints.
-  * Allows specific origins, HTTP methods, and headers.
+  * Allows specific origins, HTTP methods, and headers, and lets scripts read the catalog
+  * version and ETag headers that conditional requests send back.
   *
   * @param registry CorsRegistry used to register CORS configuration
   */
@@ -24,7 +45,37 @@ public class WebConfig implements WebMvcConfigurer {
     "http://127.0.0.1:5500",
     "http://localhost:5500"
    )
-   .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-   .allowedHeaders("*");
+   .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
+   .allowedHeaders("*")
+   .exposedHeaders(StudySpotsController.VERSION_HEADER, HttpHeaders.ETAG);
+ }
+
+ /**
+  * Runs streaming responses (e.g. the NDJSON preferences stream) on a bounded pool.
+  * Boot only creates its own applicationTaskExecutor when no other Executor bean exists,
+  * and the scoring ForkJoinPool is one, so without this Spring MVC would fall back to
+  * SimpleAsyncTaskExecutor and start an unbounded thread per stream.
+  *
+  * @param configurer AsyncSupportConfigurer used to set the task executor
+  */
+ @Override
+ public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+  configurer.setTaskExecutor(mvcAsyncExecutor());
+ }
+
+ /**
+  * Provides the executor for Spring MVC async requests. Once all threads are busy and
+  * the queue is full, new streams are rejected instead of starting more threads.
+  *
+  * @return a ThreadPoolTaskExecutor with web.async.threads threads
+  */
+ @Bean
+ public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+  ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+  executor.setCorePoolSize(asyncThreads);
+  executor.setMaxPoolSize(asyncThreads);
+  executor.setQueueCapacity(asyncQueueCapacity);
+  executor.setThreadNamePrefix(ASYNC_THREAD_PREFIX);
+  return executor;
  }
 }
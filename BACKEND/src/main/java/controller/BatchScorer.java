@@ -0,0 +1,126 @@
+package controller;
+
+import controller.MatchingScoreController.ScoredSpot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One scoring pass of several preference sets over a SpotIndex. The catalog is walked
+ * once and each spot is scored against every preference set while its fields are still
+ * in cache, instead of walking the catalog once per preference set. Each preference set
+ * keeps its own IndexedScorer, so its candidates, scores and ranking are exactly those of
+ * a single-request pass.
+ */
+final class BatchScorer {
+
+ private final IndexedScorer[] scorers;
+ private final int spotCount;
+
+ /**
+  * Prepares a batch pass.
+  *
+  * @param spotCount number of spots in the index the scorers were built on
+  * @param scorers   one scorer per preference set, all built on the same index
+  */
+ BatchScorer(int spotCount, IndexedScorer[] scorers) {
+  this.spotCount = spotCount;
+  this.scorers = scorers;
+ }
+
+ /**
+  * Scores and ranks every preference set on the calling thread.
+  *
+  * @param limits maximum number of spots to return per preference set; non-positive
+  *               returns all candidates
+  * @return one ranking per preference set, in the order of the scorers
+  */
+ List<List<ScoredSpot>> rank(int[] limits) {
+  return rankScored(scoreRange(0, spotCount), limits);
+ }
+
+ /**
+  * Scores every preference set on the given pool, splitting the catalog into chunks of
+  * about {@code chunkSize} spots. Produces exactly the same result as {@link #rank(int[])}.
+  *
+  * @param limits    maximum number of spots to return per preference set
+  * @param pool      pool to run the chunks on
+  * @param chunkSize number of spots below which a chunk is not split further
+  * @return one ranking per preference set, in the order of the scorers
+  */
+ List<List<ScoredSpot>> rankParallel(int[] limits, ForkJoinPool pool, int chunkSize) {
+  return rankScored(pool.invoke(new ScoreTask(0, spotCount, chunkSize)), limits);
+ }
+
+ private List<List<ScoredSpot>> rankScored(double[] minMax, int[] limits) {
+  List<List<ScoredSpot>> rankings = new ArrayList<>(scorers.length);
+  for (int j = 0; j < scorers.length; j++) {
+   rankings.add(scorers[j].rankScored(Arrays.copyOfRange(minMax, 2 * j, 2 * j + 2), limits[j]));
+  }
+  return rankings;
+ }
+
+ /**
+  * Computes raw scores for all candidates of all scorers whose catalog position lies in
+  * {@code from} (inclusive) to {@code to} (exclusive).
+  *
+  * @return minimum and maximum raw score per scorer, at positions 2j and 2j + 1
+  */
+ private double[] scoreRange(int from, int to) {
+  int[] cursors = new int[scorers.length];
+  double[] minMax = new double[2 * scorers.length];
+  for (int j = 0; j < scorers.length; j++) {
+   cursors[j] = scorers[j].firstCandidateAtOrAfter(from);
+   minMax[2 * j] = Double.POSITIVE_INFINITY;
+   minMax[2 * j + 1] = Double.NEGATIVE_INFINITY;
+  }
+  for (int i = from; i < to; i++) {
+   for (int j = 0; j < scorers.length; j++) {
+    IndexedScorer scorer = scorers[j];
+    int k = cursors[j];
+    if (k < scorer.size() && scorer.spotAt(k) == i) {
+     double score = scorer.scoreAt(k);
+     cursors[j] = k + 1;
+     minMax[2 * j] = Math.min(minMax[2 * j], score);
+     minMax[2 * j + 1] = Math.max(minMax[2 * j + 1], score);
+    }
+   }
+  }
+  return minMax;
+ }
+
+ /**
+  * Scores a range of the catalog and returns the per-scorer raw score bounds.
+  */
+ private final class ScoreTask extends RecursiveTask<double[]> {
+  private final int from;
+  private final int to;
+  private final int chunkSize;
+
+  ScoreTask(int from, int to, int chunkSize) {
+   this.from = from;
+   this.to = to;
+   this.chunkSize = chunkSize;
+  }
+
+  @Override
+  protected double[] compute() {
+   if (to - from <= chunkSize) {
+    return scoreRange(from, to);
+   }
+   int mid = (from + to) >>> 1;
+   ScoreTask left = new ScoreTask(from, mid, chunkSize);
+   left.fork();
+   double[] right = new ScoreTask(mid, to, chunkSize).compute();
+   double[] leftMinMax = left.join();
+   for (int m = 0; m < right.length; m += 2) {
+    right[m] = Math.min(leftMinMax[m], right[m]);
+    right[m + 1] = Math.max(leftMinMax[m + 1], right[m + 1]);
+   }
+   return right;
+  }
+ }
+}
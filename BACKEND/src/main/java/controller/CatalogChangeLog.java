@@ -0,0 +1,233 @@
+package controller;
+
+import model.StudySpot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded log of the spots added, changed and removed by each published catalog version,
+ * from which clients that already hold an older version catch up without downloading
+ * the whole catalog again.
+ *
+ * <p>Each publish is diffed against the previous catalog. Spots the catalog edit API
+ * left alone are the same instances in both versions and are skipped by identity; a
+ * reloaded catalog is compared property by property. The log holds at most a fixed
+ * number of spot changes. Older changes are dropped as new ones arrive, and a single
+ * publish that changes more spots than fit resets the log, so clients that are too far
+ * behind are told to fetch the full catalog instead.
+ */
+public class CatalogChangeLog {
+
+ /**
+  * Default maximum number of spot changes kept.
+  */
+ public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+ private final StudySpotCatalog catalog;
+ private final int maxEntries;
+ private final ArrayDeque<Change> changes = new ArrayDeque<>();
+ private List<StudySpot> previous;
+ private long latestVersion;
+ private long oldestVersion;
+
+ /**
+  * Constructs a CatalogChangeLog that records every catalog published from now on.
+  *
+  * @param catalog    catalog to record
+  * @param maxEntries maximum number of spot changes kept
+  */
+ public CatalogChangeLog(StudySpotCatalog catalog, int maxEntries) {
+  this.catalog = catalog;
+  this.maxEntries = maxEntries;
+  synchronized (this) {
+   StudySpotCatalog.Version current = catalog.currentVersion();
+   previous = current.getSpots();
+   latestVersion = current.getNumber();
+   oldestVersion = latestVersion;
+  }
+  catalog.addListener(this::record);
+ }
+
+ /**
+  * Returns the changes made after a version, with every spot's changes collapsed into
+  * its net effect.
+  *
+  * @param since catalog version the client holds
+  * @return the changes up to the latest recorded version, or null if the log no longer
+  * reaches back to {@code since} or never saw it, in which case the client needs the
+  * full catalog
+  */
+ public synchronized Delta changesSince(long since) {
+  if (since < oldestVersion || since > latestVersion) {
+   return null;
+  }
+  Map<String, Change> first = new LinkedHashMap<>();
+  Map<String, Change> last = new HashMap<>();
+  for (Change change : changes) {
+   if (change.version > since) {
+    first.putIfAbsent(change.id, change);
+    last.put(change.id, change);
+   }
+  }
+  List<StudySpot> added = new ArrayList<>();
+  List<StudySpot> updated = new ArrayList<>();
+  List<String> removed = new ArrayList<>();
+  for (Change change : first.values()) {
+   StudySpot now = last.get(change.id).spot;
+   if (now == null) {
+    if (change.existed) removed.add(change.id);
+   } else if (change.existed) {
+    updated.add(now);
+   } else {
+    added.add(now);
+   }
+  }
+  return new Delta(latestVersion, added, updated, removed);
+ }
+
+ /**
+  * Returns the oldest version that clients can still catch up from.
+  */
+ public synchronized long getOldestVersion() {
+  return oldestVersion;
+ }
+
+ /**
+  * Returns the latest version recorded in the log.
+  */
+ public synchronized long getLatestVersion() {
+  return latestVersion;
+ }
+
+ private synchronized void record(List<StudySpot> published) {
+  StudySpotCatalog.Version version = catalog.currentVersion();
+  List<Change> diff = diff(previous, published, version.getNumber());
+  previous = published;
+  latestVersion = version.getNumber();
+  if (diff == null) {
+   changes.clear();
+   oldestVersion = latestVersion;
+   return;
+  }
+  changes.addAll(diff);
+  while (changes.size() > maxEntries) {
+   oldestVersion = Math.max(oldestVersion, changes.removeFirst().version);
+  }
+ }
+
+ /**
+  * Returns the changes from one catalog to the next, or null if there are more than the
+  * log can hold.
+  */
+ private List<Change> diff(List<StudySpot> before, List<StudySpot> after, long version) {
+  List<Change> diff = new ArrayList<>();
+  if (before == after) {
+   return diff;
+  }
+  Map<String, Integer> positions = new HashMap<>(Math.max(16, (int) (before.size() / 0.75f) + 1));
+  for (int p = 0; p < before.size(); p++) {
+   positions.putIfAbsent(idAt(before, p), p);
+  }
+  boolean[] kept = new boolean[before.size()];
+  for (int i = 0; i < after.size(); i++) {
+   StudySpot spot = after.get(i);
+   if (i < before.size() && before.get(i) == spot) {
+    kept[i] = true;
+    continue;
+   }
+   Integer p = positions.get(spot.getId());
+   if (p == null) {
+    diff.add(new Change(version, spot.getId(), spot, false));
+   } else {
+    kept[p] = true;
+    if (!sameContent(before.get(p), spot)) {
+     diff.add(new Change(version, spot.getId(), spot, true));
+    }
+   }
+   if (diff.size() > maxEntries) return null;
+  }
+  for (Map.Entry<String, Integer> position : positions.entrySet()) {
+   if (!kept[position.getValue()]) {
+    diff.add(new Change(version, position.getKey(), null, true));
+    if (diff.size() > maxEntries) return null;
+   }
+  }
+  return diff;
+ }
+
+ private static String idAt(List<StudySpot> spots, int i) {
+  return spots instanceof CatalogSnapshot.MappedSpots
+   ? ((CatalogSnapshot.MappedSpots) spots).id(i) : spots.get(i).getId();
+ }
+
+ /**
+  * Returns true if two spots have the same properties.
+  */
+ static boolean sameContent(StudySpot a, StudySpot b) {
+  return a == b || (Objects.equals(a.getId(), b.getId())
+   && Objects.equals(a.getName(), b.getName())
+   && Double.compare(a.getLatitude(), b.getLatitude()) == 0
+   && Double.compare(a.getLongitude(), b.getLongitude()) == 0
+   && Objects.equals(a.getOpenTime(), b.getOpenTime())
+   && Objects.equals(a.getCloseTime(), b.getCloseTime())
+   && Objects.equals(a.getNoiseLevel(), b.getNoiseLevel())
+   && Objects.equals(a.getIndoorOutdoor(), b.getIndoorOutdoor())
+   && Objects.equals(a.getSpaceType(), b.getSpaceType())
+   && a.isAccessRequired() == b.isAccessRequired()
+   && Objects.equals(a.getAmenities(), b.getAmenities())
+   && Objects.equals(a.getWeeklyHours(), b.getWeeklyHours()));
+ }
+
+ /**
+  * One spot's change in one version. {@code spot} is null if the spot was removed, and
+  * {@code existed} tells whether the previous version had a spot with the ID.
+  */
+ private static final class Change {
+  private final long version;
+  private final String id;
+  private final StudySpot spot;
+  private final boolean existed;
+
+  Change(long version, String id, StudySpot spot, boolean existed) {
+   this.version = version;
+   this.id = id;
+   this.spot = spot;
+   this.existed = existed;
+  }
+ }
+
+ /**
+  * Net changes between a client's version and {@link #getVersion()}.
+  */
+ public static final class Delta {
+  private final long version;
+  private final List<StudySpot> added;
+  private final List<StudySpot> updated;
+  private final List<String> removed;
+
+  Delta(long version, List<StudySpot> added, List<StudySpot> updated, List<String> removed) {
+   this.version = version;
+   this.added = added;
+   this.updated = updated;
+   this.removed = removed;
+  }
+
+  /**
+   * Returns the version the client holds after applying the changes.
+   */
+  public long getVersion() { return version; }
+  public List<StudySpot> getAdded() { return added; }
+  public List<StudySpot> getUpdated() { return updated; }
+  public List<String> getRemoved() { return removed; }
+
+  public boolean isEmpty() {
+   return added.isEmpty() && updated.isEmpty() && removed.isEmpty();
+  }
+ }
+}
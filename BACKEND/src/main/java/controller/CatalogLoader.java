@@ -0,0 +1,273 @@
+package controller;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import model.OpeningHours;
+import model.StudySpot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads study spot catalogs from JSON or CSV files. Both formats are read one spot at a
+ * time, so loading a large catalog never holds more than the resulting spots in memory.
+ *
+ * <p>JSON files hold an array of objects in the same shape as /api/studyspots/all.
+ * CSV files start with a header row naming the columns {@code id}, {@code name},
+ * {@code latitude}, {@code longitude}, {@code openTime}, {@code closeTime},
+ * {@code noiseLevel}, {@code indoorOutdoor}, {@code spaceType}, {@code accessRequired},
+ * {@code amenities} and {@code weeklyHours}, in any order. Amenities are written as
+ * {@code WiFi=1;Projector=0} and weekly hours as
+ * {@code SATURDAY=10:00-18:00;SUNDAY=closed}. Fields may be quoted as in RFC 4180.
+ */
+public class CatalogLoader {
+
+ /**
+  * Classpath resource holding the catalog used when no file is configured.
+  */
+ public static final String DEFAULT_RESOURCE = "/studyspots.json";
+
+ private final ObjectReader spotReader;
+
+ /**
+  * Constructs a CatalogLoader.
+  *
+  * @param objectMapper mapper used to bind JSON spots
+  */
+ public CatalogLoader(ObjectMapper objectMapper) {
+  this.spotReader = objectMapper.readerFor(StudySpot.class);
+ }
+
+ /**
+  * Loads a catalog file, choosing the format by extension: {@code .csv} is read as CSV,
+  * {@code .snap} is mapped as a {@link CatalogSnapshot}, anything else is read as JSON.
+  *
+  * @param file catalog file
+  * @return the spots in file order
+  * @throws IOException if the file cannot be read or is malformed
+  */
+ public List<StudySpot> load(Path file) throws IOException {
+  String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+  if (name.endsWith(".snap")) {
+   return CatalogSnapshot.open(file);
+  }
+  try (InputStream in = Files.newInputStream(file)) {
+   if (name.endsWith(".csv")) {
+    return readCsv(new InputStreamReader(in, StandardCharsets.UTF_8));
+   }
+   return readJson(in);
+  }
+ }
+
+ /**
+  * Loads the catalog bundled with the application.
+  *
+  * @return the bundled spots
+  * @throws IllegalStateException if the resource is missing or malformed
+  */
+ public List<StudySpot> loadDefault() {
+  try (InputStream in = CatalogLoader.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+   if (in == null) {
+    throw new IllegalStateException("Missing catalog resource " + DEFAULT_RESOURCE);
+   }
+   return readJson(in);
+  } catch (IOException e) {
+   throw new IllegalStateException("Could not read catalog resource " + DEFAULT_RESOURCE, e);
+  }
+ }
+
+ /**
+  * Reads a JSON array of spots with a streaming parser, binding one element at a time.
+  *
+  * @param in JSON input
+  * @return the spots in array order
+  * @throws IOException if the input cannot be read or is not an array of spots
+  */
+ public List<StudySpot> readJson(InputStream in) throws IOException {
+  List<StudySpot> spots = new ArrayList<>();
+  try (JsonParser parser = spotReader.getFactory().createParser(in)) {
+   if (parser.nextToken() != JsonToken.START_ARRAY) {
+    throw new IOException("Catalog must be a JSON array of study spots");
+   }
+   while (parser.nextToken() == JsonToken.START_OBJECT) {
+    spots.add(validate(spotReader.readValue(parser), spots.size() + 1));
+   }
+   if (parser.currentToken() != JsonToken.END_ARRAY) {
+    throw new IOException("Unexpected " + parser.currentToken() + " in catalog array");
+   }
+  }
+  return spots;
+ }
+
+ /**
+  * Reads CSV rows into spots, one row at a time.
+  *
+  * @param reader CSV input starting with a header row
+  * @return the spots in row order
+  * @throws IOException if the input cannot be read or a row is malformed
+  */
+ public List<StudySpot> readCsv(Reader reader) throws IOException {
+  CsvReader csv = new CsvReader(reader instanceof BufferedReader ? reader : new BufferedReader(reader));
+  List<String> header = csv.next();
+  if (header == null) {
+   return new ArrayList<>();
+  }
+  Map<String, Integer> columns = new HashMap<>();
+  for (int c = 0; c < header.size(); c++) {
+   columns.put(header.get(c).trim(), c);
+  }
+  for (String required : new String[] {"id", "latitude", "longitude"}) {
+   if (!columns.containsKey(required)) {
+    throw new IOException("CSV catalog has no '" + required + "' column");
+   }
+  }
+
+  List<StudySpot> spots = new ArrayList<>();
+  List<String> row;
+  while ((row = csv.next()) != null) {
+   if (row.size() == 1 && row.get(0).isBlank()) continue;
+   int line = csv.recordLine;
+   try {
+    spots.add(validate(toSpot(row, columns), line));
+   } catch (RuntimeException e) {
+    throw new IOException("Invalid catalog row at line " + line + ": " + e.getMessage(), e);
+   }
+  }
+  return spots;
+ }
+
+ private static StudySpot toSpot(List<String> row, Map<String, Integer> columns) {
+  StudySpot spot = new StudySpot();
+  spot.setId(field(row, columns, "id"));
+  spot.setName(field(row, columns, "name"));
+  spot.setLatitude(Double.parseDouble(field(row, columns, "latitude")));
+  spot.setLongitude(Double.parseDouble(field(row, columns, "longitude")));
+  String open = field(row, columns, "openTime");
+  if (open != null) spot.setOpenTime(parseTime(open));
+  String close = field(row, columns, "closeTime");
+  if (close != null) spot.setCloseTime(parseTime(close));
+  spot.setNoiseLevel(field(row, columns, "noiseLevel"));
+  spot.setIndoorOutdoor(field(row, columns, "indoorOutdoor"));
+  spot.setSpaceType(field(row, columns, "spaceType"));
+  spot.setAccessRequired(Boolean.parseBoolean(field(row, columns, "accessRequired")));
+
+  String amenities = field(row, columns, "amenities");
+  Map<String, Integer> parsed = new LinkedHashMap<>();
+  if (amenities != null) {
+   for (String amenity : amenities.split(";")) {
+    if (amenity.isBlank()) continue;
+    int eq = amenity.indexOf('=');
+    if (eq < 0) {
+     parsed.put(amenity.trim(), 1);
+    } else {
+     parsed.put(amenity.substring(0, eq).trim(), Integer.parseInt(amenity.substring(eq + 1).trim()));
+    }
+   }
+  }
+  spot.setAmenities(parsed);
+  spot.setWeeklyHours(OpeningHours.parseSchedule(field(row, columns, "weeklyHours")));
+  return spot;
+ }
+
+ /**
+  * Returns a trimmed field, or null when the column is absent or the field empty.
+  */
+ private static String field(List<String> row, Map<String, Integer> columns, String name) {
+  Integer column = columns.get(name);
+  if (column == null || column >= row.size()) return null;
+  String value = row.get(column).trim();
+  return value.isEmpty() ? null : value;
+ }
+
+ private static LocalTime parseTime(String value) {
+  try {
+   return LocalTime.parse(value);
+  } catch (DateTimeParseException e) {
+   throw new IllegalArgumentException("invalid time '" + value + "'", e);
+  }
+ }
+
+ private static StudySpot validate(StudySpot spot, int position) throws IOException {
+  if (spot.getId() == null || spot.getId().isBlank()) {
+   throw new IOException("Study spot " + position + " has no id");
+  }
+  return spot;
+ }
+
+ /**
+  * Minimal RFC 4180 record reader: comma separated, double-quoted fields may contain
+  * commas, line breaks and doubled quotes.
+  */
+ private static final class CsvReader {
+  private final Reader in;
+  private int line = 1;
+  private int recordLine;
+  private boolean eof;
+
+  CsvReader(Reader in) {
+   this.in = in;
+  }
+
+  List<String> next() throws IOException {
+   if (eof) return null;
+   recordLine = line;
+   List<String> fields = new ArrayList<>();
+   StringBuilder field = new StringBuilder();
+   boolean quoted = false;
+   boolean any = false;
+   int c;
+   while ((c = in.read()) != -1) {
+    any = true;
+    if (quoted) {
+     if (c == '"') {
+      in.mark(1);
+      int peek = in.read();
+      if (peek == '"') {
+       field.append('"');
+      } else {
+       quoted = false;
+       if (peek != -1) in.reset();
+      }
+     } else {
+      if (c == '\n') line++;
+      field.append((char) c);
+     }
+    } else if (c == '"') {
+     quoted = true;
+    } else if (c == ',') {
+     fields.add(field.toString());
+     field.setLength(0);
+    } else if (c == '\n') {
+     line++;
+     fields.add(field.toString());
+     return fields;
+    } else if (c != '\r') {
+     field.append((char) c);
+    }
+   }
+   eof = true;
+   if (quoted) {
+    throw new IOException("Unterminated quoted field starting at line " + recordLine);
+   }
+   if (!any) return null;
+   fields.add(field.toString());
+   return fields;
+  }
+ }
+}
@@ -0,0 +1,300 @@
+package controller;
+
+import config.JacksonConfig;
+import model.OpeningHours;
+import model.StudySpot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Binary study spot catalog that is memory-mapped at startup instead of parsed.
+ *
+ * <p>The file is little-endian and consists of a header, the code dictionaries of the
+ * SpotIndex it was compiled with, one fixed-width record per spot and a string table
+ * holding every distinct string once. Records carry the scoring fields already encoded
+ * (codes, amenity bitmask, minute-of-day hours, per-day schedule), so a catalog opened with
+ * {@link #open(Path)} is scored directly from the mapped file. StudySpot objects are only
+ * created when a spot is read from the returned list, typically for the spots a ranking
+ * returns.
+ *
+ * <p>Snapshots are written to a temporary file and moved into place, so a running server
+ * that still maps the previous file is not affected by a rewrite.
+ */
+public final class CatalogSnapshot {
+
+ static final int MAGIC = 0x54505353;
+ static final int FORMAT_VERSION = 2;
+
+ static final int HEADER_SIZE = 32;
+ static final int HEADER_MAGIC = 0;
+ static final int HEADER_VERSION = 4;
+ static final int HEADER_SPOT_COUNT = 8;
+ static final int HEADER_RECORD_SIZE = 12;
+ static final int HEADER_RECORDS_OFFSET = 16;
+ static final int HEADER_STRINGS_OFFSET = 24;
+
+ static final int RECORD_SIZE = 88;
+ static final int LATITUDE = 0;
+ static final int LONGITUDE = 8;
+ static final int AMENITIES = 16;
+ static final int AMENITY_KEYS = 24;
+ static final int OPEN_NANOS = 32;
+ static final int CLOSE_NANOS = 40;
+ static final int ID = 48;
+ static final int NAME = 52;
+ static final int NOISE_LEVEL = 56;
+ static final int INDOOR_OUTDOOR = 60;
+ static final int SPACE_TYPE = 64;
+ static final int OPEN_MINUTE = 68;
+ static final int CLOSE_MINUTE = 70;
+ static final int NOISE_CODE = 72;
+ static final int INDOOR_OUTDOOR_CODE = 74;
+ static final int SPACE_TYPE_CODE = 76;
+ static final int ACCESS_REQUIRED = 78;
+ static final int WEEKLY_HOURS = 80;
+
+ /**
+  * String reference stored for a null string.
+  */
+ static final int NO_STRING = -1;
+
+ private CatalogSnapshot() {
+ }
+
+ /**
+  * Writes spots to a snapshot file, replacing any existing file atomically where the
+  * file system allows it.
+  *
+  * @param spots spots to write, in catalog order
+  * @param file  snapshot file to write
+  * @throws IOException if the file cannot be written
+  * @throws IllegalArgumentException if the catalog does not fit the format
+  */
+ public static void write(List<StudySpot> spots, Path file) throws IOException {
+  HeapSpotIndex index = HeapSpotIndex.compile(spots);
+  Map<String, Integer> strings = new LinkedHashMap<>();
+
+  ByteBuffer records = ByteBuffer.allocate(Math.multiplyExact(spots.size(), RECORD_SIZE))
+   .order(ByteOrder.LITTLE_ENDIAN);
+  for (int i = 0; i < spots.size(); i++) {
+   StudySpot spot = spots.get(i);
+   int base = i * RECORD_SIZE;
+   long amenityKeys = 0L;
+   for (Map.Entry<String, Integer> amenity : spot.getAmenities().entrySet()) {
+    if (amenity.getValue() != null) {
+     amenityKeys |= 1L << index.amenityBits.get(amenity.getKey());
+    }
+   }
+   records.putDouble(base + LATITUDE, spot.getLatitude());
+   records.putDouble(base + LONGITUDE, spot.getLongitude());
+   records.putLong(base + AMENITIES, index.amenities(i));
+   records.putLong(base + AMENITY_KEYS, amenityKeys);
+   records.putLong(base + OPEN_NANOS, spot.getOpenTime().toNanoOfDay());
+   records.putLong(base + CLOSE_NANOS, spot.getCloseTime().toNanoOfDay());
+   records.putInt(base + ID, intern(strings, spot.getId()));
+   records.putInt(base + NAME, intern(strings, spot.getName()));
+   records.putInt(base + NOISE_LEVEL, intern(strings, spot.getNoiseLevel()));
+   records.putInt(base + INDOOR_OUTDOOR, intern(strings, spot.getIndoorOutdoor()));
+   records.putInt(base + SPACE_TYPE, intern(strings, spot.getSpaceType()));
+   records.putShort(base + OPEN_MINUTE, (short) index.openMinute(i));
+   records.putShort(base + CLOSE_MINUTE, (short) index.closeMinute(i));
+   records.putShort(base + NOISE_CODE, toShortCode(index.noise(i)));
+   records.putShort(base + INDOOR_OUTDOOR_CODE, toShortCode(index.indoorOutdoor(i)));
+   records.putShort(base + SPACE_TYPE_CODE, toShortCode(index.spaceType(i)));
+   records.put(base + ACCESS_REQUIRED, (byte) (spot.isAccessRequired() ? 1 : 0));
+   records.putInt(base + WEEKLY_HOURS, spot.getWeeklyHours() == null ? NO_STRING
+    : intern(strings, OpeningHours.formatSchedule(spot.getWeeklyHours())));
+  }
+
+  List<int[]> dictionaries = new ArrayList<>();
+  for (Map<String, Integer> codes : List.of(index.noiseCodes, index.indoorOutdoorCodes, index.spaceTypeCodes)) {
+   int[] entries = new int[codes.size() * 2];
+   int e = 0;
+   for (Map.Entry<String, Integer> code : codes.entrySet()) {
+    entries[e++] = intern(strings, code.getKey());
+    entries[e++] = code.getValue();
+   }
+   dictionaries.add(entries);
+  }
+  int[] amenityNames = new int[index.amenityBits.size()];
+  for (Map.Entry<String, Integer> bit : index.amenityBits.entrySet()) {
+   amenityNames[bit.getValue()] = intern(strings, bit.getKey());
+  }
+  dictionaries.add(amenityNames);
+
+  List<byte[]> encoded = new ArrayList<>(strings.size());
+  long stringBytes = 0;
+  for (String s : strings.keySet()) {
+   byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+   encoded.add(bytes);
+   stringBytes += bytes.length;
+  }
+
+  long dictionaryBytes = 0;
+  for (int[] dictionary : dictionaries) {
+   dictionaryBytes += 4L * (1 + dictionary.length);
+  }
+  long recordsOffset = align8(HEADER_SIZE + dictionaryBytes);
+  long stringsOffset = recordsOffset + records.capacity();
+  long total = stringsOffset + 4L * (2 + encoded.size()) + stringBytes;
+  if (total > Integer.MAX_VALUE) {
+   throw new IllegalArgumentException("Catalog too large for a snapshot: " + total + " bytes");
+  }
+
+  ByteBuffer out = ByteBuffer.allocate((int) total).order(ByteOrder.LITTLE_ENDIAN);
+  out.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(spots.size()).putInt(RECORD_SIZE)
+   .putLong(recordsOffset).putLong(stringsOffset);
+  for (int[] dictionary : dictionaries) {
+   out.putInt(dictionary.length);
+   for (int value : dictionary) {
+    out.putInt(value);
+   }
+  }
+  out.position((int) recordsOffset);
+  out.put(records.array());
+  out.putInt(encoded.size());
+  int offset = 0;
+  out.putInt(offset);
+  for (byte[] bytes : encoded) {
+   offset += bytes.length;
+   out.putInt(offset);
+  }
+  for (byte[] bytes : encoded) {
+   out.put(bytes);
+  }
+  out.flip();
+
+  Path target = file.toAbsolutePath();
+  Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+  try {
+   try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+    while (out.hasRemaining()) {
+     channel.write(out);
+    }
+    channel.force(true);
+   }
+   try {
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   } catch (AtomicMoveNotSupportedException e) {
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+   }
+  } finally {
+   Files.deleteIfExists(temp);
+  }
+ }
+
+ /**
+  * Maps a snapshot file into memory. The mapping stays valid after the file is replaced
+  * or deleted.
+  *
+  * @param file snapshot file
+  * @return the catalog, whose spots are created on access
+  * @throws IOException if the file cannot be read or is not a valid snapshot
+  */
+ public static MappedSpots open(Path file) throws IOException {
+  MappedByteBuffer buffer;
+  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+   long size = channel.size();
+   if (size > Integer.MAX_VALUE) {
+    throw new IOException("Snapshot too large to map: " + file);
+   }
+   buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+  }
+  buffer.order(ByteOrder.LITTLE_ENDIAN);
+  if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+   throw new IOException("Not a study spot snapshot: " + file);
+  }
+  if (buffer.getInt(HEADER_VERSION) != FORMAT_VERSION || buffer.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+   throw new IOException("Unsupported snapshot version " + buffer.getInt(HEADER_VERSION) + ": " + file);
+  }
+  long recordsEnd = buffer.getLong(HEADER_RECORDS_OFFSET) + (long) buffer.getInt(HEADER_SPOT_COUNT) * RECORD_SIZE;
+  if (recordsEnd > buffer.getLong(HEADER_STRINGS_OFFSET) || buffer.getLong(HEADER_STRINGS_OFFSET) > buffer.capacity()) {
+   throw new IOException("Truncated snapshot: " + file);
+  }
+  return new MappedSpots(buffer);
+ }
+
+ /**
+  * Converts a JSON or CSV catalog into a snapshot.
+  *
+  * @param args input catalog file and output snapshot file
+  * @throws IOException if either file cannot be accessed
+  */
+ public static void main(String[] args) throws IOException {
+  if (args.length != 2) {
+   System.err.println("Usage: CatalogSnapshot <catalog.json|catalog.csv> <output.snap>");
+   System.exit(2);
+  }
+  List<StudySpot> spots = new CatalogLoader(new JacksonConfig().objectMapper()).load(Path.of(args[0]));
+  write(spots, Path.of(args[1]));
+  System.out.println("Wrote " + spots.size() + " study spots to " + args[1]);
+ }
+
+ private static int intern(Map<String, Integer> strings, String value) {
+  if (value == null) return NO_STRING;
+  return strings.computeIfAbsent(value, k -> strings.size());
+ }
+
+ private static short toShortCode(int code) {
+  if (code > Short.MAX_VALUE) {
+   throw new IllegalArgumentException("Too many distinct categorical values for a snapshot");
+  }
+  return (short) code;
+ }
+
+ private static long align8(long offset) {
+  return (offset + 7) & ~7L;
+ }
+
+ /**
+  * Read-only catalog backed by a mapped snapshot. Every {@link #get(int)} decodes a new
+  * StudySpot from its record.
+  */
+ public static final class MappedSpots extends AbstractList<StudySpot> implements RandomAccess {
+  private final MappedSpotIndex index;
+
+  MappedSpots(ByteBuffer buffer) {
+   this.index = new MappedSpotIndex(this, buffer);
+  }
+
+  @Override
+  public StudySpot get(int i) {
+   if (i < 0 || i >= index.size()) {
+    throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + index.size());
+   }
+   return index.spot(i);
+  }
+
+  @Override
+  public int size() {
+   return index.size();
+  }
+
+  /**
+   * Returns the ID of the spot at position i without decoding the spot.
+   */
+  String id(int i) {
+   return index.id(i);
+  }
+
+  SpotIndex index() {
+   return index;
+  }
+ }
+}
@@ -0,0 +1,141 @@
+package controller;
+
+import model.StudySpot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches a catalog file and republishes the catalog whenever the file changes. Loading
+ * and publishing happen on the watcher's own daemon thread, together with any index
+ * rebuilds registered on the catalog, so requests keep scoring against the previous
+ * catalog until the new one is complete. A file that fails to load is logged and the
+ * previous catalog stays in place.
+ *
+ * <p>Spots changed through the API exist only in memory, so publishing the file over them
+ * would silently drop them. While the current catalog holds such edits, file changes are
+ * logged and not loaded; restarting the application, after copying the edits into the
+ * file if they should be kept, picks the file up again.
+ */
+public class CatalogWatcher implements AutoCloseable {
+
+ private static final Logger logger = LoggerFactory.getLogger(CatalogWatcher.class);
+
+ /**
+  * Time to wait for further changes before reloading, so that a file written in several
+  * steps is loaded once, after the last step.
+  */
+ private static final long SETTLE_MILLIS = 250;
+
+ private final StudySpotCatalog catalog;
+ private final CatalogLoader loader;
+ private final Path file;
+ private WatchService watchService;
+ private Thread thread;
+
+ /**
+  * Constructs a CatalogWatcher. Nothing is watched until {@link #start()} is called.
+  *
+  * @param catalog catalog to publish reloaded spots to
+  * @param loader  loader used to read the file
+  * @param file    catalog file to watch
+  */
+ public CatalogWatcher(StudySpotCatalog catalog, CatalogLoader loader, Path file) {
+  this.catalog = catalog;
+  this.loader = loader;
+  this.file = file.toAbsolutePath().normalize();
+ }
+
+ /**
+  * Starts watching the file's directory.
+  *
+  * @throws IOException if the directory cannot be watched
+  */
+ public synchronized void start() throws IOException {
+  if (thread != null) return;
+  watchService = FileSystems.getDefault().newWatchService();
+  file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+   StandardWatchEventKinds.ENTRY_MODIFY);
+  thread = new Thread(this::watch, "catalog-watcher");
+  thread.setDaemon(true);
+  thread.start();
+ }
+
+ /**
+  * Loads the file and publishes it to the catalog, unless the catalog holds runtime edits.
+  *
+  * @return true if the catalog was replaced, false if it holds runtime edits or the file
+  *         could not be loaded
+  */
+ public boolean reload() {
+  if (catalog.currentVersion().hasEdits()) {
+   logger.warn("Not reloading {}: catalog version {} holds runtime edits that the file would discard",
+    file, catalog.currentVersion().getNumber());
+   return false;
+  }
+  try {
+   List<StudySpot> spots = loader.load(file);
+   catalog.publish(spots);
+   logger.info("Loaded {} study spots from {}", spots.size(), file);
+   return true;
+  } catch (IOException | RuntimeException e) {
+   logger.error("Could not reload study spot catalog from {}, keeping the current catalog", file, e);
+   return false;
+  }
+ }
+
+ /**
+  * Stops watching.
+  */
+ @Override
+ public synchronized void close() throws IOException {
+  if (watchService != null) {
+   watchService.close();
+  }
+  if (thread != null) {
+   thread.interrupt();
+   thread = null;
+  }
+ }
+
+ private void watch() {
+  try {
+   while (true) {
+    WatchKey key = watchService.take();
+    boolean changed = concernsFile(key);
+    WatchKey more;
+    while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+     changed |= concernsFile(more);
+    }
+    if (changed) {
+     reload();
+    }
+   }
+  } catch (InterruptedException | ClosedWatchServiceException e) {
+   // closed
+  }
+ }
+
+ private boolean concernsFile(WatchKey key) {
+  boolean changed = false;
+  for (WatchEvent<?> event : key.pollEvents()) {
+   Object context = event.context();
+   if (event.kind() == StandardWatchEventKinds.OVERFLOW
+    || (context instanceof Path && file.getFileName().equals(context))) {
+    changed = true;
+   }
+  }
+  key.reset();
+  return changed;
+ }
+}
@@ -0,0 +1,155 @@
+package controller;
+
+import java.util.Arrays;
+
+/**
+ * Uniform latitude/longitude grid over the spots of a SpotIndex, used to find the spots
+ * within a walking radius of the user without measuring the distance to every spot.
+ * Cells are stored in compressed form: {@code cellStart[c]} to {@code cellStart[c + 1]}
+ * delimits the positions of the spots in cell {@code c} within {@code cellSpots}.
+ */
+final class GeoGrid {
+
+ /**
+  * Same sphere radius as the Maps JavaScript geometry library the frontend used to
+  * compute distances, so server-side distances match what clients used to send.
+  */
+ static final double EARTH_RADIUS_METERS = 6_378_137.0;
+
+ private static final int TARGET_SPOTS_PER_CELL = 4;
+ private static final double MIN_CELL_DEGREES = 1e-6;
+
+ private final double[] latitudes;
+ private final double[] longitudes;
+ private final double minLat;
+ private final double maxLat;
+ private final double minLng;
+ private final double maxLng;
+ private final double cellLat;
+ private final double cellLng;
+ private final int rows;
+ private final int cols;
+ private final int[] cellStart;
+ private final int[] cellSpots;
+
+ /**
+  * Builds a grid over the given coordinates. The arrays are not copied and must not be
+  * modified afterwards.
+  *
+  * @param latitudes  spot latitudes, indexed by catalog position
+  * @param longitudes spot longitudes, indexed by catalog position
+  */
+ GeoGrid(double[] latitudes, double[] longitudes) {
+  this.latitudes = latitudes;
+  this.longitudes = longitudes;
+  int n = latitudes.length;
+
+  double loLat = 0, hiLat = 0, loLng = 0, hiLng = 0;
+  if (n > 0) {
+   loLat = hiLat = latitudes[0];
+   loLng = hiLng = longitudes[0];
+   for (int i = 1; i < n; i++) {
+    loLat = Math.min(loLat, latitudes[i]);
+    hiLat = Math.max(hiLat, latitudes[i]);
+    loLng = Math.min(loLng, longitudes[i]);
+    hiLng = Math.max(hiLng, longitudes[i]);
+   }
+  }
+  this.minLat = loLat;
+  this.maxLat = hiLat;
+  this.minLng = loLng;
+  this.maxLng = hiLng;
+
+  int perAxis = Math.max(1, (int) Math.ceil(Math.sqrt(n / (double) TARGET_SPOTS_PER_CELL)));
+  this.rows = perAxis;
+  this.cols = perAxis;
+  this.cellLat = Math.max((hiLat - loLat) / rows, MIN_CELL_DEGREES);
+  this.cellLng = Math.max((hiLng - loLng) / cols, MIN_CELL_DEGREES);
+
+  int[] cellOf = new int[n];
+  this.cellStart = new int[rows * cols + 1];
+  for (int i = 0; i < n; i++) {
+   cellOf[i] = row(latitudes[i]) * cols + col(longitudes[i]);
+   cellStart[cellOf[i] + 1]++;
+  }
+  for (int c = 0; c < rows * cols; c++) {
+   cellStart[c + 1] += cellStart[c];
+  }
+  this.cellSpots = new int[n];
+  int[] fill = Arrays.copyOf(cellStart, rows * cols);
+  for (int i = 0; i < n; i++) {
+   cellSpots[fill[cellOf[i]]++] = i;
+  }
+ }
+
+ /**
+  * Returns the catalog positions of all spots whose great-circle distance from the given
+  * point is at most {@code radiusMeters}.
+  *
+  * @param lat          latitude of the point
+  * @param lng          longitude of the point
+  * @param radiusMeters search radius in meters
+  * @return matching catalog positions in ascending order
+  */
+ int[] within(double lat, double lng, double radiusMeters) {
+  if (latitudes.length == 0) return new int[0];
+
+  double dLat = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+  if (lat + dLat < minLat || lat - dLat > maxLat) return new int[0];
+
+  double farthestLat = Math.min(90.0, Math.abs(lat) + dLat);
+  double cos = Math.cos(Math.toRadians(farthestLat));
+  double dLng = cos > 1e-12 ? Math.toDegrees(radiusMeters / (EARTH_RADIUS_METERS * cos)) : 360.0;
+
+  int colFrom = 0;
+  int colTo = cols - 1;
+  boolean wraps = dLng >= 180.0 || lng - dLng < -180.0 || lng + dLng > 180.0;
+  if (!wraps) {
+   if (lng + dLng < minLng || lng - dLng > maxLng) return new int[0];
+   colFrom = col(lng - dLng);
+   colTo = col(lng + dLng);
+  }
+  int rowFrom = row(lat - dLat);
+  int rowTo = row(lat + dLat);
+
+  int[] found = new int[16];
+  int count = 0;
+  for (int r = rowFrom; r <= rowTo; r++) {
+   for (int c = colFrom; c <= colTo; c++) {
+    int cell = r * cols + c;
+    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+     int i = cellSpots[k];
+     if (haversineMeters(lat, lng, latitudes[i], longitudes[i]) <= radiusMeters) {
+      if (count == found.length) found = Arrays.copyOf(found, count * 2);
+      found[count++] = i;
+     }
+    }
+   }
+  }
+  int[] result = Arrays.copyOf(found, count);
+  Arrays.sort(result);
+  return result;
+ }
+
+ /**
+  * Computes the great-circle distance between two points with the haversine formula.
+  *
+  * @return distance in meters
+  */
+ static double haversineMeters(double lat1, double lng1, double lat2, double lng2) {
+  double dLat = Math.toRadians(lat2 - lat1);
+  double dLng = Math.toRadians(lng2 - lng1);
+  double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+   + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+   * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+  return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+ }
+
+ private int row(double lat) {
+  return Math.max(0, Math.min(rows - 1, (int) Math.floor((lat - minLat) / cellLat)));
+ }
+
+ private int col(double lng) {
+  return Math.max(0, Math.min(cols - 1, (int) Math.floor((lng - minLng) / cellLng)));
+ }
+}
@@ -0,0 +1,156 @@
+package controller;
+
+import model.OpeningHours;
+import model.StudySpot;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpotIndex compiled from a list of spots into parallel primitive arrays on the heap.
+ */
+final class HeapSpotIndex extends SpotIndex {
+
+ private final StudySpot[] spots;
+ private final String[] ids;
+ private final double[] latitudes;
+ private final double[] longitudes;
+ private final int[] noise;
+ private final int[] indoorOutdoor;
+ private final int[] spaceType;
+ private final long[] amenities;
+ private final boolean[] accessRequired;
+ private final int[] openMinute;
+ private final int[] closeMinute;
+ private final boolean[] dailyHours;
+ private final OpeningHours[] hours;
+
+ private HeapSpotIndex(List<StudySpot> source, int size) {
+  super(source);
+  this.spots = new StudySpot[size];
+  this.ids = new String[size];
+  this.latitudes = new double[size];
+  this.longitudes = new double[size];
+  this.noise = new int[size];
+  this.indoorOutdoor = new int[size];
+  this.spaceType = new int[size];
+  this.amenities = new long[size];
+  this.accessRequired = new boolean[size];
+  this.openMinute = new int[size];
+  this.closeMinute = new int[size];
+  this.dailyHours = new boolean[size];
+  this.hours = new OpeningHours[size];
+ }
+
+ /**
+  * Compiles the given spots into a new index. The list is copied, so later changes to
+  * it are not reflected in the returned index.
+  *
+  * @param studySpots spots to compile, in scoring order
+  * @return a new HeapSpotIndex over the spots
+  * @throws IllegalArgumentException if the catalog uses more than 64 distinct amenities
+  */
+ static HeapSpotIndex compile(List<StudySpot> studySpots) {
+  HeapSpotIndex index = new HeapSpotIndex(studySpots, studySpots.size());
+  for (int i = 0; i < studySpots.size(); i++) {
+   StudySpot spot = studySpots.get(i);
+   index.spots[i] = spot;
+   index.ids[i] = spot.getId();
+   index.latitudes[i] = spot.getLatitude();
+   index.longitudes[i] = spot.getLongitude();
+   index.noise[i] = assignCode(index.noiseCodes, spot.getNoiseLevel());
+   index.indoorOutdoor[i] = assignCode(index.indoorOutdoorCodes, spot.getIndoorOutdoor());
+   index.spaceType[i] = assignCode(index.spaceTypeCodes, spot.getSpaceType());
+   index.accessRequired[i] = spot.isAccessRequired();
+   index.openMinute[i] = toMinuteOfDay(spot.getOpenTime());
+   index.closeMinute[i] = toMinuteOfDay(spot.getCloseTime());
+   index.dailyHours[i] = spot.getWeeklyHours() == null;
+   index.hours[i] = spot.getOpeningHours();
+
+   long mask = 0L;
+   for (Map.Entry<String, Integer> amenity : spot.getAmenities().entrySet()) {
+    int bit = index.amenityBits.computeIfAbsent(amenity.getKey(), k -> index.amenityBits.size());
+    if (bit >= Long.SIZE) {
+     throw new IllegalArgumentException("Too many distinct amenities: " + amenity.getKey());
+    }
+    if (amenity.getValue() != null && amenity.getValue() == 1) {
+     mask |= 1L << bit;
+    }
+   }
+   index.amenities[i] = mask;
+  }
+  index.initGeoGrid(index.latitudes, index.longitudes);
+  index.initHoursIndex();
+  return index;
+ }
+
+ @Override
+ public int size() {
+  return spots.length;
+ }
+
+ @Override
+ StudySpot spot(int i) {
+  return spots[i];
+ }
+
+ @Override
+ String id(int i) {
+  return ids[i];
+ }
+
+ @Override
+ double latitude(int i) {
+  return latitudes[i];
+ }
+
+ @Override
+ double longitude(int i) {
+  return longitudes[i];
+ }
+
+ @Override
+ int noise(int i) {
+  return noise[i];
+ }
+
+ @Override
+ int indoorOutdoor(int i) {
+  return indoorOutdoor[i];
+ }
+
+ @Override
+ int spaceType(int i) {
+  return spaceType[i];
+ }
+
+ @Override
+ long amenities(int i) {
+  return amenities[i];
+ }
+
+ @Override
+ boolean isAccessRequired(int i) {
+  return accessRequired[i];
+ }
+
+ @Override
+ int openMinute(int i) {
+  return openMinute[i];
+ }
+
+ @Override
+ int closeMinute(int i) {
+  return closeMinute[i];
+ }
+
+ @Override
+ boolean hasDailyHours(int i) {
+  return dailyHours[i];
+ }
+
+ @Override
+ OpeningHours hours(int i) {
+  return hours[i];
+ }
+}
@@ -0,0 +1,133 @@
+package controller;
+
+import model.OpeningHours;
+import model.PreferencesSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap index of a catalog's opening hours, bucketed by hour of the week. Every bucket
+ * holds two bitsets over catalog positions: the spots open at some point during the
+ * bucket and the spots open for all of it. An hours filter becomes a few word-wise ORs
+ * and ANDs over these bitsets; only spots that open or close inside a bucket the filter
+ * touches are checked against their exact hours.
+ */
+final class HoursIndex {
+
+ static final int BUCKET_MINUTES = 60;
+ static final int BUCKETS = OpeningHours.MINUTES_PER_WEEK / BUCKET_MINUTES;
+
+ private final SpotIndex index;
+ private final int size;
+ private final int words;
+ private final long[] anyOpen;
+ private final long[] allOpen;
+
+ HoursIndex(SpotIndex index) {
+  this.index = index;
+  this.size = index.size();
+  this.words = (size + Long.SIZE - 1) / Long.SIZE;
+  this.anyOpen = new long[BUCKETS * words];
+  this.allOpen = new long[BUCKETS * words];
+  for (int i = 0; i < size; i++) {
+   OpeningHours hours = index.hours(i);
+   for (int k = 0; k < hours.intervalCount(); k++) {
+    mark(i, hours.intervalStart(k), hours.intervalEnd(k));
+   }
+  }
+ }
+
+ private void mark(int spot, int start, int end) {
+  int word = spot >>> 6;
+  long bit = 1L << spot;
+  for (int b = start / BUCKET_MINUTES; b * BUCKET_MINUTES < end; b++) {
+   anyOpen[b * words + word] |= bit;
+   if (start <= b * BUCKET_MINUTES && end >= (b + 1) * BUCKET_MINUTES) {
+    allOpen[b * words + word] |= bit;
+   }
+  }
+ }
+
+ /**
+  * Returns the candidates whose opening hours pass the preferences' hours filters.
+  *
+  * @param candidates  positions in ascending order, or null for every spot
+  * @param preferences preferences with at least one hours filter
+  * @return matching positions in ascending order
+  */
+ int[] filter(int[] candidates, PreferencesSnapshot preferences) {
+  long[] sure = new long[words];
+  long[] maybe = new long[words];
+  Arrays.fill(sure, -1L);
+  Arrays.fill(maybe, -1L);
+
+  if (preferences.getOpenAt() != PreferencesSnapshot.ANY_TIME) {
+   int b = preferences.getOpenAt() / BUCKET_MINUTES;
+   and(sure, allOpen, b);
+   and(maybe, anyOpen, b);
+  }
+  if (preferences.isOpenDuringWindow()) {
+   long[] windowSure = new long[words];
+   long[] windowMaybe = new long[words];
+   int start = preferences.getWindowStart();
+   int length = preferences.getWindowLength();
+   if (length == 0) {
+    // An instant also matches spots closing at it, which only the exact check sees.
+    or(windowMaybe, anyOpen, start / BUCKET_MINUTES);
+    or(windowMaybe, anyOpen, Math.floorMod(start - 1, OpeningHours.MINUTES_PER_WEEK) / BUCKET_MINUTES);
+   } else {
+    int first = start / BUCKET_MINUTES;
+    int last = (start + length - 1) / BUCKET_MINUTES;
+    for (int b = first; b <= last; b++) {
+     or(windowSure, allOpen, b % BUCKETS);
+     or(windowMaybe, anyOpen, b % BUCKETS);
+    }
+   }
+   for (int w = 0; w < words; w++) {
+    sure[w] &= windowSure[w];
+    maybe[w] &= windowMaybe[w];
+   }
+  }
+
+  int[] matches = new int[candidates != null ? candidates.length : size];
+  int count = 0;
+  if (candidates == null) {
+   for (int w = 0; w < words; w++) {
+    long bits = maybe[w];
+    while (bits != 0) {
+     int i = (w << 6) + Long.numberOfTrailingZeros(bits);
+     bits &= bits - 1;
+     if (i >= size) break;
+     if (accepts(i, sure, preferences)) {
+      matches[count++] = i;
+     }
+    }
+   }
+  } else {
+   for (int i : candidates) {
+    if ((maybe[i >>> 6] & (1L << i)) != 0 && accepts(i, sure, preferences)) {
+     matches[count++] = i;
+    }
+   }
+  }
+  return Arrays.copyOf(matches, count);
+ }
+
+ private boolean accepts(int i, long[] sure, PreferencesSnapshot preferences) {
+  return (sure[i >>> 6] & (1L << i)) != 0 || preferences.acceptsHours(index.hours(i));
+ }
+
+ private void and(long[] target, long[] buckets, int bucket) {
+  int base = bucket * words;
+  for (int w = 0; w < words; w++) {
+   target[w] &= buckets[base + w];
+  }
+ }
+
+ private void or(long[] target, long[] buckets, int bucket) {
+  int base = bucket * words;
+  for (int w = 0; w < words; w++) {
+   target[w] |= buckets[base + w];
+  }
+ }
+}
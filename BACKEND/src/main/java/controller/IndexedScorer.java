@@ -0,0 +1,526 @@
+package controller;
+
+import controller.MatchingScoreController.ScoredSpot;
+import model.OpeningHours;
+import model.PreferencesSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * One scoring pass of a preferences snapshot over a SpotIndex.
+ * Raw scores and distances are written into primitive arrays indexed by candidate
+ * position, normalized in place, and only the spots that are returned are materialized
+ * as ScoredSpot. Every step works on a range of candidates, so the same pass can run
+ * sequentially or split into chunks on a ForkJoinPool with identical results.
+ */
+final class IndexedScorer {
+
+ private final SpotIndex index;
+ private final int[] candidates;
+ private final int size;
+ private final double[] scores;
+ private final double[] distances;
+ private final double[] crowding;
+
+ private final Map<String, Double> distancesFromUser;
+ private final boolean located;
+ private final double userLat;
+ private final double userLng;
+ private final int maxDistance;
+ private final boolean anyNoise;
+ private final int prefNoise;
+ private final boolean anySpaceType;
+ private final int prefSpaceType;
+ private final boolean anyIndoorOutdoor;
+ private final int prefIndoorOutdoor;
+ private final boolean accessRequired;
+ private final int windowStart;
+ private final int windowLength;
+ private final long prefAmenities;
+ private final double perAmenityWeight;
+
+ /**
+  * Prepares a pass over the index. With a user location and a finite maximum distance,
+  * only spots within that distance become candidates, and with an hours filter only
+  * spots whose opening hours pass it.
+  *
+  * @param index             compiled catalog
+  * @param preferences       user preferences
+  * @param distancesFromUser client-supplied distances by spot ID, or null
+  * @param userLat           user latitude, or NaN when distances come from the map
+  * @param userLng           user longitude, or NaN when distances come from the map
+  * @param crowding          factors to multiply raw scores by, by catalog position, or null
+  */
+ IndexedScorer(SpotIndex index, PreferencesSnapshot preferences, Map<String, Double> distancesFromUser,
+               double userLat, double userLng, double[] crowding) {
+  this.index = index;
+  this.crowding = crowding;
+  this.distancesFromUser = distancesFromUser;
+  this.userLat = userLat;
+  this.userLng = userLng;
+  this.located = !Double.isNaN(userLat) && !Double.isNaN(userLng);
+  this.maxDistance = preferences.getMaxDistance();
+  int[] nearby = located && maxDistance > 0 && maxDistance < Integer.MAX_VALUE
+   ? index.within(userLat, userLng, maxDistance) : null;
+  this.candidates = preferences.hasHoursFilter() ? index.openDuring(nearby, preferences) : nearby;
+  this.size = candidates != null ? candidates.length : index.size();
+  this.scores = new double[size];
+  this.distances = new double[size];
+
+  this.anyNoise = preferences.getNoiseLevel().equalsIgnoreCase("Any");
+  this.prefNoise = index.noiseCode(preferences.getNoiseLevel());
+  this.anySpaceType = preferences.getSpaceType().equalsIgnoreCase("Any");
+  this.prefSpaceType = index.spaceTypeCode(preferences.getSpaceType());
+  this.anyIndoorOutdoor = preferences.getIndoorOutdoor().equalsIgnoreCase("Any");
+  this.prefIndoorOutdoor = index.indoorOutdoorCode(preferences.getIndoorOutdoor());
+  this.accessRequired = preferences.isAccessRequired();
+  this.windowStart = preferences.getWindowStart();
+  this.windowLength = preferences.getWindowLength();
+
+  Map<String, Integer> userAm = preferences.getAmenities();
+  this.prefAmenities = index.amenityMask(userAm);
+  this.perAmenityWeight = userAm.isEmpty() ? 0 : MatchingScoreController.AMENITIES_WEIGHT / userAm.size();
+ }
+
+ /**
+  * Returns the number of candidate spots in this pass.
+  */
+ int size() {
+  return size;
+ }
+
+ /**
+  * Scores, normalizes and ranks all candidates on the calling thread.
+  *
+  * @param limit maximum number of spots to return; non-positive returns all candidates
+  * @return ranked spots, best first
+  */
+ List<ScoredSpot> rank(int limit) {
+  return rankScored(scoreRange(0, size), limit);
+ }
+
+ /**
+  * Normalizes and ranks candidates whose raw scores have already been computed with
+  * {@link #scoreAt(int)}.
+  *
+  * @param minMax minimum and maximum raw score over all candidates
+  * @param limit  maximum number of spots to return; non-positive returns all candidates
+  * @return ranked spots, best first
+  */
+ List<ScoredSpot> rankScored(double[] minMax, int limit) {
+  normalizeRange(0, size, minMax[0], range(minMax));
+  if (limit <= 0 || limit >= size) {
+   return materializeAll();
+  }
+  return materialize(selectTop(0, size, limit));
+ }
+
+ /**
+  * Scores, normalizes and ranks all candidates on the given pool, splitting the
+  * candidates into chunks of about {@code chunkSize}. Produces exactly the same result as
+  * {@link #rank(int)}.
+  *
+  * @param limit     maximum number of spots to return; non-positive returns all candidates
+  * @param pool      pool to run the chunks on
+  * @param chunkSize number of candidates below which a chunk is not split further
+  * @return ranked spots, best first
+  */
+ List<ScoredSpot> rankParallel(int limit, ForkJoinPool pool, int chunkSize) {
+  double[] minMax = pool.invoke(new ScoreTask(0, size, chunkSize));
+  double min = minMax[0];
+  double range = range(minMax);
+  if (limit <= 0 || limit >= size) {
+   pool.invoke(new TopTask(0, size, chunkSize, 0, min, range));
+   return materializeAll();
+  }
+  return materialize(pool.invoke(new TopTask(0, size, chunkSize, limit, min, range)));
+ }
+
+ /**
+  * Scores and normalizes all candidates, then returns them best first one at a time, in
+  * the same order as {@link #rank(int)}. Without a limit, the candidates are kept in a
+  * binary heap of positions that is built in one linear pass, and each candidate is
+  * ranked only when it is taken; with a limit, only the winners' positions are kept. A
+  * ScoredSpot is created on each {@code next()} and not retained.
+  *
+  * @param limit     maximum number of spots to return; non-positive returns all candidates
+  * @param pool      pool to score on, or null to score on the calling thread
+  * @param chunkSize number of candidates below which a chunk is not split further
+  * @return ranked spots, best first
+  */
+ Ranking rankLazily(int limit, ForkJoinPool pool, int chunkSize) {
+  double[] minMax = pool != null ? pool.invoke(new ScoreTask(0, size, chunkSize)) : scoreRange(0, size);
+  normalizeRange(0, size, minMax[0], range(minMax));
+  if (limit > 0 && limit < size) {
+   return new Ranking(selectTop(0, size, limit), limit, false);
+  }
+  int[] heap = new int[size];
+  for (int k = 0; k < size; k++) {
+   heap[k] = k;
+  }
+  for (int pos = size / 2 - 1; pos >= 0; pos--) {
+   siftDownBestFirst(heap, pos, size);
+  }
+  return new Ranking(heap, size, true);
+ }
+
+ /**
+  * Computes raw scores and distances for candidates {@code from} (inclusive) to
+  * {@code to} (exclusive).
+  *
+  * @return the minimum and maximum raw score in the range
+  */
+ private double[] scoreRange(int from, int to) {
+  double min = Double.POSITIVE_INFINITY;
+  double max = Double.NEGATIVE_INFINITY;
+  for (int k = from; k < to; k++) {
+   double score = scoreAt(k);
+   min = Math.min(min, score);
+   max = Math.max(max, score);
+  }
+  return new double[] {min, max};
+ }
+
+ /**
+  * Computes the raw score and distance of candidate {@code k}.
+  *
+  * @return the raw score
+  */
+ double scoreAt(int k) {
+  int i = spotAt(k);
+  double score = 0;
+  double distance = Double.MAX_VALUE;
+  boolean known = located;
+  if (located) {
+   distance = index.distanceFrom(i, userLat, userLng);
+  } else if (distancesFromUser != null) {
+   Double sent = distancesFromUser.get(index.id(i));
+   known = sent != null;
+   if (known) distance = sent;
+  }
+  if (known && maxDistance > 0) {
+   double ratio = distance / maxDistance;
+   ratio = Math.min(1.0, Math.max(0.0, ratio));
+   score += MatchingScoreController.DISTANCE_WEIGHT * (1 - ratio);
+  }
+
+  score += Long.bitCount(index.amenities(i) & prefAmenities) * perAmenityWeight;
+
+  int noise = index.noise(i);
+  if (anyNoise || noise == prefNoise) {
+   score += MatchingScoreController.NOISE_WEIGHT;
+  } else if (SpotIndex.isAdjacentNoise(noise, prefNoise)) {
+   score += MatchingScoreController.NOISE_WEIGHT / 2;
+  }
+
+  if (!anySpaceType && index.spaceType(i) == prefSpaceType) {
+   score += MatchingScoreController.SPACE_TYPE_WEIGHT;
+  }
+
+  if (!anyIndoorOutdoor && index.indoorOutdoor(i) == prefIndoorOutdoor) {
+   score += MatchingScoreController.INDOOR_OUTDOOR_WEIGHT;
+  }
+
+  if (!accessRequired || index.isAccessRequired(i)) {
+   score += MatchingScoreController.ACCESS_WEIGHT;
+  }
+
+  OpeningHours.Coverage coverage = index.hasDailyHours(i)
+   ? OpeningHours.dailyCoverage(index.openMinute(i), index.closeMinute(i), windowStart, windowLength)
+   : index.hours(i).coverage(windowStart, windowLength);
+  if (coverage == OpeningHours.Coverage.FULL) {
+   score += MatchingScoreController.HOURS_WEIGHT;
+  } else if (coverage == OpeningHours.Coverage.PARTIAL) {
+   score += MatchingScoreController.HOURS_WEIGHT / 2;
+  }
+
+  if (crowding != null) {
+   score *= crowding[i];
+  }
+
+  scores[k] = score;
+  distances[k] = distance;
+  return score;
+ }
+
+ /**
+  * Returns the catalog position of candidate {@code k}. Candidates are in ascending
+  * catalog order.
+  */
+ int spotAt(int k) {
+  return candidates != null ? candidates[k] : k;
+ }
+
+ /**
+  * Returns the first candidate whose catalog position is at least {@code spot}, or
+  * {@link #size()} if there is none.
+  */
+ int firstCandidateAtOrAfter(int spot) {
+  if (candidates == null) return Math.min(spot, size);
+  int found = Arrays.binarySearch(candidates, spot);
+  return found >= 0 ? found : -found - 1;
+ }
+
+ private static double range(double[] minMax) {
+  return (minMax[1] - minMax[0] == 0) ? 1 : (minMax[1] - minMax[0]);
+ }
+
+ private void normalizeRange(int from, int to, double min, double range) {
+  for (int k = from; k < to; k++) {
+   scores[k] = (scores[k] - min) / range * 100.0;
+  }
+ }
+
+ private ScoredSpot scoredSpot(int k) {
+  ScoredSpot scoredSpot = new ScoredSpot(index.spot(spotAt(k)), scores[k]);
+  scoredSpot.setDistance(distances[k]);
+  return scoredSpot;
+ }
+
+ private List<ScoredSpot> materializeAll() {
+  List<ScoredSpot> scoredList = new ArrayList<>(size);
+  for (int k = 0; k < size; k++) {
+   scoredList.add(scoredSpot(k));
+  }
+  scoredList.sort(MatchingScoreController.RANKING_ORDER);
+  return scoredList;
+ }
+
+ private List<ScoredSpot> materialize(int[] winners) {
+  List<ScoredSpot> scoredList = new ArrayList<>(winners.length);
+  for (int k : winners) {
+   scoredList.add(scoredSpot(k));
+  }
+  return scoredList;
+ }
+
+ /**
+  * Selects the best {@code limit} candidates in a range with a bounded heap whose root is
+  * the worst candidate kept so far.
+  *
+  * @return candidate positions of the winners, best first
+  */
+ private int[] selectTop(int from, int to, int limit) {
+  int[] heap = new int[Math.min(limit, to - from)];
+  int heapSize = 0;
+  for (int k = from; k < to; k++) {
+   if (heapSize < heap.length) {
+    heap[heapSize] = k;
+    siftUp(heap, heapSize++);
+   } else if (compareRank(k, heap[0]) < 0) {
+    heap[0] = k;
+    siftDown(heap, heapSize);
+   }
+  }
+
+  int[] ordered = new int[heapSize];
+  for (int k = heapSize - 1; k >= 0; k--) {
+   ordered[k] = heap[0];
+   heap[0] = heap[--heapSize];
+   siftDown(heap, heapSize);
+  }
+  return ordered;
+ }
+
+ /**
+  * Merges two best-first winner lists into the best {@code limit} of both.
+  */
+ private int[] mergeTop(int[] a, int[] b, int limit) {
+  int[] merged = new int[Math.min(limit, a.length + b.length)];
+  int i = 0;
+  int j = 0;
+  for (int k = 0; k < merged.length; k++) {
+   if (j >= b.length || (i < a.length && compareRank(a[i], b[j]) < 0)) {
+    merged[k] = a[i++];
+   } else {
+    merged[k] = b[j++];
+   }
+  }
+  return merged;
+ }
+
+ private void siftUp(int[] heap, int pos) {
+  int item = heap[pos];
+  while (pos > 0) {
+   int parent = (pos - 1) >>> 1;
+   if (compareRank(item, heap[parent]) <= 0) break;
+   heap[pos] = heap[parent];
+   pos = parent;
+  }
+  heap[pos] = item;
+ }
+
+ private void siftDown(int[] heap, int heapSize) {
+  if (heapSize == 0) return;
+  int item = heap[0];
+  int pos = 0;
+  int half = heapSize >>> 1;
+  while (pos < half) {
+   int child = 2 * pos + 1;
+   int right = child + 1;
+   if (right < heapSize && compareRank(heap[right], heap[child]) > 0) {
+    child = right;
+   }
+   if (compareRank(item, heap[child]) >= 0) break;
+   heap[pos] = heap[child];
+   pos = child;
+  }
+  heap[pos] = item;
+ }
+
+ /**
+  * Restores a heap whose root is the best candidate after the item at {@code pos} got
+  * worse.
+  */
+ private void siftDownBestFirst(int[] heap, int pos, int heapSize) {
+  int item = heap[pos];
+  int half = heapSize >>> 1;
+  while (pos < half) {
+   int child = 2 * pos + 1;
+   int right = child + 1;
+   if (right < heapSize && compareRank(heap[right], heap[child]) < 0) {
+    child = right;
+   }
+   if (compareRank(item, heap[child]) <= 0) break;
+   heap[pos] = heap[child];
+   pos = child;
+  }
+  heap[pos] = item;
+ }
+
+ /**
+  * Orders two candidates the same way as RANKING_ORDER, falling back to catalog order
+  * so the result matches a stable sort of the full list.
+  */
+ private int compareRank(int a, int b) {
+  int cmp = Double.compare(scores[b], scores[a]);
+  if (cmp != 0) return cmp;
+  cmp = Double.compare(distances[a], distances[b]);
+  if (cmp != 0) return cmp;
+  return Integer.compare(a, b);
+ }
+
+ /**
+  * Ranked candidates of a pass, taken best first. Holds only candidate positions; the
+  * spots are created as they are taken.
+  */
+ final class Ranking implements Iterator<ScoredSpot> {
+  private final int[] positions;
+  private final boolean heap;
+  private int remaining;
+  private int taken;
+
+  private Ranking(int[] positions, int count, boolean heap) {
+   this.positions = positions;
+   this.remaining = count;
+   this.heap = heap;
+  }
+
+  @Override
+  public boolean hasNext() {
+   return remaining > 0;
+  }
+
+  @Override
+  public ScoredSpot next() {
+   if (remaining == 0) {
+    throw new NoSuchElementException();
+   }
+   int k;
+   if (heap) {
+    k = positions[0];
+    positions[0] = positions[--remaining];
+    siftDownBestFirst(positions, 0, remaining);
+   } else {
+    k = positions[taken];
+    remaining--;
+   }
+   taken++;
+   return scoredSpot(k);
+  }
+
+  /**
+   * Returns the number of spots taken so far.
+   */
+  int taken() {
+   return taken;
+  }
+
+  /**
+   * Returns the number of spots not taken yet.
+   */
+  int remaining() {
+   return remaining;
+  }
+ }
+
+ /**
+  * Scores a range of candidates and returns its raw score minimum and maximum.
+  */
+ private final class ScoreTask extends RecursiveTask<double[]> {
+  private final int from;
+  private final int to;
+  private final int chunkSize;
+
+  ScoreTask(int from, int to, int chunkSize) {
+   this.from = from;
+   this.to = to;
+   this.chunkSize = chunkSize;
+  }
+
+  @Override
+  protected double[] compute() {
+   if (to - from <= chunkSize) {
+    return scoreRange(from, to);
+   }
+   int mid = (from + to) >>> 1;
+   ScoreTask left = new ScoreTask(from, mid, chunkSize);
+   left.fork();
+   double[] right = new ScoreTask(mid, to, chunkSize).compute();
+   double[] leftMinMax = left.join();
+   return new double[] {Math.min(leftMinMax[0], right[0]), Math.max(leftMinMax[1], right[1])};
+  }
+ }
+
+ /**
+  * Normalizes a range of candidates and, when a limit is set, returns its local winners.
+  */
+ private final class TopTask extends RecursiveTask<int[]> {
+  private final int from;
+  private final int to;
+  private final int chunkSize;
+  private final int limit;
+  private final double min;
+  private final double range;
+
+  TopTask(int from, int to, int chunkSize, int limit, double min, double range) {
+   this.from = from;
+   this.to = to;
+   this.chunkSize = chunkSize;
+   this.limit = limit;
+   this.min = min;
+   this.range = range;
+  }
+
+  @Override
+  protected int[] compute() {
+   if (to - from <= chunkSize) {
+    normalizeRange(from, to, min, range);
+    return limit > 0 ? selectTop(from, to, limit) : null;
+   }
+   int mid = (from + to) >>> 1;
+   TopTask left = new TopTask(from, mid, chunkSize, limit, min, range);
+   left.fork();
+   int[] right = new TopTask(mid, to, chunkSize, limit, min, range).compute();
+   int[] leftTop = left.join();
+   return limit > 0 ? mergeTop(leftTop, right, limit) : null;
+  }
+ }
+}
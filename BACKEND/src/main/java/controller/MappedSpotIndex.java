@@ -0,0 +1,195 @@
+package controller;
+
+import model.OpeningHours;
+import model.StudySpot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static controller.CatalogSnapshot.*;
+
+/**
+ * SpotIndex that reads every field from a mapped {@link CatalogSnapshot}. Only the
+ * dictionaries and the coordinates used by the spatial grid are copied onto the heap;
+ * strings are decoded on first use and StudySpot objects on every {@link #spot(int)}.
+ * Opening hours are compiled once per distinct combination of daily hours and schedule.
+ */
+final class MappedSpotIndex extends SpotIndex {
+
+ private final ByteBuffer buffer;
+ private final int size;
+ private final int recordsOffset;
+ private final int stringOffsets;
+ private final int stringBytes;
+ private final String[] strings;
+ private final String[] amenityNames;
+ private final Map<Long, OpeningHours> scheduledHours = new ConcurrentHashMap<>();
+
+ MappedSpotIndex(List<StudySpot> source, ByteBuffer buffer) {
+  super(source);
+  this.buffer = buffer;
+  this.size = buffer.getInt(HEADER_SPOT_COUNT);
+  this.recordsOffset = (int) buffer.getLong(HEADER_RECORDS_OFFSET);
+  int stringsOffset = (int) buffer.getLong(HEADER_STRINGS_OFFSET);
+  int stringCount = buffer.getInt(stringsOffset);
+  this.stringOffsets = stringsOffset + 4;
+  this.stringBytes = stringOffsets + 4 * (stringCount + 1);
+  this.strings = new String[stringCount];
+
+  int position = HEADER_SIZE;
+  for (Map<String, Integer> codes : List.of(noiseCodes, indoorOutdoorCodes, spaceTypeCodes)) {
+   int entries = buffer.getInt(position);
+   position += 4;
+   for (int e = 0; e < entries; e += 2) {
+    codes.put(string(buffer.getInt(position)), buffer.getInt(position + 4));
+    position += 8;
+   }
+  }
+  this.amenityNames = new String[buffer.getInt(position)];
+  position += 4;
+  for (int bit = 0; bit < amenityNames.length; bit++) {
+   amenityNames[bit] = string(buffer.getInt(position));
+   amenityBits.put(amenityNames[bit], bit);
+   position += 4;
+  }
+
+  double[] latitudes = new double[size];
+  double[] longitudes = new double[size];
+  for (int i = 0; i < size; i++) {
+   latitudes[i] = latitude(i);
+   longitudes[i] = longitude(i);
+  }
+  initGeoGrid(latitudes, longitudes);
+  initHoursIndex();
+ }
+
+ private int record(int i) {
+  return recordsOffset + i * RECORD_SIZE;
+ }
+
+ /**
+  * Returns the string with the given reference, decoding it on first use. Concurrent
+  * first uses may both decode it; either result is equal.
+  */
+ private String string(int ref) {
+  if (ref == NO_STRING) return null;
+  String s = strings[ref];
+  if (s == null) {
+   int start = buffer.getInt(stringOffsets + 4 * ref);
+   byte[] bytes = new byte[buffer.getInt(stringOffsets + 4 * (ref + 1)) - start];
+   buffer.get(stringBytes + start, bytes);
+   s = new String(bytes, StandardCharsets.UTF_8);
+   strings[ref] = s;
+  }
+  return s;
+ }
+
+ @Override
+ public int size() {
+  return size;
+ }
+
+ @Override
+ StudySpot spot(int i) {
+  int base = record(i);
+  StudySpot spot = new StudySpot();
+  spot.setId(string(buffer.getInt(base + ID)));
+  spot.setName(string(buffer.getInt(base + NAME)));
+  spot.setLatitude(buffer.getDouble(base + LATITUDE));
+  spot.setLongitude(buffer.getDouble(base + LONGITUDE));
+  spot.setOpenTime(LocalTime.ofNanoOfDay(buffer.getLong(base + OPEN_NANOS)));
+  spot.setCloseTime(LocalTime.ofNanoOfDay(buffer.getLong(base + CLOSE_NANOS)));
+  spot.setNoiseLevel(string(buffer.getInt(base + NOISE_LEVEL)));
+  spot.setIndoorOutdoor(string(buffer.getInt(base + INDOOR_OUTDOOR)));
+  spot.setSpaceType(string(buffer.getInt(base + SPACE_TYPE)));
+  spot.setAccessRequired(buffer.get(base + ACCESS_REQUIRED) != 0);
+
+  long keys = buffer.getLong(base + AMENITY_KEYS);
+  long values = buffer.getLong(base + AMENITIES);
+  Map<String, Integer> amenities = new HashMap<>();
+  for (int bit = 0; bit < amenityNames.length; bit++) {
+   if ((keys & (1L << bit)) != 0) {
+    amenities.put(amenityNames[bit], (values & (1L << bit)) != 0 ? 1 : 0);
+   }
+  }
+  spot.setAmenities(amenities);
+  spot.setWeeklyHours(OpeningHours.parseSchedule(string(buffer.getInt(base + WEEKLY_HOURS))));
+  return spot;
+ }
+
+ @Override
+ String id(int i) {
+  return string(buffer.getInt(record(i) + ID));
+ }
+
+ @Override
+ double latitude(int i) {
+  return buffer.getDouble(record(i) + LATITUDE);
+ }
+
+ @Override
+ double longitude(int i) {
+  return buffer.getDouble(record(i) + LONGITUDE);
+ }
+
+ @Override
+ int noise(int i) {
+  return buffer.getShort(record(i) + NOISE_CODE);
+ }
+
+ @Override
+ int indoorOutdoor(int i) {
+  return buffer.getShort(record(i) + INDOOR_OUTDOOR_CODE);
+ }
+
+ @Override
+ int spaceType(int i) {
+  return buffer.getShort(record(i) + SPACE_TYPE_CODE);
+ }
+
+ @Override
+ long amenities(int i) {
+  return buffer.getLong(record(i) + AMENITIES);
+ }
+
+ @Override
+ boolean isAccessRequired(int i) {
+  return buffer.get(record(i) + ACCESS_REQUIRED) != 0;
+ }
+
+ @Override
+ int openMinute(int i) {
+  return buffer.getShort(record(i) + OPEN_MINUTE);
+ }
+
+ @Override
+ int closeMinute(int i) {
+  return buffer.getShort(record(i) + CLOSE_MINUTE);
+ }
+
+ @Override
+ boolean hasDailyHours(int i) {
+  return buffer.getInt(record(i) + WEEKLY_HOURS) == NO_STRING;
+ }
+
+ @Override
+ OpeningHours hours(int i) {
+  int base = record(i);
+  int open = buffer.getShort(base + OPEN_MINUTE);
+  int close = buffer.getShort(base + CLOSE_MINUTE);
+  int schedule = buffer.getInt(base + WEEKLY_HOURS);
+  if (schedule == NO_STRING) {
+   return OpeningHours.daily(open, close);
+  }
+  long key = (long) schedule << 32 | open << 16 | close;
+  return scheduledHours.computeIfAbsent(key, k -> OpeningHours.of(
+   LocalTime.ofNanoOfDay(buffer.getLong(base + OPEN_NANOS)),
+   LocalTime.ofNanoOfDay(buffer.getLong(base + CLOSE_NANOS)),
+   OpeningHours.parseSchedule(string(schedule))));
+ }
+}
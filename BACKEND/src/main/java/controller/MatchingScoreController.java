@@ -1,42 +1,422 @@
 package controller;
 
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import model.OpeningHours;
 import model.PreferencesModel;
+import model.PreferencesSnapshot;
 import model.StudySpot;
 
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Service class for calculating matching scores for StudySpot instances.
  * Scores are based on user preferences, distance, amenities, noise level, space type, indoor/outdoor,
  * accessibility, and operating hours.
+ * Spots that fail the preferences' hours filters (open now, open during the window) are
+ * left out of the ranking rather than scored low.
+ * With an OccupancyTracker, each spot's raw score is multiplied by its crowding factor
+ * before normalization, so busy spots rank lower.
  */
 public class MatchingScoreController {
  
- private static final double DISTANCE_WEIGHT = 20.0;
- private static final double AMENITIES_WEIGHT = 20.0;
- private static final double NOISE_WEIGHT = 15.0;
- private static final double SPACE_TYPE_WEIGHT = 15.0;
- private static final double INDOOR_OUTDOOR_WEIGHT = 10.0;
- private static final double ACCESS_WEIGHT = 10.0;
- private static final double HOURS_WEIGHT = 10.0;
+ static final double DISTANCE_WEIGHT = 20.0;
+ static final double AMENITIES_WEIGHT = 20.0;
+ static final double NOISE_WEIGHT = 15.0;
+ static final double SPACE_TYPE_WEIGHT = 15.0;
+ static final double INDOOR_OUTDOOR_WEIGHT = 10.0;
+ static final double ACCESS_WEIGHT = 10.0;
+ static final double HOURS_WEIGHT = 10.0;
  
- private final List<StudySpot> studySpots;
+ /**
+  * Default number of candidate spots below which PARALLEL mode scores sequentially.
+  */
+ public static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+ 
+ private static final int MIN_CHUNK_SIZE = 2_048;
+ private static final int CHUNKS_PER_THREAD = 4;
+ 
+ static final Comparator<ScoredSpot> RANKING_ORDER = (a, b) -> {
+  int cmp = Double.compare(b.getScore(), a.getScore());
+  if (cmp != 0) return cmp;
+  return Double.compare(a.getDistance(), b.getDistance());
+ };
+ 
+ /**
+  * Scoring implementations available to the controller.
+  */
+ public enum ScoringMode {
+  /**
+   * Scores directly from StudySpot string fields and amenity maps. Kept as the
+   * reference for the indexed scorer.
+   */
+  REFERENCE,
+  /**
+   * Scores from a compiled SpotIndex using integer codes and amenity bitmasks.
+   */
+  INDEXED,
+  /**
+   * Same as INDEXED, but catalogs at or above the parallel threshold are split into
+   * chunks and scored on the controller's ForkJoinPool. Results are identical to INDEXED.
+   */
+  PARALLEL
+ }
+ 
+ private final StudySpotCatalog catalog;
+ private final ScoringMode scoringMode;
+ private final ForkJoinPool scoringPool;
+ private final int parallelThreshold;
+ private final OccupancyTracker occupancy;
+ private volatile SpotIndex spotIndex;
  
  public MatchingScoreController(List<StudySpot> studySpots) {
-  this.studySpots = studySpots;
+  this(studySpots, ScoringMode.INDEXED);
+ }
+ 
+ public MatchingScoreController(List<StudySpot> studySpots, ScoringMode scoringMode) {
+  this(studySpots, scoringMode, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+ }
+ 
+ /**
+  * Constructs a MatchingScoreController with an explicit pool for PARALLEL scoring.
+  *
+  * @param studySpots        study spots to score
+  * @param scoringMode       default scoring implementation
+  * @param scoringPool       pool that PARALLEL scoring runs on; should be separate from the
+  *                          web server's request threads
+  * @param parallelThreshold number of candidate spots at or above which PARALLEL scoring
+  *                          splits the work across the pool
+  */
+ public MatchingScoreController(List<StudySpot> studySpots, ScoringMode scoringMode,
+                                ForkJoinPool scoringPool, int parallelThreshold) {
+  this(new StudySpotCatalog(studySpots), scoringMode, scoringPool, parallelThreshold);
+ }
+ 
+ /**
+  * Constructs a MatchingScoreController over a catalog that may be replaced at runtime.
+  * The spot index for each newly published catalog is built on the publishing thread,
+  * so requests keep scoring against the previous index until the new one is ready.
+  *
+  * @param catalog           study spot catalog to score
+  * @param scoringMode       default scoring implementation
+  * @param scoringPool       pool that PARALLEL scoring runs on
+  * @param parallelThreshold number of candidate spots at or above which PARALLEL scoring
+  *                          splits the work across the pool
+  */
+ public MatchingScoreController(StudySpotCatalog catalog, ScoringMode scoringMode,
+                                ForkJoinPool scoringPool, int parallelThreshold) {
+  this(catalog, scoringMode, scoringPool, parallelThreshold, null);
+ }
+ 
+ /**
+  * Constructs a MatchingScoreController that weighs spots by their live occupancy.
+  *
+  * @param catalog           study spot catalog to score
+  * @param scoringMode       default scoring implementation
+  * @param scoringPool       pool that PARALLEL scoring runs on
+  * @param parallelThreshold number of candidate spots at or above which PARALLEL scoring
+  *                          splits the work across the pool
+  * @param occupancy         tracker over the same catalog whose crowding factors scale
+  *                          raw scores, or null to ignore occupancy
+  */
+ public MatchingScoreController(StudySpotCatalog catalog, ScoringMode scoringMode,
+                                ForkJoinPool scoringPool, int parallelThreshold, OccupancyTracker occupancy) {
+  this.catalog = catalog;
+  this.scoringMode = scoringMode;
+  this.scoringPool = scoringPool;
+  this.parallelThreshold = parallelThreshold;
+  this.occupancy = occupancy;
+  catalog.addListener(published -> spotIndex = SpotIndex.build(published));
  }
  
  public List<StudySpot> getStudySpots() {
-  return studySpots;
+  return catalog.current();
+ }
+ 
+ public ScoringMode getScoringMode() {
+  return scoringMode;
+ }
+ 
+ /**
+  * Returns the version of the compiled catalog that scoring currently runs against. The
+  * version changes whenever the index is rebuilt, so results computed under an older
+  * version may be stale.
+  *
+  * @return current catalog version
+  */
+ public long getCatalogVersion() {
+  return currentIndex().version();
  }
  
+ /**
+  * Returns the generation of the crowding factors that scoring currently applies, or 0
+  * without an OccupancyTracker. Results computed under an older generation may be stale.
+  *
+  * @return current occupancy generation
+  */
+ public long getOccupancyGeneration() {
+  return occupancy != null ? occupancy.generation() : 0;
+ }
+ 
+ /**
+  * Recompiles the spot index from the current study spot list. Must be called after
+  * spots in the list are modified in place; additions and removals are picked up
+  * automatically.
+  */
+ public void rebuildIndex() {
+  spotIndex = SpotIndex.build(catalog.current());
+ }
+ 
+ /**
+  * Scores and ranks all study spots against the given preferences using the
+  * controller's scoring mode.
+  *
+  * @param preferences       user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @return scored spots ordered by descending score, ties broken by ascending distance
+  */
  public List<ScoredSpot> calculateScore(PreferencesModel preferences, Map<String, Double> distancesFromUser) {
+  return calculateScore(preferences, distancesFromUser, scoringMode, 0);
+ }
+ 
+ /**
+  * Scores all study spots and returns only the best {@code limit} of them, using the
+  * controller's scoring mode. Scores are normalized over the whole catalog, so the
+  * returned spots carry the same scores and order as the head of the full ranking.
+  *
+  * @param preferences       user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param limit             maximum number of spots to return; non-positive returns all spots
+  * @return at most {@code limit} scored spots ordered by descending score, ties broken by
+  * ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesModel preferences, Map<String, Double> distancesFromUser,
+                                        int limit) {
+  return calculateScore(preferences, distancesFromUser, scoringMode, limit);
+ }
+ 
+ /**
+  * Scores and ranks all study spots against the given preferences using an explicit
+  * scoring mode.
+  *
+  * @param preferences       user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param mode              scoring implementation to use
+  * @return scored spots ordered by descending score, ties broken by ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesModel preferences, Map<String, Double> distancesFromUser,
+                                        ScoringMode mode) {
+  return calculateScore(preferences, distancesFromUser, mode, 0);
+ }
+ 
+ /**
+  * Scores study spots using an explicit scoring mode and returns the best {@code limit}.
+  *
+  * @param preferences       user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param mode              scoring implementation to use
+  * @param limit             maximum number of spots to return; non-positive returns all spots
+  * @return at most {@code limit} scored spots ordered by descending score, ties broken by
+  * ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesModel preferences, Map<String, Double> distancesFromUser,
+                                        ScoringMode mode, int limit) {
+  return calculateScore(preferences.snapshot(), distancesFromUser, mode, limit);
+ }
+ 
+ /**
+  * Scores study spots against a per-request preferences snapshot using the controller's
+  * scoring mode. Safe to call concurrently from any number of request threads.
+  *
+  * @param preferences       immutable user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param limit             maximum number of spots to return; non-positive returns all spots
+  * @return at most {@code limit} scored spots ordered by descending score, ties broken by
+  * ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesSnapshot preferences, Map<String, Double> distancesFromUser,
+                                        int limit) {
+  return calculateScore(preferences, distancesFromUser, scoringMode, limit);
+ }
+ 
+ /**
+  * Scores study spots against a per-request preferences snapshot using an explicit
+  * scoring mode.
+  *
+  * @param preferences       immutable user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param mode              scoring implementation to use
+  * @param limit             maximum number of spots to return; non-positive returns all spots
+  * @return at most {@code limit} scored spots ordered by descending score, ties broken by
+  * ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesSnapshot preferences, Map<String, Double> distancesFromUser,
+                                        ScoringMode mode, int limit) {
+  if (mode == ScoringMode.REFERENCE) {
+   List<ScoredSpot> ranked = calculateReferenceScore(preferences, distancesFromUser);
+   return limit > 0 && limit < ranked.size() ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+  }
+  return calculateIndexedScore(preferences, distancesFromUser, Double.NaN, Double.NaN, limit,
+   mode == ScoringMode.PARALLEL);
+ }
+ 
+ /**
+  * Scores study spots by their great-circle distance from the user's location. Only spots
+  * within the preferences' maximum distance are considered; the rest are pruned through
+  * the spatial index before scoring. With no finite maximum distance every spot is scored.
+  * Uses the indexed scorer, in parallel when the controller's mode is PARALLEL.
+  *
+  * @param preferences   user preferences
+  * @param userLatitude  latitude of the user
+  * @param userLongitude longitude of the user
+  * @param limit         maximum number of spots to return; non-positive returns all candidates
+  * @return at most {@code limit} scored spots within range, ordered by descending score, ties
+  * broken by ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesModel preferences, double userLatitude,
+                                        double userLongitude, int limit) {
+  return calculateScore(preferences.snapshot(), userLatitude, userLongitude, limit);
+ }
+ 
+ /**
+  * Scores study spots by distance from the user's location against a per-request
+  * preferences snapshot. See {@link #calculateScore(PreferencesModel, double, double, int)}.
+  *
+  * @param preferences   immutable user preferences
+  * @param userLatitude  latitude of the user
+  * @param userLongitude longitude of the user
+  * @param limit         maximum number of spots to return; non-positive returns all candidates
+  * @return at most {@code limit} scored spots within range, ordered by descending score, ties
+  * broken by ascending distance
+  */
+ public List<ScoredSpot> calculateScore(PreferencesSnapshot preferences, double userLatitude,
+                                        double userLongitude, int limit) {
+  return calculateIndexedScore(preferences, null, userLatitude, userLongitude, limit,
+   scoringMode == ScoringMode.PARALLEL);
+ }
+ 
+ /**
+  * Scores several preference sets in one pass over the catalog. Each query gets exactly
+  * the ranking that the matching single-query calculateScore overload would return; the
+  * catalog is walked once for all of them instead of once per query. In PARALLEL mode the
+  * pass is split across the pool once the catalog size times the number of queries
+  * reaches the parallel threshold.
+  *
+  * @param queries preference sets to score
+  * @return one ranking per query, in query order
+  */
+ public List<List<ScoredSpot>> calculateScores(List<ScoringQuery> queries) {
+  if (scoringMode == ScoringMode.REFERENCE) {
+   List<List<ScoredSpot>> rankings = new ArrayList<>(queries.size());
+   for (ScoringQuery query : queries) {
+    rankings.add(query.isLocated()
+     ? calculateScore(query.getPreferences(), query.getUserLatitude(), query.getUserLongitude(), query.getLimit())
+     : calculateScore(query.getPreferences(), query.getDistancesFromUser(), query.getLimit()));
+   }
+   return rankings;
+  }
+
+  SpotIndex index = currentIndex();
+  double[] crowding = crowding(index);
+  IndexedScorer[] scorers = new IndexedScorer[queries.size()];
+  int[] limits = new int[queries.size()];
+  for (int j = 0; j < scorers.length; j++) {
+   ScoringQuery query = queries.get(j);
+   scorers[j] = new IndexedScorer(index, query.getPreferences(), query.getDistancesFromUser(),
+    query.getUserLatitude(), query.getUserLongitude(), crowding);
+   limits[j] = query.getLimit();
+  }
+  BatchScorer batch = new BatchScorer(index.size(), scorers);
+  long work = (long) index.size() * scorers.length;
+  if (scoringMode == ScoringMode.PARALLEL && work >= parallelThreshold && scoringPool.getParallelism() > 1
+   && scorers.length > 0) {
+   int chunkSize = Math.max(Math.max(1, MIN_CHUNK_SIZE / scorers.length),
+    index.size() / (scoringPool.getParallelism() * CHUNKS_PER_THREAD));
+   return batch.rankParallel(limits, scoringPool, chunkSize);
+  }
+  return batch.rank(limits);
+ }
+ 
+ /**
+  * Ranks a query like the matching calculateScore overload, but hands the spots out best
+  * first one at a time instead of as a list, for callers that write each spot out as soon
+  * as it is ranked. The indexed modes score every candidate up front and then rank each
+  * one only when it is taken, creating its ScoredSpot on the way; REFERENCE mode ranks the
+  * full list first, except for located queries, which are always indexed.
+  *
+  * @param query preferences and distances to rank by
+  * @return ranked spots, best first
+  */
+ public Iterator<ScoredSpot> streamScore(ScoringQuery query) {
+  if (scoringMode == ScoringMode.REFERENCE && !query.isLocated()) {
+   return calculateScore(query.getPreferences(), query.getDistancesFromUser(), query.getLimit()).iterator();
+  }
+  SpotIndex index = currentIndex();
+  IndexedScorer scorer = new IndexedScorer(index, query.getPreferences(), query.getDistancesFromUser(),
+   query.getUserLatitude(), query.getUserLongitude(), crowding(index));
+  int size = scorer.size();
+  if (scoringMode == ScoringMode.PARALLEL && size >= parallelThreshold && scoringPool.getParallelism() > 1) {
+   int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (scoringPool.getParallelism() * CHUNKS_PER_THREAD));
+   return scorer.rankLazily(query.getLimit(), scoringPool, chunkSize);
+  }
+  return scorer.rankLazily(query.getLimit(), null, size);
+ }
+ 
+ private List<ScoredSpot> calculateIndexedScore(PreferencesSnapshot preferences,
+                                                Map<String, Double> distancesFromUser,
+                                                double userLat, double userLng, int limit,
+                                                boolean parallel) {
+  SpotIndex index = currentIndex();
+  IndexedScorer scorer = new IndexedScorer(index, preferences, distancesFromUser, userLat, userLng,
+   crowding(index));
+  int size = scorer.size();
+  if (parallel && size >= parallelThreshold && scoringPool.getParallelism() > 1) {
+   int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (scoringPool.getParallelism() * CHUNKS_PER_THREAD));
+   return scorer.rankParallel(limit, scoringPool, chunkSize);
+  }
+  return scorer.rank(limit);
+ }
+ 
+ private SpotIndex currentIndex() {
+  List<StudySpot> studySpots = catalog.current();
+  SpotIndex index = spotIndex;
+  if (index == null || !index.isBuiltFrom(studySpots) || index.size() != studySpots.size()) {
+   index = SpotIndex.build(studySpots);
+   spotIndex = index;
+  }
+  return index;
+ }
+ 
+ /**
+  * Returns the crowding factors by position in the index, or null if there are none for
+  * its catalog.
+  */
+ private double[] crowding(SpotIndex index) {
+  if (occupancy == null) return null;
+  OccupancyTracker.Factors factors = occupancy.factors();
+  return index.isBuiltFrom(factors.spots) ? factors.valuesFor(index.size()) : null;
+ }
+ 
+ private double[] crowding(List<StudySpot> studySpots) {
+  if (occupancy == null) return null;
+  OccupancyTracker.Factors factors = occupancy.factors();
+  return factors.spots == studySpots ? factors.valuesFor(studySpots.size()) : null;
+ }
+ 
+ private List<ScoredSpot> calculateReferenceScore(PreferencesSnapshot preferences,
+                                                  Map<String, Double> distancesFromUser) {
   List<ScoredSpot> scoredList = new ArrayList<>();
+  List<StudySpot> studySpots = catalog.current();
+  double[] crowding = crowding(studySpots);
   
-  for (StudySpot spot : studySpots) {
+  for (int i = 0; i < studySpots.size(); i++) {
+   StudySpot spot = studySpots.get(i);
+   if (preferences.hasHoursFilter() && !preferences.acceptsHours(spot.getOpeningHours())) continue;
    double score = 0;
    double distance = distancesFromUser != null ?
     distancesFromUser.getOrDefault(spot.getId(), Double.MAX_VALUE) :
@@ -75,8 +455,11 @@ public class MatchingScoreController {
     score += ACCESS_WEIGHT;
    }
    
-   score += calculateHoursScore(spot.getOpenTime(), spot.getCloseTime(),
-    preferences.getOpenTime(), preferences.getCloseTime());
+   score += calculateHoursScore(spot.getOpeningHours(), preferences);
+   
+   if (crowding != null) {
+    score *= crowding[i];
+   }
    
    ScoredSpot scoredSpot = new ScoredSpot(spot, score);
    scoredSpot.setDistance(distance);
@@ -85,17 +468,14 @@ public class MatchingScoreController {
   
   normalizeScores(scoredList);
   
-  scoredList.sort((a, b) -> {
-   int cmp = Double.compare(b.getScore(), a.getScore());
-   if (cmp != 0) return cmp;
-   return Double.compare(a.getDistance(), b.getDistance());
-  });
+  scoredList.sort(RANKING_ORDER);
   
   return scoredList;
  }
  
  private double calculateNoiseScore(String spotNoise, String prefNoise) {
   if (prefNoise.equalsIgnoreCase("Any")) return NOISE_WEIGHT;
+  if (spotNoise == null) return 0;
   if (spotNoise.equalsIgnoreCase(prefNoise)) return NOISE_WEIGHT;
   
   boolean adjacent =
@@ -107,14 +487,19 @@ public class MatchingScoreController {
   return adjacent ? NOISE_WEIGHT / 2 : 0;
  }
  
- private double calculateHoursScore(LocalTime spotOpen, LocalTime spotClose,
-                                    LocalTime prefOpen, LocalTime prefClose) {
-  if ((spotOpen.isBefore(prefOpen) || spotOpen.equals(prefOpen)) &&
-   (spotClose.isAfter(prefClose) || spotClose.equals(prefClose))) {
-   return HOURS_WEIGHT;
+ /**
+  * Full weight if the spot is open for the whole preferred window, half if it is open for
+  * part of it. The window and the spot's hours may both run past midnight.
+  */
+ private double calculateHoursScore(OpeningHours hours, PreferencesSnapshot preferences) {
+  switch (hours.coverage(preferences.getWindowStart(), preferences.getWindowLength())) {
+   case FULL:
+    return HOURS_WEIGHT;
+   case PARTIAL:
+    return HOURS_WEIGHT / 2;
+   default:
+    return 0;
   }
-  boolean overlaps = spotClose.isAfter(prefOpen) && spotOpen.isBefore(prefClose);
-  return overlaps ? HOURS_WEIGHT / 2 : 0;
  }
  
  private void normalizeScores(List<ScoredSpot> scoredList) {
@@ -127,50 +512,91 @@ public class MatchingScoreController {
   }
  }
  
+ /**
+  * One preference set of a batch, with the distances it is scored by: either a map of
+  * client-supplied distances or the user's location.
+  */
+ public static final class ScoringQuery {
+  private final PreferencesSnapshot preferences;
+  private final Map<String, Double> distancesFromUser;
+  private final double userLatitude;
+  private final double userLongitude;
+  private final int limit;
+  
+  private ScoringQuery(PreferencesSnapshot preferences, Map<String, Double> distancesFromUser,
+                       double userLatitude, double userLongitude, int limit) {
+   this.preferences = preferences;
+   this.distancesFromUser = distancesFromUser;
+   this.userLatitude = userLatitude;
+   this.userLongitude = userLongitude;
+   this.limit = limit;
+  }
+  
+  /**
+   * Creates a query scored by client-supplied distances.
+   *
+   * @param preferences       user preferences
+   * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+   * @param limit             maximum number of spots to return; non-positive returns all spots
+   * @return a new ScoringQuery
+   */
+  public static ScoringQuery withDistances(PreferencesSnapshot preferences, Map<String, Double> distancesFromUser,
+                                           int limit) {
+   return new ScoringQuery(preferences, distancesFromUser, Double.NaN, Double.NaN, limit);
+  }
+  
+  /**
+   * Creates a query scored by distance from the user's location.
+   *
+   * @param preferences   user preferences
+   * @param userLatitude  latitude of the user
+   * @param userLongitude longitude of the user
+   * @param limit         maximum number of spots to return; non-positive returns all candidates
+   * @return a new ScoringQuery
+   */
+  public static ScoringQuery atLocation(PreferencesSnapshot preferences, double userLatitude, double userLongitude,
+                                        int limit) {
+   return new ScoringQuery(preferences, null, userLatitude, userLongitude, limit);
+  }
+  
+  public PreferencesSnapshot getPreferences() { return preferences; }
+  public Map<String, Double> getDistancesFromUser() { return distancesFromUser; }
+  public double getUserLatitude() { return userLatitude; }
+  public double getUserLongitude() { return userLongitude; }
+  public int getLimit() { return limit; }
+  
+  public boolean isLocated() {
+   return !Double.isNaN(userLatitude) && !Double.isNaN(userLongitude);
+  }
+ }
+ 
  /**
   * DTO for frontend: includes coordinates, name, score, and optional type info.
+  * Holds only a reference to the spot plus the score and distance; the spot's
+  * properties are read through from it.
   */
+ @JsonPropertyOrder({"id", "name", "latitude", "longitude", "spaceType", "indoorOutdoor", "noiseLevel",
+  "openTime", "closeTime", "accessRequired", "score", "distance", "spot"})
  public static class ScoredSpot {
-  private final String id;
-  private final String name;
-  private final double latitude;
-  private final double longitude;
-  private final String spaceType;
-  private final String indoorOutdoor;
-  private final String noiseLevel;
-  private final LocalTime openTime;
-  private final LocalTime closeTime;
-  private final boolean accessRequired;
+  private final StudySpot spot;
   private double score;
   private double distance;
-  private final StudySpot spot;
   
   public ScoredSpot(StudySpot spot, double score) {
    this.spot = spot;
-   this.id = spot.getId();
-   this.name = spot.getName();
-   this.latitude = spot.getLatitude();
-   this.longitude = spot.getLongitude();
-   this.spaceType = spot.getSpaceType();
-   this.indoorOutdoor = spot.getIndoorOutdoor();
-   this.noiseLevel = spot.getNoiseLevel();
-   this.openTime = spot.getOpenTime();
-   this.closeTime = spot.getCloseTime();
-   this.accessRequired = spot.isAccessRequired();
    this.score = score;
-   this.distance = 0;
   }
   
-  public String getId() { return id; }
-  public String getName() { return name; }
-  public double getLatitude() { return latitude; }
-  public double getLongitude() { return longitude; }
-  public String getSpaceType() { return spaceType; }
-  public String getIndoorOutdoor() { return indoorOutdoor; }
-  public String getNoiseLevel() { return noiseLevel; }
-  public LocalTime getOpenTime() { return openTime; }
-  public LocalTime getCloseTime() { return closeTime; }
-  public boolean isAccessRequired() { return accessRequired; }
+  public String getId() { return spot.getId(); }
+  public String getName() { return spot.getName(); }
+  public double getLatitude() { return spot.getLatitude(); }
+  public double getLongitude() { return spot.getLongitude(); }
+  public String getSpaceType() { return spot.getSpaceType(); }
+  public String getIndoorOutdoor() { return spot.getIndoorOutdoor(); }
+  public String getNoiseLevel() { return spot.getNoiseLevel(); }
+  public LocalTime getOpenTime() { return spot.getOpenTime(); }
+  public LocalTime getCloseTime() { return spot.getCloseTime(); }
+  public boolean isAccessRequired() { return spot.isAccessRequired(); }
   public double getScore() { return score; }
   public double getDistance() { return distance; }
   public StudySpot getSpot() { return spot; }
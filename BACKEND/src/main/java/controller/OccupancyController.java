@@ -0,0 +1,226 @@
+package controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * REST controller that ingests live occupancy readings from seat sensors and check-in
+ * clients and reports the resulting estimates.
+ *
+ * <p>A batch is a JSON array of {@code {"spotId": "...", "occupancy": 0.4}} objects, where
+ * occupancy is the fraction of the spot's seats in use. Batches are read with a streaming
+ * parser straight into primitive arrays and recorded on the request thread without
+ * locking, so many senders can post concurrently. Readings reach the ranking at the
+ * tracker's next fold. Posting readings requires the sensor token, since anyone who can
+ * post them can push spots down the ranking.
+ */
+@RestController
+@RequestMapping("/api/occupancy")
+public class OccupancyController {
+
+ /**
+  * Default maximum number of readings accepted in one batch.
+  */
+ public static final int DEFAULT_MAX_BATCH_SIZE = 10_000;
+
+ private static final JsonFactory JSON = new JsonFactory();
+
+ private final OccupancyTracker tracker;
+ private final int maxBatchSize;
+ private final byte[] sensorToken;
+
+ /**
+  * Constructs an OccupancyController.
+  *
+  * @param tracker      tracker that readings are recorded in
+  * @param maxBatchSize maximum number of readings accepted in one batch
+  * @param sensorToken  bearer token posted readings must carry; null or empty disables
+  *                     ingestion
+  */
+ @Autowired
+ public OccupancyController(OccupancyTracker tracker,
+                            @Value("${occupancy.batch.max-size:" + DEFAULT_MAX_BATCH_SIZE + "}") int maxBatchSize,
+                            @Value("${occupancy.sensor-token:}") String sensorToken) {
+  this.tracker = tracker;
+  this.maxBatchSize = maxBatchSize;
+  this.sensorToken = sensorToken == null || sensorToken.isEmpty()
+   ? null : sensorToken.getBytes(StandardCharsets.UTF_8);
+ }
+
+ /**
+  * Records a batch of readings. Readings for unknown spots, or without a numeric
+  * occupancy, are counted as rejected; the rest of the batch is still recorded.
+  *
+  * @param body          JSON array of readings
+  * @param authorization Authorization header, which must carry the sensor token
+  * @return 202 with the numbers of accepted and rejected readings, 400 if the body is
+  * not an array of objects, 413 if the batch is too large, 401 without the sensor token,
+  * or 403 if no sensor token is configured; nothing is recorded from a batch that is
+  * refused
+  */
+ @PostMapping(value = "/events", consumes = MediaType.APPLICATION_JSON_VALUE)
+ public ResponseEntity<?> ingest(@RequestBody byte[] body,
+                                 @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+  ResponseEntity<?> denied = checkSensor(authorization);
+  if (denied != null) {
+   return denied;
+  }
+  Batch batch;
+  try {
+   batch = parse(body);
+  } catch (BatchTooLargeException e) {
+   return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+    .body(Collections.singletonMap("error", "Batch exceeds the limit of " + maxBatchSize + " readings"));
+  } catch (JsonProcessingException | IllegalArgumentException e) {
+   return ResponseEntity.badRequest()
+    .body(Collections.singletonMap("error", "Malformed occupancy batch: " + e.getMessage()));
+  } catch (IOException e) {
+   throw new IllegalStateException(e);
+  }
+
+  int accepted = 0;
+  for (int k = 0; k < batch.size; k++) {
+   if (tracker.record(batch.spotIds[k], batch.occupancies[k])) {
+    accepted++;
+   }
+  }
+  Map<String, Integer> result = new LinkedHashMap<>();
+  result.put("accepted", accepted);
+  result.put("rejected", batch.size - accepted);
+  return ResponseEntity.status(HttpStatus.ACCEPTED).body(result);
+ }
+
+ /**
+  * Returns 403 if ingestion is disabled, 401 if the request does not carry the sensor
+  * token, or null if it may proceed. The token is compared in constant time.
+  */
+ private ResponseEntity<?> checkSensor(String authorization) {
+  if (sensorToken == null) {
+   return ResponseEntity.status(HttpStatus.FORBIDDEN)
+    .body(Collections.singletonMap("error", "Occupancy ingestion is disabled"));
+  }
+  String prefix = "Bearer ";
+  if (authorization == null || !authorization.regionMatches(true, 0, prefix, 0, prefix.length())
+   || !MessageDigest.isEqual(sensorToken,
+   authorization.substring(prefix.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+   return ResponseEntity.status(HttpStatus.UNAUTHORIZED).header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+    .body(Collections.singletonMap("error", "Missing or wrong sensor token"));
+  }
+  return null;
+ }
+
+ /**
+  * Returns the occupancy estimate of a spot and the crowding factor its score is
+  * multiplied by.
+  *
+  * @param id ID of the spot
+  * @return the estimate, or 404 if there is no such spot
+  */
+ @GetMapping("/{id}")
+ public ResponseEntity<?> getOccupancy(@PathVariable String id) {
+  double occupancy = tracker.occupancy(id);
+  if (Double.isNaN(occupancy)) {
+   return ResponseEntity.notFound().build();
+  }
+  Map<String, Object> result = new LinkedHashMap<>();
+  result.put("spotId", id);
+  result.put("occupancy", occupancy);
+  result.put("factor", OccupancyTracker.factorOf(occupancy));
+  return ResponseEntity.ok(result);
+ }
+
+ /**
+  * Returns the tracker's ingestion counters.
+  *
+  * @return current tracker statistics
+  */
+ @GetMapping("/stats")
+ public OccupancyTracker.Stats getStats() {
+  return tracker.getStats();
+ }
+
+ private Batch parse(byte[] body) throws IOException {
+  Batch batch = new Batch(Math.min(maxBatchSize, 256));
+  try (JsonParser parser = JSON.createParser(body)) {
+   if (parser.nextToken() != JsonToken.START_ARRAY) {
+    throw new IllegalArgumentException("expected an array");
+   }
+   JsonToken token;
+   while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+    if (token != JsonToken.START_OBJECT) {
+     throw new IllegalArgumentException("expected an object at " + parser.getCurrentLocation());
+    }
+    if (batch.size == maxBatchSize) {
+     throw new BatchTooLargeException();
+    }
+    String spotId = null;
+    double occupancy = Double.NaN;
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+     String field = parser.getCurrentName();
+     JsonToken value = parser.nextToken();
+     if ("spotId".equals(field) && value == JsonToken.VALUE_STRING) {
+      spotId = parser.getText();
+     } else if ("occupancy".equals(field) && value.isNumeric()) {
+      occupancy = parser.getDoubleValue();
+     } else {
+      parser.skipChildren();
+     }
+    }
+    batch.add(spotId, occupancy);
+   }
+  }
+  return batch;
+ }
+
+ /**
+  * Readings of one request, held in parallel arrays.
+  */
+ private static final class Batch {
+  private String[] spotIds;
+  private double[] occupancies;
+  private int size;
+
+  Batch(int capacity) {
+   spotIds = new String[Math.max(capacity, 1)];
+   occupancies = new double[spotIds.length];
+  }
+
+  void add(String spotId, double occupancy) {
+   if (size == spotIds.length) {
+    spotIds = Arrays.copyOf(spotIds, size * 2);
+    occupancies = Arrays.copyOf(occupancies, size * 2);
+   }
+   spotIds[size] = spotId;
+   occupancies[size++] = occupancy;
+  }
+ }
+
+ private static final class BatchTooLargeException extends RuntimeException {
+  BatchTooLargeException() {
+   super(null, null, false, false);
+  }
+ }
+}
@@ -0,0 +1,366 @@
+package controller;
+
+import model.StudySpot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Live occupancy of the study spots, fed by sensor readings and check-in reports, and the
+ * crowding factors that scoring multiplies raw scores by.
+ *
+ * <p>Recording a reading does not lock. Every spot owns a LongAdder, whose cells are striped
+ * across contending threads, and a reading is one add of its sample count and occupancy
+ * packed into a single long, so a concurrent drain always sees both or neither. Only a
+ * spot with {@link #MAX_PENDING} readings waiting, too many for the packed fields, folds
+ * under the lock before recording more. A fold,
+ * run periodically on the tracker's daemon thread, drains the adders into exponentially
+ * decayed sums and publishes an immutable array of factors aligned with the positions of
+ * the current catalog; scorers read it with a single volatile load. Readings count from
+ * the fold that drains them, not from when they were taken.
+ *
+ * <p>The estimate for a spot is its decayed occupancy sum over its decayed sample count
+ * plus one empty pseudo-sample, so a spot with only a few readings, or with readings that
+ * have aged, is pulled toward empty and loses little or no score.
+ */
+public class OccupancyTracker implements AutoCloseable {
+
+ private static final Logger logger = LoggerFactory.getLogger(OccupancyTracker.class);
+
+ /**
+  * Fraction of its raw score that a full spot loses. An empty or unreported spot keeps
+  * its whole score.
+  */
+ public static final double CROWDING_PENALTY = 0.5;
+
+ /**
+  * Occupancy estimates are rounded to this step before factors are published, so decay
+  * alone does not publish a new generation on every fold.
+  */
+ static final double RESOLUTION = 0.01;
+
+ /**
+  * Fixed-point scale of a packed reading: occupancy is added in thousandths.
+  */
+ private static final int SCALE = 1000;
+
+ /**
+  * Packed readings hold the occupancy sum in the low 36 bits and the sample count in the
+  * 28 bits above them. At most MAX_PENDING readings (plus one per racing thread) are
+  * packed between two folds, adding at most 1000 * 2^24 < 2^36 to the sum, so neither
+  * field can carry into the next.
+  */
+ private static final int COUNT_SHIFT = 36;
+ private static final long SUM_MASK = (1L << COUNT_SHIFT) - 1;
+
+ /**
+  * Readings a spot may have waiting before recording another forces a fold.
+  */
+ static final long MAX_PENDING = 1L << 24;
+
+ private final long halfLifeNanos;
+ private final long foldMillis;
+ private final LongSupplier nanoClock;
+ private final Object foldLock = new Object();
+ private volatile Slots slots;
+ private volatile Factors factors;
+ private long lastFoldNanos;
+ private long folds;
+ private Thread thread;
+
+ private final LongAdder accepted = new LongAdder();
+ private final LongAdder rejected = new LongAdder();
+
+ /**
+  * Constructs an OccupancyTracker over a catalog. Nothing is folded until
+  * {@link #start()} is called or {@link #fold()} is called directly.
+  *
+  * @param catalog         catalog whose spots readings are recorded for; newly published
+  *                        catalogs keep the state of spots whose IDs they still contain
+  * @param halfLifeSeconds seconds after which a reading counts half as much
+  * @param foldMillis      milliseconds between folds once started
+  */
+ public OccupancyTracker(StudySpotCatalog catalog, long halfLifeSeconds, long foldMillis) {
+  this(catalog, halfLifeSeconds, foldMillis, System::nanoTime);
+ }
+
+ OccupancyTracker(StudySpotCatalog catalog, long halfLifeSeconds, long foldMillis, LongSupplier nanoClock) {
+  if (halfLifeSeconds <= 0) {
+   throw new IllegalArgumentException("Half-life must be positive: " + halfLifeSeconds);
+  }
+  this.halfLifeNanos = TimeUnit.SECONDS.toNanos(halfLifeSeconds);
+  this.foldMillis = foldMillis;
+  this.nanoClock = nanoClock;
+  this.lastFoldNanos = nanoClock.getAsLong();
+  synchronized (foldLock) {
+   realign(catalog.current());
+  }
+  catalog.addListener(published -> {
+   synchronized (foldLock) {
+    realign(published);
+    foldLocked();
+   }
+  });
+ }
+
+ /**
+  * Starts folding on a daemon thread every {@code foldMillis}.
+  */
+ public synchronized void start() {
+  if (thread != null) return;
+  thread = new Thread(this::run, "occupancy-fold");
+  thread.setDaemon(true);
+  thread.start();
+ }
+
+ /**
+  * Stops folding.
+  */
+ @Override
+ public synchronized void close() {
+  if (thread != null) {
+   thread.interrupt();
+   thread = null;
+  }
+ }
+
+ /**
+  * Records one reading. Safe to call from any number of threads; it blocks only to fold
+  * when the spot has MAX_PENDING readings waiting.
+  *
+  * @param spotId    ID of the spot the reading is for
+  * @param occupancy fraction of the spot's seats in use; values outside 0 to 1 are clamped
+  * @return true if the reading was recorded, false if the spot is unknown or the
+  * occupancy is not a number
+  */
+ public boolean record(String spotId, double occupancy) {
+  Slot slot = spotId == null ? null : slots.byId.get(spotId);
+  if (slot == null || Double.isNaN(occupancy)) {
+   rejected.increment();
+   return false;
+  }
+  long milli = Math.round(Math.min(1.0, Math.max(0.0, occupancy)) * SCALE);
+  if (slot.pending.sum() >>> COUNT_SHIFT >= MAX_PENDING) {
+   synchronized (foldLock) {
+    if (slot.pending.sum() >>> COUNT_SHIFT >= MAX_PENDING) {
+     foldLocked();
+    }
+   }
+  }
+  slot.pending.add((1L << COUNT_SHIFT) | milli);
+  accepted.increment();
+  return true;
+ }
+
+ /**
+  * Drains the recorded readings into the decayed averages and publishes new factors if
+  * any spot's estimate changed.
+  */
+ public void fold() {
+  synchronized (foldLock) {
+   foldLocked();
+  }
+ }
+
+ /**
+  * Returns the current occupancy estimate of a spot, as of the last fold.
+  *
+  * @param spotId ID of the spot
+  * @return estimated fraction of seats in use, or NaN if the spot is unknown
+  */
+ public double occupancy(String spotId) {
+  Slot slot = slots.byId.get(spotId);
+  return slot == null ? Double.NaN : slot.estimate;
+ }
+
+ /**
+  * Returns the factor that scoring multiplies an occupancy estimate's spot by.
+  *
+  * @param occupancy estimated fraction of seats in use
+  * @return a factor between 1 - CROWDING_PENALTY and 1
+  */
+ public static double factorOf(double occupancy) {
+  return 1.0 - CROWDING_PENALTY * occupancy;
+ }
+
+ /**
+  * Returns the latest published factors.
+  */
+ Factors factors() {
+  return factors;
+ }
+
+ /**
+  * Returns the generation of the latest published factors. It changes whenever a
+  * published factor changes, so rankings computed under an older generation may be stale.
+  *
+  * @return current generation
+  */
+ public long generation() {
+  return factors.generation;
+ }
+
+ /**
+  * Returns a snapshot of the tracker's counters.
+  *
+  * @return current statistics
+  */
+ public Stats getStats() {
+  long foldCount;
+  synchronized (foldLock) {
+   foldCount = folds;
+  }
+  return new Stats(accepted.sum(), rejected.sum(), foldCount, generation(), slots.byId.size());
+ }
+
+ private void run() {
+  try {
+   while (!Thread.currentThread().isInterrupted()) {
+    Thread.sleep(foldMillis);
+    try {
+     fold();
+    } catch (RuntimeException e) {
+     logger.error("Could not fold occupancy readings", e);
+    }
+   }
+  } catch (InterruptedException e) {
+   // closed
+  }
+ }
+
+ /**
+  * Maps a catalog's positions to slots, keeping the slots of IDs seen before. Must hold
+  * the fold lock.
+  */
+ private void realign(List<StudySpot> spots) {
+  Slots previous = slots;
+  Map<String, Slot> byId = new HashMap<>(Math.max(16, (int) (spots.size() / 0.75f) + 1));
+  Slot[] positions = new Slot[spots.size()];
+  for (int i = 0; i < positions.length; i++) {
+   String id = spots.get(i).getId();
+   Slot slot = byId.get(id);
+   if (slot == null) {
+    slot = previous != null ? previous.byId.get(id) : null;
+    if (slot == null) slot = new Slot();
+    byId.put(id, slot);
+   }
+   positions[i] = slot;
+  }
+  slots = new Slots(spots, byId, positions);
+  if (factors == null) {
+   factors = new Factors(spots, null, 0);
+  }
+ }
+
+ /**
+  * Must hold the fold lock.
+  */
+ private void foldLocked() {
+  long now = nanoClock.getAsLong();
+  double decay = Math.pow(0.5, (double) (now - lastFoldNanos) / halfLifeNanos);
+  lastFoldNanos = now;
+  folds++;
+
+  Slots current = slots;
+  for (Slot slot : current.byId.values()) {
+   long packed = slot.pending.sumThenReset();
+   slot.weight = slot.weight * decay + (packed >>> COUNT_SHIFT);
+   slot.sum = slot.sum * decay + (double) (packed & SUM_MASK) / SCALE;
+   slot.estimate = Math.round(slot.sum / (slot.weight + 1.0) / RESOLUTION) * RESOLUTION;
+  }
+
+  double[] next = null;
+  for (int i = 0; i < current.positions.length; i++) {
+   if (current.positions[i].estimate != 0) {
+    next = new double[current.positions.length];
+    for (int k = 0; k < next.length; k++) {
+     next[k] = factorOf(current.positions[k].estimate);
+    }
+    break;
+   }
+  }
+  Factors published = factors;
+  if (published.spots != current.spots || !Arrays.equals(published.values, next)) {
+   factors = new Factors(current.spots, next, published.generation + 1);
+  }
+ }
+
+ /**
+  * Crowding factors of one catalog, by catalog position. Values are null when no spot of
+  * the catalog has an occupancy estimate, in which case every factor is 1.
+  */
+ static final class Factors {
+  final List<StudySpot> spots;
+  final double[] values;
+  final long generation;
+
+  Factors(List<StudySpot> spots, double[] values, long generation) {
+   this.spots = spots;
+   this.values = values;
+   this.generation = generation;
+  }
+
+  /**
+   * Returns the factors if they cover exactly {@code size} positions, otherwise null. A
+   * catalog list changed in place since it was published no longer lines up.
+   */
+  double[] valuesFor(int size) {
+   return values != null && values.length == size ? values : null;
+  }
+ }
+
+ private static final class Slots {
+  final List<StudySpot> spots;
+  final Map<String, Slot> byId;
+  final Slot[] positions;
+
+  Slots(List<StudySpot> spots, Map<String, Slot> byId, Slot[] positions) {
+   this.spots = spots;
+   this.byId = byId;
+   this.positions = positions;
+  }
+ }
+
+ /**
+  * Readings of one spot. Only {@code pending} is written by recording threads; the rest
+  * is owned by the fold.
+  */
+ private static final class Slot {
+  final LongAdder pending = new LongAdder();
+  double weight;
+  double sum;
+  volatile double estimate;
+ }
+
+ /**
+  * Snapshot of the tracker's counters.
+  */
+ public static class Stats {
+  private final long accepted;
+  private final long rejected;
+  private final long folds;
+  private final long generation;
+  private final int trackedSpots;
+
+  public Stats(long accepted, long rejected, long folds, long generation, int trackedSpots) {
+   this.accepted = accepted;
+   this.rejected = rejected;
+   this.folds = folds;
+   this.generation = generation;
+   this.trackedSpots = trackedSpots;
+  }
+
+  public long getAccepted() { return accepted; }
+  public long getRejected() { return rejected; }
+  public long getFolds() { return folds; }
+  public long getGeneration() { return generation; }
+  public int getTrackedSpots() { return trackedSpots; }
+ }
+}
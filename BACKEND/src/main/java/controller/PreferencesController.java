@@ -1,13 +1,30 @@
 package controller;
 
-import model.PreferencesModel;
-import model.StudySpot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import config.JacksonConfig;
+import controller.MatchingScoreController.ScoringQuery;
+import model.OpeningHours;
+import model.PreferencesSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -15,105 +32,386 @@ import java.util.Map;
 /**
  * REST controller for managing user preferences for study spots.
  * Handles applying and resetting preferences and mapping frontend input to backend models.
+ * No preferences are stored between requests: each request is scored against its own
+ * immutable PreferencesSnapshot, so concurrent users never see each other's filters.
  */
 @RestController
 @RequestMapping("/api/preferences")
 public class PreferencesController {
 
-    private final PreferencesModel preferencesModel;
+    private static final Map<String, String> AMENITY_KEYS = Map.of(
+            "wifi", "WiFi",
+            "washrooms", "Washrooms",
+            "food_drink_allowed", "FoodOrDrinks",
+            "private_rooms", "PrivateRoom",
+            "projectors", "Projector");
+
+    private static final Map<String, String> SPACE_TYPE_KEYS = Map.of(
+            "open_area", "Open Area",
+            "quiet_room", "Quiet Room",
+            "group_study", "Group Study Room",
+            "outdoor_seating", "Outdoor Seating",
+            "library_classroom", "Library");
+
+    /**
+     * Default maximum number of preference sets accepted by /apply-batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    /**
+     * Number of NDJSON lines written between flushes of a streamed response.
+     */
+    private static final int NDJSON_FLUSH_LINES = 64;
+
+    /**
+     * Clock that "today" and "open now" are read from.
+     */
+    private static final Clock CAMPUS_CLOCK = Clock.system(OpeningHours.CAMPUS_ZONE);
+
     private final MatchingScoreController scoreCalculator;
     private final StudySpotsController studySpotsController;
+    private final RankingCache rankingCache;
+    private final ShowAllResponse showAllResponse;
+    private final ObjectWriter ndjsonLineWriter;
+    private final int maxBatchSize;
+
+    /**
+     * Constructs a PreferencesController without result caching.
+     *
+     * @param scoreCalculator MatchingScoreController used to calculate scores
+     * @param studySpotsController Controller providing access to all study spots
+     */
+    public PreferencesController(MatchingScoreController scoreCalculator,
+                                 StudySpotsController studySpotsController) {
+        this(scoreCalculator, studySpotsController, new RankingCache(scoreCalculator, 0, 0, 0),
+                new ShowAllResponse(scoreCalculator, new JacksonConfig().objectMapper()),
+                new JacksonConfig().objectMapper(), DEFAULT_MAX_BATCH_SIZE);
+    }
 
     /**
      * Constructs a PreferencesController.
      *
      * @param scoreCalculator MatchingScoreController used to calculate scores
      * @param studySpotsController Controller providing access to all study spots
+     * @param rankingCache Cache of rankings computed by scoreCalculator
+     * @param showAllResponse Pre-rendered response listing every spot
+     * @param objectMapper Mapper used to write streamed responses
+     * @param maxBatchSize Maximum number of preference sets accepted by /apply-batch
      */
     @Autowired
     public PreferencesController(MatchingScoreController scoreCalculator,
-                                 StudySpotsController studySpotsController) {
-        this.preferencesModel = new PreferencesModel();
+                                 StudySpotsController studySpotsController,
+                                 RankingCache rankingCache,
+                                 ShowAllResponse showAllResponse,
+                                 ObjectMapper objectMapper,
+                                 @Value("${preferences.batch.max-size:" + DEFAULT_MAX_BATCH_SIZE + "}")
+                                 int maxBatchSize) {
         this.scoreCalculator = scoreCalculator;
         this.studySpotsController = studySpotsController;
+        this.rankingCache = rankingCache;
+        this.showAllResponse = showAllResponse;
+        this.ndjsonLineWriter = objectMapper.writerFor(MatchingScoreController.ScoredSpot.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Applies user preferences to filter and rank study spots. Show-all requests are
+     * answered with the pre-rendered catalog bytes, gzipped when the client accepts it.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @param acceptEncoding Accept-Encoding header of the request, if any
+     * @return response with the ranked spots, or 400 if the request names an unknown day
+     * or an unparseable time
+     */
+    @PostMapping("/apply")
+    public ResponseEntity<?> applyPreferences(
+            @RequestBody PreferencesRequest request,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (request.isShowAll()) {
+            return showAllBody(showAllResponse.current(), acceptEncoding);
+        }
+        String invalid = invalidRequest(request);
+        if (invalid != null) {
+            return ResponseEntity.badRequest().body(Collections.singletonMap("error", invalid));
+        }
+        return ResponseEntity.ok(applyPreferences(request));
+    }
+
+    /**
+     * Applies user preferences and streams the ranked spots as newline-delimited JSON,
+     * one ScoredSpot per line, best first. Selected when the client sends
+     * {@code Accept: application/x-ndjson}. Scoring runs once the response body is being
+     * written: every candidate is scored into primitive arrays, then spots are ranked one
+     * at a time and each ScoredSpot is created only while its line is written, so the
+     * first lines go out before the tail is ranked and the request never holds the ranked
+     * list. Lines are written through a single JsonGenerator and flushed in small groups,
+     * so the response goes out chunked. Streamed rankings bypass the ranking cache.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @return streamed response with one ranked spot per line, or 400 if the request
+     * names an unknown day or an unparseable time
+     */
+    @PostMapping(value = "/apply", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<?> streamPreferences(@RequestBody PreferencesRequest request) {
+        if (request.isShowAll()) {
+            List<MatchingScoreController.ScoredSpot> all = showAllResponse.current().getSpots();
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body((StreamingResponseBody) out -> writeNdjson(all.iterator(), out));
+        }
+        String invalid = invalidRequest(request);
+        if (invalid != null) {
+            return ResponseEntity.badRequest()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(Collections.singletonMap("error", invalid));
+        }
+        ScoringQuery query = toQuery(request);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body((StreamingResponseBody) out -> writeNdjson(scoreCalculator.streamScore(query), out));
+    }
+
+    /**
+     * Writes ranked spots as newline-delimited JSON. The output stream is flushed every
+     * few lines but not closed.
+     *
+     * @param ranked spots to write, in order
+     * @param out stream to write to
+     * @throws IOException if writing to the stream fails
+     */
+    void writeNdjson(Iterator<MatchingScoreController.ScoredSpot> ranked, OutputStream out) throws IOException {
+        try (JsonGenerator generator = ndjsonLineWriter.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            int pending = 0;
+            while (ranked.hasNext()) {
+                ndjsonLineWriter.writeValue(generator, ranked.next());
+                generator.writeRaw('\n');
+                if (++pending == NDJSON_FLUSH_LINES) {
+                    generator.flush();
+                    pending = 0;
+                }
+            }
+        }
     }
 
    /**
  * Applies user preferences to filter and rank study spots.
+ * When the request carries the user's location, distances are computed server-side and
+ * spots beyond maxDistance are left out; otherwise the client-supplied distancesFromUser
+ * map is used.
  *
  * @param request PreferencesRequest containing user-selected options
- * @return List of ScoredSpot objects based on the applied preferences
+ * @return List of ScoredSpot objects based on the applied preferences, truncated to the
+ * request's limit when one is given. The list may be shared and must not be modified.
  */
-@PostMapping("/apply")
-public List<MatchingScoreController.ScoredSpot> applyPreferences(
-        @RequestBody PreferencesRequest request) {
+public List<MatchingScoreController.ScoredSpot> applyPreferences(PreferencesRequest request) {
 
     if (request.isShowAll()) {
-        List<MatchingScoreController.ScoredSpot> allSpots = new ArrayList<>();
-        for (StudySpot spot : studySpotsController.getAllStudySpots()) {
-            allSpots.add(new MatchingScoreController.ScoredSpot(spot, 100.0));
-        }
-        return allSpots;
+        return showAllResponse.current().getSpots();
     }
 
-    preferencesModel.setNoiseLevel(request.getNoiseLevel());
-    preferencesModel.setIndoorOutdoor(request.getIndoorOutdoor());
-    preferencesModel.setAccessRequired(request.isAccessRequired());
-    preferencesModel.setMaxDistance(request.getMaxDistance());
-    preferencesModel.setOpenTime(LocalTime.parse(request.getOpenTime()));
-    preferencesModel.setCloseTime(LocalTime.parse(request.getCloseTime()));
+    return rankingCache.rank(toQuery(request));
+}
 
-    if (request.getSelectedSpaceTypes() != null && !request.getSelectedSpaceTypes().isEmpty()) {
-        String mappedType = mapSpaceTypeKey(request.getSelectedSpaceTypes().get(0));
-        preferencesModel.setSpaceType(mappedType);
-    } else {
-        preferencesModel.setSpaceType("Any");
+    /**
+     * Applies several preference sets in one call, as kiosks and scheduled jobs that would
+     * otherwise call /apply once per set do. All sets are scored together in a single
+     * pass over the catalog; each result is the same list /apply returns for that set.
+     *
+     * @param requests preference sets, at most the configured batch size
+     * @return one list of ScoredSpot objects per request, in request order, 413 if the
+     * batch is too large, or 400 if an entry is null or invalid
+     */
+    @PostMapping("/apply-batch")
+    public ResponseEntity<?> applyPreferencesBatch(@RequestBody List<PreferencesRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                    .body(Collections.singletonMap("error",
+                            "Batch of " + requests.size() + " exceeds the limit of " + maxBatchSize));
+        }
+        List<ScoringQuery> queries = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            PreferencesRequest request = requests.get(i);
+            if (request == null) {
+                return ResponseEntity.badRequest()
+                        .body(Collections.singletonMap("error", "Batch entries must not be null"));
+            }
+            if (!request.isShowAll()) {
+                String invalid = invalidRequest(request);
+                if (invalid != null) {
+                    return ResponseEntity.badRequest()
+                            .body(Collections.singletonMap("error", "Batch entry " + i + ": " + invalid));
+                }
+                queries.add(toQuery(request));
+            }
+        }
+        List<List<MatchingScoreController.ScoredSpot>> ranked = rankingCache.rankAll(queries);
+        List<List<MatchingScoreController.ScoredSpot>> results = new ArrayList<>(requests.size());
+        int next = 0;
+        for (PreferencesRequest request : requests) {
+            results.add(request.isShowAll() ? showAllResponse.current().getSpots() : ranked.get(next++));
+        }
+        return ResponseEntity.ok(results);
     }
 
-    for (String key : preferencesModel.getAmenities().keySet()) {
-        preferencesModel.setAmenity(key, 0);
+    /**
+     * Returns every study spot with a score of 100, as the show-all option of /apply does.
+     * The response carries a strong ETag; a client that sends it back in If-None-Match
+     * gets 304 Not Modified without a body until the catalog changes.
+     *
+     * @param ifNoneMatch If-None-Match header of the request, if any
+     * @param acceptEncoding Accept-Encoding header of the request, if any
+     * @return the pre-rendered catalog, or 304 if the client's copy is current
+     */
+    @GetMapping("/all")
+    public ResponseEntity<byte[]> getAllScoredSpots(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        ShowAllResponse.Rendering rendering = showAllResponse.current();
+        if (rendering.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(rendering.getETag())
+                    .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+        return showAllBody(rendering, acceptEncoding);
     }
 
-    if (request.getSelectedAmenities() != null) {
-        for (String amenity : request.getSelectedAmenities()) {
-            String mappedKey = mapAmenityKey(amenity);
-            preferencesModel.setAmenity(mappedKey, 1);
+    private static ResponseEntity<byte[]> showAllBody(ShowAllResponse.Rendering rendering, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(rendering.getETag())
+                .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (ShowAllResponse.Rendering.acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(rendering.getGzip());
         }
+        return response.body(rendering.getJson());
     }
 
-    return scoreCalculator.calculateScore(preferencesModel, request.getDistancesFromUser());
-}
+    /**
+     * Returns hit, miss and eviction counters of the ranking cache.
+     *
+     * @return current cache statistics
+     */
+    @GetMapping("/cache-stats")
+    public RankingCache.Stats getCacheStats() {
+        return rankingCache.getStats();
+    }
 
 
     /**
-     * Resets all preferences to default values.
+     * Resets all preferences to default values. Preferences are built per request and
+     * never stored on the server, so there is nothing to clear; the endpoint is kept for
+     * existing clients.
      *
      * @return Map indicating success of the reset operation
      */
     @PostMapping("/reset")
     public Map<String, String> resetPreferences() {
-        preferencesModel.reset();
         return Collections.singletonMap("status", "success");
     }
 
-    private String mapAmenityKey(String frontendKey) {
-        Map<String, String> mapping = new HashMap<>();
-        mapping.put("wifi", "WiFi");
-        mapping.put("washrooms", "Washrooms");
-        mapping.put("food_drink_allowed", "FoodOrDrinks");
-        mapping.put("private_rooms", "PrivateRoom");
-        mapping.put("projectors", "Projector");
-        return mapping.getOrDefault(frontendKey, frontendKey);
+    /**
+     * Builds an immutable preferences snapshot from a request, mapping frontend keys to
+     * backend names.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @return snapshot used to score this request only
+     */
+    static PreferencesSnapshot toPreferences(PreferencesRequest request) {
+        return toPreferences(request, CAMPUS_CLOCK);
+    }
+
+    /**
+     * Checks the fields toPreferences parses, so a bad day or time is answered with 400
+     * instead of failing while scoring.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @return a message describing the first invalid field, or null if the request is valid
+     */
+    static String invalidRequest(PreferencesRequest request) {
+        try {
+            if (request.getDay() != null) {
+                OpeningHours.parseDay(request.getDay());
+            }
+            if (request.getOpenTime() != null) {
+                LocalTime.parse(request.getOpenTime());
+            }
+            if (request.getCloseTime() != null) {
+                LocalTime.parse(request.getCloseTime());
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * Builds an immutable preferences snapshot from a request, resolving "today" and
+     * "open now" against the given clock in the campus time zone.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @param clock clock giving the current time
+     * @return snapshot used to score this request only
+     * @throws IllegalArgumentException if the request names an unknown day
+     */
+    static PreferencesSnapshot toPreferences(PreferencesRequest request, Clock clock) {
+        String spaceType = "Any";
+        if (request.getSelectedSpaceTypes() != null && !request.getSelectedSpaceTypes().isEmpty()) {
+            spaceType = mapSpaceTypeKey(request.getSelectedSpaceTypes().get(0));
+        }
+
+        List<String> amenities = new ArrayList<>();
+        if (request.getSelectedAmenities() != null) {
+            for (String amenity : request.getSelectedAmenities()) {
+                amenities.add(mapAmenityKey(amenity));
+            }
+        }
+
+        int now = OpeningHours.minuteOfWeek(clock);
+        DayOfWeek day = request.getDay() != null
+                ? OpeningHours.parseDay(request.getDay())
+                : DayOfWeek.of(now / OpeningHours.MINUTES_PER_DAY + 1);
+
+        return new PreferencesSnapshot(
+                request.getNoiseLevel(),
+                request.getIndoorOutdoor(),
+                spaceType,
+                amenities,
+                request.isAccessRequired(),
+                request.getMaxDistance(),
+                request.getOpenTime() != null ? LocalTime.parse(request.getOpenTime()) : null,
+                request.getCloseTime() != null ? LocalTime.parse(request.getCloseTime()) : null)
+                .withHours(day, request.isOpenDuringWindow(),
+                        request.isOpenNow() ? now : PreferencesSnapshot.ANY_TIME);
+    }
+
+    /**
+     * Builds the scoring query for a request: by the user's location when the request
+     * carries one, otherwise by the client-supplied distancesFromUser map.
+     *
+     * @param request PreferencesRequest containing user-selected options
+     * @return query used to rank this request
+     */
+    static ScoringQuery toQuery(PreferencesRequest request) {
+        PreferencesSnapshot preferences = toPreferences(request);
+        int limit = request.getLimit() != null ? request.getLimit() : 0;
+        if (request.getUserLatitude() != null && request.getUserLongitude() != null) {
+            return ScoringQuery.atLocation(preferences, request.getUserLatitude(), request.getUserLongitude(), limit);
+        }
+        return ScoringQuery.withDistances(preferences, request.getDistancesFromUser(), limit);
+    }
+
+    private static String mapAmenityKey(String frontendKey) {
+        return AMENITY_KEYS.getOrDefault(frontendKey, frontendKey);
     }
 
-    private String mapSpaceTypeKey(String frontendKey) {
-        Map<String, String> mapping = new HashMap<>();
-        mapping.put("open_area", "Open Area");
-        mapping.put("quiet_room", "Quiet Room");
-        mapping.put("group_study", "Group Study Room");
-        mapping.put("outdoor_seating", "Outdoor Seating");
-        mapping.put("library_classroom", "Library");
-        return mapping.getOrDefault(frontendKey, frontendKey);
+    private static String mapSpaceTypeKey(String frontendKey) {
+        return SPACE_TYPE_KEYS.getOrDefault(frontendKey, frontendKey);
     }
 
     /**
@@ -130,6 +428,12 @@ public List<MatchingScoreController.ScoredSpot> applyPreferences(
         private String openTime;
         private String closeTime;
         private Map<String, Double> distancesFromUser;
+        private Integer limit;
+        private Double userLatitude;
+        private Double userLongitude;
+        private String day;
+        private boolean openNow;
+        private boolean openDuringWindow;
 
         public boolean isShowAll() {
             return showAll;
@@ -191,5 +495,55 @@ public List<MatchingScoreController.ScoredSpot> applyPreferences(
         public void setDistancesFromUser(Map<String, Double> distancesFromUser) {
              this.distancesFromUser = distancesFromUser;
              }
+        /**
+         * Maximum number of ranked spots to return. Null or non-positive returns every
+         * spot; ignored when showAll is set.
+         */
+        public Integer getLimit() {
+            return limit;
+        }
+        public void setLimit(Integer limit) {
+            this.limit = limit;
+        }
+        public Double getUserLatitude() {
+            return userLatitude;
+        }
+        public void setUserLatitude(Double userLatitude) {
+            this.userLatitude = userLatitude;
+        }
+        public Double getUserLongitude() {
+            return userLongitude;
+        }
+        public void setUserLongitude(Double userLongitude) {
+            this.userLongitude = userLongitude;
+        }
+        /**
+         * Day of the week the openTime-closeTime window starts on, such as "Friday".
+         * Null means today on campus.
+         */
+        public String getDay() {
+            return day;
+        }
+        public void setDay(String day) {
+            this.day = day;
+        }
+        /**
+         * True to leave out spots that are closed right now.
+         */
+        public boolean isOpenNow() {
+            return openNow;
+        }
+        public void setOpenNow(boolean openNow) {
+            this.openNow = openNow;
+        }
+        /**
+         * True to leave out spots that are closed for the whole openTime-closeTime window.
+         */
+        public boolean isOpenDuringWindow() {
+            return openDuringWindow;
+        }
+        public void setOpenDuringWindow(boolean openDuringWindow) {
+            this.openDuringWindow = openDuringWindow;
+        }
     }
 }
@@ -0,0 +1,454 @@
+package controller;
+
+import controller.MatchingScoreController.ScoredSpot;
+import controller.MatchingScoreController.ScoringQuery;
+import model.PreferencesSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of ranked results in front of MatchingScoreController.
+ * Requests are keyed on a canonical form of their preferences. While caching is on, user
+ * locations and client-supplied distances are snapped to buckets before scoring, so every
+ * request that maps to the same key gets exactly the result that was cached for it; the
+ * distances it returns may differ from the caller's own by up to half a bucket. With
+ * caching off, or a bucket size of 0, requests are scored with their exact distances.
+ *
+ * <p>The cache holds at most a fixed number of rankings and a fixed number of ranked
+ * spots over all of them, evicting the least recently used rankings past either limit; a
+ * ranking longer than the spot limit is not cached. Entries expire after a fixed time
+ * and are dropped as soon as the scorer's catalog version changes; an entry scored under
+ * older crowding factors than the scorer's current ones is a miss. Cached lists are
+ * shared between requests and must not be modified.
+ */
+public class RankingCache {
+
+ /**
+  * Default maximum number of ranked spots held over all cached rankings.
+  */
+ public static final int DEFAULT_MAX_SPOTS = 500_000;
+
+ private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+ private final MatchingScoreController scorer;
+ private final int maxEntries;
+ private final long maxSpots;
+ private final long ttlNanos;
+ private final double bucketMeters;
+ private final LongSupplier nanoClock;
+ private final Map<String, Entry> entries;
+ private long cachedVersion;
+ private long cachedSpots;
+
+ private final LongAdder hits = new LongAdder();
+ private final LongAdder misses = new LongAdder();
+ private final LongAdder evictions = new LongAdder();
+ private final LongAdder invalidations = new LongAdder();
+ private final LongAdder expirations = new LongAdder();
+
+ /**
+  * Constructs a RankingCache holding at most {@value #DEFAULT_MAX_SPOTS} ranked spots.
+  *
+  * @param scorer       scorer to compute rankings on a miss
+  * @param maxEntries   maximum number of cached rankings; 0 disables caching
+  * @param ttlSeconds   seconds a cached ranking stays valid
+  * @param bucketMeters size in meters of the buckets that locations and distances are
+  *                     snapped to while caching; 0 keys on the exact values
+  */
+ public RankingCache(MatchingScoreController scorer, int maxEntries, long ttlSeconds, double bucketMeters) {
+  this(scorer, maxEntries, DEFAULT_MAX_SPOTS, ttlSeconds, bucketMeters);
+ }
+
+ /**
+  * Constructs a RankingCache.
+  *
+  * @param scorer       scorer to compute rankings on a miss
+  * @param maxEntries   maximum number of cached rankings; 0 disables caching
+  * @param maxSpots     maximum number of ranked spots over all cached rankings
+  * @param ttlSeconds   seconds a cached ranking stays valid
+  * @param bucketMeters size in meters of the buckets that locations and distances are
+  *                     snapped to while caching; 0 keys on the exact values
+  */
+ public RankingCache(MatchingScoreController scorer, int maxEntries, long maxSpots, long ttlSeconds,
+                     double bucketMeters) {
+  this(scorer, maxEntries, maxSpots, ttlSeconds, bucketMeters, System::nanoTime);
+ }
+
+ RankingCache(MatchingScoreController scorer, int maxEntries, long maxSpots, long ttlSeconds, double bucketMeters,
+              LongSupplier nanoClock) {
+  this.scorer = scorer;
+  this.maxEntries = maxEntries;
+  this.maxSpots = maxSpots;
+  this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+  this.bucketMeters = bucketMeters;
+  this.nanoClock = nanoClock;
+  this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+   @Override
+   protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+    if (size() > RankingCache.this.maxEntries) {
+     evictions.increment();
+     cachedSpots -= eldest.getValue().ranking.size();
+     return true;
+    }
+    return false;
+   }
+  };
+ }
+
+ /**
+  * Returns the ranking for preferences with client-supplied distances. While caching is
+  * on, distances are rounded to the nearest bucket before scoring.
+  *
+  * @param preferences       user preferences
+  * @param distancesFromUser map of StudySpot IDs to distances from the user in meters, or null
+  * @param limit             maximum number of spots to return; non-positive returns all spots
+  * @return ranked spots, best first
+  */
+ public List<ScoredSpot> rank(PreferencesSnapshot preferences, Map<String, Double> distancesFromUser, int limit) {
+  return rank(ScoringQuery.withDistances(preferences, distancesFromUser, limit));
+ }
+
+ /**
+  * Returns the ranking for preferences around the user's location. While caching is on,
+  * the location is snapped to a grid of bucket-sized cells before scoring.
+  *
+  * @param preferences   user preferences
+  * @param userLatitude  latitude of the user
+  * @param userLongitude longitude of the user
+  * @param limit         maximum number of spots to return; non-positive returns all candidates
+  * @return ranked spots, best first
+  */
+ public List<ScoredSpot> rank(PreferencesSnapshot preferences, double userLatitude, double userLongitude,
+                              int limit) {
+  return rank(ScoringQuery.atLocation(preferences, userLatitude, userLongitude, limit));
+ }
+
+ /**
+  * Returns the ranking for a query, snapping its distances or location to buckets
+  * before scoring while caching is on.
+  *
+  * @param query preferences and distances to rank by
+  * @return ranked spots, best first
+  */
+ public List<ScoredSpot> rank(ScoringQuery query) {
+  Snapped snapped = snap(query);
+  return lookup(snapped.key, () -> score(snapped.query));
+ }
+
+ /**
+  * Returns the rankings for a batch of queries. Cached rankings are reused, identical
+  * queries are scored once, and the remaining queries are scored together in a single
+  * pass over the catalog.
+  *
+  * @param queries preferences and distances to rank by
+  * @return one ranking per query, in query order
+  */
+ public List<List<ScoredSpot>> rankAll(List<ScoringQuery> queries) {
+  Snapped[] snapped = new Snapped[queries.size()];
+  for (int j = 0; j < snapped.length; j++) {
+   snapped[j] = snap(queries.get(j));
+  }
+
+  List<ScoredSpot>[] rankings = newRankings(snapped.length);
+  long version = scorer.getCatalogVersion();
+  long occupancy = scorer.getOccupancyGeneration();
+  long now = nanoClock.getAsLong();
+  if (maxEntries > 0) {
+   synchronized (this) {
+    syncVersion(version);
+    for (int j = 0; j < snapped.length; j++) {
+     rankings[j] = cached(snapped[j].key, version, occupancy, now);
+    }
+   }
+  }
+
+  Map<String, Integer> pending = new HashMap<>();
+  List<ScoringQuery> toScore = new ArrayList<>();
+  int unresolved = 0;
+  for (int j = 0; j < snapped.length; j++) {
+   if (rankings[j] == null) {
+    unresolved++;
+    if (pending.putIfAbsent(snapped[j].key, toScore.size()) == null) {
+     toScore.add(snapped[j].query);
+    }
+   }
+  }
+  if (toScore.isEmpty()) {
+   return Arrays.asList(rankings);
+  }
+
+  misses.add(toScore.size());
+  hits.add(unresolved - toScore.size());
+  List<List<ScoredSpot>> scored = new ArrayList<>(toScore.size());
+  for (List<ScoredSpot> ranking : scorer.calculateScores(toScore)) {
+   scored.add(Collections.unmodifiableList(new ArrayList<>(ranking)));
+  }
+  for (int j = 0; j < snapped.length; j++) {
+   if (rankings[j] == null) {
+    rankings[j] = scored.get(pending.get(snapped[j].key));
+   }
+  }
+  if (maxEntries > 0) {
+   synchronized (this) {
+    if (version == cachedVersion) {
+     for (Map.Entry<String, Integer> computed : pending.entrySet()) {
+      store(computed.getKey(), new Entry(scored.get(computed.getValue()), version, occupancy, now));
+     }
+    }
+   }
+  }
+  return Arrays.asList(rankings);
+ }
+
+ /**
+  * Drops every cached ranking.
+  */
+ public synchronized void invalidate() {
+  invalidations.increment();
+  entries.clear();
+  cachedSpots = 0;
+ }
+
+ /**
+  * Returns a snapshot of the cache counters.
+  *
+  * @return current statistics
+  */
+ public synchronized Stats getStats() {
+  return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), expirations.sum(),
+   entries.size(), cachedSpots);
+ }
+
+ private List<ScoredSpot> lookup(String key, Supplier<List<ScoredSpot>> compute) {
+  if (maxEntries <= 0) {
+   misses.increment();
+   return compute.get();
+  }
+
+  long version = scorer.getCatalogVersion();
+  long occupancy = scorer.getOccupancyGeneration();
+  long now = nanoClock.getAsLong();
+  synchronized (this) {
+   syncVersion(version);
+   List<ScoredSpot> ranking = cached(key, version, occupancy, now);
+   if (ranking != null) {
+    return ranking;
+   }
+  }
+
+  misses.increment();
+  List<ScoredSpot> ranking = Collections.unmodifiableList(new ArrayList<>(compute.get()));
+  synchronized (this) {
+   if (version == cachedVersion) {
+    store(key, new Entry(ranking, version, occupancy, now));
+   }
+  }
+  return ranking;
+ }
+
+ /**
+  * Clears the cache if the catalog version changed. Must hold the lock.
+  */
+ private void syncVersion(long version) {
+  if (version != cachedVersion) {
+   if (!entries.isEmpty()) {
+    invalidations.increment();
+    entries.clear();
+    cachedSpots = 0;
+   }
+   cachedVersion = version;
+  }
+ }
+
+ /**
+  * Caches a ranking, then evicts the least recently used rankings until the cached spots
+  * fit the limit again. A ranking longer than the limit is not cached. Must hold the lock.
+  */
+ private void store(String key, Entry entry) {
+  int weight = entry.ranking.size();
+  if (weight > maxSpots) {
+   return;
+  }
+  Entry replaced = entries.put(key, entry);
+  cachedSpots += weight - (replaced != null ? replaced.ranking.size() : 0);
+  Iterator<Entry> eldest = entries.values().iterator();
+  while (cachedSpots > maxSpots) {
+   cachedSpots -= eldest.next().ranking.size();
+   eldest.remove();
+   evictions.increment();
+  }
+ }
+
+ /**
+  * Returns the live cached ranking for a key and counts the hit, or null after dropping
+  * any stale or expired entry. Must hold the lock.
+  */
+ private List<ScoredSpot> cached(String key, long version, long occupancy, long now) {
+  Entry entry = entries.get(key);
+  if (entry != null) {
+   boolean current = entry.version == version && entry.occupancy == occupancy;
+   if (current && now - entry.createdNanos < ttlNanos) {
+    hits.increment();
+    return entry.ranking;
+   }
+   entries.remove(key);
+   cachedSpots -= entry.ranking.size();
+   if (current) {
+    expirations.increment();
+   } else {
+    invalidations.increment();
+   }
+  }
+  return null;
+ }
+
+ private List<ScoredSpot> score(ScoringQuery query) {
+  if (query.isLocated()) {
+   return scorer.calculateScore(query.getPreferences(), query.getUserLatitude(), query.getUserLongitude(),
+    query.getLimit());
+  }
+  return scorer.calculateScore(query.getPreferences(), query.getDistancesFromUser(), query.getLimit());
+ }
+
+ /**
+  * Builds a query's cache key. While caching is on, the location or distances are first
+  * snapped to buckets and the query rewritten to them; otherwise the key holds the exact
+  * values and the query is scored as it is.
+  */
+ private Snapped snap(ScoringQuery query) {
+  PreferencesSnapshot preferences = query.getPreferences();
+  int limit = query.getLimit();
+  boolean snapping = maxEntries > 0 && bucketMeters > 0;
+  if (query.isLocated()) {
+   double lat = query.getUserLatitude();
+   double lng = query.getUserLongitude();
+   if (snapping) {
+    double latStep = bucketMeters / METERS_PER_DEGREE_LAT;
+    lat = Math.round(lat / latStep) * latStep;
+    double lngStep = latStep / Math.max(Math.cos(Math.toRadians(lat)), 1e-6);
+    lng = Math.round(lng / lngStep) * lngStep;
+   }
+   String key = canonicalKey(preferences, limit).append("|loc=").append(lat).append(',').append(lng).toString();
+   return new Snapped(key, snapping ? ScoringQuery.atLocation(preferences, lat, lng, limit) : query);
+  }
+
+  Map<String, Double> quantized = null;
+  StringBuilder key = canonicalKey(preferences, limit).append("|d=");
+  if (query.getDistancesFromUser() != null) {
+   quantized = new TreeMap<>();
+   for (Map.Entry<String, Double> distance : query.getDistancesFromUser().entrySet()) {
+    if (distance.getValue() != null) {
+     quantized.put(distance.getKey(), snapping ? snapDistance(distance.getValue()) : distance.getValue());
+    }
+   }
+   for (Map.Entry<String, Double> distance : quantized.entrySet()) {
+    key.append(distance.getKey()).append(':').append(distance.getValue()).append(';');
+   }
+  }
+  return new Snapped(key.toString(), snapping ? ScoringQuery.withDistances(preferences, quantized, limit) : query);
+ }
+
+ @SuppressWarnings("unchecked")
+ private static List<ScoredSpot>[] newRankings(int size) {
+  return (List<ScoredSpot>[]) new List<?>[size];
+ }
+
+ private double snapDistance(double meters) {
+  return Math.round(meters / bucketMeters) * bucketMeters;
+ }
+
+ /**
+  * Builds the part of the key shared by all requests: categorical preferences are
+  * lower-cased, amenities listed in sorted order and hours reduced to minutes. An
+  * open-now filter keys on the minute, so its entries change once a minute.
+  */
+ private static StringBuilder canonicalKey(PreferencesSnapshot preferences, int limit) {
+  StringBuilder key = new StringBuilder(96)
+   .append("n=").append(preferences.getNoiseLevel().toLowerCase(Locale.ROOT))
+   .append("|io=").append(preferences.getIndoorOutdoor().toLowerCase(Locale.ROOT))
+   .append("|st=").append(preferences.getSpaceType().toLowerCase(Locale.ROOT))
+   .append("|acc=").append(preferences.isAccessRequired())
+   .append("|max=").append(preferences.getMaxDistance())
+   .append("|h=").append(SpotIndex.toMinuteOfDay(preferences.getOpenTime()))
+   .append('-').append(SpotIndex.toMinuteOfDay(preferences.getCloseTime()))
+   .append("|day=").append(preferences.getDay().getValue())
+   .append("|win=").append(preferences.isOpenDuringWindow())
+   .append("|at=").append(preferences.getOpenAt())
+   .append("|lim=").append(Math.max(limit, 0))
+   .append("|a=");
+  for (Map.Entry<String, Integer> amenity : new TreeMap<>(preferences.getAmenities()).entrySet()) {
+   key.append(amenity.getKey()).append(':').append(amenity.getValue()).append(',');
+  }
+  return key;
+ }
+
+ private static final class Snapped {
+  private final String key;
+  private final ScoringQuery query;
+
+  Snapped(String key, ScoringQuery query) {
+   this.key = key;
+   this.query = query;
+  }
+ }
+
+ private static final class Entry {
+  private final List<ScoredSpot> ranking;
+  private final long version;
+  private final long occupancy;
+  private final long createdNanos;
+
+  Entry(List<ScoredSpot> ranking, long version, long occupancy, long createdNanos) {
+   this.ranking = ranking;
+   this.version = version;
+   this.occupancy = occupancy;
+   this.createdNanos = createdNanos;
+  }
+ }
+
+ /**
+  * Snapshot of the cache counters. Evictions are rankings dropped to make room,
+  * invalidations rankings (or whole clears) dropped because the catalog or occupancy
+  * changed under them, and expirations rankings dropped because they outlived the TTL.
+  */
+ public static class Stats {
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long invalidations;
+  private final long expirations;
+  private final int size;
+  private final long spots;
+
+  public Stats(long hits, long misses, long evictions, long invalidations, long expirations, int size, long spots) {
+   this.hits = hits;
+   this.misses = misses;
+   this.evictions = evictions;
+   this.invalidations = invalidations;
+   this.expirations = expirations;
+   this.size = size;
+   this.spots = spots;
+  }
+
+  public long getHits() { return hits; }
+  public long getMisses() { return misses; }
+  public long getEvictions() { return evictions; }
+  public long getInvalidations() { return invalidations; }
+  public long getExpirations() { return expirations; }
+  public int getSize() { return size; }
+  public long getSpots() { return spots; }
+ }
+}
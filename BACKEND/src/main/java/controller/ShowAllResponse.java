@@ -0,0 +1,163 @@
+package controller;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import controller.MatchingScoreController.ScoredSpot;
+import model.StudySpot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-rendered "show all" response. Every spot is listed with a score of 100, so the
+ * response only changes when the catalog does: it is serialized once per catalog version
+ * to UTF-8 JSON and gzip bytes and reused until the scorer reports a new version.
+ */
+public class ShowAllResponse {
+
+ private final MatchingScoreController scorer;
+ private final ObjectMapper objectMapper;
+ private volatile Rendering current;
+
+ /**
+  * Constructs a ShowAllResponse.
+  *
+  * @param scorer       scorer whose catalog and catalog version are rendered
+  * @param objectMapper mapper used to serialize the response
+  */
+ public ShowAllResponse(MatchingScoreController scorer, ObjectMapper objectMapper) {
+  this.scorer = scorer;
+  this.objectMapper = objectMapper;
+ }
+
+ /**
+  * Returns the rendering for the current catalog version, rendering it first if the
+  * catalog changed since the last call.
+  *
+  * @return rendering of the current catalog
+  */
+ public Rendering current() {
+  long version = scorer.getCatalogVersion();
+  Rendering rendering = current;
+  if (rendering != null && rendering.version == version) {
+   return rendering;
+  }
+  synchronized (this) {
+   rendering = current;
+   if (rendering == null || rendering.version != version) {
+    rendering = render(version);
+    current = rendering;
+   }
+   return rendering;
+  }
+ }
+
+ private Rendering render(long version) {
+  List<ScoredSpot> spots = new ArrayList<>();
+  for (StudySpot spot : scorer.getStudySpots()) {
+   spots.add(new ScoredSpot(spot, 100.0));
+  }
+  try {
+   byte[] json = objectMapper.writeValueAsBytes(spots);
+   return new Rendering(version, Collections.unmodifiableList(spots), json, gzip(json), strongETag(json));
+  } catch (JsonProcessingException e) {
+   throw new IllegalStateException("Could not render study spot catalog", e);
+  }
+ }
+
+ private static byte[] gzip(byte[] bytes) {
+  ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+  try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+   gzip.write(bytes);
+  } catch (IOException e) {
+   throw new UncheckedIOException(e);
+  }
+  return out.toByteArray();
+ }
+
+ /**
+  * Derives the ETag from the response content, so it stays valid across restarts and
+  * catalog reloads that do not change anything.
+  */
+ private static String strongETag(byte[] json) {
+  try {
+   byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+   return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+  } catch (NoSuchAlgorithmException e) {
+   throw new IllegalStateException(e);
+  }
+ }
+
+ /**
+  * One catalog version of the response. Byte arrays are shared and must not be modified.
+  */
+ public static final class Rendering {
+  private final long version;
+  private final List<ScoredSpot> spots;
+  private final byte[] json;
+  private final byte[] gzip;
+  private final String eTag;
+
+  Rendering(long version, List<ScoredSpot> spots, byte[] json, byte[] gzip, String eTag) {
+   this.version = version;
+   this.spots = spots;
+   this.json = json;
+   this.gzip = gzip;
+   this.eTag = eTag;
+  }
+
+  public long getVersion() { return version; }
+  public List<ScoredSpot> getSpots() { return spots; }
+  public byte[] getJson() { return json; }
+  public byte[] getGzip() { return gzip; }
+  public String getETag() { return eTag; }
+
+  /**
+   * Returns true if an If-None-Match header value matches this rendering. Weak
+   * validators are compared weakly, as RFC 9110 requires for If-None-Match.
+   *
+   * @param ifNoneMatch header value, or null
+   * @return true if the client's copy is current
+   */
+  public boolean matches(String ifNoneMatch) {
+   if (ifNoneMatch == null) return false;
+   for (String tag : ifNoneMatch.split(",")) {
+    tag = tag.trim();
+    if (tag.equals("*")) return true;
+    if (tag.startsWith("W/")) tag = tag.substring(2);
+    if (tag.equals(eTag)) return true;
+   }
+   return false;
+  }
+
+  /**
+   * Returns true if an Accept-Encoding header value allows a gzip body.
+   *
+   * @param acceptEncoding header value, or null
+   * @return true if gzip bytes can be sent
+   */
+  public static boolean acceptsGzip(String acceptEncoding) {
+   if (acceptEncoding == null) return false;
+   for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+    String[] parts = coding.trim().split(";");
+    if (parts[0].trim().equals("gzip")) {
+     for (int i = 1; i < parts.length; i++) {
+      String param = parts[i].replace(" ", "");
+      if (param.matches("q=0(\\.0{0,3})?")) return false;
+     }
+     return true;
+    }
+   }
+   return false;
+  }
+ }
+}
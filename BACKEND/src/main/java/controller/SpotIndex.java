@@ -0,0 +1,237 @@
+package controller;
+
+import model.OpeningHours;
+import model.PreferencesSnapshot;
+import model.StudySpot;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compiled, read-only view of a study spot catalog used for fast scoring.
+ * Categorical fields are exposed as small integer codes, amenities as a bitmask and
+ * opening hours as minute-of-day ints, with compiled weekly intervals for spots whose
+ * hours differ by day, all indexed by the spot's position in the
+ * catalog. Catalogs loaded from a list are compiled into primitive arrays on the heap;
+ * catalogs opened from a binary snapshot are read straight from the mapped file. A
+ * spatial grid and an hours bitmap index narrow down the candidates of a request before
+ * any spot is scored.
+ */
+public abstract class SpotIndex {
+
+ /**
+  * Code stored for a spot whose categorical field is null.
+  */
+ static final int NO_CODE = -1;
+
+ /**
+  * Code returned for a preference value that no spot in the catalog carries.
+  */
+ static final int UNKNOWN_CODE = -2;
+
+ /**
+  * Noise levels that have a defined neighbour; their codes are fixed so that
+  * adjacent levels differ by exactly one.
+  */
+ private static final String[] ORDERED_NOISE_LEVELS = {"Silent", "Moderate", "Loud"};
+
+ private static final AtomicLong NEXT_VERSION = new AtomicLong();
+
+ private final long version = NEXT_VERSION.incrementAndGet();
+
+ private final List<StudySpot> source;
+ final Map<String, Integer> noiseCodes = new HashMap<>();
+ final Map<String, Integer> indoorOutdoorCodes = new HashMap<>();
+ final Map<String, Integer> spaceTypeCodes = new HashMap<>();
+ final Map<String, Integer> amenityBits = new HashMap<>();
+ private GeoGrid geoGrid;
+ private HoursIndex hoursIndex;
+
+ SpotIndex(List<StudySpot> source) {
+  this.source = source;
+  for (String level : ORDERED_NOISE_LEVELS) {
+   noiseCodes.put(normalize(level), noiseCodes.size());
+  }
+ }
+
+ /**
+  * Compiles the given spots into a new index. The list is copied, so later changes to
+  * it are not reflected in the returned index. A catalog opened from a binary snapshot
+  * already carries its index, which is returned as is.
+  *
+  * @param studySpots spots to compile, in scoring order
+  * @return a SpotIndex over the spots
+  * @throws IllegalArgumentException if the catalog uses more than 64 distinct amenities
+  */
+ public static SpotIndex build(List<StudySpot> studySpots) {
+  if (studySpots instanceof CatalogSnapshot.MappedSpots) {
+   return ((CatalogSnapshot.MappedSpots) studySpots).index();
+  }
+  return HeapSpotIndex.compile(studySpots);
+ }
+
+ /**
+  * Converts a time to minutes since midnight, rounding any partial minute up so that
+  * {@link LocalTime#MAX} maps to 1440 and stays distinct from 23:59.
+  *
+  * @param time time to convert
+  * @return minute of day in the range 0 to 1440
+  */
+ static int toMinuteOfDay(LocalTime time) {
+  return OpeningHours.minuteOfDay(time);
+ }
+
+ public abstract int size();
+
+ /**
+  * Returns a number that identifies this compiled catalog. Every index built gets a
+  * larger version than all indexes built before it.
+  */
+ public long version() {
+  return version;
+ }
+
+ /**
+  * Returns true if this index was built from the given list instance.
+  */
+ boolean isBuiltFrom(List<StudySpot> studySpots) {
+  return source == studySpots;
+ }
+
+ /**
+  * Returns the spot at position i. Snapshot-backed indexes create it on each call.
+  */
+ abstract StudySpot spot(int i);
+
+ abstract String id(int i);
+
+ abstract double latitude(int i);
+
+ abstract double longitude(int i);
+
+ abstract int noise(int i);
+
+ abstract int indoorOutdoor(int i);
+
+ abstract int spaceType(int i);
+
+ abstract long amenities(int i);
+
+ abstract boolean isAccessRequired(int i);
+
+ abstract int openMinute(int i);
+
+ abstract int closeMinute(int i);
+
+ /**
+  * Returns true if the spot at position i is open the same hours every day, so that
+  * {@link #openMinute(int)} and {@link #closeMinute(int)} describe its whole week.
+  */
+ abstract boolean hasDailyHours(int i);
+
+ /**
+  * Returns the weekly opening hours of the spot at position i.
+  */
+ abstract OpeningHours hours(int i);
+
+ /**
+  * Builds the spatial grid. Called once by subclasses after their coordinates are in
+  * place; the arrays are kept by the grid.
+  */
+ void initGeoGrid(double[] latitudes, double[] longitudes) {
+  geoGrid = new GeoGrid(latitudes, longitudes);
+ }
+
+ /**
+  * Builds the hours bitmap index. Called once by subclasses after {@link #hours(int)}
+  * can answer for every spot.
+  */
+ void initHoursIndex() {
+  hoursIndex = new HoursIndex(this);
+ }
+
+ /**
+  * Returns the great-circle distance from the given point to the spot at position i.
+  *
+  * @return distance in meters
+  */
+ double distanceFrom(int i, double lat, double lng) {
+  return GeoGrid.haversineMeters(lat, lng, latitude(i), longitude(i));
+ }
+
+ /**
+  * Returns the positions of the spots within the given radius of a point.
+  *
+  * @return matching positions in ascending order
+  */
+ int[] within(double lat, double lng, double radiusMeters) {
+  return geoGrid.within(lat, lng, radiusMeters);
+ }
+
+ /**
+  * Returns the candidates whose opening hours pass the preferences' hours filters.
+  *
+  * @param candidates  positions in ascending order, or null for every spot
+  * @param preferences preferences with at least one hours filter
+  * @return matching positions in ascending order
+  */
+ int[] openDuring(int[] candidates, PreferencesSnapshot preferences) {
+  return hoursIndex.filter(candidates, preferences);
+ }
+
+ int noiseCode(String value) {
+  return lookupCode(noiseCodes, value);
+ }
+
+ int indoorOutdoorCode(String value) {
+  return lookupCode(indoorOutdoorCodes, value);
+ }
+
+ int spaceTypeCode(String value) {
+  return lookupCode(spaceTypeCodes, value);
+ }
+
+ /**
+  * Returns true if the two noise codes are neighbouring levels (Silent/Moderate or
+  * Moderate/Loud).
+  */
+ static boolean isAdjacentNoise(int a, int b) {
+  return a >= 0 && b >= 0 && a < ORDERED_NOISE_LEVELS.length && b < ORDERED_NOISE_LEVELS.length
+   && Math.abs(a - b) == 1;
+ }
+
+ /**
+  * Builds the amenity bitmask for the amenities a user asked for.
+  *
+  * @param wanted amenity name to 0/1 flag, as held by PreferencesModel
+  * @return bitmask of the requested amenities known to this catalog
+  */
+ long amenityMask(Map<String, Integer> wanted) {
+  long mask = 0L;
+  for (Map.Entry<String, Integer> amenity : wanted.entrySet()) {
+   Integer bit = amenityBits.get(amenity.getKey());
+   if (bit != null && amenity.getValue() != null && amenity.getValue() == 1) {
+    mask |= 1L << bit;
+   }
+  }
+  return mask;
+ }
+
+ static int assignCode(Map<String, Integer> codes, String value) {
+  if (value == null) return NO_CODE;
+  return codes.computeIfAbsent(normalize(value), k -> codes.size());
+ }
+
+ private static int lookupCode(Map<String, Integer> codes, String value) {
+  if (value == null) return UNKNOWN_CODE;
+  return codes.getOrDefault(normalize(value), UNKNOWN_CODE);
+ }
+
+ static String normalize(String value) {
+  return value.toLowerCase(Locale.ROOT);
+ }
+}
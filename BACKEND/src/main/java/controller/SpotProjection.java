@@ -0,0 +1,209 @@
+package controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import model.StudySpot;
+
+import java.io.IOException;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precompiled plan for writing a subset of StudySpot properties as JSON. A projection is
+ * compiled once per distinct field set into an array of field writers, so serializing a
+ * spot is a fixed sequence of generator calls with no reflection or per-request setup.
+ * Properties are written with the same names, order and formats as Jackson uses for a
+ * full StudySpot, including leaving out weeklyHours when a spot has none.
+ */
+public final class SpotProjection {
+
+ /**
+  * StudySpot properties that can be selected with {@code fields=}, in output order.
+  */
+ public enum Field {
+  ID("id") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeStringField(property, spot.getId());
+   }
+  },
+  NAME("name") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeStringField(property, spot.getName());
+   }
+  },
+  LATITUDE("latitude") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeNumberField(property, spot.getLatitude());
+   }
+  },
+  LONGITUDE("longitude") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeNumberField(property, spot.getLongitude());
+   }
+  },
+  OPEN_TIME("openTime") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    writeTime(gen, property, spot.getOpenTime());
+   }
+  },
+  CLOSE_TIME("closeTime") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    writeTime(gen, property, spot.getCloseTime());
+   }
+  },
+  NOISE_LEVEL("noiseLevel") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeStringField(property, spot.getNoiseLevel());
+   }
+  },
+  INDOOR_OUTDOOR("indoorOutdoor") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeStringField(property, spot.getIndoorOutdoor());
+   }
+  },
+  SPACE_TYPE("spaceType") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeStringField(property, spot.getSpaceType());
+   }
+  },
+  ACCESS_REQUIRED("accessRequired") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeBooleanField(property, spot.isAccessRequired());
+   }
+  },
+  AMENITIES("amenities") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    gen.writeObjectFieldStart(property);
+    for (Map.Entry<String, Integer> amenity : spot.getAmenities().entrySet()) {
+     gen.writeFieldName(amenity.getKey());
+     if (amenity.getValue() == null) {
+      gen.writeNull();
+     } else {
+      gen.writeNumber(amenity.getValue());
+     }
+    }
+    gen.writeEndObject();
+   }
+  },
+  WEEKLY_HOURS("weeklyHours") {
+   @Override
+   void write(JsonGenerator gen, StudySpot spot) throws IOException {
+    if (spot.getWeeklyHours() == null) return;
+    gen.writeObjectFieldStart(property);
+    for (Map.Entry<DayOfWeek, String> day : spot.getWeeklyHours().entrySet()) {
+     gen.writeStringField(day.getKey().name(), day.getValue());
+    }
+    gen.writeEndObject();
+   }
+  };
+
+  final String property;
+
+  Field(String property) {
+   this.property = property;
+  }
+
+  abstract void write(JsonGenerator gen, StudySpot spot) throws IOException;
+ }
+
+ private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+ private static final Field[] FIELDS = Field.values();
+ private static final Map<String, Field> BY_NAME = new HashMap<>();
+ private static final Map<Integer, SpotProjection> PLANS = new ConcurrentHashMap<>();
+
+ static {
+  for (Field field : FIELDS) {
+   BY_NAME.put(field.property.toLowerCase(Locale.ROOT), field);
+  }
+ }
+
+ /**
+  * Projection writing every property, equivalent to serializing the whole StudySpot.
+  */
+ public static final SpotProjection ALL = plan((1 << FIELDS.length) - 1);
+
+ private final Field[] fields;
+
+ private SpotProjection(Field[] fields) {
+  this.fields = fields;
+ }
+
+ /**
+  * Returns the projection for a comma-separated list of property names, such as
+  * {@code id,name,latitude,longitude}. Names are case-insensitive and may repeat; the
+  * output order is always that of {@link Field}. A null or blank list selects every
+  * property.
+  *
+  * @param fields comma-separated property names
+  * @return the compiled projection, shared by all requests with the same field set
+  * @throws IllegalArgumentException if a name is not a StudySpot property
+  */
+ public static SpotProjection of(String fields) {
+  if (fields == null || fields.isBlank()) {
+   return ALL;
+  }
+  int mask = 0;
+  for (String name : fields.split(",")) {
+   String key = name.trim().toLowerCase(Locale.ROOT);
+   if (key.isEmpty()) continue;
+   Field field = BY_NAME.get(key);
+   if (field == null) {
+    throw new IllegalArgumentException("Unknown study spot field: " + name.trim());
+   }
+   mask |= 1 << field.ordinal();
+  }
+  return mask == 0 ? ALL : plan(mask);
+ }
+
+ private static SpotProjection plan(int mask) {
+  return PLANS.computeIfAbsent(mask, m -> {
+   List<Field> selected = new ArrayList<>();
+   for (Field field : FIELDS) {
+    if ((m & (1 << field.ordinal())) != 0) {
+     selected.add(field);
+    }
+   }
+   return new SpotProjection(selected.toArray(new Field[0]));
+  });
+ }
+
+ /**
+  * Writes the selected properties of a spot as one JSON object.
+  *
+  * @param gen  generator to write to
+  * @param spot spot to write
+  * @throws IOException if the generator fails
+  */
+ public void write(JsonGenerator gen, StudySpot spot) throws IOException {
+  gen.writeStartObject();
+  for (Field field : fields) {
+   field.write(gen, spot);
+  }
+  gen.writeEndObject();
+ }
+
+ private static void writeTime(JsonGenerator gen, String property, LocalTime time) throws IOException {
+  if (time == null) {
+   gen.writeNullField(property);
+  } else {
+   gen.writeStringField(property, TIME_FORMAT.format(time));
+  }
+ }
+}
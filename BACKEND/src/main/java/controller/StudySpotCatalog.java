@@ -0,0 +1,351 @@
+package controller;
+
+import model.StudySpot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Holds the current study spot catalog. A new catalog is published by swapping in a
+ * complete list, so readers either see the old catalog or the new one, never a partly
+ * loaded one, and never wait for a reload to finish.
+ *
+ * <p>Every published catalog gets a version number larger than all earlier ones. Spots
+ * can be changed at runtime with {@link #edit(Function)}: edits that arrive while another
+ * is being published are applied together to one new catalog, so a burst of writes
+ * publishes, and rebuilds the listeners' derived indexes, a few times rather than once
+ * per write. Readers never take a lock. A version made by edits remembers that it holds
+ * runtime edits until a complete catalog is published over it, see
+ * {@link Version#hasEdits()}.
+ */
+public class StudySpotCatalog {
+
+ private final AtomicReference<Version> current;
+ private final List<Consumer<List<StudySpot>>> listeners = new CopyOnWriteArrayList<>();
+ private final ConcurrentLinkedQueue<PendingEdit<?>> pendingEdits = new ConcurrentLinkedQueue<>();
+ private final Object writeLock = new Object();
+
+ /**
+  * Constructs a catalog with the given initial spots, published as version 1. The list
+  * is used as is rather than copied.
+  *
+  * @param initial initial study spots
+  */
+ public StudySpotCatalog(List<StudySpot> initial) {
+  this.current = new AtomicReference<>(new Version(1, initial, false));
+ }
+
+ /**
+  * Returns the current catalog. The returned list is a snapshot: publishing a new
+  * catalog does not change it.
+  *
+  * @return current study spots
+  */
+ public List<StudySpot> current() {
+  return current.get().getSpots();
+ }
+
+ /**
+  * Returns the current catalog together with its version number.
+  *
+  * @return the current version
+  */
+ public Version currentVersion() {
+  return current.get();
+ }
+
+ /**
+  * Replaces the catalog with an immutable copy of the given spots and then notifies the
+  * listeners on the calling thread. A mapped snapshot is already read-only and is
+  * published without copying.
+  *
+  * @param studySpots new study spots
+  * @return the published catalog
+  */
+ public List<StudySpot> publish(List<StudySpot> studySpots) {
+  List<StudySpot> published = studySpots instanceof CatalogSnapshot.MappedSpots
+   ? studySpots : List.copyOf(studySpots);
+  synchronized (writeLock) {
+   publishLocked(published, false);
+  }
+  return published;
+ }
+
+ /**
+  * Applies a change to the catalog and publishes the result as a new version.
+  *
+  * <p>The change runs against an {@link Edit} of the latest catalog, possibly together
+  * with changes submitted concurrently by other threads; all of them are published as
+  * one version. The change must not modify the spots it reads from the edit. If it
+  * throws, the exception is rethrown here and nothing it did to the edit is published;
+  * the other changes in the same batch are unaffected.
+  *
+  * @param change change to apply; its return value is passed back to the caller
+  * @param <R>    type of the change's result
+  * @return the change's result and the version that contains it
+  */
+ public <R> Edited<R> edit(Function<Edit, R> change) {
+  PendingEdit<R> edit = new PendingEdit<>(change);
+  pendingEdits.add(edit);
+  synchronized (writeLock) {
+   if (!edit.done) {
+    applyPendingEdits();
+   }
+  }
+  if (edit.failure != null) {
+   throw edit.failure;
+  }
+  return new Edited<>(edit.result, edit.version);
+ }
+
+ /**
+  * Registers a listener called with every newly published catalog, typically to rebuild
+  * derived indexes before requests need them.
+  *
+  * @param listener callback receiving the published catalog
+  */
+ public void addListener(Consumer<List<StudySpot>> listener) {
+  listeners.add(listener);
+ }
+
+ private void applyPendingEdits() {
+  Version base = current.get();
+  Edit working = new Edit(base);
+  List<PendingEdit<?>> applied = new ArrayList<>();
+  PendingEdit<?> edit;
+  while ((edit = pendingEdits.poll()) != null) {
+   edit.apply(working);
+   applied.add(edit);
+  }
+  try {
+   if (working.changed) {
+    publishLocked(working.toList(), true);
+   }
+  } finally {
+   Version version = current.get();
+   for (PendingEdit<?> done : applied) {
+    done.version = version;
+    done.done = true;
+   }
+  }
+ }
+
+ private Version publishLocked(List<StudySpot> published, boolean edits) {
+  Version version = new Version(current.get().getNumber() + 1, published, edits);
+  current.set(version);
+  for (Consumer<List<StudySpot>> listener : listeners) {
+   listener.accept(published);
+  }
+  return version;
+ }
+
+ /**
+  * A published catalog and its version number.
+  */
+ public static final class Version {
+  private final long number;
+  private final List<StudySpot> spots;
+  private final boolean edits;
+
+  Version(long number, List<StudySpot> spots, boolean edits) {
+   this.number = number;
+   this.spots = spots;
+   this.edits = edits;
+  }
+
+  /**
+   * Returns the version number; later versions have larger numbers.
+   */
+  public long getNumber() {
+   return number;
+  }
+
+  public List<StudySpot> getSpots() {
+   return spots;
+  }
+
+  /**
+   * Returns true if this version was made by {@link #edit(Function)} and so holds
+   * changes that exist only in memory; false for a catalog published as a whole.
+   */
+  public boolean hasEdits() {
+   return edits;
+  }
+ }
+
+ /**
+  * Result of {@link #edit(Function)}.
+  *
+  * @param <R> type of the change's result
+  */
+ public static final class Edited<R> {
+  private final R result;
+  private final Version version;
+
+  Edited(R result, Version version) {
+   this.result = result;
+   this.version = version;
+  }
+
+  public R getResult() {
+   return result;
+  }
+
+  /**
+   * Returns the first published version that contains the change.
+   */
+  public Version getVersion() {
+   return version;
+  }
+ }
+
+ /**
+  * Working copy of the catalog that edits are applied to. Spots are found by ID, which
+  * is expected to be unique; when IDs repeat, the first spot with the ID is the one
+  * read, replaced or removed. Every change is journaled so that a failing edit can be
+  * rolled back without affecting the edits applied before it.
+  */
+ public static final class Edit {
+  private final long baseVersion;
+  private final List<StudySpot> spots;
+  private final Map<String, Integer> positions;
+  private final List<Runnable> undo = new ArrayList<>();
+  private boolean changed;
+  private int removed;
+
+  Edit(Version base) {
+   this.baseVersion = base.getNumber();
+   this.spots = new ArrayList<>(base.getSpots());
+   this.positions = new HashMap<>(Math.max(16, (int) (spots.size() / 0.75f) + 1));
+   for (int i = 0; i < spots.size(); i++) {
+    positions.putIfAbsent(spots.get(i).getId(), i);
+   }
+  }
+
+  /**
+   * Returns true if the catalog being edited is still exactly the given version, that
+   * is, the version is current and no earlier edit in this batch has changed it. A null
+   * version always matches.
+   *
+   * @param version version a client expects, or null for no expectation
+   */
+  public boolean matches(Long version) {
+   return version == null || (version == baseVersion && !changed);
+  }
+
+  /**
+   * Returns the spot with the given ID, or null if there is none.
+   */
+  public StudySpot get(String id) {
+   Integer position = positions.get(id);
+   return position == null ? null : spots.get(position);
+  }
+
+  /**
+   * Replaces the spot with the same ID, or appends the spot if its ID is new.
+   *
+   * @param spot spot to store; it must not be modified afterwards
+   * @return the replaced spot, or null if the spot was added
+   */
+  public StudySpot put(StudySpot spot) {
+   boolean wasChanged = changed;
+   changed = true;
+   Integer position = positions.get(spot.getId());
+   if (position == null) {
+    positions.put(spot.getId(), spots.size());
+    spots.add(spot);
+    undo.add(() -> {
+     positions.remove(spot.getId());
+     spots.remove(spots.size() - 1);
+     changed = wasChanged;
+    });
+    return null;
+   }
+   StudySpot replaced = spots.set(position, spot);
+   undo.add(() -> {
+    spots.set(position, replaced);
+    changed = wasChanged;
+   });
+   return replaced;
+  }
+
+  /**
+   * Removes the spot with the given ID.
+   *
+   * @return the removed spot, or null if there was none
+   */
+  public StudySpot remove(String id) {
+   Integer position = positions.remove(id);
+   if (position == null) return null;
+   boolean wasChanged = changed;
+   changed = true;
+   removed++;
+   StudySpot spot = spots.set(position, null);
+   undo.add(() -> {
+    positions.put(id, position);
+    spots.set(position, spot);
+    removed--;
+    changed = wasChanged;
+   });
+   return spot;
+  }
+
+  /**
+   * Returns a mark to roll back to with {@link #rollback(int)}.
+   */
+  int savepoint() {
+   return undo.size();
+  }
+
+  /**
+   * Undoes every change made since the given savepoint, newest first.
+   */
+  void rollback(int savepoint) {
+   for (int i = undo.size() - 1; i >= savepoint; i--) {
+    undo.remove(i).run();
+   }
+  }
+
+  /**
+   * Returns the edited catalog in order, with removed spots dropped.
+   */
+  List<StudySpot> toList() {
+   List<StudySpot> result = new ArrayList<>(spots.size() - removed);
+   for (StudySpot spot : spots) {
+    if (spot != null) {
+     result.add(spot);
+    }
+   }
+   return List.copyOf(result);
+  }
+ }
+
+ private static final class PendingEdit<R> {
+  private final Function<Edit, R> change;
+  private R result;
+  private RuntimeException failure;
+  private Version version;
+  private volatile boolean done;
+
+  PendingEdit(Function<Edit, R> change) {
+   this.change = change;
+  }
+
+  void apply(Edit edit) {
+   int savepoint = edit.savepoint();
+   try {
+    result = change.apply(edit);
+   } catch (RuntimeException e) {
+    edit.rollback(savepoint);
+    failure = e;
+   }
+  }
+ }
+}
@@ -1,29 +1,152 @@
 package controller;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import config.JacksonConfig;
+import model.AmenityRegistry;
 import model.StudySpot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.time.LocalTime;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * REST controller for providing study spot data.
- * Supports retrieving all study spots or a specific study spot by ID.
+ * Supports retrieving all study spots, a specific study spot by ID or several spots by
+ * ID in one request. The full catalog can be paged with a cursor and projected down to
+ * selected fields.
+ * Spots are read from a StudySpotCatalog, so a reloaded catalog is served as soon as it
+ * is published. Lookups by ID go through a hash index that is rebuilt whenever a new
+ * catalog is published.
+ *
+ * <p>Spots can be added, replaced, patched and removed at runtime. Each change publishes
+ * a new catalog version; the version is returned in the {@value #VERSION_HEADER} header
+ * and may be sent back in If-Match to make a change conditional on the catalog not
+ * having changed since. Clients holding a version catch up through
+ * {@code /changes?since=}, which returns only the spots that changed after it. Changes
+ * must carry the configured admin token as {@code Authorization: Bearer <token>}; with no
+ * token configured the catalog is read-only.
  */
 @RestController
 @RequestMapping("/api/studyspots")
 public class StudySpotsController {
  
- private final List<StudySpot> studySpots;
+ /**
+  * Page size used when a cursor is given without a limit.
+  */
+ public static final int DEFAULT_PAGE_SIZE = 100;
+ 
+ /**
+  * Largest page a client may request; larger limits are reduced to it.
+  */
+ public static final int MAX_PAGE_SIZE = 1000;
  
  /**
-  * Constructs a StudySpotsController with mock data.
+  * Response header carrying the catalog version a response was produced from.
+  */
+ public static final String VERSION_HEADER = "X-Catalog-Version";
+ 
+ /**
+  * IDs that name fixed endpoints under /api/studyspots. A spot stored under one of them
+  * could never be read back through /{id}, so none may be.
+  */
+ static final Set<String> RESERVED_IDS = Set.of("all", "changes", "version");
+ 
+ private static final JsonFactory JSON = new JsonFactory();
+ 
+ private final StudySpotCatalog catalog;
+ private final ObjectMapper objectMapper;
+ private final CatalogChangeLog changeLog;
+ private final byte[] adminToken;
+ private volatile IdIndex idIndex;
+ 
+ /**
+  * Constructs a read-only StudySpotsController over the catalog bundled with the
+  * application.
   */
  public StudySpotsController() {
-  this.studySpots = initializeMockData();
+  this(new CatalogLoader(new JacksonConfig().objectMapper()).loadDefault());
+ }
+ 
+ /**
+  * Constructs a read-only StudySpotsController over the given study spots.
+  *
+  * @param studySpots study spots to serve
+  */
+ public StudySpotsController(List<StudySpot> studySpots) {
+  this(new StudySpotCatalog(studySpots));
+ }
+ 
+ /**
+  * Constructs a read-only StudySpotsController over a catalog that may be replaced at
+  * runtime.
+  *
+  * @param catalog catalog to serve
+  */
+ public StudySpotsController(StudySpotCatalog catalog) {
+  this(catalog, new JacksonConfig().objectMapper());
+ }
+ 
+ /**
+  * Constructs a read-only StudySpotsController over a catalog that may be replaced at
+  * runtime.
+  *
+  * @param catalog      catalog to serve
+  * @param objectMapper mapper used to apply PATCH bodies
+  */
+ public StudySpotsController(StudySpotCatalog catalog, ObjectMapper objectMapper) {
+  this(catalog, objectMapper, new CatalogChangeLog(catalog, CatalogChangeLog.DEFAULT_MAX_ENTRIES), null);
+ }
+ 
+ /**
+  * Constructs a StudySpotsController over a catalog that may be replaced at runtime.
+  *
+  * @param catalog      catalog to serve
+  * @param objectMapper mapper used to apply PATCH bodies
+  * @param changeLog    log of the catalog's changes that /changes is answered from
+  * @param adminToken   bearer token PUT, PATCH and DELETE must carry; null or empty makes
+  *                     the catalog read-only
+  */
+ @Autowired
+ public StudySpotsController(StudySpotCatalog catalog, ObjectMapper objectMapper, CatalogChangeLog changeLog,
+                             @Value("${catalog.admin-token:}") String adminToken) {
+  this.catalog = catalog;
+  this.objectMapper = objectMapper;
+  this.changeLog = changeLog;
+  this.adminToken = adminToken == null || adminToken.isEmpty()
+   ? null : adminToken.getBytes(StandardCharsets.UTF_8);
+  catalog.addListener(published -> idIndex = new IdIndex(catalog.currentVersion()));
+ }
+ 
+ /**
+  * Returns the catalog this controller serves.
+  *
+  * @return the study spot catalog
+  */
+ public StudySpotCatalog getCatalog() {
+  return catalog;
  }
  
  /**
@@ -31,9 +154,67 @@ public class StudySpotsController {
   *
   * @return List of StudySpot objects
   */
- @GetMapping("/all")
  public List<StudySpot> getAllStudySpots() {
-  return studySpots;
+  return catalog.current();
+ }
+ 
+ /**
+  * Returns the study spots, optionally paged and projected.
+  *
+  * <p>Without parameters the whole catalog is returned as a JSON array. {@code fields}
+  * restricts every spot to the listed properties, for example
+  * {@code fields=id,name,latitude,longitude} for map pins. Giving {@code limit} or
+  * {@code cursor} pages the catalog: the response is then an object holding the page in
+  * {@code spots} and, if more spots follow, the {@code nextCursor} to pass for the next
+  * page.
+  *
+  * @param fields comma-separated StudySpot properties to include, or null for all
+  * @param cursor nextCursor of the previous page, or null for the first page
+  * @param limit  maximum number of spots in the page
+  * @return the spots, or 400 for an unknown field, a non-positive limit or a cursor that
+  *         no longer matches the catalog
+  */
+ @GetMapping("/all")
+ public ResponseEntity<?> getAllStudySpots(@RequestParam(required = false) String fields,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer limit) {
+  if (fields == null && cursor == null && limit == null) {
+   StudySpotCatalog.Version version = catalog.currentVersion();
+   return ResponseEntity.ok().header(VERSION_HEADER, Long.toString(version.getNumber())).body(version.getSpots());
+  }
+  SpotProjection projection;
+  try {
+   projection = SpotProjection.of(fields);
+  } catch (IllegalArgumentException e) {
+   return badRequest(e.getMessage());
+  }
+  IdIndex index = currentIdIndex();
+  List<StudySpot> spots = index.spots;
+  if (cursor == null && limit == null) {
+   return json(index.version, gen -> writeSpots(gen, projection, spots, 0, spots.size()));
+  }
+  
+  if (limit != null && limit < 1) {
+   return badRequest("limit must be positive");
+  }
+  int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+  int start = 0;
+  if (cursor != null) {
+   start = index.positionAfter(cursor);
+   if (start < 0) {
+    return badRequest("Cursor is invalid or no longer matches the catalog");
+   }
+  }
+  int end = (int) Math.min((long) start + pageSize, spots.size());
+  String nextCursor = end < spots.size() ? index.cursorAt(end - 1) : null;
+  int from = start;
+  return json(index.version, gen -> {
+   gen.writeStartObject();
+   gen.writeFieldName("spots");
+   writeSpots(gen, projection, spots, from, end);
+   gen.writeStringField("nextCursor", nextCursor);
+   gen.writeEndObject();
+  });
  }
  
  /**
@@ -44,213 +225,437 @@ public class StudySpotsController {
   */
  @GetMapping("/{id}")
  public StudySpot getStudySpotById(@PathVariable String id) {
-  return studySpots.stream()
-   .filter(spot -> spot.getId().equals(id))
-   .findFirst()
-   .orElse(null);
+  return currentIdIndex().get(id);
  }
  
- private List<StudySpot> initializeMockData() {
-  List<StudySpot> spots = new ArrayList<>();
-  
-  spots.add(createStudySpot("1", "IKB - Private Study Rooms", "1961 East Mall, Vancouver, BC",
-   49.2675, -123.2527, LocalTime.of(6, 0), LocalTime.of(0, 0),
-   "Silent", "Indoor", "Group Study Room", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 1, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("2", "IKB - Common Areas", "1961 East Mall, Vancouver, BC",
-   49.2676, -123.2528, LocalTime.of(6, 0), LocalTime.of(0, 0),
-   "Moderate", "Indoor", "Open Area", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("3", "IKB - Silent Study Rooms", "1961 East Mall, Vancouver, BC",
-   49.2677, -123.2529, LocalTime.of(6, 0), LocalTime.of(0, 0),
-   "Silent", "Indoor", "Quiet Room", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(
-   createStudySpot("4", "Art, Architecture & Music Library (IKB)", "1961 East Mall, Vancouver, BC",
-    49.2678, -123.2530, LocalTime.of(6, 0), LocalTime.of(0, 0),
-    "Silent", "Indoor", "Library", true,
-    Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("5", "Koerner Library", "1958 Main Mall, Vancouver, BC",
-   49.2667, -123.2562, LocalTime.of(8, 0), LocalTime.of(20, 0),
-   "Silent", "Indoor", "Library", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("6", "Woodward Library", "2198 Health Sciences Mall, Vancouver, BC",
-   49.2637, -123.2469, LocalTime.of(9, 0), LocalTime.of(21, 0),
-   "Silent", "Indoor", "Library", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("7", "Asian Library", "1871 West Mall, Vancouver, BC",
-   49.2694, -123.2585, LocalTime.of(9, 0), LocalTime.of(21, 0),
-   "Silent", "Indoor", "Library", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("8", "Allard Law Library", "1822 East Mall, Vancouver, BC",
-   49.2685, -123.2520, LocalTime.of(8, 30), LocalTime.of(21, 0),
-   "Silent", "Indoor", "Library", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("9", "Allard - Common Areas", "1822 East Mall, Vancouver, BC",
-   49.2686, -123.2521, LocalTime.of(8, 30), LocalTime.of(21, 0),
-   "Moderate", "Indoor", "Open Area", true,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("10", "Nest - Upper Floors", "6133 University Blvd, Vancouver, BC",
-   49.2668, -123.2500, LocalTime.of(6, 0), LocalTime.of(23, 0),
-   "Loud", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("11", "Nest - The Egg", "6133 University Blvd, Vancouver, BC",
-   49.2669, -123.2501, LocalTime.of(6, 0), LocalTime.of(23, 0),
-   "Loud", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(
-   createStudySpot("12", "Life Sciences - Upper Floors", "2350 Health Sciences Mall, Vancouver, BC",
-    49.2634, -123.2477, LocalTime.of(8, 0), LocalTime.of(21, 0),
-    "Moderate", "Indoor", "Open Area", false,
-    Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(
-   createStudySpot("13", "Life Sciences - Lower Floors", "2350 Health Sciences Mall, Vancouver, BC",
-    49.2635, -123.2478, LocalTime.of(8, 0), LocalTime.of(21, 0),
-    "Moderate", "Indoor", "Open Area", false,
-    Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("14", "Life Sciences - Special Classrooms",
-   "2350 Health Sciences Mall, Vancouver, BC",
-   49.2636, -123.2479, LocalTime.of(8, 0), LocalTime.of(21, 0),
-   "Silent", "Indoor", "Quiet Room", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 1, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("15", "Hebb - Physics Drop-In Center (1st Floor)",
-   "2045 East Mall, Vancouver, BC",
-   49.2662, -123.2520, LocalTime.of(7, 30), LocalTime.of(17, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("16", "Hebb - Basement Study Area", "2045 East Mall, Vancouver, BC",
-   49.2663, -123.2521, LocalTime.of(7, 30), LocalTime.of(17, 0),
-   "Silent", "Indoor", "Quiet Room", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("17", "Education Building - Classrooms (Downstairs)",
-   "2125 Main Mall, Vancouver, BC",
-   49.2640, -123.2551, LocalTime.of(8, 0), LocalTime.of(20, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 1, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("18", "Arts Undergraduate Center", "1860 East Mall, Vancouver, BC",
-   49.2695, -123.2558, LocalTime.of(8, 0), LocalTime.of(21, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(
-   createStudySpot("19", "Buchanan - 3rd Floor Study Spot", "1866 Main Mall, Vancouver, BC",
-    49.2693, -123.2540, LocalTime.of(7, 30), LocalTime.of(20, 0),
-    "Moderate", "Indoor", "Open Area", false,
-    Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("20", "Buchanan - 2nd Floor Couches (Above Cafe)",
-   "1866 Main Mall, Vancouver, BC",
-   49.2694, -123.2541, LocalTime.of(7, 30), LocalTime.of(20, 0),
-   "Loud", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("21", "Alumni Center", "6163 University Blvd, Vancouver, BC",
-   49.2670, -123.2513, LocalTime.of(8, 0), LocalTime.of(18, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("22", "Hennings Building", "6224 Agricultural Rd, Vancouver, BC",
-   49.2665, -123.2527, LocalTime.of(7, 30), LocalTime.of(21, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("23", "CIRS Building", "2260 West Mall, Vancouver, BC",
-   49.2646, -123.2560, LocalTime.of(7, 30), LocalTime.of(19, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("24", "ESB (Earth Sciences Building)", "2207 Main Mall, Vancouver, BC",
-   49.2627, -123.2526, LocalTime.of(8, 0), LocalTime.of(20, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("25", "Sauder - Lower Level", "2053 Main Mall, Vancouver, BC",
-   49.2653, -123.2541, LocalTime.of(7, 0), LocalTime.of(22, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("26", "Sauder - Glass Rooms", "2053 Main Mall, Vancouver, BC",
-   49.2654, -123.2542, LocalTime.of(7, 0), LocalTime.of(22, 0),
-   "Silent", "Indoor", "Group Study Room", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 1, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("27", "Sauder - Main Floor Large Room", "2053 Main Mall, Vancouver, BC",
-   49.2655, -123.2543, LocalTime.of(7, 0), LocalTime.of(22, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("28", "ICICS (Computer Science)", "2366 Main Mall, Vancouver, BC",
-   49.2612, -123.2489, LocalTime.of(8, 0), LocalTime.of(22, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("29", "ICICS - Library", "2366 Main Mall, Vancouver, BC",
-   49.2613, -123.2490, LocalTime.of(8, 0), LocalTime.of(22, 0),
-   "Silent", "Indoor", "Library", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("30", "ICICS - Undergraduate Labs", "2366 Main Mall, Vancouver, BC",
-   49.2614, -123.2491, LocalTime.of(8, 0), LocalTime.of(22, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("31", "ICICS - Private Study Rooms", "2366 Main Mall, Vancouver, BC",
-   49.2615, -123.2492, LocalTime.of(8, 0), LocalTime.of(22, 0),
-   "Silent", "Indoor", "Group Study Room", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 1, "Projector", 1, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("32", "MacLeod Building", "2356 Main Mall, Vancouver, BC",
-   49.2614, -123.2502, LocalTime.of(8, 0), LocalTime.of(20, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 0)));
-  
-  spots.add(createStudySpot("33", "English Language Institute", "2121 West Mall, Vancouver, BC",
-   49.2698, -123.2591, LocalTime.of(8, 0), LocalTime.of(20, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  spots.add(createStudySpot("34", "Kaiser Building", "2332 Main Mall, Vancouver, BC",
-   49.2623, -123.2497, LocalTime.of(7, 0), LocalTime.of(18, 0),
-   "Moderate", "Indoor", "Open Area", false,
-   Map.of("WiFi", 1, "Washrooms", 1, "PrivateRoom", 0, "Projector", 0, "FoodOrDrinks", 1)));
-  
-  return spots;
+ /**
+  * Returns the study spots with the given IDs, for example
+  * {@code /api/studyspots?ids=a,b,c}. Spots are returned in the order their IDs are
+  * given; unknown and repeated IDs are skipped.
+  *
+  * @param ids IDs of the study spots
+  * @return List of the StudySpot objects found
+  */
+ @GetMapping(params = "ids")
+ public List<StudySpot> getStudySpotsByIds(@RequestParam List<String> ids) {
+  IdIndex index = currentIdIndex();
+  List<StudySpot> found = new ArrayList<>(ids.size());
+  for (String id : new LinkedHashSet<>(ids)) {
+   StudySpot spot = index.get(id.trim());
+   if (spot != null) {
+    found.add(spot);
+   }
+  }
+  return found;
+ }
+ 
+ /**
+  * Returns the spots that changed after the catalog version a client holds.
+  *
+  * <p>The response is {@code {"version": v, "full": false, "added": [...], "updated":
+  * [...], "removed": ["id", ...]}}, where every spot appears at most once with its net
+  * change. If the change log no longer reaches back to {@code since}, or the version is
+  * unknown, for example after a server restart, the response is {@code {"version": v,
+  * "full": true, "spots": [...]}} with the whole catalog instead. Either way the client
+  * holds version {@code v} afterwards.
+  *
+  * @param since  catalog version the client holds
+  * @param fields comma-separated StudySpot properties to include, or null for all; the
+  *               id is always included so the changes can be applied
+  * @return the changes or the full catalog, or 400 for an unknown field
+  */
+ @GetMapping("/changes")
+ public ResponseEntity<?> getChanges(@RequestParam long since, @RequestParam(required = false) String fields) {
+  SpotProjection projection;
+  try {
+   projection = SpotProjection.of(fields == null || fields.isBlank() ? null : "id," + fields);
+  } catch (IllegalArgumentException e) {
+   return badRequest(e.getMessage());
+  }
+  CatalogChangeLog.Delta delta = changeLog.changesSince(since);
+  if (delta == null) {
+   StudySpotCatalog.Version version = catalog.currentVersion();
+   List<StudySpot> spots = version.getSpots();
+   return json(version.getNumber(), gen -> {
+    gen.writeStartObject();
+    gen.writeNumberField("version", version.getNumber());
+    gen.writeBooleanField("full", true);
+    gen.writeFieldName("spots");
+    writeSpots(gen, projection, spots, 0, spots.size());
+    gen.writeEndObject();
+   });
+  }
+  return json(delta.getVersion(), gen -> {
+   gen.writeStartObject();
+   gen.writeNumberField("version", delta.getVersion());
+   gen.writeBooleanField("full", false);
+   gen.writeFieldName("added");
+   writeSpots(gen, projection, delta.getAdded(), 0, delta.getAdded().size());
+   gen.writeFieldName("updated");
+   writeSpots(gen, projection, delta.getUpdated(), 0, delta.getUpdated().size());
+   gen.writeArrayFieldStart("removed");
+   for (String id : delta.getRemoved()) {
+    gen.writeString(id);
+   }
+   gen.writeEndArray();
+   gen.writeEndObject();
+  });
+ }
+ 
+ /**
+  * Returns the number of the current catalog version.
+  *
+  * @return a map holding the version under {@code version}
+  */
+ @GetMapping("/version")
+ public Map<String, Long> getCatalogVersion() {
+  return Collections.singletonMap("version", catalog.currentVersion().getNumber());
+ }
+ 
+ /**
+  * Adds a study spot, or replaces the spot with the same ID.
+  *
+  * @param id      ID of the spot
+  * @param body    the complete spot as a JSON object; its ID must be absent or equal to
+  *                {@code id}
+  * @param ifMatch       catalog version the change is based on, if any
+  * @param authorization Authorization header carrying the admin token
+  * @return 201 with the spot if it was added, 200 if it replaced a spot, 400 if the spot
+  *         is invalid or names an unknown amenity, 401 or 403 if the request may not
+  *         change the catalog, or 412 if the catalog has changed since the If-Match version
+  */
+ @PutMapping("/{id}")
+ public ResponseEntity<?> putStudySpot(@PathVariable String id, @RequestBody JsonNode body,
+                                       @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+  ResponseEntity<?> denied = checkAdmin(authorization);
+  if (denied != null) {
+   return denied;
+  }
+  if (body == null || !body.isObject()) {
+   return badRequest("PUT body must be a JSON object");
+  }
+  String unknown = unknownAmenity(body);
+  if (unknown != null) {
+   return badRequest(unknown);
+  }
+  StudySpot spot;
+  try {
+   spot = objectMapper.treeToValue(body, StudySpot.class);
+  } catch (JsonProcessingException e) {
+   return badRequest(e.getOriginalMessage());
+  }
+  if (spot.getId() == null) {
+   spot.setId(id);
+  }
+  String invalid = validate(id, spot);
+  if (invalid != null) {
+   return badRequest(invalid);
+  }
+  Long expected = parseVersion(ifMatch);
+  StudySpotCatalog.Edited<Change> edited = catalog.edit(edit -> {
+   if (!edit.matches(expected)) return Change.PRECONDITION_FAILED;
+   return edit.put(spot) == null ? Change.CREATED : Change.UPDATED;
+  });
+  return respond(edited, spot);
+ }
+ 
+ /**
+  * Changes some properties of a study spot. Properties present in the body replace the
+  * stored ones as a whole; the amenities map in particular is replaced, not merged.
+  *
+  * @param id      ID of the spot
+  * @param patch   JSON object with the properties to change
+  * @param ifMatch       catalog version the change is based on, if any
+  * @param authorization Authorization header carrying the admin token
+  * @return 200 with the changed spot, 400 if the result is invalid or names an unknown
+  *         amenity, 401 or 403 if the request may not change the catalog, 404 if there is
+  *         no such spot, or 412 if the catalog has changed since the If-Match version
+  */
+ @PatchMapping("/{id}")
+ public ResponseEntity<?> patchStudySpot(@PathVariable String id, @RequestBody JsonNode patch,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                         @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+  ResponseEntity<?> denied = checkAdmin(authorization);
+  if (denied != null) {
+   return denied;
+  }
+  if (patch == null || !patch.isObject()) {
+   return badRequest("PATCH body must be a JSON object");
+  }
+  String unknown = unknownAmenity(patch);
+  if (unknown != null) {
+   return badRequest(unknown);
+  }
+  Long expected = parseVersion(ifMatch);
+  ObjectReader updater = objectMapper.readerFor(StudySpot.class);
+  StudySpot[] patched = new StudySpot[1];
+  String[] invalid = new String[1];
+  StudySpotCatalog.Edited<Change> edited = catalog.edit(edit -> {
+   if (!edit.matches(expected)) return Change.PRECONDITION_FAILED;
+   StudySpot current = edit.get(id);
+   if (current == null) return Change.NOT_FOUND;
+   StudySpot spot = new StudySpot(current);
+   try {
+    updater.withValueToUpdate(spot).readValue(patch);
+   } catch (JsonProcessingException e) {
+    invalid[0] = e.getOriginalMessage();
+    return Change.INVALID;
+   } catch (IOException e) {
+    throw new UncheckedIOException(e);
+   }
+   invalid[0] = validate(id, spot);
+   if (invalid[0] != null) return Change.INVALID;
+   edit.put(spot);
+   patched[0] = spot;
+   return Change.UPDATED;
+  });
+  if (edited.getResult() == Change.INVALID) {
+   return badRequest(invalid[0]);
+  }
+  return respond(edited, patched[0]);
+ }
+ 
+ /**
+  * Removes a study spot.
+  *
+  * @param id      ID of the spot
+  * @param ifMatch       catalog version the change is based on, if any
+  * @param authorization Authorization header carrying the admin token
+  * @return 204 if the spot was removed, 401 or 403 if the request may not change the
+  *         catalog, 404 if there is no such spot, or 412 if the catalog has changed since
+  *         the If-Match version
+  */
+ @DeleteMapping("/{id}")
+ public ResponseEntity<?> deleteStudySpot(@PathVariable String id,
+                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                          @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+  ResponseEntity<?> denied = checkAdmin(authorization);
+  if (denied != null) {
+   return denied;
+  }
+  Long expected = parseVersion(ifMatch);
+  StudySpotCatalog.Edited<Change> edited = catalog.edit(edit -> {
+   if (!edit.matches(expected)) return Change.PRECONDITION_FAILED;
+   return edit.remove(id) == null ? Change.NOT_FOUND : Change.DELETED;
+  });
+  return respond(edited, null);
  }
  
- private StudySpot createStudySpot(String id, String name, String address,
-                                   double lat, double lng,
-                                   LocalTime open, LocalTime close,
-                                   String noise, String indoorOutdoor, String spaceType,
-                                   boolean access, Map<String, Integer> amenities) {
-  StudySpot spot = new StudySpot();
-  spot.setId(id);
-  spot.setName(name);
-  spot.setLatitude(lat);
-  spot.setLongitude(lng);
-  spot.setOpenTime(open);
-  spot.setCloseTime(close);
-  spot.setNoiseLevel(noise);
-  spot.setIndoorOutdoor(indoorOutdoor);
-  spot.setSpaceType(spaceType);
-  spot.setAccessRequired(access);
-  spot.setAmenities(new HashMap<>(amenities));
-  return spot;
+ private enum Change {
+  CREATED, UPDATED, DELETED, NOT_FOUND, PRECONDITION_FAILED, INVALID
+ }
+ 
+ private static ResponseEntity<?> respond(StudySpotCatalog.Edited<Change> edited, StudySpot spot) {
+  String version = Long.toString(edited.getVersion().getNumber());
+  switch (edited.getResult()) {
+   case CREATED:
+    return ResponseEntity.status(HttpStatus.CREATED).header(VERSION_HEADER, version).body(spot);
+   case UPDATED:
+    return ResponseEntity.ok().header(VERSION_HEADER, version).body(spot);
+   case DELETED:
+    return ResponseEntity.status(HttpStatus.NO_CONTENT).header(VERSION_HEADER, version).build();
+   case NOT_FOUND:
+    return ResponseEntity.status(HttpStatus.NOT_FOUND).header(VERSION_HEADER, version).build();
+   default:
+    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).header(VERSION_HEADER, version).build();
+  }
+ }
+ 
+ /**
+  * Returns the response refusing a catalog change, or null if the request carries the
+  * admin token. The token is compared in constant time.
+  */
+ private ResponseEntity<?> checkAdmin(String authorization) {
+  if (adminToken == null) {
+   return ResponseEntity.status(HttpStatus.FORBIDDEN)
+    .body(Collections.singletonMap("error", "Catalog changes are disabled"));
+  }
+  String prefix = "Bearer ";
+  if (authorization == null || !authorization.regionMatches(true, 0, prefix, 0, prefix.length())
+   || !MessageDigest.isEqual(adminToken,
+   authorization.substring(prefix.length()).trim().getBytes(StandardCharsets.UTF_8))) {
+   return ResponseEntity.status(HttpStatus.UNAUTHORIZED).header(HttpHeaders.WWW_AUTHENTICATE, "Bearer")
+    .body(Collections.singletonMap("error", "Missing or wrong admin token"));
+  }
+  return null;
+ }
+ 
+ /**
+  * Returns why a request body's amenities cannot be stored, or null if every name is
+  * already registered. Runs before the body is bound, so a client cannot register names.
+  */
+ private static String unknownAmenity(JsonNode body) {
+  JsonNode amenities = body.get("amenities");
+  if (amenities == null || !amenities.isObject()) {
+   return null;
+  }
+  Iterator<String> names = amenities.fieldNames();
+  while (names.hasNext()) {
+   String name = names.next();
+   if (AmenityRegistry.lookup(name) < 0) {
+    return "Unknown amenity " + name;
+   }
+  }
+  return null;
+ }
+ 
+ /**
+  * Returns why a spot cannot be stored under the given ID, or null if it can.
+  */
+ private static String validate(String id, StudySpot spot) {
+  if (!id.equals(spot.getId())) {
+   return "Spot id " + spot.getId() + " does not match " + id;
+  }
+  if (id.isBlank()) {
+   return "Spot id must not be blank";
+  }
+  if (RESERVED_IDS.contains(id)) {
+   return "Spot id " + id + " is reserved";
+  }
+  if (!(spot.getLatitude() >= -90 && spot.getLatitude() <= 90)
+   || !(spot.getLongitude() >= -180 && spot.getLongitude() <= 180)) {
+   return "Coordinates out of range";
+  }
+  if (spot.getOpenTime() == null || spot.getCloseTime() == null) {
+   return "openTime and closeTime must be set";
+  }
+  if (isBlank(spot.getNoiseLevel()) || isBlank(spot.getIndoorOutdoor()) || isBlank(spot.getSpaceType())) {
+   return "noiseLevel, indoorOutdoor and spaceType must be set";
+  }
+  return null;
+ }
+ 
+ private static boolean isBlank(String value) {
+  return value == null || value.isBlank();
+ }
+ 
+ /**
+  * Parses an If-Match header holding a catalog version, quoted or not. A missing header
+  * or {@code *} places no condition.
+  */
+ private static Long parseVersion(String ifMatch) {
+  if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+   return null;
+  }
+  String value = ifMatch.trim();
+  if (value.startsWith("W/")) {
+   value = value.substring(2);
+  }
+  value = value.replace("\"", "");
+  try {
+   return Long.parseLong(value);
+  } catch (NumberFormatException e) {
+   return -1L;
+  }
+ }
+ 
+ private static void writeSpots(JsonGenerator gen, SpotProjection projection, List<StudySpot> spots,
+                                int from, int to) throws IOException {
+  gen.writeStartArray();
+  for (int i = from; i < to; i++) {
+   projection.write(gen, spots.get(i));
+  }
+  gen.writeEndArray();
+ }
+ 
+ private static ResponseEntity<byte[]> json(long version, JsonBody body) {
+  ByteArrayOutputStream out = new ByteArrayOutputStream();
+  try (JsonGenerator gen = JSON.createGenerator(out)) {
+   body.write(gen);
+  } catch (IOException e) {
+   throw new UncheckedIOException(e);
+  }
+  return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+   .header(VERSION_HEADER, Long.toString(version)).body(out.toByteArray());
+ }
+ 
+ private static ResponseEntity<Map<String, String>> badRequest(String message) {
+  return ResponseEntity.badRequest().body(Collections.singletonMap("error", message));
+ }
+ 
+ @FunctionalInterface
+ private interface JsonBody {
+  void write(JsonGenerator gen) throws IOException;
+ }
+ 
+ /**
+  * Returns the ID index of the current catalog, building it if the catalog was replaced
+  * without a publish notification.
+  */
+ private IdIndex currentIdIndex() {
+  StudySpotCatalog.Version version = catalog.currentVersion();
+  IdIndex index = idIndex;
+  if (index == null || index.spots != version.getSpots()) {
+   index = new IdIndex(version);
+   idIndex = index;
+  }
+  return index;
+ }
+ 
+ /**
+  * Maps each spot ID to its position in one catalog version. When IDs repeat, the first
+  * spot wins, as with a linear search.
+  */
+ private static final class IdIndex {
+  private final long version;
+  private final List<StudySpot> spots;
+  private final Map<String, Integer> positions;
+  
+  private final CatalogSnapshot.MappedSpots mapped;
+  
+  IdIndex(StudySpotCatalog.Version version) {
+   this.version = version.getNumber();
+   this.spots = version.getSpots();
+   this.positions = new HashMap<>(Math.max(16, (int) (spots.size() / 0.75f) + 1));
+   this.mapped = spots instanceof CatalogSnapshot.MappedSpots ? (CatalogSnapshot.MappedSpots) spots : null;
+   for (int i = 0; i < spots.size(); i++) {
+    positions.putIfAbsent(idAt(i), i);
+   }
+  }
+  
+  StudySpot get(String id) {
+   Integer position = positions.get(id);
+   return position == null ? null : spots.get(position);
+  }
+  
+  private String idAt(int i) {
+   return mapped != null ? mapped.id(i) : spots.get(i).getId();
+  }
+  
+  /**
+   * Returns an opaque cursor naming the spot at position i by position and ID, so a
+   * page boundary survives catalog reloads that do not remove that spot.
+   */
+  String cursorAt(int i) {
+   String cursor = i + ":" + idAt(i);
+   return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+  }
+  
+  /**
+   * Returns the position following the spot a cursor names, or -1 if the cursor is
+   * malformed or its spot is no longer in the catalog.
+   */
+  int positionAfter(String cursor) {
+   String decoded;
+   try {
+    decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+   } catch (IllegalArgumentException e) {
+    return -1;
+   }
+   int colon = decoded.indexOf(':');
+   if (colon < 0) return -1;
+   String id = decoded.substring(colon + 1);
+   try {
+    int position = Integer.parseInt(decoded.substring(0, colon));
+    if (position >= 0 && position < spots.size() && id.equals(idAt(position))) {
+     return position + 1;
+    }
+   } catch (NumberFormatException e) {
+    return -1;
+   }
+   Integer moved = positions.get(id);
+   return moved == null ? -1 : moved + 1;
+  }
  }
 }
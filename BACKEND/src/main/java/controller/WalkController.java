@@ -1,56 +1,196 @@
 package controller;
 
 import api.ApiIntegration;
+import api.GeocodeCache;
+import api.RouteCache;
+import model.StudySpot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * REST controller for walking distance calculations.
- * Provides an endpoint to get distance and duration between two points.
+ * Provides endpoints to get distance and duration between two points, and from one point
+ * to many study spots, answered from the precomputed walk matrix when both ends snap to
+ * its points and routed live otherwise.
  */
 @RestController
 @RequestMapping("/api")
 public class WalkController {
  
+ private static final Logger logger = LoggerFactory.getLogger(WalkController.class);
+ 
+ /**
+  * Maximum number of spots one /api/walk/many request may ask for.
+  */
+ public static final int MAX_SPOTS = 1000;
+ 
  private final ApiIntegration apiIntegration;
+ private final WalkMatrix walkMatrix;
+ private final StudySpotsController studySpotsController;
  
  /**
-  * Constructs a WalkController with injected ApiIntegration service.
+  * Constructs a WalkController that routes every request live.
   *
   * @param apiIntegration Service to compute distances
   */
- @Autowired
  public WalkController(ApiIntegration apiIntegration) {
+  this(apiIntegration, WalkMatrix.empty());
+ }
+ 
+ /**
+  * Constructs a WalkController over the bundled study spot catalog.
+  *
+  * @param apiIntegration Service to compute distances the matrix cannot answer
+  * @param walkMatrix     Precomputed routes between spots and grid cells
+  */
+ public WalkController(ApiIntegration apiIntegration, WalkMatrix walkMatrix) {
+  this(apiIntegration, walkMatrix, new StudySpotsController());
+ }
+ 
+ /**
+  * Constructs a WalkController with injected ApiIntegration service, walk matrix and
+  * study spot lookup.
+  *
+  * @param apiIntegration       Service to compute distances the matrix cannot answer
+  * @param walkMatrix           Precomputed routes between spots and grid cells
+  * @param studySpotsController Controller used to look up spots by ID
+  */
+ @Autowired
+ public WalkController(ApiIntegration apiIntegration, WalkMatrix walkMatrix,
+                       StudySpotsController studySpotsController) {
   this.apiIntegration = apiIntegration;
+  this.walkMatrix = walkMatrix;
+  this.studySpotsController = studySpotsController;
  }
  
  /**
-  * Calculates walking distance and duration between two coordinates.
+  * Calculates walking distance and duration between two coordinates. Requests the
+  * matrix cannot answer are completed asynchronously once OSRM responds, without holding
+  * a servlet thread in the meantime.
   *
   * @param originLat Latitude of origin
   * @param originLng Longitude of origin
   * @param destLat   Latitude of destination
   * @param destLng   Longitude of destination
-  * @return DistanceResponse containing distance in meters and duration in seconds
+  * @return Future of the DistanceResponse containing distance in meters and duration in seconds
   */
  @GetMapping("/walk")
- public DistanceResponse getWalkingDistance(
+ public CompletableFuture<DistanceResponse> getWalkingDistance(
   @RequestParam double originLat,
   @RequestParam double originLng,
   @RequestParam double destLat,
   @RequestParam double destLng
  ) {
-  try {
-   ApiIntegration.DistanceTime dt =
-    apiIntegration.getDistanceTime(originLat, originLng, destLat, destLng);
-   return new DistanceResponse(dt.distanceMeters, dt.durationSeconds);
-  } catch (ApiIntegration.ApiException e) {
-   e.printStackTrace();
-   return new DistanceResponse(0, 0);
-  } catch (Exception e) {
-   e.printStackTrace();
-   return new DistanceResponse(0, 0);
+  ApiIntegration.DistanceTime precomputed = walkMatrix.lookup(originLat, originLng, destLat, destLng);
+  if (precomputed != null) {
+   return CompletableFuture.completedFuture(
+    new DistanceResponse(precomputed.distanceMeters, precomputed.durationSeconds));
   }
+  return apiIntegration.getDistanceTimeAsync(originLat, originLng, destLat, destLng)
+   .handle((dt, error) -> {
+    if (error != null) {
+     logger.warn("Failed to route walk: {}", ApiIntegration.unwrap(error).getMessage());
+     return new DistanceResponse(0, 0);
+    }
+    return new DistanceResponse(dt.distanceMeters, dt.durationSeconds);
+   });
+ }
+ 
+ /**
+  * Calculates walking distance and duration from one coordinate to several study spots,
+  * for example {@code /api/walk/many?originLat=..&originLng=..&spotIds=a,b,c}. Spots the
+  * walk matrix cannot answer are routed together in as few OSRM table requests as
+  * possible, asynchronously. Results follow the order of the IDs; unknown and repeated
+  * IDs, and spots OSRM found no route to, are left out.
+  *
+  * @param originLat Latitude of origin
+  * @param originLng Longitude of origin
+  * @param spotIds   IDs of the destination spots, at most {@value #MAX_SPOTS}
+  * @return Future of 200 with one SpotWalk per routed spot, 400 if too many IDs are
+  * given, or 502 if the routing service fails
+  */
+ @GetMapping("/walk/many")
+ public CompletableFuture<ResponseEntity<?>> getWalkingDistances(
+  @RequestParam double originLat,
+  @RequestParam double originLng,
+  @RequestParam List<String> spotIds
+ ) {
+  if (spotIds.size() > MAX_SPOTS) {
+   return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+    .body(Collections.singletonMap("error", "At most " + MAX_SPOTS + " spot IDs per request")));
+  }
+  List<StudySpot> spots = studySpotsController.getStudySpotsByIds(spotIds);
+  ApiIntegration.DistanceTime[] routes = new ApiIntegration.DistanceTime[spots.size()];
+  List<Integer> live = new ArrayList<>();
+  for (int j = 0; j < routes.length; j++) {
+   StudySpot spot = spots.get(j);
+   routes[j] = walkMatrix.lookup(originLat, originLng, spot.getLatitude(), spot.getLongitude());
+   if (routes[j] == null) {
+    live.add(j);
+   }
+  }
+  if (live.isEmpty()) {
+   return CompletableFuture.completedFuture(ResponseEntity.ok(walks(spots, routes)));
+  }
+  
+  double[] lats = new double[live.size()];
+  double[] lngs = new double[live.size()];
+  for (int k = 0; k < lats.length; k++) {
+   lats[k] = spots.get(live.get(k)).getLatitude();
+   lngs[k] = spots.get(live.get(k)).getLongitude();
+  }
+  return apiIntegration.getDistanceMatrixAsync(originLat, originLng, lats, lngs)
+   .handle((routed, error) -> {
+    if (error != null) {
+     return ResponseEntity.status(HttpStatus.BAD_GATEWAY)
+      .body(Collections.singletonMap("error", ApiIntegration.unwrap(error).getMessage()));
+    }
+    for (int k = 0; k < routed.length; k++) {
+     routes[live.get(k)] = routed[k];
+    }
+    return ResponseEntity.ok(walks(spots, routes));
+   });
+ }
+ 
+ private static List<SpotWalk> walks(List<StudySpot> spots, ApiIntegration.DistanceTime[] routes) {
+  List<SpotWalk> walks = new ArrayList<>(routes.length);
+  for (int j = 0; j < routes.length; j++) {
+   if (routes[j] != null) {
+    walks.add(new SpotWalk(spots.get(j).getId(), routes[j].distanceMeters, routes[j].durationSeconds));
+   }
+  }
+  return walks;
+ }
+ 
+ /**
+  * Returns the route cache counters, including the fraction of live routes answered
+  * without a request to OSRM.
+  *
+  * @return current statistics
+  */
+ @GetMapping("/walk/cache-stats")
+ public RouteCache.Stats getRouteCacheStats() {
+  return apiIntegration.getRouteCacheStats();
+ }
+ 
+ /**
+  * Returns the geocode cache counters, including the fraction of geocodes answered
+  * without a request to Nominatim.
+  *
+  * @return current statistics
+  */
+ @GetMapping("/geocode/cache-stats")
+ public GeocodeCache.Stats getGeocodeCacheStats() {
+  return apiIntegration.getGeocodeCacheStats();
  }
  
  /**
@@ -65,4 +205,16 @@ public class WalkController {
    this.durationSeconds = durationSeconds;
   }
  }
+ 
+ /**
+  * DTO representing walking distance and duration to one study spot.
+  */
+ public static class SpotWalk extends DistanceResponse {
+  public final String spotId;
+  
+  public SpotWalk(String spotId, double distanceMeters, int durationSeconds) {
+   super(distanceMeters, durationSeconds);
+   this.spotId = spotId;
+  }
+ }
 }
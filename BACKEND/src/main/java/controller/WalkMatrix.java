@@ -0,0 +1,322 @@
+package controller;
+
+import api.ApiIntegration;
+import api.ApiIntegration.DistanceTime;
+import api.StraightLineRouter;
+import api.WalkingRouter;
+import config.JacksonConfig;
+import model.StudySpot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Precomputed walking distances and durations to every study spot, from every other spot
+ * and from the centre of every cell of a grid laid over the campus.
+ *
+ * <p>The file is little-endian: a header, the spot coordinates, then one row per origin
+ * (the spots first, then the grid cells row by row) holding a float distance in meters
+ * for every destination spot, followed by the same rows of int durations in seconds.
+ * Pairs the router could not connect hold NaN and -1. A matrix opened with
+ * {@link #open(Path, double)} is read straight from the mapped file.
+ *
+ * <p>{@link #lookup} answers a route when the destination lies within the snap distance
+ * of a spot and the origin lies within it of a spot or inside the grid, in which case the
+ * route from the cell's centre is returned. Everything else is left to live routing.
+ */
+public final class WalkMatrix {
+
+ static final int MAGIC = 0x584d4b57;
+ static final int FORMAT_VERSION = 1;
+
+ static final int HEADER_SIZE = 56;
+ static final int HEADER_MAGIC = 0;
+ static final int HEADER_VERSION = 4;
+ static final int HEADER_SPOT_COUNT = 8;
+ static final int HEADER_ROWS = 12;
+ static final int HEADER_COLS = 16;
+ static final int HEADER_MIN_LAT = 24;
+ static final int HEADER_MIN_LNG = 32;
+ static final int HEADER_CELL_LAT = 40;
+ static final int HEADER_CELL_LNG = 48;
+
+ /**
+  * Default distance in meters within which a point counts as being at a spot.
+  */
+ public static final double DEFAULT_SNAP_METERS = 25;
+
+ private static final double METERS_PER_DEGREE_LAT = 111_320.0;
+
+ private final ByteBuffer buffer;
+ private final int spotCount;
+ private final int rows;
+ private final int cols;
+ private final double minLat;
+ private final double minLng;
+ private final double cellLat;
+ private final double cellLng;
+ private final long distancesOffset;
+ private final long durationsOffset;
+ private final double snapMeters;
+ private final double[] latitudes;
+ private final double[] longitudes;
+ private final GeoGrid spots;
+
+ private WalkMatrix(ByteBuffer buffer, double snapMeters) {
+  this.buffer = buffer;
+  this.spotCount = buffer.getInt(HEADER_SPOT_COUNT);
+  this.rows = buffer.getInt(HEADER_ROWS);
+  this.cols = buffer.getInt(HEADER_COLS);
+  this.minLat = buffer.getDouble(HEADER_MIN_LAT);
+  this.minLng = buffer.getDouble(HEADER_MIN_LNG);
+  this.cellLat = buffer.getDouble(HEADER_CELL_LAT);
+  this.cellLng = buffer.getDouble(HEADER_CELL_LNG);
+  this.distancesOffset = HEADER_SIZE + 16L * spotCount;
+  this.durationsOffset = distancesOffset + 4L * origins() * spotCount;
+  this.snapMeters = snapMeters;
+  this.latitudes = new double[spotCount];
+  this.longitudes = new double[spotCount];
+  for (int i = 0; i < spotCount; i++) {
+   latitudes[i] = buffer.getDouble(HEADER_SIZE + 16 * i);
+   longitudes[i] = buffer.getDouble(HEADER_SIZE + 16 * i + 8);
+  }
+  this.spots = new GeoGrid(latitudes, longitudes);
+ }
+
+ /**
+  * Returns a matrix without any points, which answers no lookups.
+  */
+ public static WalkMatrix empty() {
+  ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+  buffer.putInt(HEADER_MAGIC, MAGIC).putInt(HEADER_VERSION, FORMAT_VERSION);
+  return new WalkMatrix(buffer, DEFAULT_SNAP_METERS);
+ }
+
+ /**
+  * Routes from every spot and every grid cell to every spot.
+  *
+  * @param studySpots   destination spots, also used as origins
+  * @param router       router to compute the routes with
+  * @param cellMeters   side of a grid cell in meters
+  * @param marginMeters distance the grid extends beyond the outermost spots
+  * @return the matrix, held in memory
+  * @throws IllegalArgumentException if the matrix would not fit a file
+  */
+ public static WalkMatrix build(List<StudySpot> studySpots, WalkingRouter router, double cellMeters,
+                                double marginMeters) {
+  int n = studySpots.size();
+  double loLat = Double.POSITIVE_INFINITY, hiLat = Double.NEGATIVE_INFINITY;
+  double loLng = Double.POSITIVE_INFINITY, hiLng = Double.NEGATIVE_INFINITY;
+  double[] lats = new double[n];
+  double[] lngs = new double[n];
+  for (int i = 0; i < n; i++) {
+   lats[i] = studySpots.get(i).getLatitude();
+   lngs[i] = studySpots.get(i).getLongitude();
+   loLat = Math.min(loLat, lats[i]);
+   hiLat = Math.max(hiLat, lats[i]);
+   loLng = Math.min(loLng, lngs[i]);
+   hiLng = Math.max(hiLng, lngs[i]);
+  }
+  int gridRows = 0, gridCols = 0;
+  double stepLat = 0, stepLng = 0;
+  if (n > 0 && cellMeters > 0) {
+   stepLat = cellMeters / METERS_PER_DEGREE_LAT;
+   stepLng = stepLat / Math.max(Math.cos(Math.toRadians((loLat + hiLat) / 2)), 1e-6);
+   double marginLat = marginMeters / METERS_PER_DEGREE_LAT;
+   double marginLng = marginLat * stepLng / stepLat;
+   loLat -= marginLat;
+   loLng -= marginLng;
+   gridRows = (int) Math.ceil((hiLat + marginLat - loLat) / stepLat);
+   gridCols = (int) Math.ceil((hiLng + marginLng - loLng) / stepLng);
+  }
+
+  long origins = n + (long) gridRows * gridCols;
+  long size = HEADER_SIZE + 16L * n + 8L * origins * n;
+  if (size > Integer.MAX_VALUE) {
+   throw new IllegalArgumentException("Walk matrix too large: " + size + " bytes");
+  }
+  ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+  buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(n).putInt(gridRows).putInt(gridCols).putInt(0)
+   .putDouble(loLat).putDouble(loLng).putDouble(stepLat).putDouble(stepLng);
+  for (int i = 0; i < n; i++) {
+   buffer.putDouble(lats[i]).putDouble(lngs[i]);
+  }
+  long distances = buffer.position();
+  long durations = distances + 4L * origins * n;
+  for (long o = 0; o < origins; o++) {
+   double lat, lng;
+   if (o < n) {
+    lat = lats[(int) o];
+    lng = lngs[(int) o];
+   } else {
+    int cell = (int) (o - n);
+    lat = loLat + (cell / gridCols + 0.5) * stepLat;
+    lng = loLng + (cell % gridCols + 0.5) * stepLng;
+   }
+   DistanceTime[] routes = router.routes(lat, lng, lats, lngs);
+   for (int j = 0; j < n; j++) {
+    int at = (int) (4 * (o * n + j));
+    buffer.putFloat((int) distances + at, routes[j] != null ? (float) routes[j].distanceMeters : Float.NaN);
+    buffer.putInt((int) durations + at, routes[j] != null ? routes[j].durationSeconds : -1);
+   }
+  }
+  buffer.clear();
+  return new WalkMatrix(buffer, DEFAULT_SNAP_METERS);
+ }
+
+ /**
+  * Maps a matrix file into memory.
+  *
+  * @param file       matrix file
+  * @param snapMeters distance in meters within which a point counts as being at a spot
+  * @return the matrix
+  * @throws IOException if the file cannot be read or is not a valid matrix
+  */
+ public static WalkMatrix open(Path file, double snapMeters) throws IOException {
+  MappedByteBuffer buffer;
+  try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+   long size = channel.size();
+   if (size > Integer.MAX_VALUE) {
+    throw new IOException("Walk matrix too large to map: " + file);
+   }
+   buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+  }
+  buffer.order(ByteOrder.LITTLE_ENDIAN);
+  if (buffer.capacity() < HEADER_SIZE || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+   throw new IOException("Not a walk matrix: " + file);
+  }
+  if (buffer.getInt(HEADER_VERSION) != FORMAT_VERSION) {
+   throw new IOException("Unsupported walk matrix version " + buffer.getInt(HEADER_VERSION) + ": " + file);
+  }
+  long n = buffer.getInt(HEADER_SPOT_COUNT);
+  long origins = n + (long) buffer.getInt(HEADER_ROWS) * buffer.getInt(HEADER_COLS);
+  if (HEADER_SIZE + 16L * n + 8L * origins * n != buffer.capacity()) {
+   throw new IOException("Truncated walk matrix: " + file);
+  }
+  return new WalkMatrix(buffer, snapMeters);
+ }
+
+ /**
+  * Writes the matrix to a file, replacing any existing file atomically where the file
+  * system allows it.
+  *
+  * @param file matrix file to write
+  * @throws IOException if the file cannot be written
+  */
+ public void write(Path file) throws IOException {
+  ByteBuffer out = buffer.duplicate();
+  out.clear();
+  Path target = file.toAbsolutePath();
+  Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+  try {
+   try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+    while (out.hasRemaining()) {
+     channel.write(out);
+    }
+    channel.force(true);
+   }
+   try {
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+   } catch (AtomicMoveNotSupportedException e) {
+    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+   }
+  } finally {
+   Files.deleteIfExists(temp);
+  }
+ }
+
+ /**
+  * Returns the precomputed route between two points if both snap to points of the matrix.
+  *
+  * @param originLat origin latitude
+  * @param originLng origin longitude
+  * @param destLat   destination latitude
+  * @param destLng   destination longitude
+  * @return the route, or null if it has to be routed live
+  */
+ public DistanceTime lookup(double originLat, double originLng, double destLat, double destLng) {
+  int dest = nearestSpot(destLat, destLng);
+  if (dest < 0) return null;
+  int origin = nearestSpot(originLat, originLng);
+  if (origin < 0) {
+   int cell = cellOf(originLat, originLng);
+   if (cell < 0) return null;
+   origin = spotCount + cell;
+  }
+  long at = 4L * ((long) origin * spotCount + dest);
+  float distance = buffer.getFloat((int) (distancesOffset + at));
+  if (Float.isNaN(distance)) return null;
+  return new DistanceTime(distance, buffer.getInt((int) (durationsOffset + at)));
+ }
+
+ /**
+  * Returns the number of destination spots.
+  */
+ public int spotCount() {
+  return spotCount;
+ }
+
+ /**
+  * Returns the number of grid cells.
+  */
+ public int cellCount() {
+  return rows * cols;
+ }
+
+ private long origins() {
+  return spotCount + (long) rows * cols;
+ }
+
+ private int nearestSpot(double lat, double lng) {
+  int nearest = -1;
+  double best = Double.POSITIVE_INFINITY;
+  for (int i : spots.within(lat, lng, snapMeters)) {
+   double meters = GeoGrid.haversineMeters(lat, lng, latitudes[i], longitudes[i]);
+   if (meters < best) {
+    best = meters;
+    nearest = i;
+   }
+  }
+  return nearest;
+ }
+
+ private int cellOf(double lat, double lng) {
+  if (rows == 0 || cols == 0) return -1;
+  double row = Math.floor((lat - minLat) / cellLat);
+  double col = Math.floor((lng - minLng) / cellLng);
+  if (row < 0 || row >= rows || col < 0 || col >= cols) return -1;
+  return (int) row * cols + (int) col;
+ }
+
+ /**
+  * Builds a walk matrix for a catalog.
+  *
+  * @param args input catalog file, output matrix file, router ({@code osrm} or
+  *             {@code straight}), and optionally the cell size and the grid margin in meters
+  * @throws IOException if either file cannot be accessed
+  */
+ public static void main(String[] args) throws IOException {
+  if (args.length < 3 || args.length > 5) {
+   System.err.println("Usage: WalkMatrix <catalog.json|catalog.csv|catalog.snap> <output.walk> <osrm|straight>"
+    + " [cellMeters] [marginMeters]");
+   System.exit(2);
+  }
+  List<StudySpot> spots = new CatalogLoader(new JacksonConfig().objectMapper()).load(Path.of(args[0]));
+  WalkingRouter router = args[2].equalsIgnoreCase("osrm") ? new ApiIntegration() : new StraightLineRouter();
+  double cellMeters = args.length > 3 ? Double.parseDouble(args[3]) : 50;
+  double marginMeters = args.length > 4 ? Double.parseDouble(args[4]) : 200;
+  WalkMatrix matrix = build(spots, router, cellMeters, marginMeters);
+  matrix.write(Path.of(args[1]));
+  System.out.println("Wrote walks from " + spots.size() + " spots and " + matrix.cellCount()
+   + " grid cells to " + args[1]);
+ }
+}
@@ -0,0 +1,76 @@
+package model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only map view of a spot's amenity bitmasks. Keys are the amenities present and
+ * values are 1 if the amenity is available, otherwise 0. Entries are ordered by their
+ * AmenityRegistry bit.
+ */
+final class AmenityMap extends AbstractMap<String, Integer> {
+
+ private static final Integer AVAILABLE = 1;
+ private static final Integer UNAVAILABLE = 0;
+
+ private final long keys;
+ private final long values;
+
+ AmenityMap(long keys, long values) {
+  this.keys = keys;
+  this.values = values;
+ }
+
+ @Override
+ public int size() {
+  return Long.bitCount(keys);
+ }
+
+ @Override
+ public boolean containsKey(Object key) {
+  int bit = AmenityRegistry.lookup(key);
+  return bit >= 0 && (keys & (1L << bit)) != 0;
+ }
+
+ @Override
+ public Integer get(Object key) {
+  int bit = AmenityRegistry.lookup(key);
+  if (bit < 0 || (keys & (1L << bit)) == 0) return null;
+  return (values & (1L << bit)) != 0 ? AVAILABLE : UNAVAILABLE;
+ }
+
+ @Override
+ public Set<Map.Entry<String, Integer>> entrySet() {
+  return new AbstractSet<>() {
+   @Override
+   public Iterator<Map.Entry<String, Integer>> iterator() {
+    return new Iterator<>() {
+     private long remaining = keys;
+
+     @Override
+     public boolean hasNext() {
+      return remaining != 0;
+     }
+
+     @Override
+     public Map.Entry<String, Integer> next() {
+      if (remaining == 0) throw new NoSuchElementException();
+      int bit = Long.numberOfTrailingZeros(remaining);
+      remaining &= remaining - 1;
+      return new SimpleImmutableEntry<>(AmenityRegistry.nameOf(bit),
+       (values & (1L << bit)) != 0 ? AVAILABLE : UNAVAILABLE);
+     }
+    };
+   }
+
+   @Override
+   public int size() {
+    return Long.bitCount(keys);
+   }
+  };
+ }
+}
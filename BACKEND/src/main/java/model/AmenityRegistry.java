@@ -0,0 +1,78 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry assigning each amenity name a fixed bit, so a spot's amenities
+ * can be stored as two bitmasks instead of a map. The amenities of the bundled catalog
+ * are registered up front; other names are added the first time a catalog file uses
+ * them, up to 64 in total. Bits are never reused, so only trusted input may register
+ * names: the catalog mutation API accepts registered names only, checking them with
+ * {@link #lookup(Object)} before a request body is bound to a StudySpot.
+ */
+public final class AmenityRegistry {
+
+ /**
+  * Amenities known in advance, in bit order.
+  */
+ private static final String[] PREDEFINED = {"WiFi", "Washrooms", "PrivateRoom", "Projector", "FoodOrDrinks"};
+
+ private static final Map<String, Integer> BITS = new ConcurrentHashMap<>();
+ private static volatile String[] names = new String[0];
+
+ static {
+  for (String name : PREDEFINED) {
+   bitOf(name);
+  }
+ }
+
+ private AmenityRegistry() {
+ }
+
+ /**
+  * Returns the bit of an amenity, registering the name if it is new.
+  *
+  * @param name amenity name
+  * @return bit in the range 0 to 63
+  * @throws IllegalArgumentException if 64 amenities are already registered
+  */
+ public static int bitOf(String name) {
+  Integer bit = BITS.get(name);
+  if (bit != null) return bit;
+  synchronized (AmenityRegistry.class) {
+   bit = BITS.get(name);
+   if (bit != null) return bit;
+   if (names.length == Long.SIZE) {
+    throw new IllegalArgumentException("Too many distinct amenities: " + name);
+   }
+   String[] grown = Arrays.copyOf(names, names.length + 1);
+   grown[names.length] = name;
+   names = grown;
+   BITS.put(name, names.length - 1);
+   return names.length - 1;
+  }
+ }
+
+ /**
+  * Returns the bit of a registered amenity without registering it.
+  *
+  * @param name amenity name
+  * @return the bit, or -1 if the name is not registered
+  */
+ public static int lookup(Object name) {
+  Integer bit = BITS.get(name);
+  return bit == null ? -1 : bit;
+ }
+
+ /**
+  * Returns the name registered for a bit.
+  *
+  * @param bit registered bit
+  * @return the amenity name
+  */
+ public static String nameOf(int bit) {
+  return names[bit];
+ }
+}
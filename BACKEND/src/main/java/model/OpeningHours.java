@@ -0,0 +1,450 @@
+package model;
+
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Weekly opening hours of a study spot, compiled into sorted, non-overlapping minute-of-week
+ * intervals. Minute 0 is Monday 00:00 and the week wraps around after Sunday 24:00, so a
+ * spot that opens Sunday evening and closes Monday morning is open across the wrap.
+ *
+ * <p>A daily range closes on the next day when its closing time is not after its opening
+ * time: 22:00-02:00 is open past midnight, 06:00-00:00 is open until the end of the day,
+ * and a range opening and closing at the same time is open around the clock.
+ *
+ * <p>Per-day schedules are written as comma-separated ranges such as
+ * {@code 08:00-12:00,13:00-02:00}, or {@code closed}; {@code 24:00} may be used as a
+ * closing time. A whole week is written as {@code MONDAY=08:00-22:00;SUNDAY=closed}.
+ */
+public final class OpeningHours {
+
+ public static final int MINUTES_PER_DAY = 24 * 60;
+ public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+ /**
+  * Time zone that "now" and "today" refer to.
+  */
+ public static final ZoneId CAMPUS_ZONE = ZoneId.of("America/Vancouver");
+
+ /**
+  * Schedule value of a day without opening hours.
+  */
+ public static final String CLOSED = "closed";
+
+ /**
+  * Coverage of a time window by a spot's opening hours.
+  */
+ public enum Coverage {
+  /** Open for the whole window. */
+  FULL,
+  /** Open for part of the window. */
+  PARTIAL,
+  /** Closed for the whole window. */
+  NONE
+ }
+
+ private static final Map<Integer, OpeningHours> DAILY = new ConcurrentHashMap<>();
+
+ private final int[] starts;
+ private final int[] ends;
+
+ private OpeningHours(int[] starts, int[] ends) {
+  this.starts = starts;
+  this.ends = ends;
+ }
+
+ /**
+  * Returns the hours of a spot open the same hours every day. Instances are shared.
+  *
+  * @param open  opening time
+  * @param close closing time; not after {@code open} means the next day
+  * @return the compiled hours
+  */
+ public static OpeningHours daily(LocalTime open, LocalTime close) {
+  return daily(minuteOfDay(open), minuteOfDay(close));
+ }
+
+ /**
+  * Returns the hours of a spot open the same hours every day. Instances are shared.
+  *
+  * @param openMinute  opening minute of day, 0 to 1440
+  * @param closeMinute closing minute of day, 0 to 1440
+  * @return the compiled hours
+  */
+ public static OpeningHours daily(int openMinute, int closeMinute) {
+  checkMinuteOfDay(openMinute);
+  checkMinuteOfDay(closeMinute);
+  return DAILY.computeIfAbsent(openMinute * (MINUTES_PER_DAY + 1) + closeMinute, key -> {
+   Builder builder = new Builder();
+   for (DayOfWeek day : DayOfWeek.values()) {
+    builder.addRange(day, openMinute, closeMinute);
+   }
+   return builder.build();
+  });
+ }
+
+ /**
+  * Returns the hours of a spot with a per-day schedule. Days missing from the schedule
+  * use the daily opening and closing times.
+  *
+  * @param open     daily opening time
+  * @param close    daily closing time
+  * @param schedule ranges by day as described in the class comment, or null
+  * @return the compiled hours
+  * @throws IllegalArgumentException if a range is malformed
+  */
+ public static OpeningHours of(LocalTime open, LocalTime close, Map<DayOfWeek, String> schedule) {
+  if (schedule == null || schedule.isEmpty()) {
+   return daily(open, close);
+  }
+  int openMinute = minuteOfDay(open);
+  int closeMinute = minuteOfDay(close);
+  Builder builder = new Builder();
+  for (DayOfWeek day : DayOfWeek.values()) {
+   String ranges = schedule.get(day);
+   if (ranges == null) {
+    builder.addRange(day, openMinute, closeMinute);
+   } else {
+    for (int[] range : parseRanges(ranges)) {
+     builder.addRange(day, range[0], range[1]);
+    }
+   }
+  }
+  return builder.build();
+ }
+
+ /**
+  * Parses the ranges of one day.
+  *
+  * @param ranges comma-separated ranges, or "closed"
+  * @return opening and closing minute of day of each range
+  * @throws IllegalArgumentException if a range is malformed
+  */
+ public static List<int[]> parseRanges(String ranges) {
+  String trimmed = ranges.trim();
+  if (trimmed.equalsIgnoreCase(CLOSED)) {
+   return List.of();
+  }
+  List<int[]> parsed = new ArrayList<>();
+  for (String range : trimmed.split(",")) {
+   int dash = range.indexOf('-');
+   if (dash < 0) {
+    throw new IllegalArgumentException("Invalid opening hours '" + range.trim() + "', expected HH:mm-HH:mm");
+   }
+   parsed.add(new int[] {parseMinute(range.substring(0, dash)), parseMinute(range.substring(dash + 1))});
+  }
+  return parsed;
+ }
+
+ /**
+  * Parses a weekly schedule such as {@code MONDAY=08:00-22:00;SUNDAY=closed}.
+  *
+  * @param schedule schedule text; day names are case-insensitive
+  * @return ranges by day, or null if the text is blank
+  * @throws IllegalArgumentException if a day or range is malformed
+  */
+ public static Map<DayOfWeek, String> parseSchedule(String schedule) {
+  if (schedule == null || schedule.isBlank()) return null;
+  Map<DayOfWeek, String> days = new EnumMap<>(DayOfWeek.class);
+  for (String entry : schedule.split(";")) {
+   if (entry.isBlank()) continue;
+   int eq = entry.indexOf('=');
+   if (eq < 0) {
+    throw new IllegalArgumentException("Invalid schedule entry '" + entry.trim() + "', expected DAY=ranges");
+   }
+   String ranges = entry.substring(eq + 1).trim();
+   parseRanges(ranges);
+   days.put(parseDay(entry.substring(0, eq)), ranges);
+  }
+  return days;
+ }
+
+ /**
+  * Formats a weekly schedule in the form read by {@link #parseSchedule(String)}.
+  *
+  * @param schedule ranges by day
+  * @return the schedule text, days in week order
+  */
+ public static String formatSchedule(Map<DayOfWeek, String> schedule) {
+  StringBuilder text = new StringBuilder();
+  for (Map.Entry<DayOfWeek, String> day : new EnumMap<>(schedule).entrySet()) {
+   if (text.length() > 0) text.append(';');
+   text.append(day.getKey()).append('=').append(day.getValue());
+  }
+  return text.toString();
+ }
+
+ /**
+  * Parses a day name such as {@code Monday} or {@code MONDAY}.
+  *
+  * @throws IllegalArgumentException if the name is not a day of the week
+  */
+ public static DayOfWeek parseDay(String day) {
+  try {
+   return DayOfWeek.valueOf(day.trim().toUpperCase(Locale.ROOT));
+  } catch (IllegalArgumentException e) {
+   throw new IllegalArgumentException("Unknown day of week '" + day.trim() + "'");
+  }
+ }
+
+ /**
+  * Converts a time to minutes since midnight, rounding any partial minute up so that
+  * {@link LocalTime#MAX} maps to 1440 and stays distinct from 23:59.
+  *
+  * @param time time to convert
+  * @return minute of day in the range 0 to 1440
+  */
+ public static int minuteOfDay(LocalTime time) {
+  long nanosPerMinute = 60_000_000_000L;
+  return (int) ((time.toNanoOfDay() + nanosPerMinute - 1) / nanosPerMinute);
+ }
+
+ /**
+  * Returns the minute of the week of a minute of day on the given day.
+  *
+  * @param day         day of the week
+  * @param minuteOfDay minute of day, 0 to 1440
+  * @return minute of week; 1440 on Sunday wraps to 0
+  */
+ public static int minuteOfWeek(DayOfWeek day, int minuteOfDay) {
+  return ((day.getValue() - 1) * MINUTES_PER_DAY + minuteOfDay) % MINUTES_PER_WEEK;
+ }
+
+ /**
+  * Returns the current minute of the week on campus.
+  *
+  * @param clock clock to read
+  * @return minute of week, 0 to 10079
+  */
+ public static int minuteOfWeek(Clock clock) {
+  ZonedDateTime now = ZonedDateTime.now(clock).withZoneSameInstant(CAMPUS_ZONE);
+  return minuteOfWeek(now.getDayOfWeek(), now.getHour() * 60 + now.getMinute());
+ }
+
+ /**
+  * Returns the length of a daily window in minutes. A window that closes at or before
+  * its opening time runs into the next day, except that opening and closing at the same
+  * time is a single instant.
+  *
+  * @param openMinute  start of the window, minute of day
+  * @param closeMinute end of the window, minute of day
+  * @return length in minutes, 0 to 1440
+  */
+ public static int windowLength(int openMinute, int closeMinute) {
+  return closeMinute >= openMinute ? closeMinute - openMinute : closeMinute + MINUTES_PER_DAY - openMinute;
+ }
+
+ /**
+  * Returns true if the spot is open at the start of the given minute.
+  *
+  * @param minuteOfWeek minute of week, 0 to 10079
+  */
+ public boolean isOpenAt(int minuteOfWeek) {
+  int k = firstEndingAfter(minuteOfWeek);
+  return k < starts.length && starts[k] <= minuteOfWeek;
+ }
+
+ /**
+  * Returns how much of a window the spot is open for. A window of length 0 is an instant,
+  * covered if the spot is open at it or closes exactly then.
+  *
+  * @param start  start of the window, minute of week
+  * @param length length in minutes, 0 to 10080; the window may wrap past the end of the week
+  * @return the coverage of the window
+  */
+ public Coverage coverage(int start, int length) {
+  if (length == 0) {
+   return isOpenAt(start) || closesAt(start) ? Coverage.FULL : Coverage.NONE;
+  }
+  int end = start + length;
+  int open = end <= MINUTES_PER_WEEK
+   ? openMinutes(start, end)
+   : openMinutes(start, MINUTES_PER_WEEK) + openMinutes(0, end - MINUTES_PER_WEEK);
+  if (open == length) return Coverage.FULL;
+  return open > 0 ? Coverage.PARTIAL : Coverage.NONE;
+ }
+
+ /**
+  * Returns how much of a window a spot open the same hours every day is open for,
+  * straight from its opening and closing minute of day. Gives the same result as
+  * {@code daily(openMinute, closeMinute).coverage(start, length)} without looking up the
+  * compiled hours.
+  *
+  * @param openMinute  opening minute of day, 0 to 1440
+  * @param closeMinute closing minute of day, 0 to 1440
+  * @param start       start of the window, minute of week
+  * @param length      length in minutes, 0 to 10080
+  * @return the coverage of the window
+  */
+ public static Coverage dailyCoverage(int openMinute, int closeMinute, int start, int length) {
+  int hours = openMinute == closeMinute ? MINUTES_PER_DAY : windowLength(openMinute, closeMinute);
+  if (hours >= MINUTES_PER_DAY) return Coverage.FULL;
+  int minute = start % MINUTES_PER_DAY;
+  if (length == 0) {
+   boolean open = openedBefore(openMinute, hours, minute + 1) > openedBefore(openMinute, hours, minute);
+   return open || (openMinute + hours) % MINUTES_PER_DAY == minute ? Coverage.FULL : Coverage.NONE;
+  }
+  int end = minute + length;
+  int open = (end / MINUTES_PER_DAY) * hours + openedBefore(openMinute, hours, end % MINUTES_PER_DAY)
+   - openedBefore(openMinute, hours, minute);
+  if (open == length) return Coverage.FULL;
+  return open > 0 ? Coverage.PARTIAL : Coverage.NONE;
+ }
+
+ /**
+  * Returns the open minutes in the first {@code minute} minutes of a day, for a spot that
+  * opens at {@code openMinute} every day for {@code hours} minutes, counting the tail of
+  * the previous day's hours.
+  */
+ private static int openedBefore(int openMinute, int hours, int minute) {
+  int carried = Math.max(0, Math.min(minute, openMinute + hours - MINUTES_PER_DAY));
+  return carried + Math.max(0, Math.min(minute, openMinute + hours) - openMinute);
+ }
+
+ /**
+  * Returns the number of intervals the week is divided into.
+  */
+ public int intervalCount() {
+  return starts.length;
+ }
+
+ /**
+  * Returns the first minute of interval k.
+  */
+ public int intervalStart(int k) {
+  return starts[k];
+ }
+
+ /**
+  * Returns the minute after the last minute of interval k.
+  */
+ public int intervalEnd(int k) {
+  return ends[k];
+ }
+
+ private boolean closesAt(int minuteOfWeek) {
+  for (int end : ends) {
+   if (end % MINUTES_PER_WEEK == minuteOfWeek) return true;
+  }
+  return false;
+ }
+
+ /**
+  * Returns the number of open minutes in [from, to), where 0 &lt;= from &lt; to &lt;= 10080.
+  */
+ private int openMinutes(int from, int to) {
+  int open = 0;
+  for (int k = firstEndingAfter(from); k < starts.length && starts[k] < to; k++) {
+   open += Math.min(ends[k], to) - Math.max(starts[k], from);
+  }
+  return open;
+ }
+
+ /**
+  * Returns the first interval that ends after the given minute.
+  */
+ private int firstEndingAfter(int minute) {
+  int low = 0;
+  int high = ends.length;
+  while (low < high) {
+   int mid = (low + high) >>> 1;
+   if (ends[mid] <= minute) {
+    low = mid + 1;
+   } else {
+    high = mid;
+   }
+  }
+  return low;
+ }
+
+ private static int parseMinute(String time) {
+  String trimmed = time.trim();
+  if (trimmed.equals("24:00")) return MINUTES_PER_DAY;
+  try {
+   return minuteOfDay(LocalTime.parse(trimmed));
+  } catch (DateTimeParseException e) {
+   throw new IllegalArgumentException("Invalid time '" + trimmed + "'", e);
+  }
+ }
+
+ private static void checkMinuteOfDay(int minute) {
+  if (minute < 0 || minute > MINUTES_PER_DAY) {
+   throw new IllegalArgumentException("Minute of day out of range: " + minute);
+  }
+ }
+
+ @Override
+ public boolean equals(Object o) {
+  if (this == o) return true;
+  if (!(o instanceof OpeningHours)) return false;
+  OpeningHours other = (OpeningHours) o;
+  return Arrays.equals(starts, other.starts) && Arrays.equals(ends, other.ends);
+ }
+
+ @Override
+ public int hashCode() {
+  return 31 * Arrays.hashCode(starts) + Arrays.hashCode(ends);
+ }
+
+ @Override
+ public String toString() {
+  StringBuilder text = new StringBuilder("OpeningHours[");
+  for (int k = 0; k < starts.length; k++) {
+   if (k > 0) text.append(", ");
+   text.append(starts[k]).append('-').append(ends[k]);
+  }
+  return text.append(']').toString();
+ }
+
+ /**
+  * Collects ranges and merges them into sorted, disjoint intervals.
+  */
+ private static final class Builder {
+  private final List<int[]> intervals = new ArrayList<>();
+
+  void addRange(DayOfWeek day, int openMinute, int closeMinute) {
+   int start = (day.getValue() - 1) * MINUTES_PER_DAY + openMinute;
+   int length = openMinute == closeMinute ? MINUTES_PER_DAY : windowLength(openMinute, closeMinute);
+   int end = start + length;
+   if (start >= MINUTES_PER_WEEK) {
+    start -= MINUTES_PER_WEEK;
+    end -= MINUTES_PER_WEEK;
+   }
+   if (end <= MINUTES_PER_WEEK) {
+    intervals.add(new int[] {start, end});
+   } else {
+    intervals.add(new int[] {start, MINUTES_PER_WEEK});
+    intervals.add(new int[] {0, end - MINUTES_PER_WEEK});
+   }
+  }
+
+  OpeningHours build() {
+   Collections.sort(intervals, (a, b) -> Integer.compare(a[0], b[0]));
+   int[] starts = new int[intervals.size()];
+   int[] ends = new int[intervals.size()];
+   int count = 0;
+   for (int[] interval : intervals) {
+    if (count > 0 && interval[0] <= ends[count - 1]) {
+     ends[count - 1] = Math.max(ends[count - 1], interval[1]);
+    } else {
+     starts[count] = interval[0];
+     ends[count] = interval[1];
+     count++;
+    }
+   }
+   return new OpeningHours(Arrays.copyOf(starts, count), Arrays.copyOf(ends, count));
+  }
+ }
+}
@@ -1,6 +1,8 @@
 package model;
 
+import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Collections;
@@ -10,13 +12,20 @@ import java.util.Collections;
  */
 public class PreferencesModel {
  
- private static final String DEFAULT_NOISE = "Any";
- private static final String DEFAULT_INDOOR_OUTDOOR = "Any";
- private static final String DEFAULT_SPACE_TYPE = "Any";
- private static final boolean DEFAULT_ACCESS_REQUIRED = false;
- private static final int DEFAULT_MAX_DISTANCE = Integer.MAX_VALUE;
- private static final LocalTime DEFAULT_OPEN_TIME = LocalTime.MIN;
- private static final LocalTime DEFAULT_CLOSE_TIME = LocalTime.MAX;
+ /**
+  * Amenities a user can ask for, in the order they are listed to the user.
+  */
+ public static final List<String> AMENITY_KEYS =
+  List.of("WiFi", "Washrooms", "PrivateRoom", "Projector", "FoodOrDrinks");
+ 
+ static final String DEFAULT_NOISE = "Any";
+ static final String DEFAULT_INDOOR_OUTDOOR = "Any";
+ static final String DEFAULT_SPACE_TYPE = "Any";
+ static final boolean DEFAULT_ACCESS_REQUIRED = false;
+ static final int DEFAULT_MAX_DISTANCE = Integer.MAX_VALUE;
+ static final LocalTime DEFAULT_OPEN_TIME = LocalTime.MIN;
+ static final LocalTime DEFAULT_CLOSE_TIME = LocalTime.MAX;
+ static final DayOfWeek DEFAULT_DAY = DayOfWeek.MONDAY;
  
  private String noiseLevel;
  private String indoorOutdoor;
@@ -26,6 +35,7 @@ public class PreferencesModel {
  private int maxDistance;
  private LocalTime openTime;
  private LocalTime closeTime;
+ private DayOfWeek day;
  
  public PreferencesModel() {
   this.noiseLevel = DEFAULT_NOISE;
@@ -35,13 +45,12 @@ public class PreferencesModel {
   this.maxDistance = DEFAULT_MAX_DISTANCE;
   this.openTime = DEFAULT_OPEN_TIME;
   this.closeTime = DEFAULT_CLOSE_TIME;
+  this.day = DEFAULT_DAY;
   
   this.amenities = new HashMap<>();
-  amenities.put("WiFi", 0);
-  amenities.put("Washrooms", 0);
-  amenities.put("PrivateRoom", 0);
-  amenities.put("Projector", 0);
-  amenities.put("FoodOrDrinks", 0);
+  for (String key : AMENITY_KEYS) {
+   amenities.put(key, 0);
+  }
  }
  
  public String getNoiseLevel() {
@@ -76,6 +85,13 @@ public class PreferencesModel {
   return closeTime;
  }
  
+ /**
+  * Returns the day the hours window is taken on; Monday unless set.
+  */
+ public DayOfWeek getDay() {
+  return day;
+ }
+ 
  
  public void setNoiseLevel(String noiseLevel) {
   this.noiseLevel = noiseLevel;
@@ -105,6 +121,10 @@ public class PreferencesModel {
   this.closeTime = closeTime;
  }
  
+ public void setDay(DayOfWeek day) {
+  this.day = day;
+ }
+ 
  /**
   * Updates the value of a single amenity.
   *
@@ -117,6 +137,16 @@ public class PreferencesModel {
   }
  }
  
+ /**
+  * Returns an immutable copy of the current preferences.
+  *
+  * @return snapshot of these preferences
+  */
+ public PreferencesSnapshot snapshot() {
+  return new PreferencesSnapshot(noiseLevel, indoorOutdoor, spaceType, amenities, accessRequired,
+   maxDistance, openTime, closeTime, day);
+ }
+ 
  /**
   * Resets all preferences to default values.
   */
@@ -128,6 +158,7 @@ public class PreferencesModel {
   this.maxDistance = DEFAULT_MAX_DISTANCE;
   this.openTime = DEFAULT_OPEN_TIME;
   this.closeTime = DEFAULT_CLOSE_TIME;
+  this.day = DEFAULT_DAY;
   this.amenities.replaceAll((k, v) -> 0);
  }
 }
@@ -0,0 +1,230 @@
+package model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of user preferences for a single scoring request.
+ * Unlike PreferencesModel it can be shared freely between threads, so each request
+ * builds its own snapshot and nothing is kept between requests.
+ * Null fields fall back to the same defaults as PreferencesModel.
+ *
+ * <p>The preferred hours window is taken on one day of the week, Monday unless given to
+ * the constructor or set with {@link #withHours(DayOfWeek, boolean, int)}. Snapshots never
+ * read the clock: callers scoring against "today" resolve the day themselves, so equal
+ * preferences always make equal snapshots. A window closing before its
+ * start runs past midnight into the next day. The same method adds the hard filters
+ * "open at some point during the window" and "open at a given minute", which drop
+ * spots before they are scored.
+ */
+public final class PreferencesSnapshot {
+ 
+ /**
+  * Value of {@link #getOpenAt()} when spots are not filtered by a minute they must be
+  * open at.
+  */
+ public static final int ANY_TIME = -1;
+ 
+ private final String noiseLevel;
+ private final String indoorOutdoor;
+ private final String spaceType;
+ private final Map<String, Integer> amenities;
+ private final boolean accessRequired;
+ private final int maxDistance;
+ private final LocalTime openTime;
+ private final LocalTime closeTime;
+ private final DayOfWeek day;
+ private final boolean openDuringWindow;
+ private final int openAt;
+ private final int windowStart;
+ private final int windowLength;
+ 
+ /**
+  * Creates a snapshot with the given amenities selected.
+  *
+  * @param noiseLevel         preferred noise level, or "Any"
+  * @param indoorOutdoor      preferred location type, or "Any"
+  * @param spaceType          preferred space type, or "Any"
+  * @param selectedAmenities  amenity keys the user wants; keys outside
+  *                           {@link PreferencesModel#AMENITY_KEYS} are ignored
+  * @param accessRequired     true if spots requiring access should be preferred
+  * @param maxDistance        maximum distance in meters
+  * @param openTime           start of the preferred hours window
+  * @param closeTime          end of the preferred hours window
+  */
+ public PreferencesSnapshot(String noiseLevel, String indoorOutdoor, String spaceType,
+                            Collection<String> selectedAmenities, boolean accessRequired,
+                            int maxDistance, LocalTime openTime, LocalTime closeTime) {
+  this(noiseLevel, indoorOutdoor, spaceType, selectedAmenities, accessRequired, maxDistance,
+   openTime, closeTime, null);
+ }
+ 
+ /**
+  * Creates a snapshot with the given amenities selected and the hours window on the given
+  * day.
+  *
+  * @param noiseLevel         preferred noise level, or "Any"
+  * @param indoorOutdoor      preferred location type, or "Any"
+  * @param spaceType          preferred space type, or "Any"
+  * @param selectedAmenities  amenity keys the user wants; keys outside
+  *                           {@link PreferencesModel#AMENITY_KEYS} are ignored
+  * @param accessRequired     true if spots requiring access should be preferred
+  * @param maxDistance        maximum distance in meters
+  * @param openTime           start of the preferred hours window
+  * @param closeTime          end of the preferred hours window
+  * @param day                day the hours window starts on, or null for Monday
+  */
+ public PreferencesSnapshot(String noiseLevel, String indoorOutdoor, String spaceType,
+                            Collection<String> selectedAmenities, boolean accessRequired,
+                            int maxDistance, LocalTime openTime, LocalTime closeTime, DayOfWeek day) {
+  this(noiseLevel, indoorOutdoor, spaceType, toAmenityFlags(selectedAmenities), accessRequired,
+   maxDistance, openTime, closeTime, day);
+ }
+ 
+ PreferencesSnapshot(String noiseLevel, String indoorOutdoor, String spaceType,
+                     Map<String, Integer> amenities, boolean accessRequired,
+                     int maxDistance, LocalTime openTime, LocalTime closeTime, DayOfWeek day) {
+  this.noiseLevel = noiseLevel != null ? noiseLevel : PreferencesModel.DEFAULT_NOISE;
+  this.indoorOutdoor = indoorOutdoor != null ? indoorOutdoor : PreferencesModel.DEFAULT_INDOOR_OUTDOOR;
+  this.spaceType = spaceType != null ? spaceType : PreferencesModel.DEFAULT_SPACE_TYPE;
+  this.amenities = Map.copyOf(amenities);
+  this.accessRequired = accessRequired;
+  this.maxDistance = maxDistance;
+  this.openTime = openTime != null ? openTime : PreferencesModel.DEFAULT_OPEN_TIME;
+  this.closeTime = closeTime != null ? closeTime : PreferencesModel.DEFAULT_CLOSE_TIME;
+  this.day = day != null ? day : PreferencesModel.DEFAULT_DAY;
+  this.openDuringWindow = false;
+  this.openAt = ANY_TIME;
+  int open = OpeningHours.minuteOfDay(this.openTime);
+  this.windowStart = OpeningHours.minuteOfWeek(this.day, open);
+  this.windowLength = OpeningHours.windowLength(open, OpeningHours.minuteOfDay(this.closeTime));
+ }
+ 
+ private PreferencesSnapshot(PreferencesSnapshot base, DayOfWeek day, boolean openDuringWindow, int openAt) {
+  this.noiseLevel = base.noiseLevel;
+  this.indoorOutdoor = base.indoorOutdoor;
+  this.spaceType = base.spaceType;
+  this.amenities = base.amenities;
+  this.accessRequired = base.accessRequired;
+  this.maxDistance = base.maxDistance;
+  this.openTime = base.openTime;
+  this.closeTime = base.closeTime;
+  this.day = day;
+  this.openDuringWindow = openDuringWindow;
+  this.openAt = openAt;
+  this.windowStart = OpeningHours.minuteOfWeek(day, OpeningHours.minuteOfDay(openTime));
+  this.windowLength = base.windowLength;
+ }
+ 
+ /**
+  * Returns a copy of these preferences with the hours window on another day and with
+  * the given hours filters.
+  *
+  * @param day              day the hours window starts on, or null to keep this
+  *                          snapshot's day
+  * @param openDuringWindow true to drop spots closed for the whole window
+  * @param openAt           minute of week spots must be open at, as returned by
+  *                         {@link OpeningHours#minuteOfWeek(java.time.Clock)}, or
+  *                         {@link #ANY_TIME}
+  * @return the new snapshot
+  * @throws IllegalArgumentException if openAt is not a minute of the week
+  */
+ public PreferencesSnapshot withHours(DayOfWeek day, boolean openDuringWindow, int openAt) {
+  if (openAt != ANY_TIME && (openAt < 0 || openAt >= OpeningHours.MINUTES_PER_WEEK)) {
+   throw new IllegalArgumentException("Minute of week out of range: " + openAt);
+  }
+  return new PreferencesSnapshot(this, day != null ? day : this.day, openDuringWindow, openAt);
+ }
+ 
+ public String getNoiseLevel() {
+  return noiseLevel;
+ }
+ 
+ public String getIndoorOutdoor() {
+  return indoorOutdoor;
+ }
+ 
+ public String getSpaceType() {
+  return spaceType;
+ }
+ 
+ public Map<String, Integer> getAmenities() {
+  return amenities;
+ }
+ 
+ public boolean isAccessRequired() {
+  return accessRequired;
+ }
+ 
+ public int getMaxDistance() {
+  return maxDistance;
+ }
+ 
+ public LocalTime getOpenTime() {
+  return openTime;
+ }
+ 
+ public LocalTime getCloseTime() {
+  return closeTime;
+ }
+ 
+ /**
+  * Returns the day the hours window starts on.
+  */
+ public DayOfWeek getDay() {
+  return day;
+ }
+ 
+ public boolean isOpenDuringWindow() {
+  return openDuringWindow;
+ }
+ 
+ /**
+  * Returns the minute of week spots must be open at, or {@link #ANY_TIME}.
+  */
+ public int getOpenAt() {
+  return openAt;
+ }
+ 
+ /**
+  * Returns the start of the hours window as a minute of the week.
+  */
+ public int getWindowStart() {
+  return windowStart;
+ }
+ 
+ /**
+  * Returns the length of the hours window in minutes; 0 for a single instant.
+  */
+ public int getWindowLength() {
+  return windowLength;
+ }
+ 
+ /**
+  * Returns true if spots are filtered by their opening hours rather than only scored.
+  */
+ public boolean hasHoursFilter() {
+  return openDuringWindow || openAt != ANY_TIME;
+ }
+ 
+ /**
+  * Returns true if a spot with the given hours passes the hours filters.
+  *
+  * @param hours opening hours of the spot
+  */
+ public boolean acceptsHours(OpeningHours hours) {
+  return (openAt == ANY_TIME || hours.isOpenAt(openAt))
+   && (!openDuringWindow || hours.coverage(windowStart, windowLength) != OpeningHours.Coverage.NONE);
+ }
+ 
+ private static Map<String, Integer> toAmenityFlags(Collection<String> selectedAmenities) {
+  Map<String, Integer> flags = new HashMap<>();
+  for (String key : PreferencesModel.AMENITY_KEYS) {
+   flags.put(key, selectedAmenities != null && selectedAmenities.contains(key) ? 1 : 0);
+  }
+  return flags;
+ }
+}
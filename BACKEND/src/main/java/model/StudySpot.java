@@ -1,18 +1,31 @@
 package model;
 
+import java.time.DayOfWeek;
 import java.time.LocalTime;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 /**
  * Represents a study spot on campus.
  * Each study spot contains information about location, noise level, type of space,
  * accessibility, opening hours, amenities, and photos.
  *
+ * <p>Spots are stored compactly: the categorical fields are interned, so all spots share
+ * one copy of each value, and amenities are kept as two bitmasks over the
+ * {@link AmenityRegistry} rather than as a map per spot.
+ *
+ * <p>openTime and closeTime are the daily hours; a closing time not after the opening
+ * time means the spot closes on the next day. Days with other hours are listed in
+ * weeklyHours, for example {@code {"SATURDAY": "10:00-18:00", "SUNDAY": "closed"}}.
  */
+@JsonPropertyOrder({"id", "name", "latitude", "longitude", "openTime", "closeTime", "noiseLevel",
+ "indoorOutdoor", "spaceType", "accessRequired", "amenities", "weeklyHours"})
 public class StudySpot {
  
  private String id;
@@ -27,7 +40,39 @@ public class StudySpot {
  private String indoorOutdoor;
  private String spaceType;
  private boolean accessRequired;
- private Map<String, Integer> amenities = new HashMap<>();
+ private long amenityKeys;
+ private long amenityValues;
+ @JsonInclude(JsonInclude.Include.NON_NULL)
+ private Map<DayOfWeek, String> weeklyHours;
+ private transient OpeningHours openingHours;
+ 
+ /**
+  * Constructs an empty StudySpot, open all day and without amenities.
+  */
+ public StudySpot() {
+ }
+ 
+ /**
+  * Constructs a copy of another StudySpot.
+  *
+  * @param other spot to copy
+  */
+ public StudySpot(StudySpot other) {
+  this.id = other.id;
+  this.name = other.name;
+  this.latitude = other.latitude;
+  this.longitude = other.longitude;
+  this.openTime = other.openTime;
+  this.closeTime = other.closeTime;
+  this.noiseLevel = other.noiseLevel;
+  this.indoorOutdoor = other.indoorOutdoor;
+  this.spaceType = other.spaceType;
+  this.accessRequired = other.accessRequired;
+  this.amenityKeys = other.amenityKeys;
+  this.amenityValues = other.amenityValues;
+  this.weeklyHours = other.weeklyHours;
+  this.openingHours = other.openingHours;
+ }
  
  
  public String getId() {
@@ -70,8 +115,32 @@ public class StudySpot {
   return accessRequired;
  }
  
+ /**
+  * Returns the amenities as a read-only map from amenity name to 1 (available) or 0.
+  */
  public Map<String, Integer> getAmenities() {
-  return Collections.unmodifiableMap(amenities);
+  return new AmenityMap(amenityKeys, amenityValues);
+ }
+ 
+ /**
+  * Returns the days whose hours differ from openTime and closeTime, or null if the spot
+  * keeps the same hours every day.
+  */
+ public Map<DayOfWeek, String> getWeeklyHours() {
+  return weeklyHours;
+ }
+ 
+ /**
+  * Returns the compiled opening hours over the whole week.
+  */
+ @JsonIgnore
+ public OpeningHours getOpeningHours() {
+  OpeningHours hours = openingHours;
+  if (hours == null) {
+   hours = OpeningHours.of(openTime, closeTime, weeklyHours);
+   openingHours = hours;
+  }
+  return hours;
  }
  
  
@@ -93,30 +162,77 @@ public class StudySpot {
  
  public void setOpenTime(LocalTime openTime) {
   this.openTime = openTime;
+  this.openingHours = null;
  }
  
  public void setCloseTime(LocalTime closeTime) {
   this.closeTime = closeTime;
+  this.openingHours = null;
  }
  
  public void setNoiseLevel(String noiseLevel) {
-  this.noiseLevel = noiseLevel;
+  this.noiseLevel = intern(noiseLevel);
  }
  
  public void setIndoorOutdoor(String indoorOutdoor) {
-  this.indoorOutdoor = indoorOutdoor;
+  this.indoorOutdoor = intern(indoorOutdoor);
  }
  
  public void setSpaceType(String spaceType) {
-  this.spaceType = spaceType;
+  this.spaceType = intern(spaceType);
  }
  
  public void setAccessRequired(boolean accessRequired) {
   this.accessRequired = accessRequired;
  }
  
+ /**
+  * Sets the amenities from a map of amenity name to 1 (available) or 0. Other values
+  * are stored as 0 and null values are dropped.
+  *
+  * @param amenities amenity flags
+  * @throws IllegalArgumentException if more than 64 distinct amenities are in use
+  */
  public void setAmenities(Map<String, Integer> amenities) {
-  this.amenities = new HashMap<>(amenities);
+  long keys = 0L;
+  long values = 0L;
+  for (Map.Entry<String, Integer> amenity : amenities.entrySet()) {
+   if (amenity.getValue() == null) continue;
+   long bit = 1L << AmenityRegistry.bitOf(amenity.getKey());
+   keys |= bit;
+   if (amenity.getValue() == 1) {
+    values |= bit;
+   }
+  }
+  this.amenityKeys = keys;
+  this.amenityValues = values;
+ }
+ 
+ /**
+  * Sets the hours of the days that differ from openTime and closeTime.
+  *
+  * @param weeklyHours ranges by day such as {@code 08:00-12:00,13:00-02:00} or
+  *                    {@code closed}; null or empty for the same hours every day.
+  *                    Days with a null value keep the daily hours
+  * @throws IllegalArgumentException if a range is malformed
+  */
+ public void setWeeklyHours(Map<DayOfWeek, String> weeklyHours) {
+  if (weeklyHours == null || weeklyHours.isEmpty()) {
+   this.weeklyHours = null;
+  } else {
+   Map<DayOfWeek, String> days = new EnumMap<>(DayOfWeek.class);
+   for (Map.Entry<DayOfWeek, String> day : weeklyHours.entrySet()) {
+    if (day.getValue() == null) continue;
+    OpeningHours.parseRanges(day.getValue());
+    days.put(day.getKey(), day.getValue().trim());
+   }
+   this.weeklyHours = days.isEmpty() ? null : Collections.unmodifiableMap(days);
+  }
+  this.openingHours = null;
+ }
+ 
+ private static String intern(String value) {
+  return value == null ? null : value.intern();
  }
  
  /**
@@ -134,10 +250,11 @@ public class StudySpot {
    ", noiseLevel='" + noiseLevel + '\'' +
    ", indoorOutdoor='" + indoorOutdoor + '\'' +
    ", spaceType='" + spaceType + '\'' +
-   ", amenities=" + amenities +
+   ", amenities=" + getAmenities() +
    ", accessRequired=" + accessRequired +
    ", openTime=" + openTime +
    ", closeTime=" + closeTime +
+   (weeklyHours != null ? ", weeklyHours=" + weeklyHours : "") +
    '}';
  }
 }
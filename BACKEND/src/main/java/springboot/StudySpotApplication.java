@@ -1,11 +1,29 @@
 package springboot;
 
+import api.ApiIntegration;
+import api.GeocodeCache;
+import api.RateLimiter;
+import api.RouteCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import controller.CatalogChangeLog;
+import controller.CatalogLoader;
+import controller.CatalogWatcher;
 import controller.MatchingScoreController;
-import controller.StudySpotsController;
+import controller.OccupancyTracker;
+import controller.RankingCache;
+import controller.ShowAllResponse;
+import controller.StudySpotCatalog;
+import controller.WalkMatrix;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Main Spring Boot application class for the Study Spot application.
@@ -26,14 +44,230 @@ public class StudySpotApplication {
     }
 
     /**
-     * Provides a bean for MatchingScoreController, initializing it with all study spots
-     * from the StudySpotsController. This allows it to be injected where needed.
+     * Provides the pool used for parallel scoring. It is kept separate from the common
+     * pool and from Tomcat's request threads so large scoring requests cannot starve them.
+     *
+     * @param threads number of worker threads; non-positive uses half the available processors
+     * @return a new ForkJoinPool, shut down with the application context
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool scoringPool(@Value("${scoring.parallel.threads:0}") int threads) {
+        int parallelism = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Provides the study spot catalog. It is loaded from {@code catalog.file} (JSON, or CSV
+     * when the name ends in .csv) if set, otherwise from the catalog bundled with the
+     * application.
+     *
+     * @param objectMapper the application's ObjectMapper
+     * @param catalogFile path of the catalog file; empty uses the bundled catalog
+     * @return the loaded catalog
+     * @throws IOException if the catalog file cannot be loaded
+     */
+    @Bean
+    public StudySpotCatalog studySpotCatalog(ObjectMapper objectMapper,
+                                             @Value("${catalog.file:}") String catalogFile) throws IOException {
+        CatalogLoader loader = new CatalogLoader(objectMapper);
+        if (catalogFile.isBlank()) {
+            return new StudySpotCatalog(loader.loadDefault());
+        }
+        return new StudySpotCatalog(loader.load(Path.of(catalogFile)));
+    }
+
+    /**
+     * Provides the log of catalog changes that /api/studyspots/changes is answered from.
+     *
+     * @param catalog catalog whose changes are recorded
+     * @param maxEntries maximum number of spot changes kept
+     * @return a new CatalogChangeLog
+     */
+    @Bean
+    public CatalogChangeLog catalogChangeLog(StudySpotCatalog catalog,
+                                             @Value("${catalog.changes.max-entries:"
+                                                     + CatalogChangeLog.DEFAULT_MAX_ENTRIES + "}") int maxEntries) {
+        return new CatalogChangeLog(catalog, maxEntries);
+    }
+
+    /**
+     * Provides the watcher that republishes the catalog when {@code catalog.file} changes.
+     * Only created when a catalog file is set and {@code catalog.watch} is not false.
      *
-     * @param spotsController the StudySpotsController providing study spot data
+     * @param catalog catalog to republish
+     * @param objectMapper the application's ObjectMapper
+     * @param catalogFile path of the catalog file
+     * @return a started CatalogWatcher, closed with the application context
+     * @throws IOException if the file's directory cannot be watched
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnExpression("'${catalog.file:}' != '' and ${catalog.watch:true}")
+    public CatalogWatcher catalogWatcher(StudySpotCatalog catalog, ObjectMapper objectMapper,
+                                         @Value("${catalog.file}") String catalogFile) throws IOException {
+        CatalogWatcher watcher = new CatalogWatcher(catalog, new CatalogLoader(objectMapper), Path.of(catalogFile));
+        watcher.start();
+        return watcher;
+    }
+
+    /**
+     * Provides the tracker of live occupancy readings posted to /api/occupancy/events.
+     *
+     * @param catalog catalog whose spots readings are recorded for
+     * @param halfLifeSeconds seconds after which a reading counts half as much
+     * @param foldMillis milliseconds between publications of new crowding factors
+     * @return a started OccupancyTracker, closed with the application context
+     */
+    @Bean(destroyMethod = "close")
+    public OccupancyTracker occupancyTracker(StudySpotCatalog catalog,
+                                             @Value("${occupancy.half-life-seconds:600}") long halfLifeSeconds,
+                                             @Value("${occupancy.fold-millis:1000}") long foldMillis) {
+        OccupancyTracker tracker = new OccupancyTracker(catalog, halfLifeSeconds, foldMillis);
+        tracker.start();
+        return tracker;
+    }
+
+    /**
+     * Provides the cache of geocoded addresses used by ApiIntegration. Results are also
+     * appended to {@code geocode.cache.file} if set and reloaded from it at startup.
+     *
+     * @param cacheFile path of the append-only cache file; empty caches in memory only
+     * @param maxEntries maximum number of addresses kept in memory
+     * @param ttlSeconds seconds a geocoded address stays valid
+     * @param negativeTtlSeconds seconds an address without a result stays cached
+     * @return a new GeocodeCache, closed with the application context
+     * @throws IOException if the cache file cannot be read or opened
+     */
+    @Bean(destroyMethod = "close")
+    public GeocodeCache geocodeCache(
+            @Value("${geocode.cache.file:}") String cacheFile,
+            @Value("${geocode.cache.max-entries:" + GeocodeCache.DEFAULT_MAX_ENTRIES + "}") int maxEntries,
+            @Value("${geocode.cache.ttl-seconds:" + GeocodeCache.DEFAULT_TTL_SECONDS + "}") long ttlSeconds,
+            @Value("${geocode.cache.negative-ttl-seconds:" + GeocodeCache.DEFAULT_NEGATIVE_TTL_SECONDS + "}")
+            long negativeTtlSeconds) throws IOException {
+        Path file = cacheFile.isBlank() ? null : Path.of(cacheFile);
+        return new GeocodeCache(file, maxEntries, ttlSeconds, negativeTtlSeconds);
+    }
+
+    /**
+     * Provides the cache of walking routes used by ApiIntegration.
+     *
+     * @param maxEntries maximum number of cached routes
+     * @param ttlSeconds seconds a cached route stays valid
+     * @param bucketMeters size in meters of the cells origins and destinations are snapped to
+     * @return a new RouteCache
+     */
+    @Bean
+    public RouteCache routeCache(
+            @Value("${route.cache.max-entries:" + RouteCache.DEFAULT_MAX_ENTRIES + "}") int maxEntries,
+            @Value("${route.cache.ttl-seconds:" + RouteCache.DEFAULT_TTL_SECONDS + "}") long ttlSeconds,
+            @Value("${route.cache.bucket-meters:" + RouteCache.DEFAULT_BUCKET_METERS + "}") double bucketMeters) {
+        return new RouteCache(maxEntries, ttlSeconds, bucketMeters);
+    }
+
+    /**
+     * Provides the rate limiter shared by all requests to Nominatim.
+     *
+     * @param requestsPerSecond sustained request rate
+     * @param maxWaitMillis longest a request waits for its turn before failing
+     * @return a new RateLimiter
+     */
+    @Bean
+    public RateLimiter nominatimRateLimiter(
+            @Value("${upstream.nominatim.requests-per-second:" + ApiIntegration.NOMINATIM_REQUESTS_PER_SECOND + "}")
+            double requestsPerSecond,
+            @Value("${upstream.max-wait-millis:" + ApiIntegration.DEFAULT_MAX_WAIT_MILLIS + "}") long maxWaitMillis) {
+        return new RateLimiter(requestsPerSecond, 1, maxWaitMillis);
+    }
+
+    /**
+     * Provides the rate limiter shared by all requests to OSRM.
+     *
+     * @param requestsPerSecond sustained request rate
+     * @param burst requests allowed at once after a quiet period
+     * @param maxWaitMillis longest a request waits for its turn before failing
+     * @return a new RateLimiter
+     */
+    @Bean
+    public RateLimiter osrmRateLimiter(
+            @Value("${upstream.osrm.requests-per-second:" + ApiIntegration.OSRM_REQUESTS_PER_SECOND + "}")
+            double requestsPerSecond,
+            @Value("${upstream.osrm.burst:5}") int burst,
+            @Value("${upstream.max-wait-millis:" + ApiIntegration.DEFAULT_MAX_WAIT_MILLIS + "}") long maxWaitMillis) {
+        return new RateLimiter(requestsPerSecond, burst, maxWaitMillis);
+    }
+
+    /**
+     * Provides the precomputed walk matrix that /api/walk answers from before routing live.
+     * It is mapped from {@code walk.matrix.file} if set; otherwise it is empty and every
+     * request is routed live.
+     *
+     * @param matrixFile path of the matrix file written by WalkMatrix; empty disables the matrix
+     * @param snapMeters distance within which a point counts as being at a spot
+     * @return the walk matrix
+     * @throws IOException if the matrix file cannot be read
+     */
+    @Bean
+    public WalkMatrix walkMatrix(@Value("${walk.matrix.file:}") String matrixFile,
+                                 @Value("${walk.matrix.snap-meters:" + WalkMatrix.DEFAULT_SNAP_METERS + "}")
+                                 double snapMeters) throws IOException {
+        if (matrixFile.isBlank()) {
+            return WalkMatrix.empty();
+        }
+        return WalkMatrix.open(Path.of(matrixFile), snapMeters);
+    }
+
+    /**
+     * Provides a bean for MatchingScoreController over the study spot catalog. Its spot
+     * index is rebuilt whenever a new catalog is published, and raw scores are weighed by
+     * the occupancy tracker's crowding factors.
+     *
+     * @param catalog the study spot catalog
+     * @param occupancyTracker tracker providing crowding factors
+     * @param scoringPool pool used when scoring in parallel
+     * @param scoringMode scoring implementation to use
+     * @param parallelThreshold catalog size at which parallel scoring kicks in
      * @return a new instance of MatchingScoreController
      */
     @Bean
-    public MatchingScoreController matchingScoreController(StudySpotsController spotsController) {
-        return new MatchingScoreController(spotsController.getAllStudySpots());
+    public MatchingScoreController matchingScoreController(
+            StudySpotCatalog catalog,
+            OccupancyTracker occupancyTracker,
+            ForkJoinPool scoringPool,
+            @Value("${scoring.mode:PARALLEL}") MatchingScoreController.ScoringMode scoringMode,
+            @Value("${scoring.parallel.threshold:" + MatchingScoreController.DEFAULT_PARALLEL_THRESHOLD + "}")
+            int parallelThreshold) {
+        return new MatchingScoreController(catalog, scoringMode, scoringPool, parallelThreshold, occupancyTracker);
+    }
+
+    /**
+     * Provides the cache of ranked results used by PreferencesController.
+     *
+     * @param scoreCalculator scorer the cache computes rankings with
+     * @param maxEntries maximum number of cached rankings; 0 disables the cache
+     * @param maxSpots maximum number of ranked spots over all cached rankings
+     * @param ttlSeconds seconds a cached ranking stays valid
+     * @param bucketMeters size of the buckets user locations and distances are snapped to while caching
+     * @return a new RankingCache
+     */
+    @Bean
+    public RankingCache rankingCache(
+            MatchingScoreController scoreCalculator,
+            @Value("${ranking.cache.max-entries:1024}") int maxEntries,
+            @Value("${ranking.cache.max-spots:" + RankingCache.DEFAULT_MAX_SPOTS + "}") long maxSpots,
+            @Value("${ranking.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${ranking.cache.bucket-meters:10}") double bucketMeters) {
+        return new RankingCache(scoreCalculator, maxEntries, maxSpots, ttlSeconds, bucketMeters);
+    }
+
+    /**
+     * Provides the pre-rendered show-all response used by PreferencesController.
+     *
+     * @param scoreCalculator scorer whose catalog is rendered
+     * @param objectMapper the application's ObjectMapper
+     * @return a new ShowAllResponse
+     */
+    @Bean
+    public ShowAllResponse showAllResponse(MatchingScoreController scoreCalculator, ObjectMapper objectMapper) {
+        return new ShowAllResponse(scoreCalculator, objectMapper);
     }
 }
@@ -0,0 +1,70 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ApiIntegrationTests {
+
+ /**
+  * Answers table requests with straight-line routes, leaving out every tenth destination,
+  * and records the chunk each request covered.
+  */
+ private static final class StubTable extends ApiIntegration {
+  private final StraightLineRouter router = new StraightLineRouter();
+  private final List<int[]> chunks = new ArrayList<>();
+
+  @Override
+  CompletableFuture<Void> requestTable(double originLat, double originLng, double[] destLats, double[] destLngs,
+                                       int from, int to, DistanceTime[] routes) {
+   chunks.add(new int[] {from, to});
+   for (int j = from; j < to; j++) {
+    routes[j] = j % 10 == 9 ? null : router.route(originLat, originLng, destLats[j], destLngs[j]);
+   }
+   return CompletableFuture.completedFuture(null);
+  }
+ }
+
+ @Test
+ void testDistanceMatrixIsChunked() throws ApiException {
+  StubTable api = new StubTable();
+  int n = 2 * ApiIntegration.TABLE_MAX_DESTINATIONS + 5;
+  double[] lats = new double[n];
+  double[] lngs = new double[n];
+  for (int j = 0; j < n; j++) {
+   lats[j] = 49.26 + j * 1e-4;
+   lngs[j] = -123.25;
+  }
+
+  DistanceTime[] routes = api.getDistanceMatrix(49.26, -123.24, lats, lngs);
+  assertEquals(n, routes.length);
+  assertEquals(3, api.chunks.size());
+  assertEquals(ApiIntegration.TABLE_MAX_DESTINATIONS, api.chunks.get(1)[0]);
+  assertEquals(n, api.chunks.get(2)[1]);
+  assertNull(routes[9]);
+  assertEquals(api.router.route(49.26, -123.24, lats[n - 1], lngs[n - 1]).distanceMeters, routes[n - 1].distanceMeters);
+
+  assertEquals(n, api.routes(49.26, -123.24, lats, lngs).length);
+  assertThrows(ApiException.class, () -> api.getDistanceMatrix(49.26, -123.24, new double[] {91}, new double[] {0}));
+  assertEquals(6, api.chunks.size(), "Invalid coordinates are rejected before any request");
+ }
+
+ @Test
+ void testAsyncFailuresCompleteTheFuture() {
+  ApiIntegration api = new ApiIntegration();
+  CompletableFuture<DistanceTime> invalid = api.getDistanceTimeAsync(91, 0, 0, 0);
+  assertTrue(invalid.isCompletedExceptionally(), "Invalid coordinates fail without a request");
+  CompletionException e = assertThrows(CompletionException.class, invalid::join);
+  assertTrue(ApiIntegration.unwrap(e) instanceof ApiException);
+
+  CompletableFuture<double[]> blank = api.geocodeAddressAsync(" ");
+  assertTrue(ApiIntegration.unwrap(assertThrows(CompletionException.class, blank::join)) instanceof ApiException);
+ }
+}
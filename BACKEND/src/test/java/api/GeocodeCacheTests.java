@@ -0,0 +1,149 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeocodeCacheTests {
+
+ private static final long TTL_SECONDS = 3600;
+ private static final long NEGATIVE_TTL_SECONDS = 60;
+
+ private final AtomicLong clock = new AtomicLong(1_000_000);
+ private final List<String> requested = new ArrayList<>();
+ private Path dir;
+
+ @BeforeEach
+ void setup() throws IOException {
+  dir = Files.createTempDirectory("geocode");
+ }
+
+ @AfterEach
+ void cleanup() throws IOException {
+  try (Stream<Path> files = Files.walk(dir)) {
+   files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+  }
+ }
+
+ private GeocodeCache open(Path file, int maxEntries) throws IOException {
+  return new GeocodeCache(file, maxEntries, TTL_SECONDS, NEGATIVE_TTL_SECONDS, clock::get);
+ }
+
+ private double[] upstream(String address) {
+  requested.add(address);
+  return address.startsWith("nowhere") ? null : new double[] {49.26, -123.25};
+ }
+
+ @Test
+ void testHitsNegativesAndExpiry() throws ApiException, IOException {
+  try (GeocodeCache cache = open(null, 10)) {
+   assertEquals(-123.25, cache.geocode("2329 West Mall, Vancouver", this::upstream)[1]);
+   assertEquals(-123.25, cache.geocode("  2329 WEST  mall , Vancouver ", this::upstream)[1]);
+   assertEquals(List.of("2329 west mall, vancouver"), requested);
+
+   assertNull(cache.geocode("Nowhere", this::upstream));
+   assertNull(cache.geocode("nowhere", this::upstream));
+   assertEquals(2, requested.size());
+
+   clock.addAndGet(TimeUnit.SECONDS.toMillis(NEGATIVE_TTL_SECONDS));
+   assertNull(cache.geocode("nowhere", this::upstream));
+   cache.geocode("2329 west mall, vancouver", this::upstream);
+   assertEquals(3, requested.size(), "Negative results expire sooner");
+
+   assertThrows(ApiException.class, () -> cache.geocode("down", a -> { throw new ApiException("503"); }));
+   assertThrows(ApiException.class, () -> cache.geocode("down", a -> { throw new ApiException("503"); }),
+    "Failures are not cached");
+
+   GeocodeCache.Stats stats = cache.getStats();
+   assertEquals(2, stats.getHits());
+   assertEquals(1, stats.getNegativeHits());
+   assertEquals(5, stats.getMisses());
+   assertEquals(1, stats.getExpirations());
+   assertEquals(0, stats.getEvictions(), "Expired results are not evictions");
+   assertEquals(3.0 / 8, stats.getHitRatio(), 1e-9);
+  }
+ }
+
+ @Test
+ void testFileIsReplayedAtStartup() throws ApiException, IOException {
+  Path file = dir.resolve("geocode.tsv");
+  try (GeocodeCache cache = open(file, 10)) {
+   cache.geocode("A", this::upstream);
+   cache.geocode("nowhere", this::upstream);
+  }
+  Files.write(file, "12\tbroken".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+  clock.addAndGet(TimeUnit.SECONDS.toMillis(NEGATIVE_TTL_SECONDS));
+  try (GeocodeCache cache = open(file, 10)) {
+   assertEquals(1, cache.getStats().getSize(), "The expired negative result is not reloaded");
+   assertNotNull(cache.geocode("a", this::upstream));
+   assertEquals(2, requested.size());
+   assertEquals(1, cache.getStats().getHits());
+  }
+ }
+
+ @Test
+ void testFileIsCompacted() throws ApiException, IOException {
+  Path file = dir.resolve("geocode.tsv");
+  try (GeocodeCache cache = open(file, 2)) {
+   for (int k = 0; k < 10; k++) {
+    cache.geocode("address " + k, this::upstream);
+   }
+   assertTrue(cache.getStats().getEvictions() > 0);
+  }
+  assertTrue(Files.readAllLines(file).size() <= 4);
+  try (GeocodeCache cache = open(file, 2)) {
+   cache.geocode("address 9", this::upstream);
+   assertEquals(1, cache.getStats().getHits(), "The most recent addresses survive compaction");
+  }
+ }
+ 
+ @Test
+ void testConcurrentMissesShareOneRequest() throws Exception {
+  Path file = dir.resolve("geocode.tsv");
+  List<CompletableFuture<double[]>> pending = new ArrayList<>();
+  try (GeocodeCache cache = open(file, 10)) {
+   Function<String, CompletableFuture<double[]>> slow = address -> {
+    requested.add(address);
+    CompletableFuture<double[]> result = new CompletableFuture<>();
+    pending.add(result);
+    return result;
+   };
+   CompletableFuture<double[]> first = cache.geocodeAsync("2329 West Mall", slow);
+   CompletableFuture<double[]> second = cache.geocodeAsync("2329 west mall", slow);
+   assertEquals(1, pending.size());
+   pending.get(0).complete(new double[] {49.26, -123.25});
+   assertEquals(-123.25, first.get()[1]);
+   assertNotSame(first.get(), second.get(), "Callers get their own copy");
+   first.get()[1] = 0;
+   assertEquals(-123.25, cache.geocode("2329 West Mall", this::upstream)[1]);
+   assertEquals(List.of("2329 west mall"), requested);
+   
+   CompletableFuture<double[]> failing = cache.geocodeAsync("down", slow);
+   CompletableFuture<double[]> joined = cache.geocodeAsync("down", slow);
+   pending.get(1).completeExceptionally(new ApiException("503"));
+   assertInstanceOf(ApiException.class, assertThrows(ExecutionException.class, failing::get).getCause());
+   assertInstanceOf(ApiException.class, assertThrows(ExecutionException.class, joined::get).getCause());
+   assertEquals(2, pending.size());
+  }
+  assertEquals(1, Files.readAllLines(file).size(), "Only the result is written, off the caller's thread");
+ }
+}
@@ -0,0 +1,87 @@
+package api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RateLimiterTests {
+
+ private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+ private final AtomicLong clock = new AtomicLong(5 * SECOND);
+
+ @Test
+ void testCallersWaitOnlyForTheirSlot() {
+  RateLimiter limiter = new RateLimiter(2, 2, 1000, clock::get);
+  assertEquals(0, limiter.reserve(SECOND));
+  assertEquals(0, limiter.reserve(SECOND), "A full bucket grants its burst at once");
+  assertEquals(SECOND / 2, limiter.reserve(SECOND));
+  assertEquals(SECOND, limiter.reserve(SECOND));
+
+  assertEquals(-1, limiter.reserve(SECOND), "A slot beyond the deadline is refused");
+  assertEquals(-1, limiter.reserve(SECOND));
+  clock.addAndGet(SECOND / 2);
+  assertEquals(SECOND, limiter.reserve(SECOND), "Refusals reserve nothing");
+
+  clock.addAndGet(10 * SECOND);
+  assertEquals(0, limiter.reserve(0));
+  assertEquals(0, limiter.reserve(0), "The bucket refills while idle, up to its burst");
+  assertEquals(-1, limiter.reserve(0));
+  assertEquals(7, limiter.getGranted());
+  assertEquals(3, limiter.getRejected());
+ }
+
+ @Test
+ void testConcurrentCallersGetDistinctSlots() throws InterruptedException {
+  RateLimiter limiter = new RateLimiter(1000, 1, 1000, clock::get);
+  int threads = 4;
+  int perThread = 250;
+  ConcurrentLinkedQueue<Long> waits = new ConcurrentLinkedQueue<>();
+  List<Thread> callers = new ArrayList<>();
+  for (int t = 0; t < threads; t++) {
+   Thread caller = new Thread(() -> {
+    for (int k = 0; k < perThread; k++) {
+     waits.add(limiter.reserve(Long.MAX_VALUE));
+    }
+   });
+   callers.add(caller);
+   caller.start();
+  }
+  for (Thread caller : callers) {
+   caller.join();
+  }
+
+  boolean[] taken = new boolean[threads * perThread];
+  for (long wait : waits) {
+   int slot = (int) (wait / TimeUnit.MILLISECONDS.toNanos(1));
+   assertFalse(taken[slot], "slot " + slot + " granted twice");
+   taken[slot] = true;
+  }
+ }
+
+ @Test
+ void testReserveNeverSleeps() {
+  RateLimiter limiter = new RateLimiter(1, 1, 60_000);
+  assertEquals(0, limiter.reserve());
+  long start = System.nanoTime();
+  long wait = limiter.reserve();
+  assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500), "The caller is not held");
+  assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(500) && wait <= SECOND);
+ }
+
+ @Test
+ void testAcquireSleepsAndFailsFast() throws InterruptedException {
+  RateLimiter limiter = new RateLimiter(20, 1, 0);
+  assertTrue(limiter.acquire());
+  assertFalse(limiter.acquire(), "No wait allowed");
+  long start = System.nanoTime();
+  assertTrue(limiter.acquire(SECOND));
+  assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(30));
+ }
+}
@@ -0,0 +1,109 @@
+package api;
+
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTests {
+
+ private static final long TTL_SECONDS = 60;
+
+ private final AtomicLong clock = new AtomicLong();
+ private final List<double[]> requested = new ArrayList<>();
+ private final StraightLineRouter router = new StraightLineRouter();
+
+ private DistanceTime upstream(double originLat, double originLng, double destLat, double destLng) {
+  requested.add(new double[] {originLat, originLng, destLat, destLng});
+  return router.route(originLat, originLng, destLat, destLng);
+ }
+
+ @Test
+ void testNearbyRequestsShareARoute() throws ApiException {
+  RouteCache cache = new RouteCache(16, TTL_SECONDS, 10, clock::get);
+  DistanceTime first = cache.route(49.26060, -123.24600, 49.26700, -123.25200, this::upstream);
+  // About two meters away at both ends.
+  DistanceTime second = cache.route(49.26061, -123.24601, 49.26701, -123.25201, this::upstream);
+  assertEquals(1, requested.size());
+  assertEquals(first.distanceMeters, second.distanceMeters);
+  assertEquals(first.durationSeconds, second.durationSeconds);
+  assertNotSame(first, second, "Callers get their own copy");
+
+  double[] snapped = requested.get(0);
+  assertEquals(49.26060, snapped[0], 10 / 111_320.0);
+  assertEquals(-123.24600, snapped[1], 10 / 111_320.0 / Math.cos(Math.toRadians(49.26)));
+
+  cache.route(49.26060, -123.24600, 49.26900, -123.25200, this::upstream);
+  cache.route(49.26700, -123.25200, 49.26060, -123.24600, this::upstream);
+  assertEquals(3, requested.size(), "Other cells and the reverse direction are separate routes");
+
+  RouteCache.Stats stats = cache.getStats();
+  assertEquals(1, stats.getHits());
+  assertEquals(3, stats.getMisses());
+  assertEquals(0.25, stats.getHitRatio(), 1e-9);
+ }
+
+ @Test
+ void testBoundsExpiryAndFailures() throws ApiException {
+  RouteCache cache = new RouteCache(2, TTL_SECONDS, 10, clock::get);
+  for (int k = 0; k < 3; k++) {
+   cache.route(49.26, -123.24, 49.27 + k * 0.001, -123.25, this::upstream);
+  }
+  assertEquals(2, cache.getStats().getSize());
+  assertEquals(1, cache.getStats().getEvictions());
+
+  clock.addAndGet(TimeUnit.SECONDS.toNanos(TTL_SECONDS));
+  cache.route(49.26, -123.24, 49.272, -123.25, this::upstream);
+  assertEquals(4, requested.size());
+  assertEquals(1, cache.getStats().getExpirations());
+
+  WalkingRouter failing = (oLat, oLng, dLat, dLng) -> { throw new ApiException("no route"); };
+  assertThrows(ApiException.class, () -> cache.route(49.26, -123.24, 49.28, -123.25, failing));
+  cache.route(49.26, -123.24, 49.28, -123.25, this::upstream);
+  assertEquals(5, requested.size(), "Failures are not cached");
+
+  RouteCache disabled = new RouteCache(0, TTL_SECONDS, 10, clock::get);
+  disabled.route(49.26061, -123.24601, 49.26701, -123.25201, this::upstream);
+  assertEquals(49.26061, requested.get(5)[0], "A disabled cache routes the exact coordinates");
+  assertEquals(0, disabled.getStats().getSize());
+ }
+ 
+ @Test
+ void testConcurrentMissesShareOneRequest() throws Exception {
+  RouteCache cache = new RouteCache(16, TTL_SECONDS, 10, clock::get);
+  List<CompletableFuture<DistanceTime>> pending = new ArrayList<>();
+  RouteCache.AsyncRouter slow = (originLat, originLng, destLat, destLng) -> {
+   CompletableFuture<DistanceTime> route = new CompletableFuture<>();
+   pending.add(route);
+   return route;
+  };
+  CompletableFuture<DistanceTime> first = cache.routeAsync(49.26060, -123.24600, 49.26700, -123.25200, slow);
+  CompletableFuture<DistanceTime> second = cache.routeAsync(49.26061, -123.24601, 49.26701, -123.25201, slow);
+  assertEquals(1, pending.size());
+  assertFalse(first.isDone());
+  pending.get(0).complete(new DistanceTime(800, 600));
+  assertEquals(800, first.get().distanceMeters);
+  assertEquals(800, second.get().distanceMeters);
+  assertNotSame(first.get(), second.get(), "Callers get their own copy");
+  assertEquals(800, cache.routeAsync(49.26060, -123.24600, 49.26700, -123.25200, slow).get().distanceMeters);
+  assertEquals(1, pending.size());
+  assertEquals(1, cache.getStats().getHits());
+  
+  CompletableFuture<DistanceTime> failing = cache.routeAsync(49.26, -123.24, 49.28, -123.25, slow);
+  CompletableFuture<DistanceTime> joined = cache.routeAsync(49.26, -123.24, 49.28, -123.25, slow);
+  assertEquals(2, pending.size());
+  pending.get(1).completeExceptionally(new ApiException("503"));
+  assertInstanceOf(ApiException.class, assertThrows(ExecutionException.class, failing::get).getCause());
+  assertInstanceOf(ApiException.class, assertThrows(ExecutionException.class, joined::get).getCause());
+  cache.routeAsync(49.26, -123.24, 49.28, -123.25, slow);
+  assertEquals(3, pending.size(), "A failed request is not shared with later misses");
+ }
+}
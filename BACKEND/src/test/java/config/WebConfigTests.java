@@ -0,0 +1,72 @@
+package config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebConfigTests {
+ 
+ /** Exposes the executor that Spring MVC would be given. */
+ private static class CapturingConfigurer extends AsyncSupportConfigurer {
+  AsyncTaskExecutor executor() {
+   return getTaskExecutor();
+  }
+ }
+ 
+ /** Exposes the registered CORS configurations. */
+ private static class CapturingRegistry extends CorsRegistry {
+  CorsConfiguration api() {
+   return getCorsConfigurations().get("/api/**");
+  }
+ }
+ 
+ @Test
+ void corsAllowsCatalogEditsAndExposesVersionHeaders() {
+  CapturingRegistry registry = new CapturingRegistry();
+  new WebConfig(2, 4).addCorsMappings(registry);
+  
+  CorsConfiguration api = registry.api();
+  assertTrue(api.getAllowedMethods().containsAll(List.of("PUT", "PATCH", "DELETE")));
+  assertEquals(List.of("X-Catalog-Version", "ETag"), api.getExposedHeaders());
+ }
+ 
+ @Test
+ void streamingRunsOnBoundedPool() throws Exception {
+  CapturingConfigurer configurer = new CapturingConfigurer();
+  new WebConfig(2, 4).configureAsyncSupport(configurer);
+  
+  AsyncTaskExecutor executor = configurer.executor();
+  assertNotNull(executor);
+  assertFalse(executor instanceof SimpleAsyncTaskExecutor);
+  ThreadPoolTaskExecutor pool = assertInstanceOf(ThreadPoolTaskExecutor.class, executor);
+  assertEquals(2, pool.getMaxPoolSize());
+  assertEquals(4, pool.getQueueCapacity());
+  
+  pool.initialize();
+  try {
+   StreamingResponseBody body = out -> out.write(Thread.currentThread().getName().getBytes(StandardCharsets.UTF_8));
+   ByteArrayOutputStream out = new ByteArrayOutputStream();
+   Future<?> done = pool.submit(() -> {
+    body.writeTo(out);
+    return null;
+   });
+   done.get(5, TimeUnit.SECONDS);
+   assertTrue(out.toString(StandardCharsets.UTF_8).startsWith(WebConfig.ASYNC_THREAD_PREFIX));
+  } finally {
+   pool.shutdown();
+  }
+ }
+}
@@ -0,0 +1,157 @@
+package controller;
+
+import config.JacksonConfig;
+import model.StudySpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogLoaderTests {
+
+ private final CatalogLoader loader = new CatalogLoader(new JacksonConfig().objectMapper());
+ private Path dir;
+
+ @BeforeEach
+ void setup() throws IOException {
+  dir = Files.createTempDirectory("catalog");
+ }
+
+ @AfterEach
+ void cleanup() throws IOException {
+  try (Stream<Path> files = Files.walk(dir)) {
+   files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+  }
+ }
+
+ @Test
+ void testDefaultCatalog() {
+  List<StudySpot> spots = loader.loadDefault();
+  assertEquals(34, spots.size());
+  StudySpot ikb = spots.get(0);
+  assertEquals("IKB - Private Study Rooms", ikb.getName());
+  assertEquals(LocalTime.of(6, 0), ikb.getOpenTime());
+  assertEquals(LocalTime.MIDNIGHT, ikb.getCloseTime());
+  assertEquals(Integer.valueOf(1), ikb.getAmenities().get("Projector"));
+ }
+
+ @Test
+ void testSpotsShareCategoricalValues() {
+  List<StudySpot> spots = loader.loadDefault();
+  StudySpot first = spots.get(0);
+  StudySpot sameType = spots.stream()
+   .filter(spot -> spot != first && first.getSpaceType().equals(spot.getSpaceType()))
+   .findFirst().orElseThrow();
+  assertSame(first.getSpaceType(), sameType.getSpaceType());
+  assertSame(first.getIndoorOutdoor(), sameType.getIndoorOutdoor());
+
+  StudySpot copy = new StudySpot(first);
+  copy.setAmenities(Map.of("WiFi", 0, "Projector", 1));
+  assertEquals(Map.of("WiFi", 0, "Projector", 1), copy.getAmenities());
+  assertEquals(Integer.valueOf(1), first.getAmenities().get("WiFi"));
+  assertThrows(UnsupportedOperationException.class, () -> first.getAmenities().put("WiFi", 0));
+ }
+
+ @Test
+ void testCsvCatalog() throws IOException {
+  String csv = "id,name,latitude,longitude,openTime,closeTime,noiseLevel,indoorOutdoor,spaceType,accessRequired,amenities,"
+   + "weeklyHours\r\n"
+   + "1,\"Koerner, Level 2\",49.2667,-123.2562,08:00,20:00,Silent,Indoor,Library,true,WiFi=1;Projector=0,"
+   + "\"saturday=10:00-17:00;SUNDAY=closed\"\r\n"
+   + "\n"
+   + "2,\"The \"\"Egg\"\"\",49.2669,-123.2501,,,Loud,Indoor,Open Area,false,,\n";
+  List<StudySpot> spots = loader.readCsv(new StringReader(csv));
+  assertEquals(2, spots.size());
+  assertEquals("Koerner, Level 2", spots.get(0).getName());
+  assertEquals(LocalTime.of(20, 0), spots.get(0).getCloseTime());
+  assertTrue(spots.get(0).isAccessRequired());
+  assertEquals(Integer.valueOf(0), spots.get(0).getAmenities().get("Projector"));
+  assertEquals(Map.of(DayOfWeek.SATURDAY, "10:00-17:00", DayOfWeek.SUNDAY, "closed"), spots.get(0).getWeeklyHours());
+  assertNull(spots.get(1).getWeeklyHours());
+  assertEquals("The \"Egg\"", spots.get(1).getName());
+  assertEquals(LocalTime.MAX, spots.get(1).getCloseTime());
+  assertTrue(spots.get(1).getAmenities().isEmpty());
+ }
+
+ @Test
+ void testMalformedCatalogsAreRejected() {
+  assertThrows(IOException.class, () -> loader.readCsv(new StringReader("id,latitude,longitude\n1,abc,2\n")));
+  assertThrows(IOException.class, () -> loader.readCsv(new StringReader("name\nx\n")));
+  assertThrows(IOException.class,
+   () -> loader.readJson(new ByteArrayInputStream("{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8))));
+  assertThrows(IOException.class, () -> loader.readJson(new ByteArrayInputStream(
+   "[{\"id\":\"1\",\"weeklyHours\":{\"MONDAY\":\"9-5\"}}]".getBytes(StandardCharsets.UTF_8))));
+  assertThrows(IOException.class,
+   () -> loader.readCsv(new StringReader("id,latitude,longitude,weeklyHours\n1,2,3,Funday=closed\n")));
+ }
+
+ @Test
+ void testWatcherPublishesChangedFile() throws Exception {
+  Path file = dir.resolve("spots.csv");
+  Files.writeString(file, "id,name,latitude,longitude\n1,One,49.26,-123.25\n");
+  StudySpotCatalog catalog = new StudySpotCatalog(loader.load(file));
+  MatchingScoreController scorer = new MatchingScoreController(catalog,
+   MatchingScoreController.ScoringMode.INDEXED, ForkJoinPool.commonPool(), 1);
+  long version = scorer.getCatalogVersion();
+
+  CountDownLatch published = new CountDownLatch(1);
+  catalog.addListener(spots -> published.countDown());
+  try (CatalogWatcher watcher = new CatalogWatcher(catalog, loader, file)) {
+   watcher.start();
+   Files.writeString(file, "id,name,latitude,longitude\n1,One,49.26,-123.25\n2,Two,49.27,-123.24\n");
+   assertTrue(published.await(30, TimeUnit.SECONDS));
+  }
+  assertEquals(2, catalog.current().size());
+  assertEquals(2, scorer.getStudySpots().size());
+  assertTrue(scorer.getCatalogVersion() > version);
+  assertThrows(UnsupportedOperationException.class, () -> catalog.current().add(new StudySpot()));
+ }
+
+ @Test
+ void testFailedReloadKeepsCurrentCatalog() throws IOException {
+  Path file = dir.resolve("spots.json");
+  Files.writeString(file, "[{\"id\":\"1\",\"name\":\"One\"}]");
+  StudySpotCatalog catalog = new StudySpotCatalog(loader.load(file));
+  List<StudySpot> before = catalog.current();
+  Files.writeString(file, "[{\"id\":\"1\",");
+  try (CatalogWatcher watcher = new CatalogWatcher(catalog, loader, file)) {
+   assertFalse(watcher.reload());
+  }
+  assertSame(before, catalog.current());
+ }
+
+ @Test
+ void testReloadKeepsRuntimeEdits() throws IOException {
+  Path file = dir.resolve("spots.json");
+  Files.writeString(file, "[{\"id\":\"1\",\"name\":\"One\"}]");
+  StudySpotCatalog catalog = new StudySpotCatalog(loader.load(file));
+  StudySpot added = new StudySpot();
+  added.setId("2");
+  catalog.edit(edit -> edit.put(added));
+  Files.writeString(file, "[{\"id\":\"3\",\"name\":\"Three\"}]");
+  try (CatalogWatcher watcher = new CatalogWatcher(catalog, loader, file)) {
+   assertFalse(watcher.reload());
+   assertEquals(2, catalog.current().size());
+   catalog.publish(loader.load(file));
+   assertTrue(watcher.reload());
+  }
+  assertEquals("3", catalog.current().get(0).getId());
+ }
+}
@@ -0,0 +1,148 @@
+package controller;
+
+import config.JacksonConfig;
+import controller.MatchingScoreController.ScoredSpot;
+import model.PreferencesModel;
+import model.PreferencesSnapshot;
+import model.StudySpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CatalogSnapshotTests {
+
+ private final CatalogLoader loader = new CatalogLoader(new JacksonConfig().objectMapper());
+ private Path dir;
+
+ @BeforeEach
+ void setup() throws IOException {
+  dir = Files.createTempDirectory("snapshot");
+ }
+
+ @AfterEach
+ void cleanup() throws IOException {
+  try (Stream<Path> files = Files.walk(dir)) {
+   files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+  }
+ }
+
+ @Test
+ void testRoundTripPreservesSpots() throws IOException {
+  List<StudySpot> spots = loader.loadDefault();
+  Path file = dir.resolve("spots.snap");
+  CatalogSnapshot.write(spots, file);
+  List<StudySpot> mapped = loader.load(file);
+
+  assertTrue(mapped instanceof CatalogSnapshot.MappedSpots);
+  assertEquals(spots.size(), mapped.size());
+  for (int i = 0; i < spots.size(); i++) {
+   StudySpot expected = spots.get(i);
+   StudySpot actual = mapped.get(i);
+   assertEquals(expected.getId(), actual.getId());
+   assertEquals(expected.getName(), actual.getName());
+   assertEquals(expected.getLatitude(), actual.getLatitude());
+   assertEquals(expected.getLongitude(), actual.getLongitude());
+   assertEquals(expected.getOpenTime(), actual.getOpenTime());
+   assertEquals(expected.getCloseTime(), actual.getCloseTime());
+   assertEquals(expected.getNoiseLevel(), actual.getNoiseLevel());
+   assertEquals(expected.getIndoorOutdoor(), actual.getIndoorOutdoor());
+   assertEquals(expected.getSpaceType(), actual.getSpaceType());
+   assertEquals(expected.isAccessRequired(), actual.isAccessRequired());
+   assertEquals(expected.getAmenities(), actual.getAmenities());
+  }
+  assertEquals(LocalTime.MIDNIGHT, mapped.get(0).getCloseTime());
+  assertNotSame(mapped.get(0), mapped.get(0));
+  assertThrows(UnsupportedOperationException.class, () -> mapped.add(new StudySpot()));
+ }
+
+ @Test
+ void testWeeklyHoursSurviveSnapshot() throws IOException {
+  List<StudySpot> spots = new ArrayList<>(loader.loadDefault());
+  StudySpot weekend = new StudySpot(spots.get(1));
+  weekend.setWeeklyHours(Map.of(DayOfWeek.SATURDAY, "10:00-18:00", DayOfWeek.SUNDAY, "closed"));
+  spots.set(1, weekend);
+  Path file = dir.resolve("spots.snap");
+  CatalogSnapshot.write(spots, file);
+  List<StudySpot> mapped = loader.load(file);
+
+  assertEquals(weekend.getWeeklyHours(), mapped.get(1).getWeeklyHours());
+  assertEquals(weekend.getOpeningHours(), mapped.get(1).getOpeningHours());
+  assertNull(mapped.get(0).getWeeklyHours());
+
+  PreferencesSnapshot prefs = new PreferencesSnapshot(null, null, null, List.of(), false, Integer.MAX_VALUE,
+   LocalTime.of(20, 0), LocalTime.of(2, 0)).withHours(DayOfWeek.SUNDAY, true, PreferencesSnapshot.ANY_TIME);
+  List<ScoredSpot> fromHeap = new MatchingScoreController(spots).calculateScore(prefs, null, 0);
+  List<ScoredSpot> fromMapped = new MatchingScoreController(mapped).calculateScore(prefs, null, 0);
+  assertEquals(fromHeap.size(), fromMapped.size());
+  for (int i = 0; i < fromHeap.size(); i++) {
+   assertEquals(fromHeap.get(i).getId(), fromMapped.get(i).getId());
+   assertEquals(fromHeap.get(i).getScore(), fromMapped.get(i).getScore());
+  }
+  assertTrue(fromHeap.stream().noneMatch(s -> s.getId().equals(weekend.getId())), "Closed on Sunday");
+  assertTrue(fromHeap.stream().anyMatch(s -> s.getId().equals(spots.get(0).getId())));
+ }
+
+ @Test
+ void testMappedRankingMatchesHeapRanking() throws IOException {
+  List<StudySpot> spots = loader.loadDefault();
+  Path file = dir.resolve("spots.snap");
+  CatalogSnapshot.write(spots, file);
+  MatchingScoreController heap = new MatchingScoreController(spots, MatchingScoreController.ScoringMode.INDEXED);
+  MatchingScoreController mapped = new MatchingScoreController(CatalogSnapshot.open(file),
+   MatchingScoreController.ScoringMode.INDEXED);
+
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setNoiseLevel("Silent");
+  prefs.setIndoorOutdoor("Indoor");
+  prefs.setAmenity("WiFi", 1);
+  prefs.setAmenity("Projector", 1);
+  prefs.setMaxDistance(800);
+  prefs.setOpenTime(LocalTime.of(22, 0));
+  prefs.setCloseTime(LocalTime.of(23, 30));
+
+  for (int limit : new int[] {0, 5}) {
+   assertSameRanking(heap.calculateScore(prefs, 49.2660, -123.2500, limit),
+    mapped.calculateScore(prefs, 49.2660, -123.2500, limit));
+   assertSameRanking(heap.calculateScore(prefs, null, limit), mapped.calculateScore(prefs, null, limit));
+  }
+ }
+
+ @Test
+ void testPublishKeepsMappedCatalog() throws IOException {
+  Path file = dir.resolve("spots.snap");
+  CatalogSnapshot.write(loader.loadDefault(), file);
+  List<StudySpot> mapped = CatalogSnapshot.open(file);
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of());
+  assertSame(mapped, catalog.publish(mapped));
+  assertSame(((CatalogSnapshot.MappedSpots) mapped).index(), SpotIndex.build(mapped));
+ }
+
+ @Test
+ void testInvalidSnapshotIsRejected() throws IOException {
+  Path file = dir.resolve("spots.snap");
+  Files.writeString(file, "[{\"id\":\"1\",\"name\":\"One\"}]");
+  assertThrows(IOException.class, () -> CatalogSnapshot.open(file));
+ }
+
+ private static void assertSameRanking(List<ScoredSpot> expected, List<ScoredSpot> actual) {
+  assertEquals(expected.size(), actual.size());
+  for (int i = 0; i < expected.size(); i++) {
+   assertEquals(expected.get(i).getId(), actual.get(i).getId(), "Rank " + i + " differs");
+   assertEquals(expected.get(i).getScore(), actual.get(i).getScore());
+   assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance());
+  }
+ }
+}
@@ -1,14 +1,23 @@
 package controller;
 
 import controller.MatchingScoreController.ScoredSpot;
+import controller.MatchingScoreController.ScoringQuery;
+import model.OpeningHours;
 import model.PreferencesModel;
+import model.PreferencesSnapshot;
 import model.StudySpot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.DayOfWeek;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -129,7 +138,15 @@ public class MatchingScoreTests {
   prefs.setOpenTime(LocalTime.of(0, 0));
   prefs.setCloseTime(LocalTime.of(23, 59));
   
+  // No catalog spot is open before 06:00, so add one that is open around the clock.
+  StudySpot allDay = new StudySpot();
+  allDay.setId("97");
+  allDay.setName("All Day Spot");
+  allDay.setNoiseLevel("Moderate");
+  spots.add(allDay);
+  
   List<ScoredSpot> scored = controller.calculateScore(prefs, null);
+  assertEquals("97", scored.get(0).getId());
   assertEquals(100.0, scored.get(0).getScore(), "Top spot should get max score when fully covering preferred hours");
  }
  
@@ -175,4 +192,362 @@ public class MatchingScoreTests {
   ScoredSpot top = scored.get(0);
   assertEquals(100.0, top.getScore(), 0.01, "Top spot should reach normalized score of 100");
  }
+ 
+ @Test
+ void testIndexedMatchesReferenceScorer() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setNoiseLevel("moderate");
+  prefs.setIndoorOutdoor("Indoor");
+  prefs.setSpaceType("Open Area");
+  prefs.setAccessRequired(true);
+  prefs.setMaxDistance(500);
+  prefs.setOpenTime(LocalTime.of(7, 0));
+  prefs.setCloseTime(LocalTime.of(22, 30));
+  prefs.setAmenity("FoodOrDrinks", 1);
+  prefs.setAmenity("PrivateRoom", 1);
+  
+  Map<String, Double> distances = Map.of("2", 120.0, "9", 430.0, "10", 800.0, "27", 15.5);
+  
+  List<ScoredSpot> reference = controller.calculateScore(prefs, distances,
+   MatchingScoreController.ScoringMode.REFERENCE);
+  List<ScoredSpot> indexed = controller.calculateScore(prefs, distances,
+   MatchingScoreController.ScoringMode.INDEXED);
+  
+  assertEquals(reference.size(), indexed.size());
+  for (int i = 0; i < reference.size(); i++) {
+   assertEquals(reference.get(i).getId(), indexed.get(i).getId(), "Rank " + i + " differs");
+   assertEquals(reference.get(i).getScore(), indexed.get(i).getScore(), 1e-9);
+   assertEquals(reference.get(i).getDistance(), indexed.get(i).getDistance());
+  }
+ }
+ 
+ @Test
+ void testIndexedHoursTreatMaxAsEndOfDay() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setOpenTime(LocalTime.of(23, 0));
+  prefs.setCloseTime(LocalTime.of(23, 59));
+  
+  StudySpot lateSpot = new StudySpot();
+  lateSpot.setId("98");
+  lateSpot.setName("Late Spot");
+  lateSpot.setNoiseLevel("Silent");
+  lateSpot.setCloseTime(LocalTime.of(23, 59));
+  spots.add(lateSpot);
+  
+  List<ScoredSpot> reference = controller.calculateScore(prefs, null,
+   MatchingScoreController.ScoringMode.REFERENCE);
+  List<ScoredSpot> indexed = controller.calculateScore(prefs, null,
+   MatchingScoreController.ScoringMode.INDEXED);
+  for (int i = 0; i < reference.size(); i++) {
+   assertEquals(reference.get(i).getId(), indexed.get(i).getId(), "Rank " + i + " differs");
+  }
+ }
+ 
+ @Test
+ void testMissingCategoricalsMatchReferenceScorer() {
+  StudySpot bare = new StudySpot();
+  bare.setId("97");
+  bare.setName("Bare Spot");
+  spots.add(bare);
+  
+  for (String noise : new String[]{"Any", "Silent", "Moderate"}) {
+   PreferencesModel prefs = new PreferencesModel();
+   prefs.setNoiseLevel(noise);
+   prefs.setIndoorOutdoor("Indoor");
+   prefs.setSpaceType("Library");
+   List<ScoredSpot> reference = controller.calculateScore(prefs, null,
+    MatchingScoreController.ScoringMode.REFERENCE);
+   List<ScoredSpot> indexed = controller.calculateScore(prefs, null,
+    MatchingScoreController.ScoringMode.INDEXED);
+   assertEquals(reference.size(), indexed.size());
+   for (int i = 0; i < reference.size(); i++) {
+    assertEquals(reference.get(i).getId(), indexed.get(i).getId(), "Rank " + i + " differs");
+    assertEquals(reference.get(i).getScore(), indexed.get(i).getScore(), 1e-9);
+   }
+  }
+ }
+ 
+ @Test
+ void testClosingAtMidnightCoversLateWindow() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setOpenTime(LocalTime.of(21, 0));
+  prefs.setCloseTime(LocalTime.of(23, 0));
+  
+  List<ScoredSpot> scored = controller.calculateScore(prefs, null);
+  assertTrue(scored.stream().anyMatch(s -> s.getCloseTime().equals(LocalTime.MIDNIGHT)));
+  for (ScoredSpot spot : scored) {
+   if (spot.getCloseTime().equals(LocalTime.MIDNIGHT)) {
+    assertEquals(100.0, spot.getScore(), spot.getName() + " is open until the end of the day");
+   }
+  }
+ }
+ 
+ @Test
+ void testHoursFiltersMatchReferenceScorer() {
+  List<StudySpot> catalog = syntheticCatalog(3_000, 11);
+  Random random = new Random(11);
+  String[] schedules = {"closed", "10:00-14:00", "09:00-12:00,13:00-02:00", "20:00-04:00", "00:00-00:00"};
+  for (StudySpot spot : catalog) {
+   if (random.nextInt(3) == 0) {
+    spot.setCloseTime(LocalTime.of(random.nextInt(6), 0));
+   }
+   if (random.nextInt(4) == 0) {
+    spot.setWeeklyHours(Map.of(DayOfWeek.of(1 + random.nextInt(7)), schedules[random.nextInt(schedules.length)]));
+   }
+  }
+  MatchingScoreController reference = new MatchingScoreController(catalog,
+   MatchingScoreController.ScoringMode.REFERENCE);
+  MatchingScoreController indexed = new MatchingScoreController(catalog);
+  
+  int filtered = 0;
+  for (int q = 0; q < 40; q++) {
+   int close = random.nextInt(25);
+   PreferencesSnapshot prefs = new PreferencesSnapshot("Any", "Any", "Any", List.of(), false,
+    q % 5 == 0 ? 600 : Integer.MAX_VALUE, LocalTime.of(random.nextInt(24), random.nextInt(2) * 30),
+    close == 24 ? LocalTime.MAX : LocalTime.of(close, 0))
+    .withHours(DayOfWeek.of(1 + q % 7), q % 2 == 0,
+     q % 3 == 0 ? random.nextInt(OpeningHours.MINUTES_PER_WEEK) : PreferencesSnapshot.ANY_TIME);
+   
+   List<ScoredSpot> expected = reference.calculateScore(prefs, null, 0);
+   List<ScoredSpot> actual = indexed.calculateScore(prefs, null, 0);
+   assertEquals(expected.size(), actual.size(), "Query " + q);
+   for (int i = 0; i < expected.size(); i++) {
+    assertEquals(expected.get(i).getId(), actual.get(i).getId(), "Rank " + i + " differs for query " + q);
+    assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 1e-9);
+   }
+   if (expected.size() < catalog.size()) {
+    filtered++;
+   }
+   
+   double lat = 49.262;
+   double lng = -123.252;
+   List<String> near = new ArrayList<>();
+   for (StudySpot spot : catalog) {
+    if (GeoGrid.haversineMeters(lat, lng, spot.getLatitude(), spot.getLongitude()) <= prefs.getMaxDistance()
+     && prefs.acceptsHours(spot.getOpeningHours())) {
+     near.add(spot.getId());
+    }
+   }
+   List<String> located = new ArrayList<>();
+   for (ScoredSpot spot : indexed.calculateScore(prefs, lat, lng, 0)) {
+    located.add(spot.getId());
+   }
+   located.sort(null);
+   near.sort(null);
+   assertEquals(near, located, "Query " + q);
+  }
+  assertTrue(filtered > 10, "Expected the hours filters to drop closed spots");
+ }
+ 
+ @Test
+ void testTopKMatchesHeadOfFullRanking() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setNoiseLevel("Silent");
+  prefs.setAmenity("WiFi", 1);
+  prefs.setMaxDistance(300);
+  
+  Map<String, Double> distances = Map.of("5", 40.0, "6", 40.0, "29", 250.0, "31", 10.0);
+  
+  List<ScoredSpot> full = controller.calculateScore(prefs, distances);
+  for (int limit : new int[] {1, 3, 7, spots.size() - 1}) {
+   List<ScoredSpot> top = controller.calculateScore(prefs, distances, limit);
+   assertEquals(limit, top.size());
+   for (int i = 0; i < limit; i++) {
+    assertEquals(full.get(i).getId(), top.get(i).getId(), "Rank " + i + " differs for limit " + limit);
+    assertEquals(full.get(i).getScore(), top.get(i).getScore());
+   }
+  }
+  assertEquals(spots.size(), controller.calculateScore(prefs, distances, spots.size() + 5).size());
+ }
+ 
+ @Test
+ void testUserLocationPrunesSpotsOutsideRadius() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setMaxDistance(300);
+  double lat = 49.2667;
+  double lng = -123.2562;
+  
+  List<ScoredSpot> scored = controller.calculateScore(prefs, lat, lng, 0);
+  long expected = spots.stream()
+   .filter(s -> GeoGrid.haversineMeters(lat, lng, s.getLatitude(), s.getLongitude()) <= 300)
+   .count();
+  assertEquals(expected, scored.size());
+  assertTrue(scored.stream().anyMatch(s -> s.getId().equals("5")));
+  assertTrue(scored.stream().allMatch(s -> s.getDistance() <= 300));
+ }
+ 
+ @Test
+ void testUserLocationMatchesClientDistances() {
+  PreferencesModel prefs = new PreferencesModel();
+  prefs.setNoiseLevel("Silent");
+  prefs.setMaxDistance(600);
+  double lat = 49.2640;
+  double lng = -123.2500;
+  
+  Map<String, Double> distances = new HashMap<>();
+  for (StudySpot spot : spots) {
+   distances.put(spot.getId(), GeoGrid.haversineMeters(lat, lng, spot.getLatitude(), spot.getLongitude()));
+  }
+  List<String> expected = controller.calculateScore(prefs, distances).stream()
+   .filter(s -> s.getDistance() <= 600)
+   .map(ScoredSpot::getId)
+   .toList();
+  List<String> actual = controller.calculateScore(prefs, lat, lng, 0).stream()
+   .map(ScoredSpot::getId)
+   .toList();
+  assertEquals(expected, actual);
+ }
+ 
+ @Test
+ void testParallelIsBitIdenticalToSequential() {
+  List<StudySpot> catalog = syntheticCatalog(20_000, 42);
+  
+  ForkJoinPool pool = new ForkJoinPool(4);
+  try {
+   MatchingScoreController parallel = new MatchingScoreController(catalog,
+    MatchingScoreController.ScoringMode.PARALLEL, pool, 1);
+   MatchingScoreController sequential = new MatchingScoreController(catalog,
+    MatchingScoreController.ScoringMode.INDEXED);
+   
+   PreferencesModel prefs = new PreferencesModel();
+   prefs.setNoiseLevel("Moderate");
+   prefs.setSpaceType("Library");
+   prefs.setAmenity("WiFi", 1);
+   prefs.setMaxDistance(700);
+   
+   for (int limit : new int[] {0, 1, 25}) {
+    assertSameRanking(sequential.calculateScore(prefs, 49.265, -123.252, limit),
+     parallel.calculateScore(prefs, 49.265, -123.252, limit));
+    assertSameRanking(sequential.calculateScore(prefs, null, limit),
+     parallel.calculateScore(prefs, null, limit));
+   }
+  } finally {
+   pool.shutdownNow();
+  }
+ }
+ 
+ @Test
+ void testBatchMatchesSingleQueries() {
+  List<StudySpot> catalog = syntheticCatalog(5_000, 7);
+  List<ScoringQuery> queries = new ArrayList<>();
+  Map<String, Double> distances = new HashMap<>();
+  for (int i = 0; i < catalog.size(); i += 3) {
+   distances.put(catalog.get(i).getId(), (double) (i % 900));
+  }
+  String[] noise = {"Any", "Silent", "Moderate"};
+  for (int q = 0; q < 12; q++) {
+   PreferencesSnapshot prefs = new PreferencesSnapshot(noise[q % 3], q % 2 == 0 ? "Indoor" : "Any",
+    q % 4 == 0 ? "Library" : "Any", q % 3 == 0 ? List.of("WiFi") : List.of(), q % 5 == 0,
+    q % 6 == 0 ? 0 : 300 + 100 * q, LocalTime.of(8, 0), LocalTime.of(20, 0));
+   int limit = q % 4 == 1 ? 10 : 0;
+   queries.add(q % 2 == 0
+    ? ScoringQuery.atLocation(prefs, 49.259 + q * 0.001, -123.259 + q * 0.001, limit)
+    : ScoringQuery.withDistances(prefs, q % 3 == 0 ? null : distances, limit));
+  }
+  
+  MatchingScoreController indexed = new MatchingScoreController(catalog);
+  ForkJoinPool pool = new ForkJoinPool(4);
+  try {
+   MatchingScoreController parallel = new MatchingScoreController(catalog,
+    MatchingScoreController.ScoringMode.PARALLEL, pool, 1);
+   List<List<ScoredSpot>> batch = indexed.calculateScores(queries);
+   List<List<ScoredSpot>> parallelBatch = parallel.calculateScores(queries);
+   assertEquals(queries.size(), batch.size());
+   for (int q = 0; q < queries.size(); q++) {
+    ScoringQuery query = queries.get(q);
+    List<ScoredSpot> single = query.isLocated()
+     ? indexed.calculateScore(query.getPreferences(), query.getUserLatitude(), query.getUserLongitude(),
+     query.getLimit())
+     : indexed.calculateScore(query.getPreferences(), query.getDistancesFromUser(), query.getLimit());
+    assertSameRanking(single, batch.get(q));
+    assertSameRanking(single, parallelBatch.get(q));
+   }
+  } finally {
+   pool.shutdownNow();
+  }
+ }
+ 
+ @Test
+ void testStreamMatchesSingleQueries() {
+  List<StudySpot> catalog = syntheticCatalog(5_000, 13);
+  Map<String, Double> distances = new HashMap<>();
+  for (int i = 0; i < catalog.size(); i += 2) {
+   distances.put(catalog.get(i).getId(), (double) (i % 700));
+  }
+  MatchingScoreController indexed = new MatchingScoreController(catalog);
+  ForkJoinPool pool = new ForkJoinPool(4);
+  try {
+   MatchingScoreController parallel = new MatchingScoreController(catalog,
+    MatchingScoreController.ScoringMode.PARALLEL, pool, 1);
+   for (int q = 0; q < 6; q++) {
+    PreferencesSnapshot prefs = new PreferencesSnapshot(q % 2 == 0 ? "Silent" : "Any", "Indoor",
+     q % 3 == 0 ? "Library" : "Any", List.of("WiFi"), q % 2 == 1, 500, LocalTime.of(8, 0), LocalTime.of(20, 0));
+    int limit = q % 3 == 2 ? 25 : 0;
+    ScoringQuery query = q < 3
+     ? ScoringQuery.atLocation(prefs, 49.262, -123.252, limit)
+     : ScoringQuery.withDistances(prefs, distances, limit);
+    List<ScoredSpot> single = query.isLocated()
+     ? indexed.calculateScore(prefs, query.getUserLatitude(), query.getUserLongitude(), limit)
+     : indexed.calculateScore(prefs, distances, limit);
+    assertSameRanking(single, drain(indexed.streamScore(query)));
+    assertSameRanking(single, drain(parallel.streamScore(query)));
+   }
+  } finally {
+   pool.shutdownNow();
+  }
+ }
+ 
+ @Test
+ void testStreamRanksSpotsAsTheyAreTaken() {
+  List<StudySpot> catalog = syntheticCatalog(2_000, 17);
+  MatchingScoreController indexed = new MatchingScoreController(catalog);
+  PreferencesSnapshot prefs = new PreferencesSnapshot("Silent", "Any", "Any", List.of(), false, 0,
+   LocalTime.of(8, 0), LocalTime.of(20, 0));
+  IndexedScorer.Ranking ranking =
+   (IndexedScorer.Ranking) indexed.streamScore(ScoringQuery.withDistances(prefs, null, 0));
+  assertEquals(catalog.size(), ranking.remaining());
+  ScoredSpot best = ranking.next();
+  assertEquals(1, ranking.taken());
+  assertEquals(catalog.size() - 1, ranking.remaining(), "The tail is not ranked yet");
+  assertEquals(indexed.calculateScore(prefs, null, 1).get(0).getId(), best.getId());
+ }
+ 
+ private static List<ScoredSpot> drain(Iterator<ScoredSpot> ranking) {
+  List<ScoredSpot> spots = new ArrayList<>();
+  ranking.forEachRemaining(spots::add);
+  return spots;
+ }
+ 
+ private static List<StudySpot> syntheticCatalog(int size, long seed) {
+  Random random = new Random(seed);
+  String[] noise = {"Silent", "Moderate", "Loud"};
+  String[] types = {"Open Area", "Quiet Room", "Group Study Room", "Library"};
+  List<StudySpot> catalog = new ArrayList<>();
+  for (int i = 0; i < size; i++) {
+   StudySpot spot = new StudySpot();
+   spot.setId("s" + i);
+   spot.setName("Spot " + i);
+   spot.setLatitude(49.258 + random.nextDouble() * 0.014);
+   spot.setLongitude(-123.260 + random.nextDouble() * 0.015);
+   spot.setOpenTime(LocalTime.of(6 + random.nextInt(4), 0));
+   spot.setCloseTime(LocalTime.of(17 + random.nextInt(7), 0));
+   spot.setNoiseLevel(noise[random.nextInt(noise.length)]);
+   spot.setIndoorOutdoor(random.nextBoolean() ? "Indoor" : "Outdoor");
+   spot.setSpaceType(types[random.nextInt(types.length)]);
+   spot.setAccessRequired(random.nextBoolean());
+   spot.setAmenities(Map.of("WiFi", random.nextInt(2), "Projector", random.nextInt(2)));
+   catalog.add(spot);
+  }
+  return catalog;
+ }
+ 
+ private static void assertSameRanking(List<ScoredSpot> expected, List<ScoredSpot> actual) {
+  assertEquals(expected.size(), actual.size());
+  for (int i = 0; i < expected.size(); i++) {
+   assertEquals(expected.get(i).getId(), actual.get(i).getId(), "Rank " + i + " differs");
+   assertEquals(Double.doubleToLongBits(expected.get(i).getScore()),
+    Double.doubleToLongBits(actual.get(i).getScore()));
+   assertEquals(expected.get(i).getDistance(), actual.get(i).getDistance());
+  }
+ }
 }
@@ -0,0 +1,211 @@
+package controller;
+
+import controller.MatchingScoreController.ScoredSpot;
+import controller.MatchingScoreController.ScoringMode;
+import model.PreferencesSnapshot;
+import model.StudySpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OccupancyTrackerTests {
+
+ private static final long HALF_LIFE_SECONDS = 60;
+ private static final String SENSOR_TOKEN = "sensor-secret";
+ private static final String SENSOR_AUTHORIZATION = "Bearer " + SENSOR_TOKEN;
+
+ private List<StudySpot> spots;
+ private StudySpotCatalog catalog;
+ private AtomicLong clock;
+ private OccupancyTracker tracker;
+
+ @BeforeEach
+ void setup() {
+  spots = new StudySpotsController().getAllStudySpots();
+  catalog = new StudySpotCatalog(spots);
+  clock = new AtomicLong();
+  tracker = new OccupancyTracker(catalog, HALF_LIFE_SECONDS, 1000, clock::get);
+ }
+
+ private static PreferencesSnapshot prefs() {
+  return new PreferencesSnapshot("Any", "Any", "Any", List.of(), false, 0,
+   LocalTime.of(8, 0), LocalTime.of(20, 0));
+ }
+
+ private static byte[] json(String text) {
+  return text.getBytes(StandardCharsets.UTF_8);
+ }
+
+ @Test
+ void testReadingsDecayTowardEmpty() {
+  String id = spots.get(0).getId();
+  for (int k = 0; k < 99; k++) {
+   tracker.record(id, 0.8);
+  }
+  long generation = tracker.generation();
+  tracker.fold();
+  assertEquals(0.79, tracker.occupancy(id), 1e-9);
+  assertEquals(0.0, tracker.occupancy(spots.get(1).getId()));
+  assertTrue(tracker.generation() > generation);
+
+  clock.addAndGet(TimeUnit.SECONDS.toNanos(HALF_LIFE_SECONDS));
+  tracker.record(id, 0.2);
+  tracker.fold();
+  // 49.5 decayed samples at 0.8 plus one fresh sample at 0.2, over 50.5 + 1
+  assertEquals(0.77, tracker.occupancy(id), 1e-9);
+
+  clock.addAndGet(TimeUnit.SECONDS.toNanos(HALF_LIFE_SECONDS * 20));
+  tracker.fold();
+  assertEquals(0.0, tracker.occupancy(id));
+  assertNull(tracker.factors().values, "Nothing left to weigh once every estimate is empty");
+
+  generation = tracker.generation();
+  tracker.fold();
+  assertEquals(generation, tracker.generation(), "An unchanged fold publishes nothing new");
+  assertFalse(tracker.record("no such spot", 0.5));
+  assertFalse(tracker.record(id, Double.NaN));
+  assertEquals(2, tracker.getStats().getRejected());
+ }
+
+ @Test
+ void testPendingReadingsForceAFoldBeforeOverflow() {
+  String id = spots.get(0).getId();
+  for (long k = 0; k < OccupancyTracker.MAX_PENDING + 10; k++) {
+   tracker.record(id, 1.0);
+  }
+  assertEquals(1, tracker.getStats().getFolds());
+  assertEquals(1.0, tracker.occupancy(id), 1e-9);
+  tracker.fold();
+  assertEquals(1.0, tracker.occupancy(id), 1e-9);
+  assertEquals(OccupancyTracker.MAX_PENDING + 10, tracker.getStats().getAccepted());
+ }
+
+ @Test
+ void testConcurrentReadingsAreAllCounted() throws InterruptedException {
+  String id = spots.get(0).getId();
+  int threads = 4;
+  int perThread = 20_000;
+  List<Thread> writers = new ArrayList<>();
+  for (int t = 0; t < threads; t++) {
+   double occupancy = t % 2 == 0 ? 1.0 : 0.5;
+   Thread writer = new Thread(() -> {
+    for (int k = 0; k < perThread; k++) {
+     tracker.record(id, occupancy);
+    }
+   });
+   writers.add(writer);
+   writer.start();
+  }
+  for (int k = 0; k < 50; k++) {
+   tracker.fold();
+  }
+  for (Thread writer : writers) {
+   writer.join();
+  }
+  tracker.fold();
+
+  assertEquals((long) threads * perThread, tracker.getStats().getAccepted());
+  assertEquals(0.75, tracker.occupancy(id), 0.005);
+ }
+
+ @Test
+ void testCrowdedSpotsRankLower() {
+  MatchingScoreController indexed = new MatchingScoreController(catalog, ScoringMode.INDEXED,
+   ForkJoinPool.commonPool(), MatchingScoreController.DEFAULT_PARALLEL_THRESHOLD, tracker);
+  MatchingScoreController reference = new MatchingScoreController(catalog, ScoringMode.REFERENCE,
+   ForkJoinPool.commonPool(), MatchingScoreController.DEFAULT_PARALLEL_THRESHOLD, tracker);
+  RankingCache cache = new RankingCache(indexed, 16, RankingCache.DEFAULT_MAX_SPOTS, 60, 10, clock::get);
+
+  List<ScoredSpot> before = cache.rank(prefs(), null, 0);
+  String best = before.get(0).getId();
+  String runnerUp = before.get(1).getId();
+  for (int k = 0; k < 1000; k++) {
+   tracker.record(best, 1.0);
+  }
+  assertSame(before, cache.rank(prefs(), null, 0), "Readings count only after a fold");
+  tracker.fold();
+
+  List<ScoredSpot> after = cache.rank(prefs(), null, 0);
+  assertNotSame(before, after);
+  assertEquals(runnerUp, after.get(0).getId());
+  assertTrue(score(after, best) < score(before, best));
+  assertEquals(1, cache.getStats().getInvalidations(), "A ranking from an older occupancy generation is stale");
+  assertEquals(0, cache.getStats().getEvictions());
+
+  List<ScoredSpot> expected = reference.calculateScore(prefs(), null, 0);
+  assertEquals(expected.size(), after.size());
+  for (int k = 0; k < expected.size(); k++) {
+   assertEquals(expected.get(k).getId(), after.get(k).getId());
+   assertEquals(expected.get(k).getScore(), after.get(k).getScore(), 1e-9);
+  }
+ }
+
+ @Test
+ void testCatalogChangesKeepKnownSpots() {
+  StudySpot kept = spots.get(1);
+  tracker.record(kept.getId(), 1.0);
+  tracker.fold();
+  double occupancy = tracker.occupancy(kept.getId());
+  assertTrue(occupancy > 0);
+
+  String removed = spots.get(0).getId();
+  List<StudySpot> published = catalog.publish(spots.subList(1, spots.size()));
+  assertEquals(occupancy, tracker.occupancy(kept.getId()));
+  assertTrue(Double.isNaN(tracker.occupancy(removed)));
+  assertSame(published, tracker.factors().spots);
+  assertEquals(OccupancyTracker.factorOf(occupancy), tracker.factors().values[0]);
+ }
+
+ @Test
+ void testIngestEndpoint() {
+  OccupancyController controller = new OccupancyController(tracker, 3, SENSOR_TOKEN);
+  String id = spots.get(0).getId();
+
+  var response = controller.ingest(json("[{\"spotId\":\"" + id + "\",\"occupancy\":0.5,\"source\":{\"kind\":\"sensor\"}},"
+   + "{\"spotId\":\"nowhere\",\"occupancy\":0.5},{\"spotId\":\"" + id + "\"}]"), SENSOR_AUTHORIZATION);
+  assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+  assertEquals(Map.of("accepted", 1, "rejected", 2), response.getBody());
+
+  assertEquals(HttpStatus.PAYLOAD_TOO_LARGE,
+   controller.ingest(json("[{},{},{},{\"spotId\":\"" + id + "\",\"occupancy\":1}]"), SENSOR_AUTHORIZATION).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.ingest(json("{\"spotId\":\"" + id + "\"}"), SENSOR_AUTHORIZATION).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST, controller.ingest(json("[{\"spotId\":"), SENSOR_AUTHORIZATION).getStatusCode());
+  assertEquals(1, tracker.getStats().getAccepted(), "Refused batches record nothing");
+
+  tracker.fold();
+  assertEquals(HttpStatus.OK, controller.getOccupancy(id).getStatusCode());
+  assertEquals(HttpStatus.NOT_FOUND, controller.getOccupancy("nowhere").getStatusCode());
+ }
+
+ @Test
+ void testIngestRequiresSensorToken() {
+  byte[] batch = json("[{\"spotId\":\"" + spots.get(0).getId() + "\",\"occupancy\":0.5}]");
+  OccupancyController open = new OccupancyController(tracker, 3, "");
+  assertEquals(HttpStatus.FORBIDDEN, open.ingest(batch, SENSOR_AUTHORIZATION).getStatusCode());
+
+  OccupancyController controller = new OccupancyController(tracker, 3, SENSOR_TOKEN);
+  assertEquals(HttpStatus.UNAUTHORIZED, controller.ingest(batch, null).getStatusCode());
+  assertEquals(HttpStatus.UNAUTHORIZED, controller.ingest(batch, "Bearer wrong").getStatusCode());
+  assertEquals(0, tracker.getStats().getAccepted(), "Unauthorized batches record nothing");
+  assertEquals(HttpStatus.ACCEPTED, controller.ingest(batch, "bearer " + SENSOR_TOKEN).getStatusCode());
+ }
+
+ private static double score(List<ScoredSpot> ranking, String id) {
+  for (ScoredSpot spot : ranking) {
+   if (spot.getId().equals(id)) return spot.getScore();
+  }
+  throw new AssertionError("missing " + id);
+ }
+}
@@ -0,0 +1,100 @@
+package controller;
+
+import model.OpeningHours;
+import model.OpeningHours.Coverage;
+import model.StudySpot;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.Map;
+
+import static model.OpeningHours.minuteOfWeek;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpeningHoursTests {
+
+ private static int at(DayOfWeek day, int hour, int minute) {
+  return minuteOfWeek(day, hour * 60 + minute);
+ }
+
+ @Test
+ void testClosingAtMidnightCoversTheEvening() {
+  OpeningHours ikb = OpeningHours.daily(LocalTime.of(6, 0), LocalTime.MIDNIGHT);
+  assertEquals(Coverage.FULL, ikb.coverage(at(DayOfWeek.FRIDAY, 21, 0), 120));
+  assertEquals(Coverage.FULL, ikb.coverage(at(DayOfWeek.FRIDAY, 22, 0), 120));
+  assertEquals(Coverage.PARTIAL, ikb.coverage(at(DayOfWeek.FRIDAY, 23, 0), 120));
+  assertEquals(Coverage.NONE, ikb.coverage(at(DayOfWeek.SATURDAY, 1, 0), 60));
+  assertTrue(ikb.isOpenAt(at(DayOfWeek.SUNDAY, 23, 59)));
+  assertFalse(ikb.isOpenAt(at(DayOfWeek.MONDAY, 0, 0)));
+  assertSame(ikb, OpeningHours.daily(360, 0));
+ }
+
+ @Test
+ void testOvernightRangesWrapAroundTheWeek() {
+  OpeningHours late = OpeningHours.daily(LocalTime.of(22, 0), LocalTime.of(2, 0));
+  assertTrue(late.isOpenAt(at(DayOfWeek.TUESDAY, 1, 30)));
+  assertFalse(late.isOpenAt(at(DayOfWeek.TUESDAY, 2, 0)));
+  assertTrue(late.isOpenAt(at(DayOfWeek.MONDAY, 0, 30)), "Sunday's range runs into Monday");
+  assertEquals(Coverage.FULL, late.coverage(at(DayOfWeek.SUNDAY, 22, 0), 240));
+  assertEquals(Coverage.PARTIAL, late.coverage(at(DayOfWeek.SUNDAY, 20, 0), 240));
+
+  OpeningHours allDay = OpeningHours.daily(LocalTime.MIN, LocalTime.MAX);
+  assertEquals(1, allDay.intervalCount());
+  assertEquals(Coverage.FULL, allDay.coverage(at(DayOfWeek.SUNDAY, 23, 0), 180));
+  assertEquals(allDay, OpeningHours.daily(LocalTime.NOON, LocalTime.NOON));
+ }
+
+ @Test
+ void testWeeklyScheduleOverridesDailyHours() {
+  StudySpot spot = new StudySpot();
+  spot.setOpenTime(LocalTime.of(8, 0));
+  spot.setCloseTime(LocalTime.of(22, 0));
+  spot.setWeeklyHours(Map.of(DayOfWeek.SATURDAY, "10:00-14:00, 16:00-24:00", DayOfWeek.SUNDAY, "Closed"));
+  OpeningHours hours = spot.getOpeningHours();
+
+  assertTrue(hours.isOpenAt(at(DayOfWeek.FRIDAY, 8, 0)));
+  assertFalse(hours.isOpenAt(at(DayOfWeek.SATURDAY, 9, 0)));
+  assertFalse(hours.isOpenAt(at(DayOfWeek.SATURDAY, 15, 0)));
+  assertTrue(hours.isOpenAt(at(DayOfWeek.SATURDAY, 23, 59)));
+  assertFalse(hours.isOpenAt(at(DayOfWeek.SUNDAY, 12, 0)));
+  assertEquals(Coverage.PARTIAL, hours.coverage(at(DayOfWeek.SATURDAY, 12, 0), 240));
+
+  spot.setCloseTime(LocalTime.of(23, 0));
+  assertTrue(spot.getOpeningHours().isOpenAt(at(DayOfWeek.FRIDAY, 22, 30)), "Hours follow the spot's times");
+
+  String text = OpeningHours.formatSchedule(spot.getWeeklyHours());
+  assertEquals("SATURDAY=10:00-14:00, 16:00-24:00;SUNDAY=Closed", text);
+  assertEquals(spot.getWeeklyHours(), OpeningHours.parseSchedule(text));
+  assertThrows(IllegalArgumentException.class, () -> spot.setWeeklyHours(Map.of(DayOfWeek.MONDAY, "9-5")));
+  assertThrows(IllegalArgumentException.class, () -> OpeningHours.parseSchedule("Someday=09:00-17:00"));
+ }
+
+ @Test
+ void testInstantWindowIncludesClosingTime() {
+  OpeningHours hours = OpeningHours.daily(LocalTime.of(8, 0), LocalTime.of(22, 0));
+  assertEquals(Coverage.FULL, hours.coverage(at(DayOfWeek.MONDAY, 8, 0), 0));
+  assertEquals(Coverage.FULL, hours.coverage(at(DayOfWeek.MONDAY, 22, 0), 0));
+  assertEquals(Coverage.NONE, hours.coverage(at(DayOfWeek.MONDAY, 22, 1), 0));
+  assertEquals(0, OpeningHours.windowLength(600, 600));
+  assertEquals(180, OpeningHours.windowLength(1320, 60));
+ }
+
+ @Test
+ void testDailyCoverageMatchesCompiledHours() {
+  int[] lengths = {0, 1, 45, 120, 600, OpeningHours.MINUTES_PER_DAY, 2000, OpeningHours.MINUTES_PER_WEEK};
+  for (int open = 0; open <= OpeningHours.MINUTES_PER_DAY; open += 90) {
+   for (int close = 0; close <= OpeningHours.MINUTES_PER_DAY; close += 90) {
+    OpeningHours hours = OpeningHours.daily(open, close);
+    for (int start = 0; start < OpeningHours.MINUTES_PER_WEEK; start += 173) {
+     for (int length : lengths) {
+      assertEquals(hours.coverage(start, length), OpeningHours.dailyCoverage(open, close, start, length),
+       open + "-" + close + " at " + start + "+" + length);
+     }
+    }
+    assertEquals(hours.coverage(close, 0), OpeningHours.dailyCoverage(open, close, close, 0));
+    assertEquals(hours.coverage(open, 0), OpeningHours.dailyCoverage(open, close, open, 0));
+   }
+  }
+ }
+}
@@ -0,0 +1,301 @@
+package controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import controller.MatchingScoreController.ScoredSpot;
+import controller.MatchingScoreController.ScoringQuery;
+import controller.PreferencesController.PreferencesRequest;
+import model.OpeningHours;
+import model.PreferencesModel;
+import model.PreferencesSnapshot;
+import model.StudySpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PreferencesControllerTests {
+ 
+ private static final String[] NOISE = {"Any", "Silent", "Moderate", "Loud"};
+ private static final String[] INDOOR_OUTDOOR = {"Any", "Indoor", "Outdoor"};
+ private static final String[] SPACE_TYPES = {"open_area", "quiet_room", "group_study", "library_classroom"};
+ private static final String[] AMENITIES = {"wifi", "washrooms", "food_drink_allowed", "private_rooms", "projectors"};
+ 
+ private PreferencesController controller;
+ 
+ @BeforeEach
+ void setup() {
+  StudySpotsController spotsController = new StudySpotsController();
+  controller = new PreferencesController(
+   new MatchingScoreController(spotsController.getAllStudySpots()), spotsController);
+ }
+ 
+ private PreferencesRequest request(int client) {
+  PreferencesRequest request = new PreferencesRequest();
+  request.setNoiseLevel(NOISE[client % NOISE.length]);
+  request.setIndoorOutdoor(INDOOR_OUTDOOR[client % INDOOR_OUTDOOR.length]);
+  request.setSelectedSpaceTypes(List.of(SPACE_TYPES[client % SPACE_TYPES.length]));
+  List<String> amenities = new ArrayList<>();
+  for (int a = 0; a < AMENITIES.length; a++) {
+   if ((client >> a & 1) == 1) amenities.add(AMENITIES[a]);
+  }
+  request.setSelectedAmenities(amenities);
+  request.setAccessRequired(client % 2 == 0);
+  request.setMaxDistance(200 + (client % 7) * 150);
+  request.setOpenTime(String.format("%02d:00", 6 + client % 6));
+  request.setCloseTime(String.format("%02d:00", 17 + client % 7));
+  request.setUserLatitude(49.2610 + (client % 10) * 0.001);
+  request.setUserLongitude(-123.2580 + (client % 9) * 0.001);
+  return request;
+ }
+ 
+ private static List<String> ranking(List<ScoredSpot> scored) {
+  List<String> ranking = new ArrayList<>();
+  for (ScoredSpot s : scored) {
+   ranking.add(s.getId() + "=" + s.getScore());
+  }
+  return ranking;
+ }
+ 
+ @Test
+ void testOpenNowKeepsOnlyOpenSpots() {
+  PreferencesRequest request = new PreferencesRequest();
+  request.setOpenNow(true);
+  Clock lateWednesday = Clock.fixed(
+   ZonedDateTime.of(2026, 10, 14, 23, 30, 0, 0, OpeningHours.CAMPUS_ZONE).toInstant(), ZoneOffset.UTC);
+  PreferencesSnapshot prefs = PreferencesController.toPreferences(request, lateWednesday);
+  assertEquals(DayOfWeek.WEDNESDAY, prefs.getDay());
+  
+  MatchingScoreController scorer = new MatchingScoreController(new StudySpotsController().getAllStudySpots());
+  List<ScoredSpot> open = scorer.calculateScore(prefs, null, 0);
+  long closingAtMidnight = scorer.getStudySpots().stream()
+   .filter(s -> s.getCloseTime().equals(LocalTime.MIDNIGHT)).count();
+  assertEquals(closingAtMidnight, open.size());
+  assertTrue(open.stream().allMatch(s -> s.getCloseTime().equals(LocalTime.MIDNIGHT)));
+  
+  request.setDay("saturday");
+  request.setOpenNow(false);
+  request.setOpenDuringWindow(true);
+  request.setOpenTime("06:30");
+  request.setCloseTime("07:00");
+  prefs = PreferencesController.toPreferences(request, lateWednesday);
+  assertEquals(DayOfWeek.SATURDAY, prefs.getDay());
+  assertTrue(scorer.calculateScore(prefs, null, 0).stream()
+   .allMatch(s -> s.getOpenTime().isBefore(LocalTime.of(7, 0))));
+ }
+ 
+ @Test
+ void testDayComesFromTheClockNotTheSnapshot() {
+  Clock saturday = Clock.fixed(
+   ZonedDateTime.of(2026, 10, 17, 12, 0, 0, 0, OpeningHours.CAMPUS_ZONE).toInstant(), ZoneOffset.UTC);
+  assertEquals(DayOfWeek.SATURDAY, PreferencesController.toPreferences(new PreferencesRequest(), saturday).getDay());
+  
+  PreferencesSnapshot plain = new PreferencesSnapshot("Any", "Any", "Any", List.of(), false, 0,
+   LocalTime.of(8, 0), LocalTime.of(20, 0));
+  assertEquals(DayOfWeek.MONDAY, plain.getDay());
+  assertEquals(OpeningHours.minuteOfWeek(DayOfWeek.MONDAY, 8 * 60), plain.getWindowStart());
+  PreferencesModel model = new PreferencesModel();
+  assertEquals(DayOfWeek.MONDAY, model.snapshot().getDay());
+  model.setDay(DayOfWeek.SUNDAY);
+  assertEquals(DayOfWeek.SUNDAY, model.snapshot().getDay());
+  assertEquals(DayOfWeek.SUNDAY, model.snapshot().withHours(null, false, PreferencesSnapshot.ANY_TIME).getDay());
+ }
+ 
+ @Test
+ void testSelectedAmenitiesAffectRanking() {
+  PreferencesRequest request = new PreferencesRequest();
+  request.setOpenTime("08:00");
+  request.setCloseTime("21:00");
+  request.setSelectedAmenities(List.of("projectors", "private_rooms"));
+  request.setSelectedSpaceTypes(List.of("group_study"));
+  
+  List<ScoredSpot> scored = controller.applyPreferences(request);
+  assertTrue(scored.get(0).getSpot().getAmenities().get("Projector") == 1);
+  assertEquals("Group Study Room", scored.get(0).getSpaceType());
+ }
+ 
+ @Test
+ void testRequestsDoNotShareState() {
+  PreferencesRequest silent = request(1);
+  List<String> before = ranking(controller.applyPreferences(silent));
+  controller.applyPreferences(request(2));
+  controller.resetPreferences();
+  assertEquals(before, ranking(controller.applyPreferences(silent)));
+ }
+ 
+ @Test
+ void testConcurrentClientsAreIsolated() throws Exception {
+  int clients = 300;
+  int rounds = 20;
+  List<List<String>> expected = new ArrayList<>();
+  for (int c = 0; c < clients; c++) {
+   expected.add(ranking(controller.applyPreferences(request(c))));
+  }
+  
+  ExecutorService pool = Executors.newFixedThreadPool(clients);
+  CountDownLatch start = new CountDownLatch(1);
+  List<Future<Integer>> results = new ArrayList<>();
+  try {
+   for (int c = 0; c < clients; c++) {
+    int client = c;
+    results.add(pool.submit(() -> {
+     start.await();
+     int mismatches = 0;
+     for (int r = 0; r < rounds; r++) {
+      if (!expected.get(client).equals(ranking(controller.applyPreferences(request(client))))) {
+       mismatches++;
+      }
+     }
+     return mismatches;
+    }));
+   }
+   start.countDown();
+   int mismatches = 0;
+   for (Future<Integer> result : results) {
+    mismatches += result.get(60, TimeUnit.SECONDS);
+   }
+   assertEquals(0, mismatches, "Requests were scored against another client's preferences");
+  } finally {
+   pool.shutdownNow();
+  }
+ }
+ 
+ @Test
+ void testBatchMatchesSingleRequests() {
+  List<PreferencesRequest> batch = new ArrayList<>();
+  for (int client = 0; client < 40; client++) {
+   batch.add(request(client % 20));
+  }
+  PreferencesRequest showAll = new PreferencesRequest();
+  showAll.setShowAll(true);
+  batch.add(showAll);
+  
+  @SuppressWarnings("unchecked")
+  List<List<ScoredSpot>> results = (List<List<ScoredSpot>>) controller.applyPreferencesBatch(batch).getBody();
+  assertEquals(batch.size(), results.size());
+  for (int i = 0; i < batch.size(); i++) {
+   assertEquals(ranking(controller.applyPreferences(batch.get(i))), ranking(results.get(i)));
+  }
+ }
+ 
+ @Test
+ void testBatchSizeLimit() {
+  StudySpotsController spotsController = new StudySpotsController();
+  MatchingScoreController scorer = new MatchingScoreController(spotsController.getAllStudySpots());
+  PreferencesController limited = new PreferencesController(scorer, spotsController,
+   new RankingCache(scorer, 0, 0, 0), new ShowAllResponse(scorer, new JacksonConfig().objectMapper()),
+   new JacksonConfig().objectMapper(), 2);
+  assertEquals(HttpStatus.OK, limited.applyPreferencesBatch(List.of(request(0), request(1))).getStatusCode());
+  assertEquals(HttpStatus.PAYLOAD_TOO_LARGE,
+   limited.applyPreferencesBatch(List.of(request(0), request(1), request(2))).getStatusCode());
+ }
+ 
+ @Test
+ void testUnknownDayIsBadRequest() {
+  PreferencesRequest request = request(0);
+  request.setDay("Funday");
+  
+  ResponseEntity<?> single = controller.applyPreferences(request, null);
+  assertEquals(HttpStatus.BAD_REQUEST, single.getStatusCode());
+  assertEquals(Map.of("error", "Unknown day of week 'Funday'"), single.getBody());
+  
+  ResponseEntity<?> batch = controller.applyPreferencesBatch(List.of(request(1), request));
+  assertEquals(HttpStatus.BAD_REQUEST, batch.getStatusCode());
+  assertEquals(Map.of("error", "Batch entry 1: Unknown day of week 'Funday'"), batch.getBody());
+  
+  ResponseEntity<?> stream = controller.streamPreferences(request);
+  assertEquals(HttpStatus.BAD_REQUEST, stream.getStatusCode());
+  assertEquals(Map.of("error", "Unknown day of week 'Funday'"), stream.getBody());
+ }
+ 
+ @Test
+ void testNdjsonStreamsOneSpotPerLine() throws Exception {
+  PreferencesRequest request = request(3);
+  request.setUserLatitude(null);
+  request.setUserLongitude(null);
+  List<ScoredSpot> expected = controller.applyPreferences(request);
+  List<Integer> flushedAt = new ArrayList<>();
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  OutputStream out = new FilterOutputStream(bytes) {
+   @Override
+   public void flush() {
+    flushedAt.add(bytes.size());
+   }
+  };
+  
+  ((StreamingResponseBody) controller.streamPreferences(request).getBody()).writeTo(out);
+  String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n");
+  assertEquals(expected.size(), lines.length);
+  ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+  for (int i = 0; i < lines.length; i++) {
+   JsonNode line = objectMapper.readTree(lines[i]);
+   assertEquals(expected.get(i).getId(), line.get("id").asText());
+   assertEquals(expected.get(i).getScore(), line.get("score").asDouble());
+  }
+  assertTrue(bytes.toString(StandardCharsets.UTF_8).endsWith("\n"));
+  for (int flushed : flushedAt) {
+   assertTrue(flushed == 0 || bytes.toByteArray()[flushed - 1] == '\n');
+  }
+ }
+ 
+ @Test
+ void testNdjsonWritesFirstLinesBeforeTailIsRanked() throws Exception {
+  List<StudySpot> catalog = new ArrayList<>();
+  for (StudySpot spot : new StudySpotsController().getAllStudySpots()) {
+   for (int copy = 0; copy < 20; copy++) {
+    StudySpot copied = new StudySpot(spot);
+    copied.setId(spot.getId() + "-" + copy);
+    catalog.add(copied);
+   }
+  }
+  List<IndexedScorer.Ranking> rankings = new ArrayList<>();
+  MatchingScoreController scorer = new MatchingScoreController(catalog) {
+   @Override
+   public Iterator<ScoredSpot> streamScore(ScoringQuery query) {
+    IndexedScorer.Ranking ranking = (IndexedScorer.Ranking) super.streamScore(query);
+    rankings.add(ranking);
+    return ranking;
+   }
+  };
+  PreferencesController streaming = new PreferencesController(scorer, new StudySpotsController());
+  PreferencesRequest request = request(5);
+  request.setUserLatitude(null);
+  request.setUserLongitude(null);
+  
+  List<Integer> unrankedAtFlush = new ArrayList<>();
+  ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+  OutputStream out = new FilterOutputStream(bytes) {
+   @Override
+   public void flush() {
+    if (bytes.size() > 0) unrankedAtFlush.add(rankings.get(0).remaining());
+   }
+  };
+  ((StreamingResponseBody) streaming.streamPreferences(request).getBody()).writeTo(out);
+  
+  assertEquals(catalog.size(), bytes.toString(StandardCharsets.UTF_8).split("\n").length);
+  assertEquals(catalog.size() - 64, unrankedAtFlush.get(0), "The first lines go out before the tail is ranked");
+ }
+}
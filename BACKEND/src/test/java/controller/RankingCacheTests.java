@@ -0,0 +1,137 @@
+package controller;
+
+import controller.MatchingScoreController.ScoredSpot;
+import model.PreferencesModel;
+import model.PreferencesSnapshot;
+import model.StudySpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RankingCacheTests {
+ 
+ private List<StudySpot> spots;
+ private MatchingScoreController scorer;
+ private AtomicLong clock;
+ private RankingCache cache;
+ 
+ @BeforeEach
+ void setup() {
+  spots = new StudySpotsController().getAllStudySpots();
+  scorer = new MatchingScoreController(spots);
+  clock = new AtomicLong();
+  cache = new RankingCache(scorer, 2, RankingCache.DEFAULT_MAX_SPOTS, 60, 10, clock::get);
+ }
+ 
+ private static PreferencesSnapshot prefs(String noise) {
+  return new PreferencesSnapshot(noise, "Indoor", "Library", List.of("WiFi"), false, 400,
+   LocalTime.of(8, 0), LocalTime.of(20, 0));
+ }
+ 
+ @Test
+ void testIdenticalCanonicalPreferencesHit() {
+  List<ScoredSpot> first = cache.rank(prefs("Silent"), 49.2667, -123.2562, 5);
+  List<ScoredSpot> second = cache.rank(prefs("SILENT"), 49.2667, -123.2562, 5);
+  assertSame(first, second);
+  assertEquals(1, cache.getStats().getHits());
+  assertEquals(1, cache.getStats().getMisses());
+ }
+ 
+ @Test
+ void testNearbyLocationsShareBucket() {
+  List<ScoredSpot> first = cache.rank(prefs("Silent"), 49.26670, -123.25620, 0);
+  List<ScoredSpot> second = cache.rank(prefs("Silent"), 49.26671, -123.25621, 0);
+  assertSame(first, second);
+  
+  PreferencesModel model = new PreferencesModel();
+  model.setNoiseLevel("Silent");
+  model.setIndoorOutdoor("Indoor");
+  model.setSpaceType("Library");
+  model.setAmenity("WiFi", 1);
+  model.setMaxDistance(400);
+  model.setOpenTime(LocalTime.of(8, 0));
+  model.setCloseTime(LocalTime.of(20, 0));
+  assertEquals(scorer.calculateScore(model, 49.26670, -123.25620, 0).size(), first.size());
+ }
+ 
+ @Test
+ void testDistancesAreQuantized() {
+  List<ScoredSpot> first = cache.rank(prefs("Silent"), Map.of("1", 52.0, "5", 140.0), 0);
+  List<ScoredSpot> second = cache.rank(prefs("Silent"), Map.of("5", 138.0, "1", 49.0), 0);
+  assertSame(first, second);
+  assertEquals(50.0, first.stream().filter(s -> s.getId().equals("1")).findFirst().get().getDistance());
+ }
+ 
+ @Test
+ void testDisabledCacheKeepsExactDistances() {
+  RankingCache disabled = new RankingCache(scorer, 0, 0, 60, 10, clock::get);
+  List<ScoredSpot> ranking = disabled.rank(prefs("Silent"), Map.of("1", 52.0), 0);
+  assertEquals(52.0, ranking.stream().filter(s -> s.getId().equals("1")).findFirst().get().getDistance());
+  assertEquals(0, disabled.getStats().getSize());
+ }
+ 
+ @Test
+ void testCachedSpotsAreBounded() {
+  int catalogSize = cache.rank(prefs("Silent"), null, 0).size();
+  RankingCache bounded = new RankingCache(scorer, 16, catalogSize + 3, 60, 10, clock::get);
+  bounded.rank(prefs("Silent"), null, 0);
+  bounded.rank(prefs("Moderate"), null, 0);
+  assertEquals(1, bounded.getStats().getSize());
+  assertEquals(catalogSize, bounded.getStats().getSpots());
+  assertEquals(1, bounded.getStats().getEvictions());
+  
+  bounded.rank(prefs("Loud"), null, 3);
+  assertEquals(2, bounded.getStats().getSize());
+  assertEquals(catalogSize + 3, bounded.getStats().getSpots());
+  
+  RankingCache tiny = new RankingCache(scorer, 16, catalogSize - 1, 60, 10, clock::get);
+  tiny.rank(prefs("Silent"), null, 0);
+  assertEquals(0, tiny.getStats().getSize(), "A ranking longer than the limit is not cached");
+ }
+ 
+ @Test
+ void testEntriesExpireAfterTtl() {
+  List<ScoredSpot> first = cache.rank(prefs("Silent"), null, 3);
+  clock.addAndGet(TimeUnit.SECONDS.toNanos(61));
+  List<ScoredSpot> second = cache.rank(prefs("Silent"), null, 3);
+  assertNotSame(first, second);
+  assertEquals(0, cache.getStats().getHits());
+  assertEquals(1, cache.getStats().getExpirations());
+  assertEquals(0, cache.getStats().getEvictions(), "Expired rankings are not evictions");
+ }
+ 
+ @Test
+ void testLeastRecentlyUsedIsEvicted() {
+  List<ScoredSpot> silent = cache.rank(prefs("Silent"), null, 3);
+  cache.rank(prefs("Moderate"), null, 3);
+  cache.rank(prefs("Silent"), null, 3);
+  cache.rank(prefs("Loud"), null, 3);
+  
+  assertSame(silent, cache.rank(prefs("Silent"), null, 3));
+  assertEquals(1, cache.getStats().getEvictions());
+  assertEquals(2, cache.getStats().getSize());
+ }
+ 
+ @Test
+ void testCatalogChangeInvalidates() {
+  List<ScoredSpot> before = cache.rank(prefs("Silent"), null, 0);
+  
+  StudySpot added = new StudySpot();
+  added.setId("100");
+  added.setName("New Spot");
+  added.setNoiseLevel("Silent");
+  spots.add(added);
+  
+  List<ScoredSpot> after = cache.rank(prefs("Silent"), null, 0);
+  assertNotSame(before, after);
+  assertEquals(before.size() + 1, after.size());
+  assertEquals(1, cache.getStats().getInvalidations());
+ }
+}
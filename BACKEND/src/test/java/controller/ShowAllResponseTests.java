@@ -0,0 +1,93 @@
+package controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import controller.MatchingScoreController.ScoredSpot;
+import controller.PreferencesController.PreferencesRequest;
+import model.StudySpot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShowAllResponseTests {
+
+ private final ObjectMapper objectMapper = new JacksonConfig().objectMapper();
+ private List<StudySpot> spots;
+ private MatchingScoreController scorer;
+ private PreferencesController controller;
+
+ @BeforeEach
+ void setup() {
+  spots = new ArrayList<>(new StudySpotsController().getAllStudySpots());
+  scorer = new MatchingScoreController(spots);
+  controller = new PreferencesController(scorer, new StudySpotsController(spots));
+ }
+
+ private static PreferencesRequest showAll() {
+  PreferencesRequest request = new PreferencesRequest();
+  request.setShowAll(true);
+  return request;
+ }
+
+ @Test
+ void testRenderedBytesMatchSerializedList() throws IOException {
+  List<ScoredSpot> expected = new ArrayList<>();
+  for (StudySpot spot : spots) {
+   expected.add(new ScoredSpot(spot, 100.0));
+  }
+  ResponseEntity<?> response = controller.applyPreferences(showAll(), null);
+  assertArrayEquals(objectMapper.writeValueAsBytes(expected), (byte[]) response.getBody());
+  assertEquals(spots.size(), controller.applyPreferences(showAll()).size());
+ }
+
+ @Test
+ void testGzipBodyWhenAccepted() throws IOException {
+  byte[] json = (byte[]) controller.applyPreferences(showAll(), null).getBody();
+  ResponseEntity<?> response = controller.applyPreferences(showAll(), "br, gzip;q=0.8");
+  assertEquals(List.of("gzip"), response.getHeaders().get("Content-Encoding"));
+  try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream((byte[]) response.getBody()))) {
+   assertArrayEquals(json, in.readAllBytes());
+  }
+  assertNull(controller.applyPreferences(showAll(), "gzip;q=0").getHeaders().get("Content-Encoding"));
+ }
+
+ @Test
+ void testMatchingETagReturnsNotModified() {
+  ResponseEntity<byte[]> first = controller.getAllScoredSpots(null, null);
+  String eTag = first.getHeaders().get("ETag").get(0);
+  assertTrue(eTag.startsWith("\"") && eTag.endsWith("\""));
+
+  ResponseEntity<byte[]> repeat = controller.getAllScoredSpots("W/\"stale\", " + eTag, null);
+  assertEquals(HttpStatus.NOT_MODIFIED, repeat.getStatusCode());
+  assertNull(repeat.getBody());
+  assertEquals(HttpStatus.OK, controller.getAllScoredSpots("\"stale\"", null).getStatusCode());
+ }
+
+ @Test
+ void testRenderedOncePerCatalogVersion() {
+  ShowAllResponse showAllResponse = new ShowAllResponse(scorer, objectMapper);
+  ShowAllResponse.Rendering first = showAllResponse.current();
+  assertSame(first, showAllResponse.current());
+
+  StudySpot added = new StudySpot();
+  added.setId("99");
+  added.setName("New Spot");
+  spots.add(added);
+  ShowAllResponse.Rendering second = showAllResponse.current();
+  assertNotSame(first, second);
+  assertTrue(second.getVersion() > first.getVersion());
+  assertFalse(second.getETag().equals(first.getETag()));
+  assertFalse(Arrays.equals(first.getJson(), second.getJson()));
+  assertTrue(second.getSpots().size() == spots.size());
+ }
+}
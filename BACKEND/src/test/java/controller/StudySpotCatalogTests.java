@@ -0,0 +1,136 @@
+package controller;
+
+import model.StudySpot;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudySpotCatalogTests {
+
+ private static StudySpot spot(String id) {
+  StudySpot spot = new StudySpot();
+  spot.setId(id);
+  spot.setName("Spot " + id);
+  return spot;
+ }
+
+ @Test
+ void testEditsPublishNewVersions() {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a"), spot("b")));
+  List<StudySpot> before = catalog.current();
+  assertEquals(1L, catalog.currentVersion().getNumber());
+
+  StudySpotCatalog.Edited<StudySpot> added = catalog.edit(edit -> edit.put(spot("c")));
+  assertNull(added.getResult());
+  assertEquals(2L, added.getVersion().getNumber());
+  assertEquals(3, catalog.current().size());
+  assertEquals(2, before.size());
+
+  StudySpotCatalog.Edited<StudySpot> removed = catalog.edit(edit -> edit.remove("a"));
+  assertEquals("a", removed.getResult().getId());
+  assertEquals(3L, catalog.currentVersion().getNumber());
+  assertEquals("b", catalog.current().get(0).getId());
+
+  StudySpotCatalog.Edited<StudySpot> missing = catalog.edit(edit -> edit.remove("a"));
+  assertNull(missing.getResult());
+  assertEquals(3L, missing.getVersion().getNumber());
+
+  catalog.publish(List.of(spot("z")));
+  assertEquals(4L, catalog.currentVersion().getNumber());
+  assertThrows(IllegalStateException.class, () -> catalog.edit(edit -> {
+   throw new IllegalStateException();
+  }));
+  assertThrows(UnsupportedOperationException.class, () -> catalog.current().add(spot("y")));
+ }
+
+ @Test
+ void testFailedEditPublishesNothing() {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a"), spot("b")));
+  List<StudySpot> before = catalog.current();
+  assertThrows(IllegalStateException.class, () -> catalog.edit(edit -> {
+   edit.put(spot("c"));
+   edit.put(spot("b"));
+   edit.remove("a");
+   throw new IllegalStateException();
+  }));
+  assertSame(before, catalog.current());
+  assertEquals(1L, catalog.currentVersion().getNumber());
+  assertFalse(catalog.currentVersion().hasEdits());
+
+  StudySpotCatalog.Edit working = new StudySpotCatalog.Edit(catalog.currentVersion());
+  working.remove("b");
+  int savepoint = working.savepoint();
+  working.put(spot("c"));
+  working.put(spot("a"));
+  working.remove("c");
+  working.put(spot("b"));
+  working.rollback(savepoint);
+  assertEquals(List.of("a"), working.toList().stream().map(StudySpot::getId).toList());
+  assertSame(before.get(0), working.get("a"));
+  assertNull(working.get("b"));
+  assertNull(working.get("c"));
+  assertFalse(working.matches(1L));
+
+  catalog.edit(edit -> edit.put(spot("c")));
+  assertTrue(catalog.currentVersion().hasEdits());
+  catalog.publish(List.of(spot("z")));
+  assertFalse(catalog.currentVersion().hasEdits());
+ }
+
+ @Test
+ void testConcurrentEditsAreCoalesced() throws Exception {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of());
+  AtomicInteger publishes = new AtomicInteger();
+  catalog.addListener(spots -> {
+   publishes.incrementAndGet();
+   try {
+    Thread.sleep(2);
+   } catch (InterruptedException e) {
+    Thread.currentThread().interrupt();
+   }
+  });
+
+  int threads = 8;
+  int editsPerThread = 50;
+  ExecutorService pool = Executors.newFixedThreadPool(threads);
+  try {
+   List<Future<List<Long>>> futures = new ArrayList<>();
+   for (int t = 0; t < threads; t++) {
+    int thread = t;
+    futures.add(pool.submit(() -> {
+     List<Long> versions = new ArrayList<>();
+     for (int i = 0; i < editsPerThread; i++) {
+      String id = thread + "-" + i;
+      StudySpotCatalog.Edited<StudySpot> edited = catalog.edit(edit -> edit.put(spot(id)));
+      assertTrue(edited.getVersion().getSpots().stream().anyMatch(s -> s.getId().equals(id)));
+      versions.add(edited.getVersion().getNumber());
+     }
+     return versions;
+    }));
+   }
+   Set<Long> seen = new HashSet<>();
+   for (Future<List<Long>> future : futures) {
+    List<Long> versions = future.get();
+    for (int i = 1; i < versions.size(); i++) {
+     assertTrue(versions.get(i) > versions.get(i - 1));
+    }
+    seen.addAll(versions);
+   }
+   assertEquals(threads * editsPerThread, catalog.current().size());
+   assertEquals(publishes.get() + 1L, catalog.currentVersion().getNumber());
+   assertTrue(publishes.get() < threads * editsPerThread, "Expected concurrent edits to share publishes");
+   assertTrue(seen.size() <= publishes.get());
+  } finally {
+   pool.shutdownNow();
+  }
+ }
+}
@@ -0,0 +1,255 @@
+package controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import config.JacksonConfig;
+import model.AmenityRegistry;
+import model.StudySpot;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StudySpotsControllerTests {
+
+ private static final String ADMIN = "Bearer secret";
+ 
+ private final ObjectMapper mapper = new JacksonConfig().objectMapper();
+
+ private StudySpotsController admin(StudySpotCatalog catalog) {
+  return new StudySpotsController(catalog, mapper,
+   new CatalogChangeLog(catalog, CatalogChangeLog.DEFAULT_MAX_ENTRIES), "secret");
+ }
+ 
+ private static StudySpot spot(String id, String name) {
+  StudySpot spot = new StudySpot();
+  spot.setId(id);
+  spot.setName(name);
+  spot.setNoiseLevel("Silent");
+  spot.setIndoorOutdoor("Indoor");
+  spot.setSpaceType("Library");
+  return spot;
+ }
+
+ @Test
+ void testLookupById() {
+  StudySpotsController controller = new StudySpotsController(
+   List.of(spot("a", "A"), spot("b", "B"), spot("a", "Duplicate")));
+  assertEquals("A", controller.getStudySpotById("a").getName());
+  assertEquals("B", controller.getStudySpotById("b").getName());
+  assertNull(controller.getStudySpotById("missing"));
+ }
+
+ @Test
+ void testMultiGetKeepsRequestOrder() {
+  StudySpotsController controller = new StudySpotsController(
+   List.of(spot("a", "A"), spot("b", "B"), spot("c", "C")));
+  List<StudySpot> spots = controller.getStudySpotsByIds(List.of("c", "missing", "a", " b", "c"));
+  assertEquals(3, spots.size());
+  assertEquals("C", spots.get(0).getName());
+  assertEquals("A", spots.get(1).getName());
+  assertEquals("B", spots.get(2).getName());
+  assertTrue(controller.getStudySpotsByIds(List.of()).isEmpty());
+ }
+
+ @Test
+ void testIndexFollowsPublishedCatalog() {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A")));
+  StudySpotsController controller = new StudySpotsController(catalog);
+  assertNotNull(controller.getStudySpotById("a"));
+  catalog.publish(List.of(spot("b", "B")));
+  assertNull(controller.getStudySpotById("a"));
+  assertEquals("B", controller.getStudySpotById("b").getName());
+ }
+ 
+ @Test
+ void testFullProjectionMatchesJackson() throws IOException {
+  StudySpotsController controller = new StudySpotsController();
+  JsonNode projected = body(controller.getAllStudySpots("", null, null));
+  JsonNode expected = mapper.valueToTree(controller.getAllStudySpots());
+  assertEquals(expected, projected);
+  assertEquals(mapper.writeValueAsString(expected.get(0)), mapper.writeValueAsString(projected.get(0)));
+ }
+ 
+ @Test
+ void testFieldProjection() throws IOException {
+  StudySpotsController controller = new StudySpotsController();
+  JsonNode spots = body(controller.getAllStudySpots("id, NAME,latitude,longitude,id", null, null));
+  assertEquals(34, spots.size());
+  List<String> names = new ArrayList<>();
+  spots.get(0).fieldNames().forEachRemaining(names::add);
+  assertEquals(List.of("id", "name", "latitude", "longitude"), names);
+  assertTrue(controller.getAllStudySpots("id,address", null, null).getStatusCode().is4xxClientError());
+ }
+ 
+ @Test
+ void testCursorPagesCoverCatalog() throws IOException {
+  StudySpotsController controller = new StudySpotsController();
+  List<String> ids = new ArrayList<>();
+  String cursor = null;
+  int pages = 0;
+  do {
+   JsonNode page = body(controller.getAllStudySpots("id", cursor, 10));
+   page.get("spots").forEach(spot -> ids.add(spot.get("id").asText()));
+   cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+   pages++;
+  } while (cursor != null);
+  assertEquals(4, pages);
+  List<String> expected = new ArrayList<>();
+  controller.getAllStudySpots().forEach(spot -> expected.add(spot.getId()));
+  assertEquals(expected, ids);
+  assertTrue(controller.getAllStudySpots(null, null, 0).getStatusCode().is4xxClientError());
+  assertTrue(controller.getAllStudySpots(null, "not a cursor", 5).getStatusCode().is4xxClientError());
+ }
+ 
+ @Test
+ void testCursorSurvivesReload() throws IOException {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A"), spot("b", "B"), spot("c", "C")));
+  StudySpotsController controller = new StudySpotsController(catalog);
+  String cursor = body(controller.getAllStudySpots(null, null, 2)).get("nextCursor").asText();
+  catalog.publish(List.of(spot("z", "Z"), spot("a", "A"), spot("b", "B"), spot("c", "C")));
+  JsonNode page = body(controller.getAllStudySpots(null, cursor, 2));
+  assertEquals("c", page.get("spots").get(0).get("id").asText());
+  assertTrue(page.get("nextCursor").isNull());
+  catalog.publish(List.of(spot("c", "C")));
+  assertTrue(controller.getAllStudySpots(null, cursor, 2).getStatusCode().is4xxClientError());
+ }
+ 
+ @Test
+ void testPutPatchDelete() throws IOException {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A")));
+  StudySpotsController controller = admin(catalog);
+  MatchingScoreController scorer = new MatchingScoreController(catalog,
+   MatchingScoreController.ScoringMode.INDEXED, ForkJoinPool.commonPool(), 1);
+  
+  StudySpot created = spot(null, "B");
+  created.setCloseTime(LocalTime.of(22, 0));
+  ResponseEntity<?> put = controller.putStudySpot("b", mapper.valueToTree(created), null, ADMIN);
+  assertEquals(HttpStatus.CREATED, put.getStatusCode());
+  assertEquals(List.of("2"), put.getHeaders().get(StudySpotsController.VERSION_HEADER));
+  assertEquals("B", controller.getStudySpotById("b").getName());
+  assertEquals(2, scorer.getStudySpots().size());
+  StudySpot replaced = spot("b", "B2");
+  replaced.setCloseTime(LocalTime.of(22, 0));
+  assertEquals(HttpStatus.OK, controller.putStudySpot("b", mapper.valueToTree(replaced), "\"2\"", ADMIN).getStatusCode());
+  assertEquals(HttpStatus.PRECONDITION_FAILED, controller.putStudySpot("b", mapper.valueToTree(spot("b", "B3")), "2", ADMIN).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST, controller.putStudySpot("b", mapper.valueToTree(spot("c", "C")), null, ADMIN).getStatusCode());
+  for (String reserved : List.of("all", "changes", "version")) {
+   assertEquals(HttpStatus.BAD_REQUEST,
+    controller.putStudySpot(reserved, mapper.valueToTree(spot(reserved, "R")), null, ADMIN).getStatusCode());
+  }
+  
+  ResponseEntity<?> patch = controller.patchStudySpot("b",
+   mapper.readTree("{\"name\":\"Patched\",\"openTime\":\"07:30\"}"), null, ADMIN);
+  assertEquals(HttpStatus.OK, patch.getStatusCode());
+  StudySpot patched = controller.getStudySpotById("b");
+  assertEquals("Patched", patched.getName());
+  assertEquals(LocalTime.of(7, 30), patched.getOpenTime());
+  assertEquals(LocalTime.of(22, 0), patched.getCloseTime());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.patchStudySpot("b", mapper.readTree("{\"id\":\"x\"}"), null, ADMIN).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.patchStudySpot("b", mapper.readTree("{\"latitude\":\"north\"}"), null, ADMIN).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.patchStudySpot("b", mapper.readTree("{\"noiseLevel\":null}"), null, ADMIN).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.patchStudySpot("b", mapper.readTree("{\"spaceType\":\" \"}"), null, ADMIN).getStatusCode());
+  assertEquals(HttpStatus.NOT_FOUND,
+   controller.patchStudySpot("x", mapper.readTree("{\"name\":\"X\"}"), null, ADMIN).getStatusCode());
+  
+  assertEquals(HttpStatus.BAD_REQUEST, controller.putStudySpot("b",
+   mapper.readTree("{\"name\":\"B\",\"openTime\":\"08:00\",\"closeTime\":\"22:00\",\"amenities\":{\"HotTub\":1}}"),
+   null, ADMIN).getStatusCode());
+  assertEquals(HttpStatus.BAD_REQUEST,
+   controller.patchStudySpot("b", mapper.readTree("{\"amenities\":{\"WiFi\":1,\"HotTub\":1}}"), null, ADMIN).getStatusCode());
+  assertEquals(-1, AmenityRegistry.lookup("HotTub"), "Rejected amenities are not registered");
+  assertEquals(HttpStatus.OK,
+   controller.patchStudySpot("b", mapper.readTree("{\"amenities\":{\"WiFi\":1}}"), null, ADMIN).getStatusCode());
+  
+  long version = controller.getCatalogVersion().get("version");
+  assertEquals(HttpStatus.NO_CONTENT, controller.deleteStudySpot("a", Long.toString(version), ADMIN).getStatusCode());
+  assertEquals(HttpStatus.NOT_FOUND, controller.deleteStudySpot("a", null, ADMIN).getStatusCode());
+  assertNull(controller.getStudySpotById("a"));
+  assertEquals(1, scorer.getStudySpots().size());
+  assertEquals(version + 1, (long) controller.getCatalogVersion().get("version"));
+ }
+ 
+ @Test
+ void testChangesRequireAdminToken() throws IOException {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A")));
+  StudySpotsController readOnly = new StudySpotsController(catalog);
+  assertEquals(HttpStatus.FORBIDDEN, readOnly.deleteStudySpot("a", null, ADMIN).getStatusCode());
+  StudySpotsController controller = admin(catalog);
+  assertEquals(HttpStatus.UNAUTHORIZED, controller.deleteStudySpot("a", null, null).getStatusCode());
+  assertEquals(HttpStatus.UNAUTHORIZED, controller.deleteStudySpot("a", null, "Bearer secrets").getStatusCode());
+  assertEquals(HttpStatus.UNAUTHORIZED,
+   controller.patchStudySpot("a", mapper.readTree("{\"name\":\"X\"}"), null, "Basic secret").getStatusCode());
+  assertEquals(HttpStatus.UNAUTHORIZED,
+   controller.putStudySpot("a", mapper.valueToTree(spot("a", "X")), null, null).getStatusCode());
+  assertEquals(1L, catalog.currentVersion().getNumber());
+  assertEquals(HttpStatus.NO_CONTENT, controller.deleteStudySpot("a", null, "bearer secret").getStatusCode());
+ }
+ 
+ @Test
+ void testChangesSinceVersion() throws IOException {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A"), spot("b", "B"), spot("c", "C")));
+  StudySpotsController controller = new StudySpotsController(catalog);
+  assertEquals(0, body(controller.getChanges(1, null)).get("updated").size());
+  
+  catalog.edit(edit -> edit.put(spot("b", "B2")));
+  catalog.edit(edit -> edit.put(spot("d", "D")));
+  catalog.edit(edit -> edit.put(spot("e", "E")));
+  catalog.edit(edit -> edit.remove("e"));
+  catalog.edit(edit -> edit.remove("c"));
+  JsonNode changes = body(controller.getChanges(1, "name"));
+  assertEquals(6, changes.get("version").asLong());
+  assertFalse(changes.get("full").asBoolean());
+  assertEquals("d", changes.get("added").get(0).get("id").asText());
+  assertEquals(1, changes.get("added").size());
+  assertEquals("B2", changes.get("updated").get(0).get("name").asText());
+  assertNull(changes.get("updated").get(0).get("latitude"));
+  assertEquals("c", changes.get("removed").get(0).asText());
+  assertEquals(1, changes.get("removed").size());
+  
+  JsonNode recent = body(controller.getChanges(5, null));
+  assertEquals(0, recent.get("added").size());
+  assertEquals(0, recent.get("updated").size());
+  assertEquals("c", recent.get("removed").get(0).asText());
+  
+  JsonNode unknown = body(controller.getChanges(42, null));
+  assertTrue(unknown.get("full").asBoolean());
+  assertEquals(3, unknown.get("spots").size());
+  assertTrue(controller.getChanges(1, "nope").getStatusCode().is4xxClientError());
+ }
+ 
+ @Test
+ void testChangeLogFallsBackToFullCatalog() {
+  StudySpotCatalog catalog = new StudySpotCatalog(List.of(spot("a", "A"), spot("b", "B")));
+  CatalogChangeLog log = new CatalogChangeLog(catalog, 2);
+  catalog.publish(List.of(spot("a", "A"), spot("b", "B")));
+  assertTrue(log.changesSince(1).isEmpty(), "An identical reload changes nothing");
+  
+  catalog.edit(edit -> edit.put(spot("a", "A2")));
+  catalog.edit(edit -> edit.put(spot("b", "B2")));
+  catalog.edit(edit -> edit.put(spot("c", "C")));
+  assertNull(log.changesSince(2), "The change to a was dropped");
+  assertEquals(List.of("c"), List.of(log.changesSince(3).getAdded().get(0).getId()));
+  
+  catalog.publish(List.of(spot("x", "X"), spot("y", "Y"), spot("z", "Z")));
+  assertEquals(6, log.getOldestVersion());
+  assertNull(log.changesSince(5));
+  assertTrue(log.changesSince(6).isEmpty());
+ }
+ 
+ private JsonNode body(ResponseEntity<?> response) throws IOException {
+  assertTrue(response.getStatusCode().is2xxSuccessful());
+  return mapper.readTree((byte[]) response.getBody());
+ }
+}
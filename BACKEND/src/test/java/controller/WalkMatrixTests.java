@@ -0,0 +1,171 @@
+package controller;
+
+import api.ApiIntegration;
+import api.ApiIntegration.ApiException;
+import api.ApiIntegration.DistanceTime;
+import api.StraightLineRouter;
+import api.WalkingRouter;
+import config.JacksonConfig;
+import model.StudySpot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WalkMatrixTests {
+
+ private final StraightLineRouter router = new StraightLineRouter();
+ private List<StudySpot> spots;
+ private Path dir;
+
+ @BeforeEach
+ void setup() throws IOException {
+  spots = new CatalogLoader(new JacksonConfig().objectMapper()).loadDefault();
+  dir = Files.createTempDirectory("walk");
+ }
+
+ @AfterEach
+ void cleanup() throws IOException {
+  try (Stream<Path> files = Files.walk(dir)) {
+   files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+  }
+ }
+
+ @Test
+ void testRoundTripAnswersSnappedPoints() throws IOException {
+  Path file = dir.resolve("spots.walk");
+  WalkMatrix.build(spots, router, 100, 200).write(file);
+  WalkMatrix matrix = WalkMatrix.open(file, 25);
+  assertEquals(spots.size(), matrix.spotCount());
+  assertTrue(matrix.cellCount() > 0);
+
+  StudySpot a = spots.get(0);
+  StudySpot b = spots.get(1);
+  DistanceTime expected = router.route(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude());
+  // A few meters off both spots still snaps to them.
+  DistanceTime actual = matrix.lookup(a.getLatitude() + 0.00005, a.getLongitude(), b.getLatitude(), b.getLongitude() - 0.00005);
+  assertNotNull(actual);
+  assertEquals(expected.distanceMeters, actual.distanceMeters, 0.01);
+  assertEquals(expected.durationSeconds, actual.durationSeconds);
+
+  // Away from every spot the origin falls back to its grid cell, within a cell's diagonal.
+  double originLat = a.getLatitude() + 0.0015;
+  double originLng = a.getLongitude() + 0.0015;
+  DistanceTime fromCell = matrix.lookup(originLat, originLng, b.getLatitude(), b.getLongitude());
+  DistanceTime direct = router.route(originLat, originLng, b.getLatitude(), b.getLongitude());
+  assertNotNull(fromCell);
+  assertEquals(direct.distanceMeters, fromCell.distanceMeters, 100 * Math.sqrt(2) * StraightLineRouter.DEFAULT_DETOUR);
+
+  assertNull(matrix.lookup(a.getLatitude() + 1, a.getLongitude(), b.getLatitude(), b.getLongitude()),
+   "Origins outside the grid are routed live");
+  assertNull(matrix.lookup(a.getLatitude(), a.getLongitude(), originLat, originLng),
+   "Destinations must be spots");
+  assertNull(WalkMatrix.empty().lookup(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()));
+ }
+
+ @Test
+ void testUnroutablePairsAndBadFiles() throws IOException {
+  StudySpot a = spots.get(0);
+  StudySpot b = spots.get(1);
+  WalkingRouter partial = (oLat, oLng, dLat, dLng) -> {
+   if (dLat == b.getLatitude() && dLng == b.getLongitude()) throw new ApiException("no route");
+   return router.route(oLat, oLng, dLat, dLng);
+  };
+  WalkMatrix matrix = WalkMatrix.build(spots, partial, 0, 0);
+  assertEquals(0, matrix.cellCount());
+  assertNull(matrix.lookup(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()));
+  assertNotNull(matrix.lookup(b.getLatitude(), b.getLongitude(), a.getLatitude(), a.getLongitude()));
+
+  Path file = dir.resolve("spots.walk");
+  matrix.write(file);
+  Files.write(file, new byte[]{1, 2, 3, 4}, StandardOpenOption.APPEND);
+  assertThrows(IOException.class, () -> WalkMatrix.open(file, 25));
+  Files.write(file, new byte[64]);
+  assertThrows(IOException.class, () -> WalkMatrix.open(file, 25));
+ }
+
+ @Test
+ void testControllerFallsBackToLiveRouting() {
+  StudySpot a = spots.get(0);
+  StudySpot b = spots.get(1);
+  int[] live = {0};
+  ApiIntegration api = new ApiIntegration() {
+   @Override
+   public CompletableFuture<DistanceTime> getDistanceTimeAsync(double originLat, double originLng, double destLat,
+                                                               double destLng) {
+    live[0]++;
+    return CompletableFuture.completedFuture(new DistanceTime(1, 1));
+   }
+  };
+  WalkController controller = new WalkController(api, WalkMatrix.build(spots, router, 100, 200));
+
+  WalkController.DistanceResponse precomputed =
+   controller.getWalkingDistance(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()).join();
+  assertEquals(0, live[0]);
+  assertEquals(router.route(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()).durationSeconds,
+   precomputed.durationSeconds);
+
+  WalkController.DistanceResponse routed =
+   controller.getWalkingDistance(a.getLatitude(), a.getLongitude(), b.getLatitude() + 0.01, b.getLongitude()).join();
+  assertEquals(1, live[0]);
+  assertEquals(1, routed.durationSeconds);
+ }
+ 
+ @Test
+ void testManyRoutesMissingSpotsTogether() {
+  StudySpot a = spots.get(0);
+  StudySpot b = spots.get(1);
+  List<StudySpot> far = new ArrayList<>();
+  for (StudySpot spot : spots) {
+   if (GeoGrid.haversineMeters(spot.getLatitude(), spot.getLongitude(), a.getLatitude(), a.getLongitude()) > 100
+    && GeoGrid.haversineMeters(spot.getLatitude(), spot.getLongitude(), b.getLatitude(), b.getLongitude()) > 100) {
+    far.add(spot);
+   }
+  }
+  StudySpot c = far.get(0);
+  StudySpot d = far.get(1);
+  List<Integer> batches = new ArrayList<>();
+  ApiIntegration api = new ApiIntegration() {
+   @Override
+   public CompletableFuture<DistanceTime[]> getDistanceMatrixAsync(double originLat, double originLng,
+                                                                   double[] destLats, double[] destLngs) {
+    batches.add(destLats.length);
+    return CompletableFuture.completedFuture(new DistanceTime[] {new DistanceTime(1, 1), null});
+   }
+  };
+  // Only a and b are in the matrix; c and d are routed live in one request, and d has no route.
+  WalkController controller = new WalkController(api, WalkMatrix.build(List.of(a, b), router, 0, 0));
+
+  ResponseEntity<?> response = controller.getWalkingDistances(a.getLatitude(), a.getLongitude(),
+   List.of(b.getId(), "no such spot", c.getId(), d.getId(), b.getId())).join();
+  assertEquals(HttpStatus.OK, response.getStatusCode());
+  assertEquals(List.of(2), batches);
+  @SuppressWarnings("unchecked")
+  List<WalkController.SpotWalk> walks = (List<WalkController.SpotWalk>) response.getBody();
+  assertEquals(2, walks.size());
+  assertEquals(b.getId(), walks.get(0).spotId);
+  assertEquals(router.route(a.getLatitude(), a.getLongitude(), b.getLatitude(), b.getLongitude()).durationSeconds,
+   walks.get(0).durationSeconds);
+  assertEquals(c.getId(), walks.get(1).spotId);
+  assertEquals(1, walks.get(1).durationSeconds);
+
+  List<String> tooMany = new ArrayList<>();
+  for (int k = 0; k <= WalkController.MAX_SPOTS; k++) {
+   tooMany.add(a.getId());
+  }
+  assertEquals(HttpStatus.BAD_REQUEST, controller.getWalkingDistances(0, 0, tooMany).join().getStatusCode());
+ }
+}